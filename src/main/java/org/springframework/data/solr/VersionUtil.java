@@ -42,6 +42,9 @@ public final class VersionUtil {
 	private static final boolean IS_SOLR_4_X_AVAILABLE = ClassUtils.isPresent(
 			"org.apache.solr.client.solrj.impl.CloudSolrServer", VersionUtil.class.getClassLoader());
 
+	private static final boolean IS_SOLR_4_7_AVAILABLE = ClassUtils.isPresent(
+			"org.apache.solr.common.params.CursorMarkParams", VersionUtil.class.getClassLoader());
+
 	/**
 	 * @return true if {@code org.joda.time.DateTime} is in path
 	 */
@@ -70,4 +73,11 @@ public final class VersionUtil {
 		return IS_SOLR_4_2_AVAILABLE;
 	}
 
+	/**
+	 * @return true if {@code org.apache.solr.common.params.CursorMarkParams} (introduced in solr 4.7.0) is in path
+	 */
+	public static boolean isSolr470Available() {
+		return IS_SOLR_4_7_AVAILABLE;
+	}
+
 }
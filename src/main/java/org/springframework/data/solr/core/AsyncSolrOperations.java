@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core;
+
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.solr.core.query.FacetQuery;
+import org.springframework.data.solr.core.query.HighlightQuery;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SolrDataQuery;
+import org.springframework.data.solr.core.query.TermsQuery;
+import org.springframework.data.solr.core.query.result.FacetPage;
+import org.springframework.data.solr.core.query.result.HighlightPage;
+import org.springframework.data.solr.core.query.result.TermsPage;
+
+/**
+ * Interface that specifies a basic set of Solr operations executed asynchronously. Each operation returns immediately
+ * with a {@link Future}. Exceptions are translated as done by {@link SolrOperations} and are available via
+ * {@link java.util.concurrent.ExecutionException#getCause()} when calling {@link Future#get()}.
+ * 
+ * @author agent
+ */
+public interface AsyncSolrOperations {
+
+	/**
+	 * @return the {@link SolrOperations} operations are delegated to
+	 */
+	SolrOperations getSolrOperations();
+
+	/**
+	 * Execute action within callback asynchronously
+	 * 
+	 * @param action
+	 * @return
+	 */
+	<T> Future<T> execute(SolrCallback<T> action);
+
+	/**
+	 * return number of elements found by for given query
+	 * 
+	 * @param query
+	 * @return
+	 */
+	Future<Long> count(SolrDataQuery query);
+
+	/**
+	 * @see SolrOperations#saveBean(Object)
+	 * @param obj
+	 * @return
+	 */
+	Future<UpdateResponse> saveBean(Object obj);
+
+	/**
+	 * @see SolrOperations#saveBean(Object, int)
+	 * @param obj
+	 * @param commitWithinMs
+	 * @return
+	 */
+	Future<UpdateResponse> saveBean(Object obj, int commitWithinMs);
+
+	/**
+	 * @see SolrOperations#saveBeans(Collection)
+	 * @param beans
+	 * @return
+	 */
+	Future<UpdateResponse> saveBeans(Collection<?> beans);
+
+	/**
+	 * @see SolrOperations#saveBeans(Collection, int)
+	 * @param beans
+	 * @param commitWithinMs
+	 * @return
+	 */
+	Future<UpdateResponse> saveBeans(Collection<?> beans, int commitWithinMs);
+
+	/**
+	 * @see SolrOperations#saveDocument(SolrInputDocument)
+	 * @param document
+	 * @return
+	 */
+	Future<UpdateResponse> saveDocument(SolrInputDocument document);
+
+	/**
+	 * @see SolrOperations#saveDocument(SolrInputDocument, int)
+	 * @param document
+	 * @param commitWithinMs
+	 * @return
+	 */
+	Future<UpdateResponse> saveDocument(SolrInputDocument document, int commitWithinMs);
+
+	/**
+	 * @see SolrOperations#saveDocuments(Collection)
+	 * @param documents
+	 * @return
+	 */
+	Future<UpdateResponse> saveDocuments(Collection<SolrInputDocument> documents);
+
+	/**
+	 * @see SolrOperations#saveDocuments(Collection, int)
+	 * @param documents
+	 * @param commitWithinMs
+	 * @return
+	 */
+	Future<UpdateResponse> saveDocuments(Collection<SolrInputDocument> documents, int commitWithinMs);
+
+	/**
+	 * @see SolrOperations#delete(SolrDataQuery)
+	 * @param query
+	 * @return
+	 */
+	Future<UpdateResponse> delete(SolrDataQuery query);
+
+	/**
+	 * @see SolrOperations#deleteById(String)
+	 * @param id
+	 * @return
+	 */
+	Future<UpdateResponse> deleteById(String id);
+
+	/**
+	 * @see SolrOperations#deleteById(Collection)
+	 * @param ids
+	 * @return
+	 */
+	Future<UpdateResponse> deleteById(Collection<String> ids);
+
+	/**
+	 * @see SolrOperations#queryForObject(Query, Class)
+	 * @param query
+	 * @param clazz
+	 * @return
+	 */
+	<T> Future<T> queryForObject(Query query, Class<T> clazz);
+
+	/**
+	 * @see SolrOperations#queryForPage(Query, Class)
+	 * @param query
+	 * @param clazz
+	 * @return
+	 */
+	<T> Future<Page<T>> queryForPage(Query query, Class<T> clazz);
+
+	/**
+	 * @see SolrOperations#queryForFacetPage(FacetQuery, Class)
+	 * @param query
+	 * @param clazz
+	 * @return
+	 */
+	<T> Future<FacetPage<T>> queryForFacetPage(FacetQuery query, Class<T> clazz);
+
+	/**
+	 * @see SolrOperations#queryForHighlightPage(HighlightQuery, Class)
+	 * @param query
+	 * @param clazz
+	 * @return
+	 */
+	<T> Future<HighlightPage<T>> queryForHighlightPage(HighlightQuery query, Class<T> clazz);
+
+	/**
+	 * @see SolrOperations#queryForTermsPage(TermsQuery)
+	 * @param query
+	 * @return
+	 */
+	Future<TermsPage> queryForTermsPage(TermsQuery query);
+
+	/**
+	 * @see SolrOperations#commit()
+	 * @return
+	 */
+	Future<Void> commit();
+
+	/**
+	 * @see SolrOperations#softCommit()
+	 * @return
+	 */
+	Future<Void> softCommit();
+
+	/**
+	 * @see SolrOperations#rollback()
+	 * @return
+	 */
+	Future<Void> rollback();
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.solr.core.query.FacetQuery;
+import org.springframework.data.solr.core.query.HighlightQuery;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SolrDataQuery;
+import org.springframework.data.solr.core.query.TermsQuery;
+import org.springframework.data.solr.core.query.result.FacetPage;
+import org.springframework.data.solr.core.query.result.HighlightPage;
+import org.springframework.data.solr.core.query.result.TermsPage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+
+/**
+ * Implementation of {@link AsyncSolrOperations} delegating to {@link SolrOperations} using an
+ * {@link AsyncTaskExecutor}. <br />
+ * If no executor is provided a bounded {@link ThreadPoolTaskExecutor} with {@link #DEFAULT_POOL_SIZE} threads and a
+ * queue of {@link #DEFAULT_QUEUE_CAPACITY} is created. Tasks exceeding the queue capacity will be rejected with
+ * {@link org.springframework.core.task.TaskRejectedException}.
+ * 
+ * @author agent
+ */
+public class AsyncSolrTemplate implements AsyncSolrOperations, DisposableBean {
+
+	public static final int DEFAULT_POOL_SIZE = 8;
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	private final SolrOperations solrOperations;
+	private final AsyncTaskExecutor taskExecutor;
+	private final boolean defaultExecutor;
+
+	public AsyncSolrTemplate(SolrOperations solrOperations) {
+		this(solrOperations, null);
+	}
+
+	/**
+	 * @param solrOperations must not be null
+	 * @param taskExecutor if null default executor will be created
+	 */
+	public AsyncSolrTemplate(SolrOperations solrOperations, AsyncTaskExecutor taskExecutor) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+
+		this.solrOperations = solrOperations;
+		this.defaultExecutor = taskExecutor == null;
+		this.taskExecutor = taskExecutor != null ? taskExecutor : createDefaultTaskExecutor();
+	}
+
+	private static AsyncTaskExecutor createDefaultTaskExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(DEFAULT_POOL_SIZE);
+		executor.setMaxPoolSize(DEFAULT_POOL_SIZE);
+		executor.setQueueCapacity(DEFAULT_QUEUE_CAPACITY);
+		executor.setThreadNamePrefix("solr-async-");
+		executor.setDaemon(true);
+		executor.initialize();
+		return executor;
+	}
+
+	@Override
+	public <T> Future<T> execute(final SolrCallback<T> action) {
+		Assert.notNull(action);
+
+		return submit(new Callable<T>() {
+			@Override
+			public T call() {
+				return solrOperations.execute(action);
+			}
+		});
+	}
+
+	@Override
+	public Future<Long> count(final SolrDataQuery query) {
+		return submit(new Callable<Long>() {
+			@Override
+			public Long call() {
+				return solrOperations.count(query);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveBean(final Object obj) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveBean(obj);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveBean(final Object obj, final int commitWithinMs) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveBean(obj, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveBeans(final Collection<?> beans) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveBeans(beans);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveBeans(final Collection<?> beans, final int commitWithinMs) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveBeans(beans, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveDocument(SolrInputDocument document) {
+		return saveDocument(document, -1);
+	}
+
+	@Override
+	public Future<UpdateResponse> saveDocument(final SolrInputDocument document, final int commitWithinMs) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveDocument(document, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> saveDocuments(Collection<SolrInputDocument> documents) {
+		return saveDocuments(documents, -1);
+	}
+
+	@Override
+	public Future<UpdateResponse> saveDocuments(final Collection<SolrInputDocument> documents, final int commitWithinMs) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.saveDocuments(documents, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> delete(final SolrDataQuery query) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.delete(query);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> deleteById(final String id) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.deleteById(id);
+			}
+		});
+	}
+
+	@Override
+	public Future<UpdateResponse> deleteById(final Collection<String> ids) {
+		return submit(new Callable<UpdateResponse>() {
+			@Override
+			public UpdateResponse call() {
+				return solrOperations.deleteById(ids);
+			}
+		});
+	}
+
+	@Override
+	public <T> Future<T> queryForObject(final Query query, final Class<T> clazz) {
+		return submit(new Callable<T>() {
+			@Override
+			public T call() {
+				return solrOperations.queryForObject(query, clazz);
+			}
+		});
+	}
+
+	@Override
+	public <T> Future<Page<T>> queryForPage(final Query query, final Class<T> clazz) {
+		return submit(new Callable<Page<T>>() {
+			@Override
+			public Page<T> call() {
+				return solrOperations.queryForPage(query, clazz);
+			}
+		});
+	}
+
+	@Override
+	public <T> Future<FacetPage<T>> queryForFacetPage(final FacetQuery query, final Class<T> clazz) {
+		return submit(new Callable<FacetPage<T>>() {
+			@Override
+			public FacetPage<T> call() {
+				return solrOperations.queryForFacetPage(query, clazz);
+			}
+		});
+	}
+
+	@Override
+	public <T> Future<HighlightPage<T>> queryForHighlightPage(final HighlightQuery query, final Class<T> clazz) {
+		return submit(new Callable<HighlightPage<T>>() {
+			@Override
+			public HighlightPage<T> call() {
+				return solrOperations.queryForHighlightPage(query, clazz);
+			}
+		});
+	}
+
+	@Override
+	public Future<TermsPage> queryForTermsPage(final TermsQuery query) {
+		return submit(new Callable<TermsPage>() {
+			@Override
+			public TermsPage call() {
+				return solrOperations.queryForTermsPage(query);
+			}
+		});
+	}
+
+	@Override
+	public Future<Void> commit() {
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				solrOperations.commit();
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public Future<Void> softCommit() {
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				solrOperations.softCommit();
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public Future<Void> rollback() {
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				solrOperations.rollback();
+				return null;
+			}
+		});
+	}
+
+	protected <T> Future<T> submit(Callable<T> task) {
+		return this.taskExecutor.submit(task);
+	}
+
+	@Override
+	public SolrOperations getSolrOperations() {
+		return this.solrOperations;
+	}
+
+	public AsyncTaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Shuts down the default executor. Provided executors have to be shut down by their owner.
+	 */
+	@Override
+	public void destroy() {
+		if (defaultExecutor && taskExecutor instanceof ThreadPoolTaskExecutor) {
+			((ThreadPoolTaskExecutor) taskExecutor).shutdown();
+		}
+	}
+
+}
@@ -92,11 +92,20 @@ public class DefaultQueryParser extends QueryParserBase<SolrDataQuery> {
 		appendFilterQuery(solrQuery, query.getFilterQueries());
 		appendSort(solrQuery, query.getSort());
 		appendDefaultOperator(solrQuery, query.getDefaultOperator());
-		appendTimeAllowed(solrQuery, query.getTimeAllowed());
+		appendTimeAllowed(solrQuery, getEffectiveTimeAllowed(query));
 		appendDefType(solrQuery, query.getDefType());
 		appendRequestHandler(solrQuery, query.getRequestHandler());
 	}
 
+	private Integer getEffectiveTimeAllowed(Query query) {
+		Integer timeAllowed = query.getTimeAllowed() != null && query.getTimeAllowed() > 0 ? query.getTimeAllowed() : null;
+		Integer timeout = query.getTimeout() != null && query.getTimeout() > 0 ? query.getTimeout() : null;
+		if (timeout == null) {
+			return query.getTimeAllowed();
+		}
+		return timeAllowed == null || timeout < timeAllowed ? timeout : timeAllowed;
+	}
+
 	private void processFacetOptions(SolrQuery solrQuery, FacetQuery query) {
 		if (enableFaceting(solrQuery, query)) {
 			appendFacetingOnFields(solrQuery, (FacetQuery) query);
@@ -15,7 +15,11 @@
  */
 package org.springframework.data.solr.core;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
@@ -23,14 +27,26 @@ import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrInputDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.solr.core.convert.SolrConverter;
+import org.springframework.data.solr.core.export.ResponseFormat;
+import org.springframework.data.solr.core.index.ImportFormat;
+import org.springframework.data.solr.core.index.ImportOptions;
+import org.springframework.data.solr.core.maintenance.CoreStatistics;
+import org.springframework.data.solr.core.maintenance.IndexStatistics;
+import org.springframework.data.solr.core.query.CursorOptions;
 import org.springframework.data.solr.core.query.FacetQuery;
 import org.springframework.data.solr.core.query.HighlightQuery;
 import org.springframework.data.solr.core.query.Query;
 import org.springframework.data.solr.core.query.SolrDataQuery;
 import org.springframework.data.solr.core.query.TermsQuery;
+import org.springframework.data.solr.core.query.Update;
+import org.springframework.data.solr.core.query.result.Cursor;
 import org.springframework.data.solr.core.query.result.FacetPage;
 import org.springframework.data.solr.core.query.result.HighlightPage;
+import org.springframework.data.solr.core.query.result.MultiQueryResult;
+import org.springframework.data.solr.core.query.result.StreamingResultCallback;
 import org.springframework.data.solr.core.query.result.TermsPage;
+import org.springframework.data.solr.core.query.result.UpdateResult;
+import org.springframework.data.solr.core.workload.WorkloadClass;
 
 /**
  * Interface that specifies a basic set of Solr operations.
@@ -63,7 +79,29 @@ public interface SolrOperations {
 	long count(SolrDataQuery query);
 
 	/**
-	 * Execute add operation against solr, which will do either insert or update
+	 * Send given file to the update handler as it is. The file is never parsed into {@link SolrInputDocument}s on the
+	 * client. {@link ImportFormat#isSplittable()} content is sent in pieces if {@link ImportOptions#getPieceSize()} is
+	 * set, otherwise the whole file is streamed within a single request.
+	 * 
+	 * @param file must not be null
+	 * @param options must not be null. Format is derived from file extension if not set.
+	 * @return responses of all requests sent. Number of documents is only counted for content sent in pieces.
+	 */
+	UpdateResult importFile(File file, ImportOptions options);
+
+	/**
+	 * Send content of given stream to the update handler as it is. The stream is not closed.
+	 * 
+	 * @param stream must not be null
+	 * @param options must not be null. Format must be set.
+	 * @return responses of all requests sent. Number of documents is only counted for content sent in pieces.
+	 * @see #importFile(File, ImportOptions)
+	 */
+	UpdateResult importStream(InputStream stream, ImportOptions options);
+
+	/**
+	 * Execute add operation against solr, which will do either insert or update. Uses {@code commitWithin} declared via
+	 * {@link org.springframework.data.solr.core.mapping.SolrDocument} if present.
 	 * 
 	 * @param obj
 	 * @return
@@ -80,7 +118,8 @@ public interface SolrOperations {
 	UpdateResponse saveBean(Object obj, int commitWithinMs);
 
 	/**
-	 * Add a collection of beans to solr, which will do either insert or update
+	 * Add a collection of beans to solr, which will do either insert or update. Uses {@code commitWithin} and
+	 * {@code batchSize} declared via {@link org.springframework.data.solr.core.mapping.SolrDocument} if present.
 	 * 
 	 * @param beans
 	 * @return
@@ -88,11 +127,13 @@ public interface SolrOperations {
 	UpdateResponse saveBeans(Collection<?> beans);
 
 	/**
-	 * Add a collection of beans to solr, which will do either insert or update with support for commitWithin strategy
+	 * Add a collection of beans to solr, which will do either insert or update with support for commitWithin strategy.
+	 * Beans are sent in batches in case a {@code batchSize} is declared via
+	 * {@link org.springframework.data.solr.core.mapping.SolrDocument}.
 	 * 
 	 * @param beans
 	 * @param commitWithinMs
-	 * @return
+	 * @return response of the last batch sent
 	 */
 	UpdateResponse saveBeans(Collection<?> beans, int commitWithinMs);
 
@@ -130,6 +171,25 @@ public interface SolrOperations {
 	 */
 	UpdateResponse saveDocuments(Collection<SolrInputDocument> documents, int commitWithinMs);
 
+	/**
+	 * Send given atomic updates within one single request.
+	 * 
+	 * @param updates
+	 * @return
+	 */
+	UpdateResult saveUpdates(Collection<? extends Update> updates);
+
+	/**
+	 * Send given atomic updates within one single request with support for commitWithin strategy. Updates having
+	 * {@link Update#getVersion()} set are only applied if the {@code _version_} matches. Updates rejected due to a
+	 * version conflict are reported via {@link UpdateResult#getConflicts()} and remaining updates are resent.
+	 * 
+	 * @param updates
+	 * @param commitWithinMs
+	 * @return
+	 */
+	UpdateResult saveUpdates(Collection<? extends Update> updates, int commitWithinMs);
+
 	/**
 	 * Find and delete all objects matching the provided Query
 	 * 
@@ -154,6 +214,33 @@ public interface SolrOperations {
 	 */
 	UpdateResponse deleteById(Collection<String> id);
 
+	/**
+	 * Find and delete all objects matching the provided Query. Commit will be done within given time.
+	 * 
+	 * @param query
+	 * @param commitWithinMs max time within server performs commit
+	 * @return
+	 */
+	UpdateResponse delete(SolrDataQuery query, int commitWithinMs);
+
+	/**
+	 * Delete the one object with provided id. Commit will be done within given time.
+	 * 
+	 * @param id
+	 * @param commitWithinMs max time within server performs commit
+	 * @return
+	 */
+	UpdateResponse deleteById(String id, int commitWithinMs);
+
+	/**
+	 * Delete objects with given ids. Commit will be done within given time.
+	 * 
+	 * @param ids
+	 * @param commitWithinMs max time within server performs commit
+	 * @return
+	 */
+	UpdateResponse deleteById(Collection<String> ids, int commitWithinMs);
+
 	/**
 	 * Execute the query against solr and return the first returned object
 	 * 
@@ -190,6 +277,129 @@ public interface SolrOperations {
 	 */
 	<T> HighlightPage<T> queryForHighlightPage(HighlightQuery query, Class<T> clazz);
 
+	/**
+	 * Execute the query against solr and return an open {@link Cursor} reading results chunk by chunk using
+	 * {@link CursorOptions#DEFAULT_CHUNK_SIZE}. Paging information of the query is ignored.
+	 * 
+	 * @param query
+	 * @param clazz use {@link org.apache.solr.common.SolrDocument} to skip conversion
+	 * @return
+	 */
+	<T> Cursor<T> queryForCursor(Query query, Class<T> clazz);
+
+	/**
+	 * Execute the query against solr and return an open {@link Cursor} reading results chunk by chunk as defined by
+	 * given {@link CursorOptions}. Paging information of the query is ignored.
+	 * 
+	 * @param query
+	 * @param clazz use {@link org.apache.solr.common.SolrDocument} to skip conversion
+	 * @param options
+	 * @return
+	 * @throws org.springframework.dao.InvalidDataAccessApiUsageException before solr 4.7 when sorting by score or
+	 *           functions
+	 */
+	<T> Cursor<T> queryForCursor(Query query, Class<T> clazz, CursorOptions options);
+
+	/**
+	 * Execute the query and pass each result to the given callback as soon as it is read from the response. Neither
+	 * the raw documents nor the converted entities are collected. The page request of the query is applied.
+	 * 
+	 * @param query
+	 * @param clazz use {@link org.apache.solr.common.SolrDocument} to skip conversion
+	 * @param callback
+	 * @return total number of documents found
+	 */
+	<T> long queryForStream(Query query, Class<T> clazz, StreamingResultCallback<? super T> callback);
+
+	/**
+	 * Execute the query in background and return an open {@link Cursor} reading entities from a bounded queue filled
+	 * while the response is streamed. The page request of the query is applied.
+	 * 
+	 * @param query
+	 * @param clazz use {@link org.apache.solr.common.SolrDocument} to skip conversion
+	 * @param capacity max number of entities buffered
+	 * @return
+	 */
+	<T> Cursor<T> queryForStream(Query query, Class<T> clazz, int capacity);
+
+	/**
+	 * Execute the query and copy the raw response body in given format to the output stream. The response is neither
+	 * parsed nor converted, which requires a http based {@link SolrServer}. Error responses returned by solr with status
+	 * {@code 400} are passed through as well. The stream is flushed but not closed.
+	 * 
+	 * @param query must not be null
+	 * @param outputStream must not be null
+	 * @param format must not be null
+	 * @return number of bytes written
+	 */
+	long queryToStream(SolrDataQuery query, OutputStream outputStream, ResponseFormat format);
+
+	/**
+	 * Execute given queries concurrently and wait for all of them to finish. Failures of single queries do not affect
+	 * the others and are reported via {@link MultiQueryResult#getFailures()}.
+	 * 
+	 * @param queries
+	 * @param clazz
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<Page<T>> queryForPages(List<? extends Query> queries, Class<T> clazz);
+
+	/**
+	 * Execute given queries concurrently and wait at most {@code timeoutMs} for all of them to finish. Queries not
+	 * finished in time are cancelled and reported as {@link org.springframework.dao.QueryTimeoutException}.
+	 * 
+	 * @param queries
+	 * @param clazz
+	 * @param timeoutMs overall time to wait, values lower or equal to zero wait until all queries are done
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<Page<T>> queryForPages(List<? extends Query> queries, Class<T> clazz, long timeoutMs);
+
+	/**
+	 * Execute given facet queries concurrently and wait for all of them to finish.
+	 * 
+	 * @see #queryForPages(List, Class)
+	 * @param queries
+	 * @param clazz
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<FacetPage<T>> queryForFacetPages(List<? extends FacetQuery> queries, Class<T> clazz);
+
+	/**
+	 * Execute given facet queries concurrently.
+	 * 
+	 * @see #queryForPages(List, Class, long)
+	 * @param queries
+	 * @param clazz
+	 * @param timeoutMs
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<FacetPage<T>> queryForFacetPages(List<? extends FacetQuery> queries, Class<T> clazz,
+			long timeoutMs);
+
+	/**
+	 * Execute given highlight queries concurrently and wait for all of them to finish.
+	 * 
+	 * @see #queryForPages(List, Class)
+	 * @param queries
+	 * @param clazz
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<HighlightPage<T>> queryForHighlightPages(List<? extends HighlightQuery> queries,
+			Class<T> clazz);
+
+	/**
+	 * Execute given highlight queries concurrently.
+	 * 
+	 * @see #queryForPages(List, Class, long)
+	 * @param queries
+	 * @param clazz
+	 * @param timeoutMs
+	 * @return results in order of given queries
+	 */
+	<T> MultiQueryResult<HighlightPage<T>> queryForHighlightPages(List<? extends HighlightQuery> queries,
+			Class<T> clazz, long timeoutMs);
+
 	/**
 	 * Execute query using terms handler
 	 * 
@@ -198,6 +408,25 @@ public interface SolrOperations {
 	 */
 	TermsPage queryForTermsPage(TermsQuery query);
 
+	/**
+	 * Execute given terms queries concurrently and wait for all of them to finish.
+	 * 
+	 * @see #queryForPages(List, Class)
+	 * @param queries
+	 * @return results in order of given queries
+	 */
+	MultiQueryResult<TermsPage> queryForTermsPages(List<? extends TermsQuery> queries);
+
+	/**
+	 * Execute given terms queries concurrently.
+	 * 
+	 * @see #queryForPages(List, Class, long)
+	 * @param queries
+	 * @param timeoutMs
+	 * @return results in order of given queries
+	 */
+	MultiQueryResult<TermsPage> queryForTermsPages(List<? extends TermsQuery> queries, long timeoutMs);
+
 	/**
 	 * Send commit command {@link SolrServer#commit()}
 	 */
@@ -214,6 +443,40 @@ public interface SolrOperations {
 	 */
 	void rollback();
 
+	/**
+	 * Send optimize command merging the index down to a single segment {@link SolrServer#optimize()}
+	 */
+	void optimize();
+
+	/**
+	 * Send optimize command merging the index down to at most {@code maxSegments} segments
+	 * {@link SolrServer#optimize(boolean, boolean, int)}
+	 * 
+	 * @param maxSegments must be greater than zero
+	 */
+	void optimize(int maxSegments);
+
+	/**
+	 * Send commit command with {@code expungeDeletes=true}, merging segments containing deleted documents.
+	 */
+	void expungeDeletes();
+
+	/**
+	 * Read document, segment and searcher cache statistics of the core via the luke ({@code show=index}) and mbeans
+	 * ({@code stats=true}) request handlers. Neither request touches terms or stored fields so polling is cheap.
+	 * 
+	 * @return
+	 */
+	CoreStatistics getCoreStatistics();
+
+	/**
+	 * Read document and segment counts as well as the version of the index via the luke request handler
+	 * ({@code show=index}) without touching terms or schema.
+	 * 
+	 * @return
+	 */
+	IndexStatistics getIndexStatistics();
+
 	/**
 	 * Convert given bean into a solrj InputDocument
 	 * 
@@ -228,11 +491,21 @@ public interface SolrOperations {
 	SolrConverter getConverter();
 
 	/**
-	 * Execute action within callback
+	 * Execute action within callback as {@link WorkloadClass#INTERACTIVE} request.
 	 * 
 	 * @param action
 	 * @return
 	 */
 	<T> T execute(SolrCallback<T> action);
 
+	/**
+	 * Execute action within callback as part of given {@link WorkloadClass}, so background and administrative requests
+	 * do not compete with user facing queries.
+	 * 
+	 * @param action
+	 * @param workloadClass
+	 * @return
+	 */
+	<T> T execute(SolrCallback<T> action, WorkloadClass workloadClass);
+
 }
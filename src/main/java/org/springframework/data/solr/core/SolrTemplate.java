@@ -15,50 +15,121 @@
  */
 package org.springframework.data.solr.core;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ContentStream;
+import org.apache.solr.common.util.ContentStreamBase;
+import org.apache.solr.common.util.NamedList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.dao.support.PersistenceExceptionTranslator;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.solr.UncategorizedSolrException;
 import org.springframework.data.solr.VersionUtil;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.PagePrefetcher;
+import org.springframework.data.solr.core.cache.QueryCoalescer;
+import org.springframework.data.solr.core.cache.QueryResultCache;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
 import org.springframework.data.solr.core.convert.MappingSolrConverter;
 import org.springframework.data.solr.core.convert.SolrConverter;
+import org.springframework.data.solr.core.export.PassthroughResponseParser;
+import org.springframework.data.solr.core.export.ResponseFormat;
+import org.springframework.data.solr.core.index.ImportFormat;
+import org.springframework.data.solr.core.index.ImportOptions;
+import org.springframework.data.solr.core.maintenance.CoreStatistics;
+import org.springframework.data.solr.core.maintenance.IndexStatistics;
 import org.springframework.data.solr.core.mapping.SimpleSolrMappingContext;
+import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
+import org.springframework.data.solr.core.query.CursorOptions;
 import org.springframework.data.solr.core.query.FacetQuery;
 import org.springframework.data.solr.core.query.HighlightQuery;
 import org.springframework.data.solr.core.query.Query;
 import org.springframework.data.solr.core.query.SolrDataQuery;
 import org.springframework.data.solr.core.query.TermsQuery;
+import org.springframework.data.solr.core.query.Update;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.data.solr.core.query.result.DelegatingCursor;
 import org.springframework.data.solr.core.query.result.FacetPage;
 import org.springframework.data.solr.core.query.result.HighlightPage;
+import org.springframework.data.solr.core.query.result.MultiQueryResult;
 import org.springframework.data.solr.core.query.result.SolrResultPage;
+import org.springframework.data.solr.core.query.result.StreamingCursor;
+import org.springframework.data.solr.core.query.result.StreamingResultCallback;
 import org.springframework.data.solr.core.query.result.TermsPage;
 import org.springframework.data.solr.core.query.result.TermsResultPage;
+import org.springframework.data.solr.core.query.result.UpdateResult;
+import org.springframework.data.solr.core.replay.QueryRecorder;
+import org.springframework.data.solr.core.workload.RequestScheduler;
+import org.springframework.data.solr.core.workload.WorkloadClass;
 import org.springframework.data.solr.server.SolrServerFactory;
 import org.springframework.data.solr.server.support.HttpSolrServerFactory;
+import org.springframework.data.solr.server.support.SolrServerUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
  * Implementation of {@link SolrOperations}
@@ -66,10 +137,15 @@ import org.springframework.util.Assert;
  * @author Christoph Strobl
  * @author Joachim Uhrlass
  */
-public class SolrTemplate implements SolrOperations, InitializingBean, ApplicationContextAware {
+public class SolrTemplate implements SolrOperations, InitializingBean, DisposableBean, ApplicationContextAware {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(SolrTemplate.class);
+	public static final long DEFAULT_TIMEOUT_GRACE_MS = 500;
+	public static final int DEFAULT_TASK_POOL_SIZE = 8;
+	public static final int DEFAULT_TASK_QUEUE_CAPACITY = 256;
+	public static final int DEFAULT_BLOCKING_TASK_POOL_SIZE = 64;
 	private static final PersistenceExceptionTranslator EXCEPTION_TRANSLATOR = new SolrExceptionTranslator();
+	private static final Pattern VERSION_CONFLICT_PATTERN = Pattern.compile("version conflict for (.+?) expected=");
 	private final QueryParsers queryParsers = new QueryParsers();
 
 	private ApplicationContext applicationContext;
@@ -88,6 +164,28 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 
 	private SolrConverter solrConverter;
 
+	private AsyncTaskExecutor taskExecutor;
+
+	private AsyncTaskExecutor blockingTaskExecutor;
+
+	private final List<ThreadPoolTaskExecutor> defaultTaskExecutors = new ArrayList<ThreadPoolTaskExecutor>(2);
+
+	private QueryResultCache queryResultCache;
+
+	private QueryCoalescer queryCoalescer;
+
+	private PagePrefetcher pagePrefetcher;
+
+	private QueryRecorder queryRecorder;
+
+	private RequestScheduler requestScheduler;
+
+	private Map<Class<?>, ReplicatedCoreCache<?>> replicatedCoreCaches = Collections.emptyMap();
+
+	private IdBloomFilter idBloomFilter;
+
+	private long timeoutGraceMs = DEFAULT_TIMEOUT_GRACE_MS;
+
 	public SolrTemplate(SolrServer solrServer) {
 		this(solrServer, null);
 	}
@@ -111,8 +209,24 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 
 	@Override
 	public <T> T execute(SolrCallback<T> action) {
+		return execute(action, WorkloadClass.INTERACTIVE);
+	}
+
+	/**
+	 * Execute given action as part of given {@link WorkloadClass}. In case a {@link RequestScheduler} is set the action
+	 * waits for the scheduler to admit it.
+	 * 
+	 * @param action must not be null
+	 * @param workloadClass must not be null
+	 * @return
+	 */
+	@Override
+	public <T> T execute(SolrCallback<T> action, WorkloadClass workloadClass) {
 		Assert.notNull(action);
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
 
+		RequestScheduler.Permit permit = this.requestScheduler != null ? this.requestScheduler.acquire(this.solrCore,
+				workloadClass) : null;
 		try {
 			SolrServer solrServer = this.getSolrServer();
 			return action.doInSolr(solrServer);
@@ -120,6 +234,39 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 			DataAccessException resolved = getExceptionTranslator().translateExceptionIfPossible(
 					new RuntimeException(e.getMessage(), e));
 			throw resolved == null ? new UncategorizedSolrException(e.getMessage(), e) : resolved;
+		} finally {
+			if (permit != null) {
+				permit.release();
+			}
+		}
+	}
+
+	/**
+	 * Execute given write operation and clear {@link QueryResultCache} and prefetched pages afterwards.
+	 * 
+	 * @param action
+	 * @return
+	 */
+	private UpdateResponse executeUpdate(SolrCallback<UpdateResponse> action) {
+		return executeUpdate(action, WorkloadClass.INDEXING);
+	}
+
+	private UpdateResponse executeUpdate(SolrCallback<UpdateResponse> action, WorkloadClass workloadClass) {
+		try {
+			return execute(action, workloadClass);
+		} finally {
+			if (this.queryResultCache != null) {
+				this.queryResultCache.clear();
+			}
+			if (this.pagePrefetcher != null) {
+				this.pagePrefetcher.clear();
+			}
+		}
+	}
+
+	private void registerIds(Collection<SolrInputDocument> documents) {
+		if (this.idBloomFilter != null) {
+			this.idBloomFilter.putDocuments(documents);
 		}
 	}
 
@@ -130,53 +277,253 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 			public SolrPingResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.ping();
 			}
-		});
+		}, WorkloadClass.ADMIN);
 	}
 
 	@Override
 	public long count(final SolrDataQuery query) {
 		Assert.notNull(query, "Query must not be 'null'.");
 
-		return execute(new SolrCallback<Long>() {
-
-			@Override
-			public Long doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
-				SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
-				solrQuery.setStart(0);
-				solrQuery.setRows(0);
+		SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
+		solrQuery.setStart(0);
+		solrQuery.setRows(0);
 
-				return solrServer.query(solrQuery).getResults().getNumFound();
-			}
-		});
+		return executeSolrQuery(solrQuery, null, getTimeout(query)).getResults().getNumFound();
 	}
 
 	@Override
 	public UpdateResponse saveBean(Object obj) {
-		return saveBean(obj, -1);
+		return saveBean(obj, getCommitWithin(obj));
 	}
 
 	@Override
 	public UpdateResponse saveBean(final Object objectToAdd, final int commitWithinMs) {
 		assertNoCollection(objectToAdd);
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
-				return solrServer.add(convertBeanToSolrInputDocument(objectToAdd), commitWithinMs);
+				SolrInputDocument document = convertBeanToSolrInputDocument(objectToAdd);
+				registerIds(Collections.singletonList(document));
+				return solrServer.add(document, commitWithinMs);
 			}
 		});
 	}
 
 	@Override
 	public UpdateResponse saveBeans(Collection<?> beans) {
-		return saveBeans(beans, -1);
+		return saveBeans(beans, null);
 	}
 
 	@Override
-	public UpdateResponse saveBeans(final Collection<?> beansToAdd, final int commitWithinMs) {
-		return execute(new SolrCallback<UpdateResponse>() {
+	public UpdateResponse saveBeans(Collection<?> beansToAdd, int commitWithinMs) {
+		return saveBeans(beansToAdd, Integer.valueOf(commitWithinMs));
+	}
+
+	/**
+	 * Save beans in consecutive runs sharing the same {@code commitWithin} and batch size declared via
+	 * {@link org.springframework.data.solr.core.mapping.SolrDocument}, so mixed collections apply the policy of each
+	 * entity type.
+	 * 
+	 * @param beansToAdd
+	 * @param commitWithinMs null to use the one declared for each entity type
+	 * @return response of the last request sent
+	 */
+	private UpdateResponse saveBeans(Collection<?> beansToAdd, Integer commitWithinMs) {
+		if (beansToAdd == null || beansToAdd.isEmpty()) {
+			return doSaveBeans(beansToAdd, commitWithinMs != null ? commitWithinMs.intValue() : -1);
+		}
+
+		UpdateResponse response = null;
+		List<Object> run = new ArrayList<Object>();
+		int runCommitWithin = -1;
+		int runBatchSize = -1;
+		for (Object bean : beansToAdd) {
+			int beanCommitWithin = commitWithinMs != null ? commitWithinMs.intValue() : getCommitWithin(bean);
+			int beanBatchSize = getBatchSize(bean);
+			if (!run.isEmpty() && (beanCommitWithin != runCommitWithin || beanBatchSize != runBatchSize)) {
+				response = saveInBatches(run, runCommitWithin, runBatchSize);
+				run = new ArrayList<Object>();
+			}
+			runCommitWithin = beanCommitWithin;
+			runBatchSize = beanBatchSize;
+			run.add(bean);
+		}
+		UpdateResponse last = saveInBatches(run, runCommitWithin, runBatchSize);
+		return last != null ? last : response;
+	}
+
+	private UpdateResponse saveInBatches(List<?> beans, int commitWithinMs, int batchSize) {
+		if (batchSize <= 0 || beans.size() <= batchSize) {
+			return doSaveBeans(beans, commitWithinMs);
+		}
+
+		UpdateResponse response = null;
+		for (int offset = 0; offset < beans.size(); offset += batchSize) {
+			response = doSaveBeans(beans.subList(offset, Math.min(offset + batchSize, beans.size())), commitWithinMs);
+		}
+		return response;
+	}
+
+	private UpdateResponse doSaveBeans(final Collection<?> beansToAdd, final int commitWithinMs) {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
-				return solrServer.add(convertBeansToSolrInputDocuments(beansToAdd), commitWithinMs);
+				Collection<SolrInputDocument> documents = convertBeansToSolrInputDocuments(beansToAdd);
+				registerIds(documents);
+				return solrServer.add(documents, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public UpdateResult importFile(File file, ImportOptions options) {
+		Assert.notNull(file, "File must not be 'null'.");
+		Assert.notNull(options, "ImportOptions must not be 'null'.");
+
+		ImportFormat format = options.getFormat() != null ? options.getFormat() : ImportFormat.fromFileName(file
+				.getName());
+		if (!options.isSplitInPieces(format)) {
+			ContentStreamBase.FileStream stream = new ContentStreamBase.FileStream(file);
+			stream.setContentType(format.getContentType() + "; charset=" + options.getCharset().name());
+
+			UpdateResult result = new UpdateResult();
+			result.addResponse(sendContentStream(stream, options), 0);
+			return result;
+		}
+
+		InputStream stream = null;
+		try {
+			stream = new FileInputStream(file);
+			return importInPieces(stream, format, options);
+		} catch (FileNotFoundException e) {
+			throw new DataAccessResourceFailureException("Unable to read file '" + file + "'.", e);
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					LOGGER.debug("Unable to close file '" + file + "'.", e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public UpdateResult importStream(final InputStream stream, ImportOptions options) {
+		Assert.notNull(stream, "Stream must not be 'null'.");
+		Assert.notNull(options, "ImportOptions must not be 'null'.");
+		Assert.notNull(options.getFormat(), "Format must be set when importing a stream.");
+
+		if (options.isSplitInPieces(options.getFormat())) {
+			return importInPieces(stream, options.getFormat(), options);
+		}
+
+		ContentStreamBase contentStream = new ContentStreamBase() {
+
+			@Override
+			public InputStream getStream() {
+				return stream;
+			}
+		};
+		contentStream.setContentType(options.getFormat().getContentType() + "; charset=" + options.getCharset().name());
+
+		UpdateResult result = new UpdateResult();
+		result.addResponse(sendContentStream(contentStream, options), 0);
+		return result;
+	}
+
+	private UpdateResult importInPieces(InputStream stream, ImportFormat format, ImportOptions options) {
+		UpdateResult result = new UpdateResult();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(stream, options.getCharset()), 64 * 1024);
+		try {
+			String header = readRecord(reader, options);
+			if (header == null) {
+				return result;
+			}
+
+			StringBuilder piece = new StringBuilder();
+			int records = 0;
+			String record;
+			while ((record = readRecord(reader, options)) != null) {
+				if (record.length() == 0) {
+					continue;
+				}
+				if (records == 0) {
+					piece.append(header).append('\n');
+				}
+				piece.append(record).append('\n');
+				if (++records >= options.getPieceSize()) {
+					result.addResponse(sendPiece(piece, format, options), records);
+					piece.setLength(0);
+					records = 0;
+				}
+			}
+			if (records > 0) {
+				result.addResponse(sendPiece(piece, format, options), records);
+			}
+			return result;
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to read content to import.", e);
+		}
+	}
+
+	/**
+	 * Read the next record, joining lines as long as an encapsulated value is open.
+	 * 
+	 * @return null if end of content has been reached
+	 * @throws IOException
+	 */
+	private String readRecord(BufferedReader reader, ImportOptions options) throws IOException {
+		String line = reader.readLine();
+		Character encapsulator = options.getEncapsulator();
+		if (line == null || encapsulator == null) {
+			return line;
+		}
+
+		Character escape = options.getEscape();
+		StringBuilder record = new StringBuilder(line);
+		boolean encapsulated = false;
+		int position = 0;
+		while (true) {
+			for (; position < record.length(); position++) {
+				char c = record.charAt(position);
+				if (escape != null && c == escape.charValue()) {
+					position++;
+				} else if (c == encapsulator.charValue()) {
+					// doubled encapsulators within a value toggle twice
+					encapsulated = !encapsulated;
+				}
+			}
+			if (!encapsulated || (line = reader.readLine()) == null) {
+				return record.toString();
+			}
+			record.append('\n').append(line);
+		}
+	}
+
+	private UpdateResponse sendPiece(StringBuilder piece, ImportFormat format, ImportOptions options) {
+		ContentStreamBase.StringStream stream = new ContentStreamBase.StringStream(piece.toString());
+		stream.setContentType(format.getContentType() + "; charset=UTF-8");
+		return sendContentStream(stream, options);
+	}
+
+	private UpdateResponse sendContentStream(final ContentStream stream, final ImportOptions options) {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				if (idBloomFilter != null) {
+					// ids of imported documents are unknown
+					idBloomFilter.invalidate();
+				}
+				ContentStreamUpdateRequest request = new ContentStreamUpdateRequest(options.getPath());
+				request.addContentStream(stream);
+				if (options.getCommitWithinMs() > 0) {
+					request.setParam(UpdateParams.COMMIT_WITHIN, Integer.toString(options.getCommitWithinMs()));
+				}
+				for (Map.Entry<String, String> param : options.getParams().entrySet()) {
+					request.setParam(param.getKey(), param.getValue());
+				}
+				return request.process(solrServer);
 			}
 		});
 	}
@@ -188,9 +535,10 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 
 	@Override
 	public UpdateResponse saveDocument(final SolrInputDocument documentToAdd, final int commitWithinMs) {
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				registerIds(Collections.singletonList(documentToAdd));
 				return solrServer.add(documentToAdd, commitWithinMs);
 			}
 		});
@@ -203,21 +551,85 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 
 	@Override
 	public UpdateResponse saveDocuments(final Collection<SolrInputDocument> documentsToAdd, final int commitWithinMs) {
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				registerIds(documentsToAdd);
 				return solrServer.add(documentsToAdd, commitWithinMs);
 			}
 		});
 	}
 
+	@Override
+	public UpdateResult saveUpdates(Collection<? extends Update> updates) {
+		return saveUpdates(updates, -1);
+	}
+
+	@Override
+	public UpdateResult saveUpdates(Collection<? extends Update> updates, int commitWithinMs) {
+		Assert.notNull(updates, "Updates must not be 'null'.");
+
+		List<Object> ids = new ArrayList<Object>(updates.size());
+		List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(updates.size());
+		for (Update update : updates) {
+			Assert.notNull(update, "Update must not be 'null'.");
+			Assert.notNull(update.getIdField(), "Update must have an id field.");
+
+			ids.add(update.getIdField().getValue());
+			documents.add(convertBeanToSolrInputDocument(update));
+		}
+
+		UpdateResult result = new UpdateResult();
+		int offset = 0;
+		while (offset < documents.size()) {
+			List<SolrInputDocument> batch = documents.subList(offset, documents.size());
+			try {
+				result.addResponse(saveDocuments(batch, commitWithinMs), batch.size());
+				offset = documents.size();
+			} catch (DataAccessException e) {
+				// solr processes documents in order and stops at the first conflicting one
+				int conflictIndex = indexOfVersionConflict(e, ids, offset);
+				if (conflictIndex < 0) {
+					throw e;
+				}
+
+				result.addResponse(null, conflictIndex - offset);
+				result.addConflict(ids.get(conflictIndex), e.getMostSpecificCause().getMessage());
+				offset = conflictIndex + 1;
+			}
+		}
+		return result;
+	}
+
+	private int indexOfVersionConflict(DataAccessException e, List<Object> ids, int offset) {
+		Throwable cause = e;
+		while (cause != null && !(cause instanceof SolrException)) {
+			cause = cause.getCause();
+		}
+		if (cause == null || ((SolrException) cause).code() != ErrorCode.CONFLICT.code) {
+			return -1;
+		}
+
+		Matcher matcher = VERSION_CONFLICT_PATTERN.matcher(cause.getMessage() != null ? cause.getMessage() : "");
+		if (!matcher.find()) {
+			return -1;
+		}
+		String conflictingId = matcher.group(1);
+		for (int i = offset; i < ids.size(); i++) {
+			if (ids.get(i) != null && conflictingId.equals(ids.get(i).toString())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	@Override
 	public UpdateResponse delete(SolrDataQuery query) {
 		Assert.notNull(query, "Query must not be 'null'.");
 
 		final String queryString = this.queryParsers.getForClass(query.getClass()).getQueryString(query);
 
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.deleteByQuery(queryString);
@@ -229,7 +641,7 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 	public UpdateResponse deleteById(final String id) {
 		Assert.notNull(id, "Cannot delete 'null' id.");
 
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.deleteById(id);
@@ -242,7 +654,7 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		Assert.notNull(ids, "Cannot delete 'null' collection.");
 
 		final List<String> toBeDeleted = new ArrayList<String>(ids);
-		return execute(new SolrCallback<UpdateResponse>() {
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.deleteById(toBeDeleted);
@@ -250,13 +662,57 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		});
 	}
 
+	@Override
+	public UpdateResponse delete(SolrDataQuery query, final int commitWithinMs) {
+		Assert.notNull(query, "Query must not be 'null'.");
+
+		final String queryString = this.queryParsers.getForClass(query.getClass()).getQueryString(query);
+
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.deleteByQuery(queryString, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public UpdateResponse deleteById(final String id, final int commitWithinMs) {
+		Assert.notNull(id, "Cannot delete 'null' id.");
+
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.deleteById(id, commitWithinMs);
+			}
+		});
+	}
+
+	@Override
+	public UpdateResponse deleteById(Collection<String> ids, final int commitWithinMs) {
+		Assert.notNull(ids, "Cannot delete 'null' collection.");
+
+		final List<String> toBeDeleted = new ArrayList<String>(ids);
+		return executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.deleteById(toBeDeleted, commitWithinMs);
+			}
+		});
+	}
+
 	@Override
 	public <T> T queryForObject(Query query, Class<T> clazz) {
 		Assert.notNull(query, "Query must not be 'null'.");
 		Assert.notNull(clazz, "Target class must not be 'null'.");
 
 		query.setPageRequest(new PageRequest(0, 1));
-		QueryResponse response = query(query);
+		Page<T> replicated = queryReplicatedCore(query, clazz);
+		if (replicated != null) {
+			return replicated.hasContent() ? replicated.getContent().get(0) : null;
+		}
+
+		QueryResponse response = query(query, clazz);
 
 		if (response.getResults().size() > 0) {
 			if (response.getResults().size() > 1) {
@@ -268,76 +724,647 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 	}
 
 	@Override
-	public <T> Page<T> queryForPage(Query query, Class<T> clazz) {
+	public <T> Page<T> queryForPage(final Query query, final Class<T> clazz) {
 		Assert.notNull(query, "Query must not be 'null'.");
 		Assert.notNull(clazz, "Target class must not be 'null'.");
 
-		QueryResponse response = query(query);
-		List<T> beans = convertQueryResponseToBeans(response, clazz);
-		return new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults().getNumFound());
+		Page<T> replicated = queryReplicatedCore(query, clazz);
+		if (replicated != null) {
+			return replicated;
+		}
+
+		return query(query, Page.class, clazz, new QueryResponseExtractor<Page<T>>() {
+
+			@Override
+			public Page<T> extract(QueryResponse response) {
+				List<T> beans = convertQueryResponseToBeans(response, clazz);
+				return new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults().getNumFound());
+			}
+		});
+	}
+
+	private <T> Page<T> queryReplicatedCore(Query query, Class<T> clazz) {
+		ReplicatedCoreCache<T> cache = getReplicatedCoreCache(clazz);
+		if (cache == null) {
+			return null;
+		}
+
+		Page<T> page = cache.query(query);
+		if (page != null) {
+			LOGGER.debug("Answered query '" + query.getCriteria() + "' from replicated " + clazz.getSimpleName()
+					+ " documents.");
+		}
+		return page;
 	}
 
 	@Override
-	public <T> FacetPage<T> queryForFacetPage(FacetQuery query, Class<T> clazz) {
+	public <T> FacetPage<T> queryForFacetPage(final FacetQuery query, final Class<T> clazz) {
 		Assert.notNull(query, "Query must not be 'null'.");
 		Assert.notNull(clazz, "Target class must not be 'null'.");
 
-		QueryResponse response = query(query);
+		return query(query, FacetPage.class, clazz, new QueryResponseExtractor<FacetPage<T>>() {
 
-		List<T> beans = convertQueryResponseToBeans(response, clazz);
-		SolrResultPage<T> page = new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults().getNumFound());
-		page.addAllFacetFieldResultPages(ResultHelper.convertFacetQueryResponseToFacetPageMap(query, response));
-		page.setFacetQueryResultPage(ResultHelper.convertFacetQueryResponseToFacetQueryResult(query, response));
+			@Override
+			public FacetPage<T> extract(QueryResponse response) {
+				List<T> beans = convertQueryResponseToBeans(response, clazz);
+				SolrResultPage<T> page = new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults()
+						.getNumFound());
+				page.addAllFacetFieldResultPages(ResultHelper.convertFacetQueryResponseToFacetPageMap(query, response));
+				page.setFacetQueryResultPage(ResultHelper.convertFacetQueryResponseToFacetQueryResult(query, response));
+
+				return page;
+			}
+		});
+	}
 
-		return page;
+	@Override
+	public <T> HighlightPage<T> queryForHighlightPage(final HighlightQuery query, final Class<T> clazz) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		return query(query, HighlightPage.class, clazz, new QueryResponseExtractor<HighlightPage<T>>() {
+
+			@Override
+			public HighlightPage<T> extract(QueryResponse response) {
+				List<T> beans = convertQueryResponseToBeans(response, clazz);
+				SolrResultPage<T> page = new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults()
+						.getNumFound());
+				ResultHelper.convertAndAddHighlightQueryResponseToResultPage(response, page);
+
+				return page;
+			}
+		});
+	}
+
+	@Override
+	public <T> Cursor<T> queryForCursor(Query query, Class<T> clazz) {
+		return queryForCursor(query, clazz, new CursorOptions());
 	}
 
 	@Override
-	public <T> HighlightPage<T> queryForHighlightPage(HighlightQuery query, Class<T> clazz) {
+	public <T> Cursor<T> queryForCursor(Query query, final Class<T> clazz, CursorOptions options) {
 		Assert.notNull(query, "Query must not be 'null'.");
 		Assert.notNull(clazz, "Target class must not be 'null'.");
 
-		QueryResponse response = query(query);
+		SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
+		LOGGER.debug("Opening cursor for query '" + solrQuery + "' against solr.");
 
-		List<T> beans = convertQueryResponseToBeans(response, clazz);
-		SolrResultPage<T> page = new SolrResultPage<T>(beans, query.getPageRequest(), response.getResults().getNumFound());
-		ResultHelper.convertAndAddHighlightQueryResponseToResultPage(response, page);
+		return new DelegatingCursor<T>(solrQuery, options, getBlockingTaskExecutor()) {
 
-		return page;
+			@Override
+			protected QueryResponse doLoad(SolrQuery nextQuery) {
+				return executeCoalescedSolrQuery(nextQuery, WorkloadClass.BATCH);
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			protected List<T> convert(SolrDocumentList documents) {
+				if (SolrDocument.class.equals(clazz)) {
+					return (List<T>) documents;
+				}
+				return convertSolrDocumentListToBeans(documents, clazz);
+			}
+		}.open();
+	}
+
+	@Override
+	public <T> long queryForStream(Query query, final Class<T> clazz, final StreamingResultCallback<? super T> callback) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+		Assert.notNull(callback, "Callback must not be 'null'.");
+
+		final SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
+		LOGGER.debug("Streaming query '" + solrQuery + "' against solr.");
+
+		final long[] numFound = new long[] { 0 };
+		execute(new SolrCallback<QueryResponse>() {
+			@Override
+			public QueryResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.queryAndStreamResponse(solrQuery, new StreamingResponseCallback() {
+
+					@Override
+					public void streamSolrDocument(SolrDocument document) {
+						callback.doWithEntity(convertStreamedDocument(document, clazz));
+					}
+
+					@Override
+					public void streamDocListInfo(long found, long start, Float maxScore) {
+						numFound[0] = found;
+					}
+				});
+			}
+		}, WorkloadClass.BATCH);
+		return numFound[0];
+	}
+
+	@Override
+	public <T> Cursor<T> queryForStream(final Query query, final Class<T> clazz, int capacity) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		return new StreamingCursor<T>(capacity, getBlockingTaskExecutor()) {
+
+			@Override
+			protected void doStream(StreamingResultCallback<T> callback) {
+				queryForStream(query, clazz, callback);
+			}
+		}.open();
+	}
+
+	@Override
+	public long queryToStream(SolrDataQuery query, final OutputStream outputStream, final ResponseFormat format) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(outputStream, "OutputStream must not be 'null'.");
+		Assert.notNull(format, "Format must not be 'null'.");
+
+		final SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
+		LOGGER.debug("Passing response of query '" + solrQuery + "' through as " + format + ".");
+
+		NamedList<Object> response = execute(new SolrCallback<NamedList<Object>>() {
+			@Override
+			public NamedList<Object> doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				QueryRequest request = new QueryRequest(solrQuery);
+				PassthroughResponseParser parser = new PassthroughResponseParser(outputStream, format);
+				if (solrServer instanceof HttpSolrServer) {
+					return passThrough((HttpSolrServer) solrServer, request, parser);
+				}
+				request.setResponseParser(parser);
+				return solrServer.request(request);
+			}
+		}, WorkloadClass.BATCH);
+
+		Object written = response != null ? response.get(PassthroughResponseParser.BYTES_WRITTEN) : null;
+		if (!(written instanceof Number)) {
+			throw new InvalidDataAccessApiUsageException("Response has not been passed through. "
+					+ "Make sure to use a http based SolrServer.");
+		}
+		return ((Number) written).longValue();
+	}
+
+	/**
+	 * Send given request via the {@code HttpClient} of the server and hand the body to the parser only in case of
+	 * {@code 200 OK}. {@link HttpSolrServer} passes {@code 400} and {@code 409} responses to the parser as well, which
+	 * would copy the error into the caller's stream.
+	 * 
+	 * @param solrServer
+	 * @param request
+	 * @param parser
+	 * @return
+	 * @throws IOException
+	 */
+	private NamedList<Object> passThrough(HttpSolrServer solrServer, SolrRequest request,
+			PassthroughResponseParser parser) throws IOException {
+		ModifiableSolrParams params = new ModifiableSolrParams(request.getParams());
+		params.set(CommonParams.WT, parser.getWriterType());
+		params.set(CommonParams.VERSION, parser.getVersion());
+
+		String url = solrServer.getBaseURL() + request.getPath() + ClientUtils.toQueryString(params, false);
+		HttpResponse response = solrServer.getHttpClient().execute(new HttpGet(url));
+		HttpEntity entity = response.getEntity();
+		try {
+			int status = response.getStatusLine().getStatusCode();
+			if (status != HttpStatus.SC_OK) {
+				String body = entity != null ? EntityUtils.toString(entity) : null;
+				throw new HttpSolrServer.RemoteSolrException(status, "Server at " + solrServer.getBaseURL()
+						+ " returned non ok status: " + status + ", message: " + response.getStatusLine().getReasonPhrase()
+						+ (body != null ? ", response: " + body : ""), null);
+			}
+			if (entity == null) {
+				throw new UncategorizedSolrException("Server at " + solrServer.getBaseURL()
+						+ " returned an empty response.", null);
+			}
+			return parser.processResponse(entity.getContent(), EntityUtils.getContentCharSet(entity));
+		} finally {
+			EntityUtils.consume(entity);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T convertStreamedDocument(SolrDocument document, Class<T> clazz) {
+		if (SolrDocument.class.equals(clazz)) {
+			return (T) document;
+		}
+		return convertSolrDocumentToBean(document, clazz);
+	}
+
+	@Override
+	public <T> MultiQueryResult<Page<T>> queryForPages(List<? extends Query> queries, Class<T> clazz) {
+		return queryForPages(queries, clazz, -1);
+	}
+
+	@Override
+	public <T> MultiQueryResult<Page<T>> queryForPages(List<? extends Query> queries, final Class<T> clazz,
+			long timeoutMs) {
+		Assert.notNull(queries, "Queries must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		List<Callable<Page<T>>> tasks = new ArrayList<Callable<Page<T>>>(queries.size());
+		for (final Query query : queries) {
+			tasks.add(new Callable<Page<T>>() {
+				@Override
+				public Page<T> call() {
+					return queryForPage(query, clazz);
+				}
+			});
+		}
+		return executeConcurrently(tasks, timeoutMs);
+	}
+
+	@Override
+	public <T> MultiQueryResult<FacetPage<T>> queryForFacetPages(List<? extends FacetQuery> queries, Class<T> clazz) {
+		return queryForFacetPages(queries, clazz, -1);
+	}
+
+	@Override
+	public <T> MultiQueryResult<FacetPage<T>> queryForFacetPages(List<? extends FacetQuery> queries,
+			final Class<T> clazz, long timeoutMs) {
+		Assert.notNull(queries, "Queries must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		List<Callable<FacetPage<T>>> tasks = new ArrayList<Callable<FacetPage<T>>>(queries.size());
+		for (final FacetQuery query : queries) {
+			tasks.add(new Callable<FacetPage<T>>() {
+				@Override
+				public FacetPage<T> call() {
+					return queryForFacetPage(query, clazz);
+				}
+			});
+		}
+		return executeConcurrently(tasks, timeoutMs);
+	}
+
+	@Override
+	public <T> MultiQueryResult<HighlightPage<T>> queryForHighlightPages(List<? extends HighlightQuery> queries,
+			Class<T> clazz) {
+		return queryForHighlightPages(queries, clazz, -1);
+	}
+
+	@Override
+	public <T> MultiQueryResult<HighlightPage<T>> queryForHighlightPages(List<? extends HighlightQuery> queries,
+			final Class<T> clazz, long timeoutMs) {
+		Assert.notNull(queries, "Queries must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		List<Callable<HighlightPage<T>>> tasks = new ArrayList<Callable<HighlightPage<T>>>(queries.size());
+		for (final HighlightQuery query : queries) {
+			tasks.add(new Callable<HighlightPage<T>>() {
+				@Override
+				public HighlightPage<T> call() {
+					return queryForHighlightPage(query, clazz);
+				}
+			});
+		}
+		return executeConcurrently(tasks, timeoutMs);
+	}
+
+	@Override
+	public MultiQueryResult<TermsPage> queryForTermsPages(List<? extends TermsQuery> queries) {
+		return queryForTermsPages(queries, -1);
+	}
+
+	@Override
+	public MultiQueryResult<TermsPage> queryForTermsPages(List<? extends TermsQuery> queries, long timeoutMs) {
+		Assert.notNull(queries, "Queries must not be 'null'.");
+
+		List<Callable<TermsPage>> tasks = new ArrayList<Callable<TermsPage>>(queries.size());
+		for (final TermsQuery query : queries) {
+			tasks.add(new Callable<TermsPage>() {
+				@Override
+				public TermsPage call() {
+					return queryForTermsPage(query);
+				}
+			});
+		}
+		return executeConcurrently(tasks, timeoutMs);
+	}
+
+	/**
+	 * Submit all tasks to {@link #getTaskExecutor()} and collect results in order of tasks. Tasks not finished within
+	 * {@code timeoutMs} (measured for all tasks together) are cancelled.
+	 * 
+	 * @param tasks
+	 * @param timeoutMs values lower or equal to zero wait until all tasks are done
+	 * @return
+	 */
+	final <R> MultiQueryResult<R> executeConcurrently(List<Callable<R>> tasks, long timeoutMs) {
+		MultiQueryResult<R> result = new MultiQueryResult<R>(tasks.size());
+		List<Future<R>> futures = new ArrayList<Future<R>>(tasks.size());
+
+		AsyncTaskExecutor executor = getTaskExecutor();
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				futures.add(executor.submit(tasks.get(i)));
+			} catch (TaskRejectedException e) {
+				futures.add(null);
+				result.setFailure(i, new TransientDataAccessResourceException("Query could not be submitted for execution.",
+						e));
+			}
+		}
+
+		long deadline = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+		boolean interrupted = false;
+		for (int i = 0; i < futures.size(); i++) {
+			Future<R> future = futures.get(i);
+			if (future == null) {
+				continue;
+			}
+			try {
+				if (interrupted) {
+					throw new InterruptedException();
+				}
+				if (deadline == Long.MAX_VALUE) {
+					result.setResult(i, future.get());
+				} else {
+					result.setResult(i, future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+				}
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				result.setFailure(i, new QueryTimeoutException("Query did not finish within " + timeoutMs + "ms.", e));
+			} catch (InterruptedException e) {
+				interrupted = true;
+				future.cancel(true);
+				result.setFailure(i, new UncategorizedSolrException("Interrupted while waiting for query result.", e));
+			} catch (ExecutionException e) {
+				result.setFailure(i, translateExecutionException(e));
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+
+	private DataAccessException translateExecutionException(ExecutionException e) {
+		Throwable cause = e.getCause() != null ? e.getCause() : e;
+		if (cause instanceof DataAccessException) {
+			return (DataAccessException) cause;
+		}
+		DataAccessException resolved = cause instanceof RuntimeException ? getExceptionTranslator()
+				.translateExceptionIfPossible((RuntimeException) cause) : null;
+		return resolved != null ? resolved : new UncategorizedSolrException(cause.getMessage(), cause);
 	}
 
 	@Override
 	public TermsPage queryForTermsPage(TermsQuery query) {
 		Assert.notNull(query, "Query must not be 'null'.");
 
-		QueryResponse response = query(query);
+		return query(query, TermsPage.class, null, new QueryResponseExtractor<TermsPage>() {
 
-		TermsResultPage page = new TermsResultPage();
-		page.addAllTerms(ResultHelper.convertTermsQueryResponseToTermsMap(response));
-		return page;
+			@Override
+			public TermsPage extract(QueryResponse response) {
+				TermsResultPage page = new TermsResultPage();
+				page.addAllTerms(ResultHelper.convertTermsQueryResponseToTermsMap(response));
+				return page;
+			}
+		});
 	}
 
 	final QueryResponse query(SolrDataQuery query) {
+		return query(query, null);
+	}
+
+	/**
+	 * Execute query within {@link Query#getTimeout()}.
+	 * 
+	 * @param query
+	 * @param targetType type results will be converted to, may be null
+	 * @return
+	 */
+	final QueryResponse query(SolrDataQuery query, Class<?> targetType) {
 		Assert.notNull(query, "Query must not be 'null'");
 
 		SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
 		LOGGER.debug("Executing query '" + solrQuery + "' against solr.");
 
-		return executeSolrQuery(solrQuery);
+		return executeSolrQuery(solrQuery, targetType, getTimeout(query));
+	}
+
+	private Integer getTimeout(SolrDataQuery query) {
+		return query instanceof Query ? ((Query) query).getTimeout() : null;
+	}
+
+	/**
+	 * Execute query and extract result. In case a {@link QueryResultCache} is set results are looked up in the cache
+	 * first.
+	 * 
+	 * @param query
+	 * @param resultType type of result used for building the cache key
+	 * @param targetType type of converted entities used for building the cache key
+	 * @param extractor
+	 * @return
+	 */
+	final <R> R query(SolrDataQuery query, Class<?> resultType, final Class<?> targetType,
+			final QueryResponseExtractor<R> extractor) {
+		Assert.notNull(query, "Query must not be 'null'");
+
+		final SolrQuery solrQuery = queryParsers.getForClass(query.getClass()).constructSolrQuery(query);
+		final Integer timeout = getTimeout(query);
+		if (this.queryResultCache == null) {
+			LOGGER.debug("Executing query '" + solrQuery + "' against solr.");
+			return extract(executeSolrQuery(solrQuery, targetType, timeout), extractor);
+		}
+
+		QueryResultCache.Key key = new QueryResultCache.Key(solrQuery, resultType, targetType);
+		R result = this.queryResultCache.get(key, new QueryResultCache.Loader<R>() {
+
+			@Override
+			public R load() {
+				LOGGER.debug("Executing query '" + solrQuery + "' against solr.");
+				return extract(executeSolrQuery(solrQuery, targetType, timeout), extractor);
+			}
+		});
+
+		// partial results depend on current load and must not be served to subsequent requests
+		if (result instanceof SolrResultPage && ((SolrResultPage<?>) result).isPartialResults()) {
+			this.queryResultCache.evict(key);
+		}
+		return result;
+	}
+
+	private <R> R extract(QueryResponse response, QueryResponseExtractor<R> extractor) {
+		R result = extractor.extract(response);
+		if (result instanceof SolrResultPage && isPartialResults(response)) {
+			((SolrResultPage<?>) result).setPartialResults(true);
+		}
+		return result;
+	}
+
+	private boolean isPartialResults(QueryResponse response) {
+		if (response == null || response.getResponseHeader() == null) {
+			return false;
+		}
+		Object partialResults = response.getResponseHeader().get("partialResults");
+		return partialResults instanceof Boolean ? ((Boolean) partialResults).booleanValue() : Boolean
+				.parseBoolean(String.valueOf(partialResults));
+	}
+
+	/**
+	 * Execute query waiting at most {@code timeout} plus {@link #setTimeoutGraceMs(long)} for the response. Solr itself
+	 * is told to stop searching after {@code timeout} via {@code timeAllowed} by the {@link QueryParser}, the additional
+	 * wait covers network and response processing. For {@link HttpSolrServer} the wait is applied as socket timeout of
+	 * the very request, so the connection is released once it elapsed. Other {@link SolrServer}s execute the request
+	 * via {@link #getBlockingTaskExecutor()}, which is abandoned once the wait has elapsed. In both cases the
+	 * {@link RequestScheduler} permit is released as soon as the caller gives up.
+	 * 
+	 * @param solrQuery
+	 * @param targetType
+	 * @param timeout in milliseconds. Null or values <= 0 wait until the request returns.
+	 * @return
+	 * @throws QueryTimeoutException in case no response has been received in time
+	 */
+	final QueryResponse executeSolrQuery(final SolrQuery solrQuery, final Class<?> targetType, Integer timeout) {
+		if (timeout == null || timeout.intValue() <= 0) {
+			return executeSolrQuery(solrQuery, targetType);
+		}
+
+		long waitMs = Math.min(timeout.longValue() + this.timeoutGraceMs, Integer.MAX_VALUE);
+		try {
+			return executeRecordedSolrQuery(solrQuery, targetType, (int) waitMs);
+		} catch (DataAccessException e) {
+			Throwable cause = e;
+			while (cause != null) {
+				if (cause instanceof SocketTimeoutException || cause instanceof TimeoutException) {
+					throw new QueryTimeoutException("Query did not return within " + waitMs + "ms.", e);
+				}
+				if (cause instanceof InterruptedException) {
+					throw new QueryTimeoutException("Interrupted while waiting for query to return.", e);
+				}
+				cause = cause.getCause();
+			}
+			throw e;
+		}
 	}
 
 	final QueryResponse executeSolrQuery(final SolrQuery solrQuery) {
+		return executeSolrQuery(solrQuery, null);
+	}
+
+	/**
+	 * Execute query and pass it on to the {@link QueryRecorder} if set.
+	 * 
+	 * @param solrQuery
+	 * @param targetType type results will be converted to, may be null
+	 * @return
+	 */
+	final QueryResponse executeSolrQuery(final SolrQuery solrQuery, Class<?> targetType) {
+		return executeRecordedSolrQuery(solrQuery, targetType, 0);
+	}
+
+	private QueryResponse executeRecordedSolrQuery(final SolrQuery solrQuery, Class<?> targetType, int waitMs) {
+		if (this.queryRecorder == null) {
+			return executePrefetchedSolrQuery(solrQuery, waitMs);
+		}
+
+		long start = System.currentTimeMillis();
+		int qTime = -1;
+		try {
+			QueryResponse response = executePrefetchedSolrQuery(solrQuery, waitMs);
+			qTime = response != null ? response.getQTime() : -1;
+			return response;
+		} finally {
+			try {
+				this.queryRecorder.record(solrQuery, targetType, System.currentTimeMillis() - start, qTime);
+			} catch (RuntimeException e) {
+				LOGGER.debug("Recording query failed.", e);
+			}
+		}
+	}
+
+	private QueryResponse executePrefetchedSolrQuery(final SolrQuery solrQuery, final int waitMs) {
+		if (this.pagePrefetcher == null) {
+			return executeCoalescedSolrQuery(solrQuery, WorkloadClass.INTERACTIVE, waitMs);
+		}
+
+		return this.pagePrefetcher.execute(solrQuery, new PagePrefetcher.QueryExecution() {
+
+			@Override
+			public QueryResponse execute(SolrQuery query) {
+				return executeCoalescedSolrQuery(query, WorkloadClass.INTERACTIVE, waitMs);
+			}
+		}, new PagePrefetcher.QueryExecution() {
+
+			@Override
+			public QueryResponse execute(SolrQuery query) {
+				// speculative, must not count against interactive limits
+				return executeCoalescedSolrQuery(query, WorkloadClass.BATCH);
+			}
+		}, waitMs);
+	}
+
+	private QueryResponse executeCoalescedSolrQuery(final SolrQuery solrQuery, final WorkloadClass workloadClass) {
+		return executeCoalescedSolrQuery(solrQuery, workloadClass, 0);
+	}
+
+	private QueryResponse executeCoalescedSolrQuery(final SolrQuery solrQuery, final WorkloadClass workloadClass,
+			final int waitMs) {
+		if (this.queryCoalescer == null) {
+			return doExecuteSolrQuery(solrQuery, workloadClass, waitMs);
+		}
+
+		return this.queryCoalescer.execute(solrQuery, new QueryResultCache.Loader<QueryResponse>() {
+
+			@Override
+			public QueryResponse load() {
+				return doExecuteSolrQuery(solrQuery, workloadClass, waitMs);
+			}
+		}, waitMs);
+	}
+
+	private QueryResponse doExecuteSolrQuery(final SolrQuery solrQuery, WorkloadClass workloadClass, final int waitMs) {
 		return execute(new SolrCallback<QueryResponse>() {
 			@Override
 			public QueryResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				if (waitMs <= 0) {
+					return solrServer.query(solrQuery);
+				}
+				if (solrServer instanceof HttpSolrServer) {
+					return SolrServerUtils.withSocketTimeout((HttpSolrServer) solrServer, waitMs).query(solrQuery);
+				}
+				return queryAbandoningAfter(solrServer, solrQuery, waitMs);
+			}
+		}, workloadClass);
+	}
+
+	/**
+	 * Execute query via {@link #getBlockingTaskExecutor()} for {@link SolrServer}s not allowing to set a timeout per
+	 * request. Using a separate executor avoids waiting for a thread of {@link #getTaskExecutor()} the caller may be
+	 * running on itself.
+	 * The calling thread, holding the {@link RequestScheduler} permit, stops waiting after {@code waitMs}.
+	 */
+	private QueryResponse queryAbandoningAfter(final SolrServer solrServer, final SolrQuery solrQuery, int waitMs)
+			throws SolrServerException, IOException {
+		Future<QueryResponse> future = getBlockingTaskExecutor().submit(new Callable<QueryResponse>() {
+
+			@Override
+			public QueryResponse call() throws SolrServerException {
 				return solrServer.query(solrQuery);
 			}
 		});
+
+		try {
+			return future.get(waitMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new SolrServerException("Query did not return within " + waitMs + "ms.", e);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new SolrServerException("Interrupted while waiting for query to return.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SolrServerException) {
+				throw (SolrServerException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SolrServerException(e.getCause());
+		}
 	}
 
 	@Override
 	public void commit() {
-		execute(new SolrCallback<UpdateResponse>() {
+		executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.commit();
@@ -351,7 +1378,7 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 			throw new UnsupportedOperationException(
 					"Soft commit is not available for solr version lower than 4.x - Please check your depdendencies.");
 		}
-		execute(new SolrCallback<UpdateResponse>() {
+		executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.commit(true, true, true);
@@ -361,7 +1388,7 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 
 	@Override
 	public void rollback() {
-		execute(new SolrCallback<UpdateResponse>() {
+		executeUpdate(new SolrCallback<UpdateResponse>() {
 			@Override
 			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
 				return solrServer.rollback();
@@ -369,6 +1396,79 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		});
 	}
 
+	@Override
+	public void optimize() {
+		optimize(1);
+	}
+
+	@Override
+	public void optimize(final int maxSegments) {
+		Assert.isTrue(maxSegments > 0, "MaxSegments must be greater than zero.");
+
+		executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.optimize(true, true, maxSegments);
+			}
+		}, WorkloadClass.ADMIN);
+	}
+
+	@Override
+	public void expungeDeletes() {
+		executeUpdate(new SolrCallback<UpdateResponse>() {
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				UpdateRequest request = new UpdateRequest();
+				request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+				request.setParam(UpdateParams.EXPUNGE_DELETES, Boolean.TRUE.toString());
+				return request.process(solrServer);
+			}
+		}, WorkloadClass.ADMIN);
+	}
+
+	@Override
+	public CoreStatistics getCoreStatistics() {
+		return execute(new SolrCallback<CoreStatistics>() {
+			@Override
+			public CoreStatistics doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				ModifiableSolrParams mbeansParams = new ModifiableSolrParams();
+				mbeansParams.set("stats", true);
+				mbeansParams.set("cat", "CACHE", "QUERYHANDLER");
+				mbeansParams.set("key", CoreStatistics.FILTER_CACHE, CoreStatistics.QUERY_RESULT_CACHE,
+						CoreStatistics.DOCUMENT_CACHE, CoreStatistics.REPLICATION_HANDLER);
+				QueryRequest mbeansRequest = new QueryRequest(mbeansParams);
+				mbeansRequest.setPath("/admin/mbeans");
+
+				return CoreStatistics.fromResponses(solrServer.request(createIndexInfoRequest()),
+						solrServer.request(mbeansRequest));
+			}
+		}, WorkloadClass.ADMIN);
+	}
+
+	@Override
+	public IndexStatistics getIndexStatistics() {
+		return execute(new SolrCallback<IndexStatistics>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public IndexStatistics doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				Object indexInfo = solrServer.request(createIndexInfoRequest()).get("index");
+				if (!(indexInfo instanceof NamedList)) {
+					throw new UncategorizedSolrException("Luke response does not contain index information.", null);
+				}
+				return IndexStatistics.fromIndexInfo((NamedList<Object>) indexInfo);
+			}
+		}, WorkloadClass.ADMIN);
+	}
+
+	private QueryRequest createIndexInfoRequest() {
+		ModifiableSolrParams params = new ModifiableSolrParams();
+		params.set("show", "index");
+		params.set("numTerms", 0);
+		QueryRequest request = new QueryRequest(params);
+		request.setPath("/admin/luke");
+		return request;
+	}
+
 	@Override
 	public SolrInputDocument convertBeanToSolrInputDocument(Object bean) {
 		if (bean instanceof SolrInputDocument) {
@@ -392,6 +1492,24 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		return resultList;
 	}
 
+	private int getCommitWithin(Object bean) {
+		SolrPersistentEntity<?> entity = getPersistentEntity(bean);
+		return entity != null ? entity.getCommitWithin() : -1;
+	}
+
+	private int getBatchSize(Object bean) {
+		SolrPersistentEntity<?> entity = getPersistentEntity(bean);
+		return entity != null ? entity.getBatchSize() : -1;
+	}
+
+	private SolrPersistentEntity<?> getPersistentEntity(Object bean) {
+		if (bean == null || bean instanceof SolrInputDocument || bean instanceof Update
+				|| getConverter().getMappingContext() == null) {
+			return null;
+		}
+		return getConverter().getMappingContext().getPersistentEntity(ClassUtils.getUserClass(bean));
+	}
+
 	public <T> List<T> convertQueryResponseToBeans(QueryResponse response, Class<T> targetClass) {
 		return response != null ? convertSolrDocumentListToBeans(response.getResults(), targetClass) : Collections
 				.<T> emptyList();
@@ -447,6 +1565,203 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		this.solrConverter = solrConverter;
 	}
 
+	/**
+	 * If no executor has been set a bounded {@link ThreadPoolTaskExecutor} with {@link #DEFAULT_TASK_POOL_SIZE} daemon
+	 * threads, timing out when idle, and a queue of {@link #DEFAULT_TASK_QUEUE_CAPACITY} is created. Tasks exceeding the
+	 * queue capacity are rejected with {@link TaskRejectedException}.
+	 * 
+	 * @return {@link AsyncTaskExecutor} used for short lived tasks like executing multiple queries concurrently,
+	 *         revalidating cached results and prefetching pages
+	 */
+	public synchronized AsyncTaskExecutor getTaskExecutor() {
+		if (this.taskExecutor == null) {
+			this.taskExecutor = createDefaultTaskExecutor("solr-template-", DEFAULT_TASK_POOL_SIZE,
+					DEFAULT_TASK_QUEUE_CAPACITY);
+		}
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set the {@link AsyncTaskExecutor} to use. The number of concurrently running queries is bounded by the executor
+	 * as well as by the connection pool of the used {@link SolrServer}.
+	 * 
+	 * @param taskExecutor
+	 */
+	public synchronized void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * If no executor has been set a {@link ThreadPoolTaskExecutor} with up to {@link #DEFAULT_BLOCKING_TASK_POOL_SIZE}
+	 * daemon threads, timing out when idle, is created. Tasks are handed over directly and rejected with
+	 * {@link TaskRejectedException} when all threads are busy.
+	 * 
+	 * @return {@link AsyncTaskExecutor} used for tasks blocking a thread for a long time, like prefetching chunks of a
+	 *         {@link Cursor}, reading a stream or waiting for requests to be abandoned after their timeout
+	 */
+	public synchronized AsyncTaskExecutor getBlockingTaskExecutor() {
+		if (this.blockingTaskExecutor == null) {
+			this.blockingTaskExecutor = createDefaultTaskExecutor("solr-template-blocking-",
+					DEFAULT_BLOCKING_TASK_POOL_SIZE, 0);
+		}
+		return this.blockingTaskExecutor;
+	}
+
+	/**
+	 * Set the {@link AsyncTaskExecutor} used for long running tasks. Keep it separate from
+	 * {@link #setTaskExecutor(AsyncTaskExecutor)} so open cursors do not starve other work.
+	 * 
+	 * @param blockingTaskExecutor
+	 */
+	public synchronized void setBlockingTaskExecutor(AsyncTaskExecutor blockingTaskExecutor) {
+		this.blockingTaskExecutor = blockingTaskExecutor;
+	}
+
+	private ThreadPoolTaskExecutor createDefaultTaskExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+		ThreadPoolTaskExecutor defaultTaskExecutor = new ThreadPoolTaskExecutor();
+		defaultTaskExecutor.setCorePoolSize(poolSize);
+		defaultTaskExecutor.setMaxPoolSize(poolSize);
+		defaultTaskExecutor.setQueueCapacity(queueCapacity);
+		defaultTaskExecutor.setAllowCoreThreadTimeOut(true);
+		defaultTaskExecutor.setThreadNamePrefix(threadNamePrefix);
+		defaultTaskExecutor.setDaemon(true);
+		defaultTaskExecutor.initialize();
+		this.defaultTaskExecutors.add(defaultTaskExecutor);
+		return defaultTaskExecutor;
+	}
+
+	/**
+	 * Set the time in milliseconds to wait for a response in addition to {@link Query#getTimeout()}, covering network
+	 * and response processing after solr stopped searching. Defaults to {@link #DEFAULT_TIMEOUT_GRACE_MS}.
+	 * 
+	 * @param timeoutGraceMs
+	 */
+	public void setTimeoutGraceMs(long timeoutGraceMs) {
+		Assert.isTrue(timeoutGraceMs >= 0, "TimeoutGrace must not be negative.");
+		this.timeoutGraceMs = timeoutGraceMs;
+	}
+
+	public long getTimeoutGraceMs() {
+		return this.timeoutGraceMs;
+	}
+
+	/**
+	 * Set the {@link QueryResultCache} to use for page and terms queries. Write operations executed via this template
+	 * clear the cache. If the cache has no {@link AsyncTaskExecutor} set the one of this template is used.
+	 * 
+	 * @param queryResultCache null to disable caching
+	 */
+	public void setQueryResultCache(QueryResultCache queryResultCache) {
+		if (queryResultCache != null && queryResultCache.getTaskExecutor() == null) {
+			queryResultCache.setTaskExecutor(getTaskExecutor());
+		}
+		this.queryResultCache = queryResultCache;
+	}
+
+	public QueryResultCache getQueryResultCache() {
+		return this.queryResultCache;
+	}
+
+	/**
+	 * Set the {@link QueryCoalescer} used to send identical queries in flight at the same time only once. All waiting
+	 * callers receive the same {@link QueryResponse} and convert it on their own.
+	 * 
+	 * @param queryCoalescer null to disable coalescing
+	 */
+	public void setQueryCoalescer(QueryCoalescer queryCoalescer) {
+		this.queryCoalescer = queryCoalescer;
+	}
+
+	public QueryCoalescer getQueryCoalescer() {
+		return this.queryCoalescer;
+	}
+
+	/**
+	 * Set the {@link PagePrefetcher} used to fetch the next page in background when pages of a query are requested in
+	 * order. Write operations executed via this template discard prefetched pages. If the prefetcher has no
+	 * {@link AsyncTaskExecutor} set the one of this template is used.
+	 * 
+	 * @param pagePrefetcher null to disable prefetching
+	 */
+	public void setPagePrefetcher(PagePrefetcher pagePrefetcher) {
+		if (pagePrefetcher != null && pagePrefetcher.getTaskExecutor() == null) {
+			pagePrefetcher.setTaskExecutor(getTaskExecutor());
+		}
+		this.pagePrefetcher = pagePrefetcher;
+	}
+
+	public PagePrefetcher getPagePrefetcher() {
+		return this.pagePrefetcher;
+	}
+
+	/**
+	 * Set the {@link QueryRecorder} receiving parameters and timing of every query executed via this template.
+	 * 
+	 * @param queryRecorder null to disable recording
+	 */
+	public void setQueryRecorder(QueryRecorder queryRecorder) {
+		this.queryRecorder = queryRecorder;
+	}
+
+	public QueryRecorder getQueryRecorder() {
+		return this.queryRecorder;
+	}
+
+	/**
+	 * Set the {@link RequestScheduler} limiting concurrent requests per {@link WorkloadClass}. Queries for pages,
+	 * facets and counts are executed as {@link WorkloadClass#INTERACTIVE}, cursors and streams as
+	 * {@link WorkloadClass#BATCH}, write operations as {@link WorkloadClass#INDEXING} and ping or statistics requests as
+	 * {@link WorkloadClass#ADMIN}.
+	 * 
+	 * @param requestScheduler
+	 */
+	public void setRequestScheduler(RequestScheduler requestScheduler) {
+		this.requestScheduler = requestScheduler;
+	}
+
+	public RequestScheduler getRequestScheduler() {
+		return this.requestScheduler;
+	}
+
+	/**
+	 * Set {@link ReplicatedCoreCache}s answering {@link #queryForObject(Query, Class)} and
+	 * {@link #queryForPage(Query, Class)} for their entity type locally whenever possible.
+	 * 
+	 * @param replicatedCoreCaches null to disable local queries
+	 */
+	public void setReplicatedCoreCaches(Collection<? extends ReplicatedCoreCache<?>> replicatedCoreCaches) {
+		Map<Class<?>, ReplicatedCoreCache<?>> caches = new HashMap<Class<?>, ReplicatedCoreCache<?>>();
+		if (replicatedCoreCaches != null) {
+			for (ReplicatedCoreCache<?> cache : replicatedCoreCaches) {
+				caches.put(cache.getEntityClass(), cache);
+			}
+		}
+		this.replicatedCoreCaches = caches;
+	}
+
+	/**
+	 * @param entityClass
+	 * @return null if no {@link ReplicatedCoreCache} is registered for given type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ReplicatedCoreCache<T> getReplicatedCoreCache(Class<T> entityClass) {
+		return (ReplicatedCoreCache<T>) this.replicatedCoreCaches.get(entityClass);
+	}
+
+	/**
+	 * Set the {@link IdBloomFilter} of the core ids of documents written via this template are added to before they are
+	 * sent. Imports invalidate the filter until it has been rebuilt.
+	 * 
+	 * @param idBloomFilter
+	 */
+	public void setIdBloomFilter(IdBloomFilter idBloomFilter) {
+		this.idBloomFilter = idBloomFilter;
+	}
+
+	public IdBloomFilter getIdBloomFilter() {
+		return this.idBloomFilter;
+	}
+
 	public String getSolrCore() {
 		return solrCore;
 	}
@@ -463,6 +1778,35 @@ public class SolrTemplate implements SolrOperations, InitializingBean, Applicati
 		registerPersistenceExceptionTranslator();
 	}
 
+	/**
+	 * Shut down executors created by default. Executors set via {@link #setTaskExecutor(AsyncTaskExecutor)} or
+	 * {@link #setBlockingTaskExecutor(AsyncTaskExecutor)} are left untouched.
+	 */
+	@Override
+	public synchronized void destroy() {
+		for (ThreadPoolTaskExecutor defaultTaskExecutor : this.defaultTaskExecutors) {
+			defaultTaskExecutor.shutdown();
+			if (this.taskExecutor == defaultTaskExecutor) {
+				this.taskExecutor = null;
+			}
+			if (this.blockingTaskExecutor == defaultTaskExecutor) {
+				this.blockingTaskExecutor = null;
+			}
+		}
+		this.defaultTaskExecutors.clear();
+	}
+
+	/**
+	 * Creates the result of a query from a {@link QueryResponse}.
+	 * 
+	 * @param <R>
+	 */
+	interface QueryResponseExtractor<R> {
+
+		R extract(QueryResponse response);
+
+	}
+
 	private void registerPersistenceExceptionTranslator() {
 		if (this.applicationContext != null
 				&& this.applicationContext.getBeansOfType(PersistenceExceptionTranslator.class).isEmpty()) {
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.SimpleStringCriteria;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Bloom filter of all document ids within a core allowing to rule out existence of a document without asking solr.
+ * The filter is built by reading the id field of all documents chunk by chunk, ids written via
+ * {@link org.springframework.data.solr.core.SolrTemplate} are added as they are sent. The index version is read via the
+ * luke request handler every {@link #setIntervalMs(long)} and the filter is rebuilt as soon as it changes, which also
+ * removes deleted ids. <br />
+ * {@link #mightContain(Object)} never returns false for an id that has been indexed, as long as no documents are added
+ * by other means than the template between two rebuilds. Until the filter has been built, or after
+ * {@link #invalidate()}, every id might be contained.
+ * 
+ * @author agent
+ */
+public class IdBloomFilter implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IdBloomFilter.class);
+
+	public static final long DEFAULT_INTERVAL_MS = 10000;
+	public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01d;
+	public static final double DEFAULT_CAPACITY_FACTOR = 1.5d;
+	public static final long DEFAULT_WRITE_RETENTION_MS = 60000;
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	private static final String DEFAULT_ID_FIELD = "id";
+	private static final int MIN_CAPACITY = 1024;
+
+	private final SolrOperations solrOperations;
+	private String idFieldName = DEFAULT_ID_FIELD;
+	private long intervalMs = DEFAULT_INTERVAL_MS;
+	private double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+	private double capacityFactor = DEFAULT_CAPACITY_FACTOR;
+	private long writeRetentionMs = DEFAULT_WRITE_RETENTION_MS;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private final Object buildMonitor = new Object();
+	private final ConcurrentLinkedQueue<Write> recentWrites = new ConcurrentLinkedQueue<Write>();
+	private final AtomicBoolean pruning = new AtomicBoolean(false);
+	private volatile Bits current;
+	private volatile Bits building;
+	private volatile Object indexVersion;
+	private final AtomicLong invalidations = new AtomicLong(0);
+
+	private TaskScheduler taskScheduler;
+	private boolean defaultScheduler;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param solrOperations must not be null
+	 */
+	public IdBloomFilter(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		this.solrOperations = solrOperations;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.taskScheduler == null) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("solr-id-filter-");
+			scheduler.setDaemon(true);
+			scheduler.initialize();
+			this.taskScheduler = scheduler;
+			this.defaultScheduler = true;
+		}
+
+		this.future = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				refresh();
+			}
+		}, intervalMs);
+	}
+
+	/**
+	 * Rebuild the filter in case it has not been built yet, the index version changed or more ids have been added than
+	 * the filter has been sized for. Errors are logged and leave the current filter in place.
+	 * 
+	 * @return true if a new filter is in place
+	 */
+	public boolean refresh() {
+		synchronized (buildMonitor) {
+			try {
+				pruneRecentWrites(System.currentTimeMillis() - writeRetentionMs);
+				Object version = readIndexVersion();
+				Bits bits = this.current;
+				if (bits != null && version != null && version.equals(indexVersion) && !bits.isSaturated()) {
+					return false;
+				}
+				return rebuild(version);
+			} catch (DataAccessException e) {
+				LOGGER.warn("Unable to build id filter.", e);
+				return false;
+			}
+		}
+	}
+
+	private boolean rebuild(Object version) {
+		long started = System.currentTimeMillis();
+		long invalidationsAtStart = invalidations.get();
+		long count = solrOperations.count(new SimpleQuery(new SimpleStringCriteria("*:*")));
+		final Bits bits = new Bits(Math.max(MIN_CAPACITY, (long) (count * capacityFactor)), falsePositiveProbability);
+
+		this.building = bits;
+		try {
+			Query query = new SimpleQuery(new SimpleStringCriteria("*:*")).addProjectionOnField(idFieldName);
+			CursorOptions options = new CursorOptions(chunkSize);
+			options.setUniqueKey(idFieldName);
+
+			// keyset paging on the uniqueKey keeps each request at chunkSize rows regardless of core size
+			Cursor<SolrDocument> cursor = solrOperations.queryForCursor(query, SolrDocument.class, options);
+			try {
+				while (cursor.hasNext()) {
+					Object id = cursor.next().getFieldValue(idFieldName);
+					if (id != null) {
+						bits.put(id.toString());
+					}
+				}
+			} finally {
+				cursor.close();
+			}
+
+			// ids sent shortly before might not have been committed while streaming
+			replayRecentWrites(bits);
+			if (invalidations.get() != invalidationsAtStart) {
+				LOGGER.debug("Id filter has been invalidated while building.");
+				return false;
+			}
+			this.current = bits;
+			this.indexVersion = version;
+		} finally {
+			this.building = null;
+		}
+		LOGGER.debug("Built id filter for " + count + " documents at index version " + version + " in "
+				+ (System.currentTimeMillis() - started) + "ms.");
+		return true;
+	}
+
+	private void replayRecentWrites(Bits bits) {
+		for (Write write : recentWrites) {
+			bits.put(write.id);
+		}
+	}
+
+	private void pruneRecentWrites(long before) {
+		if (!pruning.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			// writes are appended in order of time, so expired ones are at the head. Being the only thread removing
+			// elements the head cannot change between peek and poll.
+			Write head;
+			while ((head = recentWrites.peek()) != null && head.timestamp < before) {
+				recentWrites.poll();
+			}
+		} finally {
+			pruning.set(false);
+		}
+	}
+
+	/**
+	 * @param id must not be null
+	 * @return false if no document with given id exists, true if it might exist
+	 */
+	public boolean mightContain(Object id) {
+		Assert.notNull(id, "Id must not be 'null'.");
+
+		Bits bits = this.current;
+		return bits == null || bits.mightContain(id.toString());
+	}
+
+	/**
+	 * Add id of document about to be written.
+	 * 
+	 * @param id must not be null
+	 */
+	public void put(Object id) {
+		Assert.notNull(id, "Id must not be 'null'.");
+
+		String key = id.toString();
+		long now = System.currentTimeMillis();
+		recentWrites.add(new Write(key, now));
+		pruneRecentWrites(now - writeRetentionMs);
+		Bits bits = this.current;
+		if (bits != null) {
+			bits.put(key);
+		}
+		bits = this.building;
+		if (bits != null) {
+			bits.put(key);
+		}
+	}
+
+	/**
+	 * Add ids of documents about to be written.
+	 * 
+	 * @param documents
+	 */
+	public void putDocuments(Collection<SolrInputDocument> documents) {
+		if (documents == null) {
+			return;
+		}
+		for (SolrInputDocument document : documents) {
+			putDocument(document);
+		}
+	}
+
+	/**
+	 * Add id of document about to be written.
+	 * 
+	 * @param document
+	 */
+	public void putDocument(SolrInputDocument document) {
+		Object id = document != null ? document.getFieldValue(idFieldName) : null;
+		if (id != null) {
+			put(id);
+		}
+	}
+
+	/**
+	 * Discard the filter in case documents have been written without their ids being known. Every id might be contained
+	 * until the filter has been rebuilt on next {@link #refresh()}.
+	 */
+	public void invalidate() {
+		invalidations.incrementAndGet();
+		this.current = null;
+	}
+
+	/**
+	 * @return true if the filter has been built
+	 */
+	public boolean isReady() {
+		return this.current != null;
+	}
+
+	/**
+	 * @return index version the filter has been built at, null if not built or not reported
+	 */
+	public Object getIndexVersion() {
+		return this.current != null ? this.indexVersion : null;
+	}
+
+	protected Object readIndexVersion() {
+		return solrOperations.getIndexStatistics().getVersion();
+	}
+
+	@Override
+	public void destroy() {
+		if (future != null) {
+			future.cancel(false);
+		}
+		if (defaultScheduler && taskScheduler instanceof ThreadPoolTaskScheduler) {
+			((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+
+	/**
+	 * @param idFieldName name of the field holding the unique key. Defaults to {@code id}.
+	 */
+	public void setIdFieldName(String idFieldName) {
+		Assert.hasText(idFieldName, "IdFieldName must not be empty.");
+		this.idFieldName = idFieldName;
+	}
+
+	public String getIdFieldName() {
+		return idFieldName;
+	}
+
+	public void setIntervalMs(long intervalMs) {
+		Assert.isTrue(intervalMs > 0, "Interval must be greater than zero.");
+		this.intervalMs = intervalMs;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	/**
+	 * @param falsePositiveProbability probability of {@link #mightContain(Object)} returning true for an id not
+	 *          contained when the filter is filled up to its capacity
+	 */
+	public void setFalsePositiveProbability(double falsePositiveProbability) {
+		Assert.isTrue(falsePositiveProbability > 0d && falsePositiveProbability < 1d,
+				"FalsePositiveProbability must be between 0 and 1.");
+		this.falsePositiveProbability = falsePositiveProbability;
+	}
+
+	public double getFalsePositiveProbability() {
+		return falsePositiveProbability;
+	}
+
+	/**
+	 * @param capacityFactor capacity of the filter relative to the number of documents when built, leaving room for ids
+	 *          added until the next rebuild
+	 */
+	public void setCapacityFactor(double capacityFactor) {
+		Assert.isTrue(capacityFactor >= 1d, "CapacityFactor must not be less than 1.");
+		this.capacityFactor = capacityFactor;
+	}
+
+	public double getCapacityFactor() {
+		return capacityFactor;
+	}
+
+	/**
+	 * @param writeRetentionMs time ids written via {@link #put(Object)} are kept to be added to a rebuilt filter. Should
+	 *          exceed the time it takes until written documents are committed.
+	 */
+	public void setWriteRetentionMs(long writeRetentionMs) {
+		Assert.isTrue(writeRetentionMs >= 0, "WriteRetention must not be negative.");
+		this.writeRetentionMs = writeRetentionMs;
+	}
+
+	public long getWriteRetentionMs() {
+		return writeRetentionMs;
+	}
+
+	/**
+	 * @param chunkSize number of ids read per request when building the filter
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "ChunkSize must be greater than zero.");
+		this.chunkSize = chunkSize;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	private static class Write {
+
+		private final String id;
+		private final long timestamp;
+
+		Write(String id, long timestamp) {
+			this.id = id;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * Bit array using double hashing of a 64 bit hash to derive the positions of an id.
+	 */
+	static class Bits {
+
+		private final AtomicLongArray words;
+		private final long bitCount;
+		private final int hashCount;
+		private final long capacity;
+		private final AtomicLong insertions = new AtomicLong(0);
+
+		Bits(long capacity, double falsePositiveProbability) {
+			long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+			int wordCount = (int) Math.min(Integer.MAX_VALUE, (bits + 63) >>> 6);
+
+			this.words = new AtomicLongArray(wordCount);
+			this.bitCount = (long) wordCount << 6;
+			this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+			this.capacity = capacity;
+		}
+
+		void put(String id) {
+			long hash = hash(id);
+			long h1 = hash;
+			long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+			for (int i = 0; i < hashCount; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long value;
+				do {
+					value = words.get(word);
+					if ((value & mask) != 0) {
+						break;
+					}
+				} while (!words.compareAndSet(word, value, value | mask));
+			}
+			insertions.incrementAndGet();
+		}
+
+		boolean mightContain(String id) {
+			long hash = hash(id);
+			long h1 = hash;
+			long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+			for (int i = 0; i < hashCount; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+				if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean isSaturated() {
+			return insertions.get() > capacity;
+		}
+
+		int getHashCount() {
+			return hashCount;
+		}
+
+		long getBitCount() {
+			return bitCount;
+		}
+
+		private static long hash(String id) {
+			// FNV-1a followed by a finalizer spreading bits of short ids
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < id.length(); i++) {
+				hash ^= id.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+			return mix(hash);
+		}
+
+		private static long mix(long value) {
+			long z = value;
+			z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+			z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+			return z ^ (z >>> 33);
+		}
+	}
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.DefaultQueryParser;
+import org.springframework.data.solr.core.SolrCallback;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.workload.WorkloadClass;
+import org.springframework.util.Assert;
+
+/**
+ * Merges lookups by id for the same type issued by different threads within {@link #setWindowMs(long)} into a single
+ * {@code id:(a OR b OR ...)} query. The first caller of a batch waits for the window to elapse, or until
+ * {@link #setMaxBatchSize(int)} ids have been collected, executes the query and hands results over to all other callers
+ * of the batch. The batch keeps the raw {@link SolrDocument}s, each caller gets its own instance converted via
+ * {@link SolrOperations#getConverter()}, so callers looking up the same id do not share mutable entities.
+ * 
+ * @author agent
+ */
+public class IdLookupBatcher {
+
+	public static final long DEFAULT_WINDOW_MS = 2;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+	private final SolrOperations solrOperations;
+	private final ConcurrentMap<Class<?>, Batch> openBatches = new ConcurrentHashMap<Class<?>, Batch>();
+
+	private long windowMs = DEFAULT_WINDOW_MS;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private final AtomicLong lookupCount = new AtomicLong(0);
+	private final AtomicLong requestCount = new AtomicLong(0);
+
+	/**
+	 * @param solrOperations must not be null
+	 */
+	public IdLookupBatcher(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		this.solrOperations = solrOperations;
+	}
+
+	/**
+	 * Find entity with given id. Blocks until the batch the lookup has been added to has been executed.
+	 * 
+	 * @param id must not be null
+	 * @param clazz must not be null
+	 * @return null if not found
+	 */
+	public <T> T findById(Object id, Class<T> clazz) {
+		Assert.notNull(id, "Id must not be 'null'.");
+		Assert.notNull(clazz, "Target class must not be 'null'.");
+
+		lookupCount.incrementAndGet();
+		String key = id.toString();
+		while (true) {
+			Batch batch = openBatches.get(clazz);
+			if (batch != null && batch.add(key)) {
+				return convert(batch.await(key), clazz);
+			}
+
+			Batch created = new Batch();
+			created.add(key);
+			boolean registered = batch == null ? openBatches.putIfAbsent(clazz, created) == null : openBatches.replace(
+					clazz, batch, created);
+			if (registered) {
+				execute(clazz, created);
+				return convert(created.await(key), clazz);
+			}
+		}
+	}
+
+	private <T> T convert(SolrDocument document, Class<T> clazz) {
+		return document != null ? solrOperations.getConverter().read(clazz, document) : null;
+	}
+
+	private void execute(Class<?> clazz, Batch batch) {
+		Collection<String> ids = batch.collect(windowMs);
+		openBatches.remove(clazz, batch);
+
+		Map<String, SolrDocument> results = null;
+		Throwable failure = null;
+		try {
+			results = load(clazz, ids);
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} catch (Error e) {
+			failure = e;
+			throw e;
+		} finally {
+			// complete in any case so callers waiting for the batch are released
+			if (results == null && failure == null) {
+				failure = new UncategorizedSolrException("Lookup of ids " + ids + " failed.", null);
+			}
+			batch.complete(results, failure);
+		}
+	}
+
+	private Map<String, SolrDocument> load(Class<?> clazz, Collection<String> ids) {
+		SolrPersistentEntity<?> entity = getPersistentEntity(clazz);
+		String idFieldName = entity.getIdProperty().getFieldName();
+
+		SimpleQuery query = new SimpleQuery(new Criteria(idFieldName).in(ids));
+		query.setPageRequest(new PageRequest(0, ids.size()));
+		final SolrQuery solrQuery = new DefaultQueryParser().constructSolrQuery(query);
+		requestCount.incrementAndGet();
+		SolrDocumentList documents = solrOperations.execute(new SolrCallback<SolrDocumentList>() {
+
+			@Override
+			public SolrDocumentList doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				return solrServer.query(solrQuery).getResults();
+			}
+		}, WorkloadClass.INTERACTIVE);
+
+		Map<String, SolrDocument> results = new HashMap<String, SolrDocument>(ids.size());
+		if (documents != null) {
+			for (SolrDocument document : documents) {
+				Object id = document.getFieldValue(idFieldName);
+				if (id != null) {
+					results.put(id.toString(), document);
+				}
+			}
+		}
+		return results;
+	}
+
+	private SolrPersistentEntity<?> getPersistentEntity(Class<?> clazz) {
+		SolrPersistentEntity<?> entity = solrOperations.getConverter() != null
+				&& solrOperations.getConverter().getMappingContext() != null ? solrOperations.getConverter()
+				.getMappingContext().getPersistentEntity(clazz) : null;
+		if (entity == null || entity.getIdProperty() == null) {
+			throw new InvalidDataAccessApiUsageException("Unable to determine id property of " + clazz.getName() + ".");
+		}
+		return entity;
+	}
+
+	/**
+	 * @param windowMs time the first lookup of a batch waits for further lookups
+	 */
+	public void setWindowMs(long windowMs) {
+		Assert.isTrue(windowMs >= 0, "Window must not be negative.");
+		this.windowMs = windowMs;
+	}
+
+	public long getWindowMs() {
+		return windowMs;
+	}
+
+	/**
+	 * @param maxBatchSize number of ids after which a batch is executed without waiting for the window to elapse
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "MaxBatchSize must be greater than zero.");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * @return number of lookups requested
+	 */
+	public long getLookupCount() {
+		return lookupCount.get();
+	}
+
+	/**
+	 * @return number of queries sent to solr
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	private class Batch {
+
+		private final Set<String> ids = new LinkedHashSet<String>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private boolean closed;
+		private volatile Map<String, SolrDocument> results;
+		private volatile Throwable failure;
+
+		synchronized boolean add(String id) {
+			if (closed || ids.size() >= maxBatchSize) {
+				return false;
+			}
+			ids.add(id);
+			if (ids.size() >= maxBatchSize) {
+				notifyAll();
+			}
+			return true;
+		}
+
+		synchronized Collection<String> collect(long window) {
+			long deadline = System.currentTimeMillis() + window;
+			try {
+				long remaining = window;
+				while (ids.size() < maxBatchSize && remaining > 0) {
+					wait(remaining);
+					remaining = deadline - System.currentTimeMillis();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			closed = true;
+			return new ArrayList<String>(ids);
+		}
+
+		void complete(Map<String, SolrDocument> results, Throwable failure) {
+			this.results = results;
+			this.failure = failure;
+			done.countDown();
+		}
+
+		SolrDocument await(String id) {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UncategorizedSolrException("Interrupted while waiting for lookup of id '" + id + "'.", e);
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			if (failure != null) {
+				throw (RuntimeException) failure;
+			}
+			return results.get(id);
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Periodically reads the index version via the luke request handler and passes it on to a {@link QueryResultCache}.
+ * This makes changes committed by other clients invalidate cached results.
+ * 
+ * @author agent
+ */
+public class IndexVersionPoller implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexVersionPoller.class);
+
+	public static final long DEFAULT_INTERVAL_MS = 10000;
+
+	private final SolrOperations solrOperations;
+	private final QueryResultCache cache;
+	private long intervalMs = DEFAULT_INTERVAL_MS;
+
+	private TaskScheduler taskScheduler;
+	private boolean defaultScheduler;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param solrOperations must not be null
+	 * @param cache must not be null
+	 */
+	public IndexVersionPoller(SolrOperations solrOperations, QueryResultCache cache) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		Assert.notNull(cache, "Cache must not be 'null'.");
+
+		this.solrOperations = solrOperations;
+		this.cache = cache;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.taskScheduler == null) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("solr-index-version-");
+			scheduler.setDaemon(true);
+			scheduler.initialize();
+			this.taskScheduler = scheduler;
+			this.defaultScheduler = true;
+		}
+
+		this.future = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				poll();
+			}
+		}, intervalMs);
+	}
+
+	/**
+	 * Read current index version and update cache.
+	 * 
+	 * @return current index version or null if it could not be read
+	 */
+	public Object poll() {
+		try {
+			Object version = readIndexVersion();
+			if (version != null) {
+				cache.setIndexVersion(version);
+			}
+			return version;
+		} catch (DataAccessException e) {
+			LOGGER.debug("Unable to read index version.", e);
+			return null;
+		}
+	}
+
+	protected Object readIndexVersion() {
+		return solrOperations.getIndexStatistics().getVersion();
+	}
+
+	@Override
+	public void destroy() {
+		if (future != null) {
+			future.cancel(false);
+		}
+		if (defaultScheduler && taskScheduler instanceof ThreadPoolTaskScheduler) {
+			((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+
+	public void setIntervalMs(long intervalMs) {
+		Assert.isTrue(intervalMs > 0, "Interval must be greater than zero.");
+		this.intervalMs = intervalMs;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+}
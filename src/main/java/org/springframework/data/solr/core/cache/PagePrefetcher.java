@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.CommonParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.util.Assert;
+
+/**
+ * Detects callers walking through the pages of a query in order and fetches the next page in background while the
+ * current one is being processed. Pages are considered sequential when they only differ in {@code start} and the
+ * requested one directly follows the previously requested one. <br />
+ * Prefetched pages are held in a bounded buffer and discarded once their time to live is exceeded. Prefetching
+ * requires an {@link AsyncTaskExecutor} to be set.
+ * 
+ * @author agent
+ */
+public class PagePrefetcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PagePrefetcher.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 16;
+	public static final long DEFAULT_TIME_TO_LIVE_MS = 30000;
+
+	private final int bufferSize;
+	private final long timeToLiveMs;
+	private AsyncTaskExecutor taskExecutor;
+
+	private final Map<String, Integer> lastRequestedStart;
+	private final Map<String, Prefetch> prefetched;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong prefetches = new AtomicLong();
+
+	public PagePrefetcher() {
+		this(DEFAULT_BUFFER_SIZE, DEFAULT_TIME_TO_LIVE_MS);
+	}
+
+	/**
+	 * @param bufferSize max number of prefetched pages held, must be greater than zero
+	 * @param timeToLiveMs time prefetched pages are valid, must be greater than zero
+	 */
+	@SuppressWarnings("serial")
+	public PagePrefetcher(final int bufferSize, long timeToLiveMs) {
+		Assert.isTrue(bufferSize > 0, "BufferSize must be greater than zero.");
+		Assert.isTrue(timeToLiveMs > 0, "TimeToLive must be greater than zero.");
+
+		this.bufferSize = bufferSize;
+		this.timeToLiveMs = timeToLiveMs;
+
+		this.prefetched = new LinkedHashMap<String, Prefetch>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Prefetch> eldest) {
+				if (size() > bufferSize) {
+					eldest.getValue().cancel();
+					return true;
+				}
+				return false;
+			}
+		};
+		this.lastRequestedStart = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+				return size() > bufferSize * 4;
+			}
+		};
+	}
+
+	/**
+	 * Execute given query or take a prefetched response for it. Prefetch the next page in case pages are requested in
+	 * order.
+	 * 
+	 * @param query
+	 * @param execution used for sending requests
+	 * @return
+	 */
+	public QueryResponse execute(SolrQuery query, QueryExecution execution) {
+		return execute(query, execution, execution, 0);
+	}
+
+	/**
+	 * Execute given query or take a prefetched response for it. Prefetch the next page in case pages are requested in
+	 * order. A prefetched page not available within {@code waitMs} is requested again via {@code execution}.
+	 * 
+	 * @param query
+	 * @param execution used for sending requests on behalf of the caller
+	 * @param prefetchExecution used for sending speculative requests in background
+	 * @param waitMs max time in ms to wait for a page being prefetched, {@code 0} to wait until it is available
+	 * @return
+	 */
+	public QueryResponse execute(SolrQuery query, QueryExecution execution, QueryExecution prefetchExecution,
+			long waitMs) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(execution, "QueryExecution must not be 'null'.");
+		Assert.notNull(prefetchExecution, "Prefetch QueryExecution must not be 'null'.");
+
+		Integer rows = query.getRows();
+		if (rows == null || rows <= 0) {
+			return execution.execute(query);
+		}
+		int start = query.getStart() != null ? query.getStart() : 0;
+		String queryKey = createQueryKey(query);
+
+		QueryResponse response = takePrefetched(createPageKey(queryKey, start), waitMs);
+		if (response != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			response = execution.execute(query);
+		}
+
+		Integer previousStart;
+		synchronized (lastRequestedStart) {
+			previousStart = lastRequestedStart.put(queryKey, start);
+		}
+
+		int nextStart = start + rows;
+		if (taskExecutor != null && previousStart != null && previousStart + rows == start
+				&& hasMoreResults(response, nextStart)) {
+			SolrQuery nextQuery = query.getCopy();
+			nextQuery.setStart(nextStart);
+			prefetch(createPageKey(queryKey, nextStart), nextQuery, prefetchExecution);
+		}
+		return response;
+	}
+
+	private void prefetch(String pageKey, final SolrQuery query, final QueryExecution execution) {
+		synchronized (prefetched) {
+			if (prefetched.containsKey(pageKey)) {
+				return;
+			}
+
+			try {
+				Future<QueryResponse> future = taskExecutor.submit(new Callable<QueryResponse>() {
+
+					@Override
+					public QueryResponse call() {
+						return execution.execute(query);
+					}
+				});
+				prefetched.put(pageKey, new Prefetch(future, System.currentTimeMillis()));
+				prefetches.incrementAndGet();
+			} catch (TaskRejectedException e) {
+				LOGGER.debug("Prefetching next page rejected.", e);
+			}
+		}
+	}
+
+	private QueryResponse takePrefetched(String pageKey, long waitMs) {
+		Prefetch prefetch;
+		synchronized (prefetched) {
+			prefetch = prefetched.remove(pageKey);
+		}
+		if (prefetch == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() - prefetch.created > timeToLiveMs) {
+			prefetch.cancel();
+			return null;
+		}
+
+		try {
+			return waitMs > 0 ? prefetch.future.get(waitMs, TimeUnit.MILLISECONDS) : prefetch.future.get();
+		} catch (TimeoutException e) {
+			LOGGER.debug("Prefetched page not available within " + waitMs + "ms, executing request again.");
+			prefetch.cancel();
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncategorizedSolrException("Interrupted while waiting for prefetched page.", e);
+		} catch (ExecutionException e) {
+			LOGGER.debug("Prefetching page failed, executing request again.", e.getCause());
+			return null;
+		}
+	}
+
+	private boolean hasMoreResults(QueryResponse response, int nextStart) {
+		return response != null && response.getResults() != null && response.getResults().getNumFound() > nextStart;
+	}
+
+	private String createQueryKey(SolrQuery query) {
+		SolrQuery copy = query.getCopy();
+		copy.remove(CommonParams.START);
+		return QueryResultCache.Key.canonicalize(copy);
+	}
+
+	private String createPageKey(String queryKey, int start) {
+		return queryKey + "#" + start;
+	}
+
+	/**
+	 * Discard all prefetched pages, eg. after data has been written.
+	 */
+	public void clear() {
+		synchronized (prefetched) {
+			for (Prefetch prefetch : prefetched.values()) {
+				prefetch.cancel();
+			}
+			prefetched.clear();
+		}
+	}
+
+	/**
+	 * @return number of requests served by a prefetched page
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of pages fetched in background
+	 */
+	public long getPrefetchCount() {
+		return prefetches.get();
+	}
+
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	public AsyncTaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public long getTimeToLiveMs() {
+		return timeToLiveMs;
+	}
+
+	/**
+	 * Sends a query to solr.
+	 */
+	public interface QueryExecution {
+
+		QueryResponse execute(SolrQuery query);
+
+	}
+
+	private static class Prefetch {
+
+		private final Future<QueryResponse> future;
+		private final long created;
+
+		Prefetch(Future<QueryResponse> future, long created) {
+			this.future = future;
+			this.created = created;
+		}
+
+		void cancel() {
+			future.cancel(true);
+		}
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.params.SolrParams;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.util.Assert;
+
+/**
+ * Single flight execution of identical requests. While a request is in flight, callers issuing a request with equal
+ * (canonical) parameters do not send their own but wait for and share the result of the one in flight. <br />
+ * Shared results must not be modified by callers.
+ * 
+ * @author agent
+ */
+public class QueryCoalescer {
+
+	private final ConcurrentMap<String, Flight<?>> inFlight = new ConcurrentHashMap<String, Flight<?>>();
+
+	private final AtomicLong executedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Execute request via loader unless an equal one is in flight.
+	 * 
+	 * @param params request parameters used to identify equal requests
+	 * @param loader sends the actual request
+	 * @return
+	 */
+	public <R> R execute(SolrParams params, QueryResultCache.Loader<R> loader) {
+		return execute(params, loader, 0);
+	}
+
+	/**
+	 * Execute request via loader unless an equal one is in flight. Callers joining a flight stop waiting for it once
+	 * {@code waitMs} passed, even though the request in flight may take longer.
+	 * 
+	 * @param params request parameters used to identify equal requests
+	 * @param loader sends the actual request
+	 * @param waitMs max time in ms to wait for a request in flight, {@code 0} to wait until it completes
+	 * @return
+	 * @throws QueryTimeoutException when the request in flight did not complete within {@code waitMs}
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R execute(SolrParams params, QueryResultCache.Loader<R> loader, long waitMs) {
+		Assert.notNull(params, "Params must not be 'null'.");
+		Assert.notNull(loader, "Loader must not be 'null'.");
+
+		String key = QueryResultCache.Key.canonicalize(params);
+		Flight<R> flight = new Flight<R>();
+		Flight<?> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			return ((Flight<R>) existing).await(waitMs);
+		}
+
+		executedCount.incrementAndGet();
+		R result = null;
+		Throwable error = null;
+		boolean loaded = false;
+		try {
+			result = loader.load();
+			loaded = true;
+			return result;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} catch (Error e) {
+			error = e;
+			throw e;
+		} finally {
+			// complete before removal so no waiter is left behind, whatever the loader threw
+			if (!loaded && error == null) {
+				error = new UncategorizedSolrException("Coalesced request failed.", null);
+			}
+			flight.complete(result, error);
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * @return number of requests actually sent
+	 */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	/**
+	 * @return number of requests that have been served by waiting for an equal one in flight
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return number of requests currently in flight
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	private static class Flight<R> {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private R result;
+		private Throwable error;
+
+		void complete(R result, Throwable error) {
+			this.result = result;
+			this.error = error;
+			latch.countDown();
+		}
+
+		R await(long waitMs) {
+			try {
+				if (waitMs <= 0) {
+					latch.await();
+				} else if (!latch.await(waitMs, TimeUnit.MILLISECONDS)) {
+					throw new QueryTimeoutException("Coalesced request did not complete within " + waitMs + "ms.");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UncategorizedSolrException("Interrupted while waiting for coalesced request.", e);
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+			if (error != null) {
+				throw (RuntimeException) error;
+			}
+			return result;
+		}
+
+	}
+
+}
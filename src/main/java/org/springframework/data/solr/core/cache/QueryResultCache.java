@@ -0,0 +1,440 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.params.SolrParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.UncategorizedDataAccessException;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Size and time bound cache for query results. Entries are keyed by the canonical form of the request parameters
+ * along with result and target type. <br />
+ * Entries become stale when their time to live is exceeded, or when the index version changes (see
+ * {@link #setIndexVersion(Object)}). Stale entries can be served while being reloaded in background (see
+ * {@link #setStaleWhileRevalidateMs(long)}) or in case solr cannot be reached (see {@link #setStaleIfErrorMs(long)}).
+ * <br />
+ * Cached results are shared between callers and must not be modified.
+ * 
+ * @author agent
+ */
+public class QueryResultCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	public static final long DEFAULT_TIME_TO_LIVE_MS = 60000;
+
+	private final int maxSize;
+	private final long timeToLiveMs;
+	private long staleWhileRevalidateMs = 0;
+	private long staleIfErrorMs = 0;
+	private AsyncTaskExecutor taskExecutor;
+
+	private final Map<Key, Entry> entries;
+	private final Set<Key> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+	private final AtomicLong generation = new AtomicLong();
+	private volatile Object indexVersion;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public QueryResultCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_MS);
+	}
+
+	/**
+	 * @param maxSize max number of entries, must be greater than zero
+	 * @param timeToLiveMs time an entry is considered fresh, must be greater than zero
+	 */
+	@SuppressWarnings("serial")
+	public QueryResultCache(final int maxSize, long timeToLiveMs) {
+		Assert.isTrue(maxSize > 0, "MaxSize must be greater than zero.");
+		Assert.isTrue(timeToLiveMs > 0, "TimeToLive must be greater than zero.");
+
+		this.maxSize = maxSize;
+		this.timeToLiveMs = timeToLiveMs;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if (size() > maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get cached result for key or use given loader for creating it.
+	 * 
+	 * @param key
+	 * @param loader
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R get(final Key key, final Loader<R> loader) {
+		Assert.notNull(key, "Key must not be 'null'.");
+		Assert.notNull(loader, "Loader must not be 'null'.");
+
+		Entry entry = getEntry(key);
+		long now = System.currentTimeMillis();
+
+		if (entry != null) {
+			if (isFresh(entry, now)) {
+				hits.incrementAndGet();
+				return (R) entry.value;
+			}
+			if (canServeWhileRevalidating(entry, now)) {
+				staleHits.incrementAndGet();
+				revalidate(key, loader, entry);
+				return (R) entry.value;
+			}
+		}
+
+		misses.incrementAndGet();
+		return load(key, loader, entry);
+	}
+
+	private <R> R load(Key key, Loader<R> loader, Entry staleEntry) {
+		long loadGeneration = generation.get();
+		try {
+			R value = loader.load();
+			putEntry(key, new Entry(value, loadGeneration, System.currentTimeMillis()));
+			return value;
+		} catch (RuntimeException e) {
+			if (staleEntry != null && isServerFailure(e)
+					&& System.currentTimeMillis() - staleEntry.created < timeToLiveMs + staleIfErrorMs) {
+				LOGGER.warn("Serving stale cache entry as solr request failed: " + e.getMessage());
+				staleHits.incrementAndGet();
+				@SuppressWarnings("unchecked")
+				R staleValue = (R) staleEntry.value;
+				return staleValue;
+			}
+			throw e;
+		}
+	}
+
+	private <R> void revalidate(final Key key, final Loader<R> loader, final Entry staleEntry) {
+		if (!revalidating.add(key)) {
+			return;
+		}
+
+		try {
+			taskExecutor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						load(key, loader, staleEntry);
+					} catch (RuntimeException e) {
+						LOGGER.debug("Revalidating cache entry failed.", e);
+					} finally {
+						revalidating.remove(key);
+					}
+				}
+			});
+		} catch (TaskRejectedException e) {
+			revalidating.remove(key);
+			LOGGER.debug("Revalidating cache entry rejected.", e);
+		}
+	}
+
+	private boolean isFresh(Entry entry, long now) {
+		return entry.generation == generation.get() && now - entry.created < timeToLiveMs;
+	}
+
+	private boolean canServeWhileRevalidating(Entry entry, long now) {
+		return taskExecutor != null && staleWhileRevalidateMs > 0
+				&& now - entry.created < timeToLiveMs + staleWhileRevalidateMs;
+	}
+
+	private boolean isServerFailure(RuntimeException e) {
+		return e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessException
+				|| e instanceof UncategorizedDataAccessException;
+	}
+
+	private Entry getEntry(Key key) {
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+
+	private void putEntry(Key key, Entry entry) {
+		synchronized (entries) {
+			// do not store results loaded before cache was cleared
+			if (entry.generation == generation.get()) {
+				entries.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Mark all entries stale. They can still be served while revalidating or in case of errors.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Remove entry for given key.
+	 * 
+	 * @param key
+	 */
+	public void evict(Key key) {
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Set the current index version. In case it differs from the previous one all entries are
+	 * {@link #invalidate()}d.
+	 * 
+	 * @param indexVersion
+	 */
+	public void setIndexVersion(Object indexVersion) {
+		Object previous = this.indexVersion;
+		this.indexVersion = indexVersion;
+		if (previous != null && !ObjectUtils.nullSafeEquals(previous, indexVersion)) {
+			LOGGER.debug("Index version changed from '" + previous + "' to '" + indexVersion + "'.");
+			invalidate();
+		}
+	}
+
+	public Object getIndexVersion() {
+		return this.indexVersion;
+	}
+
+	/**
+	 * Time stale entries may be served while being reloaded in background. Requires {@link AsyncTaskExecutor} to be
+	 * set.
+	 * 
+	 * @param staleWhileRevalidateMs
+	 */
+	public void setStaleWhileRevalidateMs(long staleWhileRevalidateMs) {
+		this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+	}
+
+	public long getStaleWhileRevalidateMs() {
+		return staleWhileRevalidateMs;
+	}
+
+	/**
+	 * Time stale entries may be served in case solr cannot be reached.
+	 * 
+	 * @param staleIfErrorMs
+	 */
+	public void setStaleIfErrorMs(long staleIfErrorMs) {
+		this.staleIfErrorMs = staleIfErrorMs;
+	}
+
+	public long getStaleIfErrorMs() {
+		return staleIfErrorMs;
+	}
+
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	public AsyncTaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getTimeToLiveMs() {
+		return timeToLiveMs;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of stale entries served while revalidating or because of errors
+	 */
+	public long getStaleHitCount() {
+		return staleHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Creates the value to be cached in case of cache miss.
+	 * 
+	 * @param <R>
+	 */
+	public interface Loader<R> {
+
+		R load();
+
+	}
+
+	/**
+	 * Cache key consisting of the canonical form of request parameters, the type of result and the target type results
+	 * are converted to.
+	 */
+	public static final class Key {
+
+		private final String params;
+		private final Class<?> resultType;
+		private final Class<?> targetType;
+
+		/**
+		 * @param params must not be null
+		 * @param resultType
+		 * @param targetType
+		 */
+		public Key(SolrParams params, Class<?> resultType, Class<?> targetType) {
+			Assert.notNull(params, "Params must not be 'null'.");
+
+			this.params = canonicalize(params);
+			this.resultType = resultType;
+			this.targetType = targetType;
+		}
+
+		/**
+		 * Parameter names are sorted, the order of values for one parameter is retained. Names and values are url encoded
+		 * so {@code &} and {@code =} within them cannot make different parameters end up with the same key.
+		 * 
+		 * @param params
+		 * @return
+		 */
+		static String canonicalize(SolrParams params) {
+			Map<String, String[]> sorted = new TreeMap<String, String[]>();
+			Iterator<String> names = params.getParameterNamesIterator();
+			while (names.hasNext()) {
+				String name = names.next();
+				sorted.put(name, params.getParams(name));
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<String, String[]> param : sorted.entrySet()) {
+				if (param.getValue() == null) {
+					continue;
+				}
+				for (String value : param.getValue()) {
+					if (sb.length() > 0) {
+						sb.append('&');
+					}
+					sb.append(encode(param.getKey()));
+					if (value != null) {
+						sb.append('=').append(encode(value));
+					}
+				}
+			}
+			return sb.toString();
+		}
+
+		private static String encode(String value) {
+			try {
+				return URLEncoder.encode(value, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException("UTF-8 encoding not supported.", e);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + params.hashCode();
+			result = prime * result + ObjectUtils.nullSafeHashCode(resultType);
+			result = prime * result + ObjectUtils.nullSafeHashCode(targetType);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return params.equals(other.params) && ObjectUtils.nullSafeEquals(resultType, other.resultType)
+					&& ObjectUtils.nullSafeEquals(targetType, other.targetType);
+		}
+
+		@Override
+		public String toString() {
+			return params;
+		}
+
+	}
+
+	private static class Entry {
+
+		private final Object value;
+		private final long generation;
+		private final long created;
+
+		Entry(Object value, long generation, long created) {
+			this.value = value;
+			this.generation = generation;
+			this.created = created;
+		}
+
+	}
+
+}
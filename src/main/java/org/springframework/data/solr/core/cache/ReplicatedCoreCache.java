@@ -0,0 +1,606 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.LukeRequest;
+import org.apache.solr.client.solrj.response.LukeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mapping.model.BeanWrapper;
+import org.springframework.data.solr.core.SolrCallback;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
+import org.springframework.data.solr.core.mapping.SolrPersistentProperty;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.Criteria.CriteriaEntry;
+import org.springframework.data.solr.core.query.Criteria.OperationKey;
+import org.springframework.data.solr.core.query.FacetQuery;
+import org.springframework.data.solr.core.query.FilterQuery;
+import org.springframework.data.solr.core.query.HighlightQuery;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.Query.Operator;
+import org.springframework.data.solr.core.query.QueryStringHolder;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.SimpleStringCriteria;
+import org.springframework.data.solr.core.query.result.SolrResultPage;
+import org.springframework.data.solr.core.query.result.StreamingResultCallback;
+import org.springframework.data.solr.core.workload.WorkloadClass;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Read-only in-memory replica of all documents of a small, rarely changing core (eg. categories, brands) mapped to a
+ * single entity type. The whole core is streamed into a snapshot indexed by the values of all mapped fields. The index
+ * version is read via the luke request handler every {@link #setIntervalMs(long)} and the snapshot is replaced in the
+ * background as soon as it changes. <br />
+ * {@link #query(Query)} answers queries consisting of equality and {@code IN} criteria, optionally combined via
+ * {@code AND} or {@code OR}, filter queries of the same kind and sorting on mapped fields. Values are compared by their
+ * string representation, which only matches the way solr does for fields not being tokenized. Therefore only fields
+ * set via {@link #setLocalFields(Collection)} are considered, or if not set, the fields the schema reported by the luke
+ * request handler declares with a non tokenized type (eg. string, numeric). Any other query is rejected with
+ * {@code null} leaving it to the caller to ask solr. <br />
+ * Entities are shared between callers and must not be modified.
+ * 
+ * @author agent
+ * 
+ * @param <T>
+ */
+public class ReplicatedCoreCache<T> implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicatedCoreCache.class);
+
+	public static final long DEFAULT_INTERVAL_MS = 10000;
+	public static final int DEFAULT_MAX_DOCUMENTS = 10000;
+
+	private final SolrOperations solrOperations;
+	private final Class<T> entityClass;
+	private final SolrPersistentEntity<?> entity;
+	private final Map<String, SolrPersistentProperty> properties = new HashMap<String, SolrPersistentProperty>();
+
+	private long intervalMs = DEFAULT_INTERVAL_MS;
+	private int maxDocuments = DEFAULT_MAX_DOCUMENTS;
+	private Set<String> localFields;
+
+	private volatile Snapshot<T> snapshot;
+
+	private TaskScheduler taskScheduler;
+	private boolean defaultScheduler;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param solrOperations must not be null
+	 * @param entityClass must not be null
+	 */
+	public ReplicatedCoreCache(SolrOperations solrOperations, Class<T> entityClass) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		Assert.notNull(entityClass, "EntityClass must not be 'null'.");
+
+		this.solrOperations = solrOperations;
+		this.entityClass = entityClass;
+		this.entity = solrOperations.getConverter().getMappingContext().getPersistentEntity(entityClass);
+		if (this.entity == null || this.entity.getIdProperty() == null) {
+			throw new InvalidDataAccessApiUsageException("Unable to determine id property of " + entityClass.getName() + ".");
+		}
+
+		this.entity.doWithProperties(new PropertyHandler<SolrPersistentProperty>() {
+
+			@Override
+			public void doWithPersistentProperty(SolrPersistentProperty property) {
+				if (!property.isMap() && !property.containsWildcard()) {
+					properties.put(property.getFieldName(), property);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		refresh();
+
+		if (this.taskScheduler == null) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("solr-replicated-core-");
+			scheduler.setDaemon(true);
+			scheduler.initialize();
+			this.taskScheduler = scheduler;
+			this.defaultScheduler = true;
+		}
+
+		this.future = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				refresh();
+			}
+		}, intervalMs);
+	}
+
+	/**
+	 * Reload all documents in case the index version changed since the current snapshot has been taken. Errors are
+	 * logged and leave the current snapshot in place.
+	 * 
+	 * @return true if a new snapshot has been loaded
+	 */
+	public boolean refresh() {
+		try {
+			Object version = readIndexVersion();
+			Snapshot<T> current = this.snapshot;
+			if (current != null && version != null && version.equals(current.version)) {
+				return false;
+			}
+
+			Snapshot<T> loaded = load(version);
+			this.snapshot = loaded;
+			if (loaded != null) {
+				LOGGER.debug("Replicated " + loaded.entities.size() + " " + entityClass.getSimpleName()
+						+ " documents at index version " + version + ".");
+			}
+			return loaded != null;
+		} catch (DataAccessException e) {
+			LOGGER.warn("Unable to replicate " + entityClass.getSimpleName() + " documents.", e);
+			return false;
+		}
+	}
+
+	private Snapshot<T> load(Object version) {
+		Query query = new SimpleQuery(new SimpleStringCriteria("*:*"));
+		long count = solrOperations.count(query);
+		if (count > maxDocuments) {
+			LOGGER.warn("Not replicating " + count + " " + entityClass.getSimpleName() + " documents exceeding maximum of "
+					+ maxDocuments + ".");
+			return null;
+		}
+
+		final List<T> entities = new ArrayList<T>((int) count);
+		query.setPageRequest(new PageRequest(0, (int) Math.max(1, count)));
+		solrOperations.queryForStream(query, entityClass, new StreamingResultCallback<T>() {
+
+			@Override
+			public void doWithEntity(T entity) {
+				entities.add(entity);
+			}
+		});
+		return new Snapshot<T>(version, entities, index(entities), resolveLocalFields());
+	}
+
+	private Set<String> resolveLocalFields() {
+		if (this.localFields != null) {
+			return this.localFields;
+		}
+
+		Set<String> fields = new HashSet<String>(readExactMatchFields());
+		fields.retainAll(properties.keySet());
+		return Collections.unmodifiableSet(fields);
+	}
+
+	private Map<String, Map<String, List<T>>> index(List<T> entities) {
+		Map<String, Map<String, List<T>>> index = new HashMap<String, Map<String, List<T>>>(properties.size());
+		for (T bean : entities) {
+			BeanWrapper<SolrPersistentEntity<Object>, Object> wrapper = BeanWrapper.create((Object) bean, null);
+			for (SolrPersistentProperty property : properties.values()) {
+				Object value = wrapper.getProperty(property);
+				if (value == null) {
+					continue;
+				}
+
+				Map<String, List<T>> values = index.get(property.getFieldName());
+				if (values == null) {
+					values = new HashMap<String, List<T>>();
+					index.put(property.getFieldName(), values);
+				}
+				for (Object singleValue : asCollection(value)) {
+					String key = String.valueOf(singleValue);
+					List<T> matching = values.get(key);
+					if (matching == null) {
+						matching = new ArrayList<T>(1);
+						values.put(key, matching);
+					}
+					matching.add(bean);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @param id must not be null
+	 * @return null if not found
+	 * @throws IllegalStateException in case no snapshot is available
+	 */
+	public T findById(Object id) {
+		Assert.notNull(id, "Id must not be 'null'.");
+
+		List<T> matching = getSnapshot().lookup(entity.getIdProperty().getFieldName(), id);
+		return matching.isEmpty() ? null : matching.get(0);
+	}
+
+	/**
+	 * @return all replicated entities
+	 * @throws IllegalStateException in case no snapshot is available
+	 */
+	public List<T> findAll() {
+		return getSnapshot().entities;
+	}
+
+	/**
+	 * Answer given query from the current snapshot.
+	 * 
+	 * @param query must not be null
+	 * @return null in case no snapshot is available or the query cannot be answered locally
+	 */
+	public Page<T> query(Query query) {
+		Assert.notNull(query, "Query must not be 'null'.");
+
+		Snapshot<T> current = this.snapshot;
+		if (current == null || !isSupported(query, current.localFields)) {
+			return null;
+		}
+
+		Collection<T> matching = match(current, query.getCriteria(), query.getDefaultOperator());
+		for (FilterQuery filterQuery : query.getFilterQueries()) {
+			Collection<T> filtered = match(current, filterQuery.getCriteria(), query.getDefaultOperator());
+			matching = retain(matching, filtered);
+		}
+
+		List<T> result = new ArrayList<T>(matching);
+		if (query.getSort() != null) {
+			Collections.sort(result, new SortComparator(query.getSort()));
+		}
+
+		Pageable pageable = query.getPageRequest() != null ? query.getPageRequest() : SimpleQuery.DEFAULT_PAGE;
+		int from = Math.min(pageable.getOffset(), result.size());
+		int to = Math.min(from + pageable.getPageSize(), result.size());
+		return new SolrResultPage<T>(new ArrayList<T>(result.subList(from, to)), pageable, result.size());
+	}
+
+	/**
+	 * @return true if a snapshot is available
+	 */
+	public boolean isReady() {
+		return this.snapshot != null;
+	}
+
+	/**
+	 * @return index version of the current snapshot, null if none available or not reported
+	 */
+	public Object getIndexVersion() {
+		Snapshot<T> current = this.snapshot;
+		return current != null ? current.version : null;
+	}
+
+	private Snapshot<T> getSnapshot() {
+		Snapshot<T> current = this.snapshot;
+		if (current == null) {
+			throw new IllegalStateException("No snapshot of " + entityClass.getSimpleName() + " documents available.");
+		}
+		return current;
+	}
+
+	private boolean isSupported(Query query, Set<String> localFields) {
+		if (query instanceof FacetQuery || query instanceof HighlightQuery) {
+			return false;
+		}
+		if (query.getJoin() != null || query.getDefType() != null || query.getRequestHandler() != null
+				|| !CollectionUtils.isEmpty(query.getGroupByFields())
+				|| !CollectionUtils.isEmpty(query.getProjectionOnFields())) {
+			return false;
+		}
+		if (!isSupported(query.getCriteria(), query.getDefaultOperator(), localFields)) {
+			return false;
+		}
+		for (FilterQuery filterQuery : query.getFilterQueries()) {
+			if (filterQuery.getJoin() != null
+					|| !isSupported(filterQuery.getCriteria(), query.getDefaultOperator(), localFields)) {
+				return false;
+			}
+		}
+		if (query.getSort() != null) {
+			for (Sort.Order order : query.getSort()) {
+				SolrPersistentProperty property = properties.get(order.getProperty());
+				if (property == null || property.isCollectionLike() || !localFields.contains(order.getProperty())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean isSupported(Criteria criteria, Operator defaultOperator, Set<String> localFields) {
+		if (criteria == null) {
+			return false;
+		}
+
+		String conjunction = null;
+		List<Criteria> chain = criteria.getCriteriaChain();
+		for (int i = 0; i < chain.size(); i++) {
+			Criteria part = chain.get(i);
+			if (i > 0) {
+				if (conjunction != null && !conjunction.equals(part.getConjunctionOperator())) {
+					return false;
+				}
+				conjunction = part.getConjunctionOperator();
+			}
+			if (isMatchAll(part)) {
+				continue;
+			}
+			if (part.getField() == null || part.isNegating() || !localFields.contains(part.getField().getName())
+					|| part.getCriteriaEntries().isEmpty()) {
+				return false;
+			}
+			if (part.getCriteriaEntries().size() > 1 && Operator.AND.equals(defaultOperator)) {
+				return false;
+			}
+			for (CriteriaEntry entry : part.getCriteriaEntries()) {
+				if (!OperationKey.EQUALS.getKey().equals(entry.getKey()) || entry.getValue() == null) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean isMatchAll(Criteria criteria) {
+		if (criteria instanceof QueryStringHolder) {
+			return "*:*".equals(((QueryStringHolder) criteria).getQueryString());
+		}
+		if (criteria.getField() == null || !Criteria.WILDCARD.equals(criteria.getField().getName())
+				|| criteria.isNegating() || criteria.getCriteriaEntries().size() != 1) {
+			return false;
+		}
+		CriteriaEntry entry = criteria.getCriteriaEntries().iterator().next();
+		return OperationKey.EXPRESSION.getKey().equals(entry.getKey()) && Criteria.WILDCARD.equals(entry.getValue());
+	}
+
+	private Collection<T> match(Snapshot<T> snapshot, Criteria criteria, Operator defaultOperator) {
+		Collection<T> result = null;
+		List<Criteria> chain = criteria.getCriteriaChain();
+		for (int i = 0; i < chain.size(); i++) {
+			Criteria part = chain.get(i);
+			Collection<T> matching = isMatchAll(part) ? snapshot.entities : matchAny(snapshot, part);
+			if (result == null) {
+				result = matching;
+			} else if (Operator.OR.asQueryStringRepresentation().equals(part.getConjunctionOperator().trim())) {
+				Set<T> union = newIdentitySet(result);
+				union.addAll(matching);
+				result = union;
+			} else {
+				result = retain(result, matching);
+			}
+		}
+		return result != null ? result : snapshot.entities;
+	}
+
+	private Collection<T> matchAny(Snapshot<T> snapshot, Criteria criteria) {
+		Set<T> matching = newIdentitySet(Collections.<T> emptyList());
+		for (CriteriaEntry entry : criteria.getCriteriaEntries()) {
+			matching.addAll(snapshot.lookup(criteria.getField().getName(), entry.getValue()));
+		}
+		return matching;
+	}
+
+	private Collection<T> retain(Collection<T> source, Collection<T> retain) {
+		Set<T> lookup = newIdentitySet(retain);
+		List<T> result = new ArrayList<T>();
+		for (T bean : source) {
+			if (lookup.contains(bean)) {
+				result.add(bean);
+			}
+		}
+		return result;
+	}
+
+	private Set<T> newIdentitySet(Collection<T> source) {
+		Set<T> set = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		set.addAll(source);
+		return set;
+	}
+
+	private static Collection<?> asCollection(Object value) {
+		if (value instanceof Collection) {
+			return (Collection<?>) value;
+		}
+		if (value instanceof Object[]) {
+			List<Object> values = new ArrayList<Object>();
+			Collections.addAll(values, (Object[]) value);
+			return values;
+		}
+		return Collections.singletonList(value);
+	}
+
+	protected Object readIndexVersion() {
+		return solrOperations.getIndexStatistics().getVersion();
+	}
+
+	/**
+	 * Read the names of all fields declared with a field type that is not tokenized from the schema via the luke request
+	 * handler.
+	 * 
+	 * @return never null
+	 */
+	protected Set<String> readExactMatchFields() {
+		LukeResponse response = solrOperations.execute(new SolrCallback<LukeResponse>() {
+
+			@Override
+			public LukeResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				LukeRequest request = new LukeRequest();
+				request.setNumTerms(0);
+				request.setShowSchema(true);
+				return request.process(solrServer);
+			}
+		}, WorkloadClass.ADMIN);
+
+		Set<String> fields = new HashSet<String>();
+		if (response.getFieldInfo() == null) {
+			return fields;
+		}
+		for (LukeResponse.FieldInfo fieldInfo : response.getFieldInfo().values()) {
+			LukeResponse.FieldTypeInfo fieldType = response.getFieldTypeInfo(fieldInfo.getType());
+			if (fieldType != null && !fieldType.isTokenized()) {
+				fields.add(fieldInfo.getName());
+			}
+		}
+		return fields;
+	}
+
+	@Override
+	public void destroy() {
+		if (future != null) {
+			future.cancel(false);
+		}
+		if (defaultScheduler && taskScheduler instanceof ThreadPoolTaskScheduler) {
+			((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+
+	public Class<T> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * @param intervalMs time between checks of the index version
+	 */
+	public void setIntervalMs(long intervalMs) {
+		Assert.isTrue(intervalMs > 0, "Interval must be greater than zero.");
+		this.intervalMs = intervalMs;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	/**
+	 * @param maxDocuments number of documents above which the core is not replicated and all queries are left to solr
+	 */
+	public void setMaxDocuments(int maxDocuments) {
+		Assert.isTrue(maxDocuments > 0, "MaxDocuments must be greater than zero.");
+		this.maxDocuments = maxDocuments;
+	}
+
+	public int getMaxDocuments() {
+		return maxDocuments;
+	}
+
+	/**
+	 * Set the fields queries may refer to in order to be answered locally. Only fields matched exactly by solr, such as
+	 * string and numeric ones, should be given. Takes effect with the next snapshot loaded. Defaults to all mapped fields
+	 * declared with a non tokenized type in the schema.
+	 * 
+	 * @param localFields must not be null, all fields must be mapped by the entity
+	 */
+	public void setLocalFields(Collection<String> localFields) {
+		Assert.notNull(localFields, "LocalFields must not be 'null'.");
+		for (String fieldName : localFields) {
+			Assert.isTrue(properties.containsKey(fieldName), "Field '" + fieldName + "' is not mapped by "
+					+ entityClass.getName() + ".");
+		}
+		this.localFields = Collections.unmodifiableSet(new HashSet<String>(localFields));
+	}
+
+	/**
+	 * @return null if derived from the schema
+	 */
+	public Set<String> getLocalFields() {
+		return localFields;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	private class SortComparator implements Comparator<T> {
+
+		private final Sort sort;
+
+		SortComparator(Sort sort) {
+			this.sort = sort;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public int compare(T o1, T o2) {
+			for (Sort.Order order : sort) {
+				SolrPersistentProperty property = properties.get(order.getProperty());
+				Object v1 = BeanWrapper.create((Object) o1, null).getProperty(property);
+				Object v2 = BeanWrapper.create((Object) o2, null).getProperty(property);
+
+				int result;
+				if (v1 == null || v2 == null) {
+					// missing values sort last regardless of direction
+					result = v1 == v2 ? 0 : (v1 == null ? 1 : -1);
+				} else {
+					int compared = v1 instanceof Comparable ? ((Comparable) v1).compareTo(v2) : String.valueOf(v1).compareTo(
+							String.valueOf(v2));
+					result = order.isAscending() ? compared : -compared;
+				}
+				if (result != 0) {
+					return result;
+				}
+			}
+			return 0;
+		}
+	}
+
+	private static class Snapshot<T> {
+
+		private final Object version;
+		private final List<T> entities;
+		private final Map<String, Map<String, List<T>>> index;
+		private final Set<String> localFields;
+
+		Snapshot(Object version, List<T> entities, Map<String, Map<String, List<T>>> index, Set<String> localFields) {
+			this.version = version;
+			this.entities = Collections.unmodifiableList(entities);
+			this.index = index;
+			this.localFields = localFields;
+		}
+
+		List<T> lookup(String fieldName, Object value) {
+			Map<String, List<T>> values = index.get(fieldName);
+			if (values == null) {
+				return Collections.emptyList();
+			}
+			List<T> matching = values.get(String.valueOf(value));
+			return matching != null ? matching : Collections.<T> emptyList();
+		}
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Client side caching and coalescing of query results.
+ */
+package org.springframework.data.solr.core.cache;
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CommitStrategy} merging all commits requested within a time window into one single commit per
+ * {@link SolrOperations}. The first write after a commit opens the window, all writes within that window are made
+ * visible by the commit sent when the window closes. <br />
+ * Pending commits are sent on {@link #flush()} and {@link #destroy()}.
+ * 
+ * @author agent
+ */
+public class CoalescingCommitStrategy implements CommitStrategy, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingCommitStrategy.class);
+
+	public static final long DEFAULT_WINDOW_MS = 1000;
+
+	private final long windowMs;
+	private final boolean softCommit;
+	private final TaskScheduler taskScheduler;
+	private final boolean defaultScheduler;
+
+	private final ConcurrentMap<SolrOperations, PendingCommit> pendingCommits = new ConcurrentHashMap<SolrOperations, PendingCommit>();
+
+	private final AtomicLong requestedCommits = new AtomicLong();
+	private final AtomicLong executedCommits = new AtomicLong();
+
+	public CoalescingCommitStrategy() {
+		this(DEFAULT_WINDOW_MS);
+	}
+
+	public CoalescingCommitStrategy(long windowMs) {
+		this(windowMs, false);
+	}
+
+	public CoalescingCommitStrategy(long windowMs, boolean softCommit) {
+		this(windowMs, softCommit, null);
+	}
+
+	/**
+	 * @param windowMs must be greater than zero
+	 * @param softCommit use soft instead of hard commit
+	 * @param taskScheduler if null a single threaded default scheduler will be created
+	 */
+	public CoalescingCommitStrategy(long windowMs, boolean softCommit, TaskScheduler taskScheduler) {
+		Assert.isTrue(windowMs > 0, "Window must be greater than zero.");
+
+		this.windowMs = windowMs;
+		this.softCommit = softCommit;
+		this.defaultScheduler = taskScheduler == null;
+		this.taskScheduler = taskScheduler != null ? taskScheduler : createDefaultTaskScheduler();
+	}
+
+	private static TaskScheduler createDefaultTaskScheduler() {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(1);
+		scheduler.setThreadNamePrefix("solr-commit-");
+		scheduler.setDaemon(true);
+		scheduler.initialize();
+		return scheduler;
+	}
+
+	@Override
+	public int getCommitWithinMs() {
+		return -1;
+	}
+
+	@Override
+	public void afterWrite(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+
+		requestedCommits.incrementAndGet();
+		PendingCommit commit = new PendingCommit(solrOperations);
+		if (pendingCommits.putIfAbsent(solrOperations, commit) == null) {
+			commit.setFuture(taskScheduler.schedule(commit, new Date(System.currentTimeMillis() + windowMs)));
+		}
+	}
+
+	/**
+	 * Immediately send all pending commits.
+	 */
+	public void flush() {
+		for (PendingCommit commit : new ArrayList<PendingCommit>(pendingCommits.values())) {
+			commit.cancel();
+			commit.run();
+		}
+	}
+
+	/**
+	 * Sends pending commits and shuts down the default scheduler. Provided schedulers have to be shut down by their
+	 * owner.
+	 */
+	@Override
+	public void destroy() {
+		flush();
+		if (defaultScheduler && taskScheduler instanceof ThreadPoolTaskScheduler) {
+			((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+
+	/**
+	 * @return number of commits requested by write operations
+	 */
+	public long getRequestedCommits() {
+		return requestedCommits.get();
+	}
+
+	/**
+	 * @return number of commits actually sent to solr
+	 */
+	public long getExecutedCommits() {
+		return executedCommits.get();
+	}
+
+	public long getWindowMs() {
+		return windowMs;
+	}
+
+	public boolean isSoftCommit() {
+		return softCommit;
+	}
+
+	private class PendingCommit implements Runnable {
+
+		private final SolrOperations solrOperations;
+		private volatile ScheduledFuture<?> future;
+
+		PendingCommit(SolrOperations solrOperations) {
+			this.solrOperations = solrOperations;
+		}
+
+		void setFuture(ScheduledFuture<?> future) {
+			this.future = future;
+		}
+
+		void cancel() {
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			// remove before committing so that writes arriving meanwhile request another commit
+			if (!pendingCommits.remove(solrOperations, this)) {
+				return;
+			}
+
+			try {
+				if (softCommit) {
+					solrOperations.softCommit();
+				} else {
+					solrOperations.commit();
+				}
+				executedCommits.incrementAndGet();
+			} catch (RuntimeException e) {
+				LOGGER.warn("Coalesced commit failed.", e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * Strategy defining how changes written via {@link SolrOperations} outside of a transaction are made visible.
+ * 
+ * @author agent
+ */
+public interface CommitStrategy {
+
+	/**
+	 * @return time in ms to be sent along with update requests as {@code commitWithin}, {@code -1} for none.
+	 */
+	int getCommitWithinMs();
+
+	/**
+	 * Callback invoked after data has been written.
+	 * 
+	 * @param solrOperations operations used for writing
+	 */
+	void afterWrite(SolrOperations solrOperations);
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CommitStrategy} leaving commits to the server by sending {@code commitWithin} along with each update request.
+ * No explicit commit is issued.
+ * 
+ * @author agent
+ */
+public class CommitWithinStrategy implements CommitStrategy {
+
+	private final int commitWithinMs;
+
+	/**
+	 * @param commitWithinMs must be greater than zero
+	 */
+	public CommitWithinStrategy(int commitWithinMs) {
+		Assert.isTrue(commitWithinMs > 0, "CommitWithin must be greater than zero.");
+
+		this.commitWithinMs = commitWithinMs;
+	}
+
+	@Override
+	public int getCommitWithinMs() {
+		return this.commitWithinMs;
+	}
+
+	@Override
+	public void afterWrite(SolrOperations solrOperations) {
+		// server will take care of commit
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import java.io.IOException;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.springframework.data.solr.core.SolrCallback;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.workload.WorkloadClass;
+
+/**
+ * {@link CommitStrategy} sending a hard commit after each write operation.
+ * 
+ * @author agent
+ */
+public class ImmediateCommitStrategy implements CommitStrategy {
+
+	public static final ImmediateCommitStrategy INSTANCE = new ImmediateCommitStrategy();
+
+	private static final String OPEN_SEARCHER = "openSearcher";
+
+	private final boolean openSearcher;
+
+	public ImmediateCommitStrategy() {
+		this(true);
+	}
+
+	/**
+	 * @param openSearcher if {@code false} commits flush changes without opening a new searcher, so they do not become
+	 *          visible before the next soft commit. Requires solr 4.x.
+	 */
+	public ImmediateCommitStrategy(boolean openSearcher) {
+		this.openSearcher = openSearcher;
+	}
+
+	@Override
+	public int getCommitWithinMs() {
+		return -1;
+	}
+
+	@Override
+	public void afterWrite(SolrOperations solrOperations) {
+		if (openSearcher) {
+			solrOperations.commit();
+			return;
+		}
+
+		solrOperations.execute(new SolrCallback<UpdateResponse>() {
+
+			@Override
+			public UpdateResponse doInSolr(SolrServer solrServer) throws SolrServerException, IOException {
+				UpdateRequest request = new UpdateRequest();
+				request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+				request.setParam(OPEN_SEARCHER, Boolean.FALSE.toString());
+				return request.process(solrServer);
+			}
+		}, WorkloadClass.INDEXING);
+	}
+
+	public boolean isOpenSearcher() {
+		return openSearcher;
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * {@link CommitStrategy} neither committing explicitly nor sending {@code commitWithin}. Changes become visible
+ * according to the autoCommit settings of the server.
+ * 
+ * @author agent
+ */
+public class NoCommitStrategy implements CommitStrategy {
+
+	public static final NoCommitStrategy INSTANCE = new NoCommitStrategy();
+
+	@Override
+	public int getCommitWithinMs() {
+		return -1;
+	}
+
+	@Override
+	public void afterWrite(SolrOperations solrOperations) {
+		// server will take care of commit
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * {@link CommitStrategy} sending a soft commit after each write operation. Requires solr 4.x.
+ * 
+ * @author agent
+ */
+public class SoftCommitStrategy implements CommitStrategy {
+
+	public static final SoftCommitStrategy INSTANCE = new SoftCommitStrategy();
+
+	@Override
+	public int getCommitWithinMs() {
+		return -1;
+	}
+
+	@Override
+	public void afterWrite(SolrOperations solrOperations) {
+		solrOperations.softCommit();
+	}
+
+}
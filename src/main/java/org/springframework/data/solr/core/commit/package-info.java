@@ -0,0 +1,4 @@
+/**
+ * Strategies defining when changes written to solr get committed.
+ */
+package org.springframework.data.solr.core.commit;
@@ -0,0 +1,459 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.solr.common.SolrDocument;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.Field;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleField;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Exports all documents matching a {@link Query} as newline delimited JSON or CSV. Documents are read via
+ * {@link SolrOperations#queryForCursor(Query, Class, CursorOptions)} using keyset paging on the {@code uniqueKey},
+ * fetching the next chunks in background while the current one is written. Output is collected in a direct
+ * {@link ByteBuffer} and written to the target channel in large blocks. Neither entities nor the whole result are ever
+ * held in memory.
+ * 
+ * @author agent
+ */
+public class DocumentExporter {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+	public static final int DEFAULT_PREFETCH_DEPTH = 2;
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+	/**
+	 * Output format.
+	 */
+	public enum Format {
+		/**
+		 * One JSON object per line.
+		 */
+		NDJSON,
+
+		/**
+		 * Comma separated values with header line. Requires explicit fields, either via
+		 * {@link DocumentExporter#setFields(List)} or as projection of the query. Multiple values of a field are joined
+		 * using {@link DocumentExporter#setMultiValueSeparator(String)}.
+		 */
+		CSV
+	}
+
+	private final SolrOperations solrOperations;
+	private Format format = Format.NDJSON;
+	private List<String> fields = Collections.emptyList();
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private String uniqueKey = CursorOptions.DEFAULT_UNIQUE_KEY;
+	private String multiValueSeparator = "|";
+
+	/**
+	 * @param solrOperations must not be null
+	 */
+	public DocumentExporter(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		this.solrOperations = solrOperations;
+	}
+
+	/**
+	 * Export documents to given file. Existing files are overwritten.
+	 * 
+	 * @param query must not be null and must not define a sort
+	 * @param file must not be null
+	 * @return number of documents written
+	 */
+	public long export(Query query, File file) {
+		assertExportable(query);
+		Assert.notNull(file, "File must not be 'null'.");
+
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			FileChannel channel = out.getChannel();
+			long count = export(query, channel);
+			channel.force(false);
+			return count;
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to write export to '" + file + "'.", e);
+		} finally {
+			closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Export documents to given channel. The channel is not closed.
+	 * 
+	 * @param source must not be null and must not define a sort, as documents are read in order of the
+	 *          {@code uniqueKey}. Paging information is ignored. The query itself is not modified.
+	 * @param channel must not be null
+	 * @return number of documents written
+	 * @throws InvalidDataAccessApiUsageException in case of {@link Format#CSV} without explicit fields
+	 */
+	public long export(Query source, WritableByteChannel channel) {
+		assertExportable(source);
+		Assert.notNull(channel, "Channel must not be 'null'.");
+
+		Query query = SimpleQuery.fromQuery(source);
+		query.setJoin(source.getJoin());
+		List<String> columns = resolveFields(query);
+		if (Format.CSV.equals(format)) {
+			assertCsvColumns(columns);
+		}
+		for (String field : this.fields) {
+			if (!isProjected(query, field)) {
+				query.addProjectionOnField(new SimpleField(field));
+			}
+		}
+
+		CursorOptions options = new CursorOptions(chunkSize);
+		options.setPrefetchDepth(prefetchDepth);
+		options.setUniqueKey(uniqueKey);
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+		StringBuilder line = new StringBuilder(256);
+		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.ENGLISH);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		Cursor<SolrDocument> cursor = solrOperations.queryForCursor(query, SolrDocument.class, options);
+		long count = 0;
+		try {
+			if (Format.CSV.equals(format)) {
+				appendCsvHeader(columns, line);
+				write(line.toString().getBytes(UTF8), buffer, channel);
+			}
+			while (cursor.hasNext()) {
+				SolrDocument document = cursor.next();
+				line.setLength(0);
+
+				if (Format.CSV.equals(format)) {
+					appendCsv(document, columns, line, dateFormat);
+				} else {
+					appendJson(document, columns, line, dateFormat);
+				}
+				line.append('\n');
+
+				write(line.toString().getBytes(UTF8), buffer, channel);
+				count++;
+			}
+			flush(buffer, channel);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to write export.", e);
+		} finally {
+			closeQuietly(cursor);
+		}
+		return count;
+	}
+
+	private void assertExportable(Query query) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.isNull(query.getSort(), "Query must not define a sort.");
+	}
+
+	/**
+	 * CSV columns have to be known before the first document is written, as documents only hold the fields they have
+	 * values for.
+	 */
+	private void assertCsvColumns(List<String> columns) {
+		if (columns.isEmpty()) {
+			throw new InvalidDataAccessApiUsageException(
+					"CSV export requires explicit fields. Set them via setFields or as projection of the query.");
+		}
+		for (String column : columns) {
+			if (column.indexOf('*') >= 0) {
+				throw new InvalidDataAccessApiUsageException("CSV export requires explicit fields but found '" + column
+						+ "'.");
+			}
+		}
+	}
+
+	private boolean isProjected(Query query, String fieldName) {
+		for (Field field : query.getProjectionOnFields()) {
+			if (fieldName.equals(field.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private List<String> resolveFields(Query query) {
+		if (!this.fields.isEmpty()) {
+			return new ArrayList<String>(this.fields);
+		}
+		List<String> columns = new ArrayList<String>();
+		if (!CollectionUtils.isEmpty(query.getProjectionOnFields())) {
+			for (Field field : query.getProjectionOnFields()) {
+				columns.add(field.getName());
+			}
+		}
+		return columns;
+	}
+
+	private void write(byte[] bytes, ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+		if (bytes.length > buffer.remaining()) {
+			flush(buffer, channel);
+		}
+		if (bytes.length > buffer.capacity()) {
+			ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+			while (wrapped.hasRemaining()) {
+				channel.write(wrapped);
+			}
+			return;
+		}
+		buffer.put(bytes);
+	}
+
+	private void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void appendJson(SolrDocument document, List<String> columns, StringBuilder target,
+			SimpleDateFormat dateFormat) {
+		target.append('{');
+		boolean first = true;
+		for (String name : columns.isEmpty() ? document.getFieldNames() : columns) {
+			Object value = document.getFieldValue(name);
+			if (value == null && !columns.isEmpty()) {
+				continue;
+			}
+			if (!first) {
+				target.append(',');
+			}
+			first = false;
+			appendJsonString(name, target);
+			target.append(':');
+			if (value instanceof Collection) {
+				target.append('[');
+				boolean firstValue = true;
+				for (Object item : (Collection<?>) value) {
+					if (!firstValue) {
+						target.append(',');
+					}
+					firstValue = false;
+					appendJsonValue(item, target, dateFormat);
+				}
+				target.append(']');
+			} else {
+				appendJsonValue(value, target, dateFormat);
+			}
+		}
+		target.append('}');
+	}
+
+	private void appendJsonValue(Object value, StringBuilder target, SimpleDateFormat dateFormat) {
+		if (value == null) {
+			target.append("null");
+		} else if (value instanceof Number || value instanceof Boolean) {
+			target.append(value);
+		} else if (value instanceof Date) {
+			appendJsonString(dateFormat.format((Date) value), target);
+		} else {
+			appendJsonString(value.toString(), target);
+		}
+	}
+
+	private void appendJsonString(String value, StringBuilder target) {
+		target.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					target.append("\\\"");
+					break;
+				case '\\':
+					target.append("\\\\");
+					break;
+				case '\n':
+					target.append("\\n");
+					break;
+				case '\r':
+					target.append("\\r");
+					break;
+				case '\t':
+					target.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						target.append(String.format("\\u%04x", (int) c));
+					} else {
+						target.append(c);
+					}
+			}
+		}
+		target.append('"');
+	}
+
+	private void appendCsvHeader(List<String> columns, StringBuilder target) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				target.append(',');
+			}
+			appendCsvValue(columns.get(i), target);
+		}
+		target.append('\n');
+	}
+
+	private void appendCsv(SolrDocument document, List<String> columns, StringBuilder target,
+			SimpleDateFormat dateFormat) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				target.append(',');
+			}
+			Object value = document.getFieldValue(columns.get(i));
+			if (value instanceof Collection) {
+				StringBuilder joined = new StringBuilder();
+				for (Object item : (Collection<?>) value) {
+					if (joined.length() > 0) {
+						joined.append(multiValueSeparator);
+					}
+					joined.append(toCsvString(item, dateFormat));
+				}
+				appendCsvValue(joined.toString(), target);
+			} else if (value != null) {
+				appendCsvValue(toCsvString(value, dateFormat), target);
+			}
+		}
+	}
+
+	private String toCsvString(Object value, SimpleDateFormat dateFormat) {
+		if (value instanceof Date) {
+			return dateFormat.format((Date) value);
+		}
+		return value != null ? value.toString() : "";
+	}
+
+	private void appendCsvValue(String value, StringBuilder target) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			target.append(value);
+			return;
+		}
+		target.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+	private void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * @param format defaults to {@link Format#NDJSON}
+	 */
+	public void setFormat(Format format) {
+		Assert.notNull(format, "Format must not be 'null'.");
+		this.format = format;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Restrict export to given fields. Fields are added as projection ({@code fl}) to the exported query and define the
+	 * columns of {@link Format#CSV}. Without fields the projection of the query is used, or all stored fields in case
+	 * none is set. The latter is not supported for {@link Format#CSV}.
+	 * 
+	 * @param fields
+	 */
+	public void setFields(List<String> fields) {
+		this.fields = fields != null ? new ArrayList<String>(fields) : Collections.<String> emptyList();
+	}
+
+	public List<String> getFields() {
+		return Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * @param chunkSize number of documents fetched per request. Defaults to {@link #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "ChunkSize must be greater than zero.");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param prefetchDepth number of chunks fetched ahead while writing. {@code 0} fetches and writes alternately.
+	 *          Defaults to {@link #DEFAULT_PREFETCH_DEPTH}.
+	 */
+	public void setPrefetchDepth(int prefetchDepth) {
+		Assert.isTrue(prefetchDepth >= 0, "PrefetchDepth must not be negative.");
+		this.prefetchDepth = prefetchDepth;
+	}
+
+	/**
+	 * @param bufferSize size in bytes of the buffer collecting output before it is written. Defaults to
+	 *          {@link #DEFAULT_BUFFER_SIZE}.
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "BufferSize must be greater than zero.");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @param uniqueKey name of the {@code uniqueKey} field used for keyset paging. Defaults to {@code id}.
+	 */
+	public void setUniqueKey(String uniqueKey) {
+		Assert.hasText(uniqueKey, "UniqueKey must not be empty.");
+		this.uniqueKey = uniqueKey;
+	}
+
+	/**
+	 * @param multiValueSeparator used to join multiple values of a field in {@link Format#CSV}. Defaults to {@code |}.
+	 */
+	public void setMultiValueSeparator(String multiValueSeparator) {
+		Assert.notNull(multiValueSeparator, "MultiValueSeparator must not be 'null'.");
+		this.multiValueSeparator = multiValueSeparator;
+	}
+
+}
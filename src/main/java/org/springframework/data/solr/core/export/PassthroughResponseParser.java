@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.common.util.NamedList;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResponseParser} copying the raw response body to an {@link OutputStream} instead of parsing it. The target
+ * stream is flushed but not closed. The returned {@link NamedList} only contains the number of bytes copied as
+ * {@link #BYTES_WRITTEN}. <br />
+ * Note that {@link org.apache.solr.client.solrj.impl.HttpSolrServer} hands {@code 400} and {@code 409} responses to
+ * the parser before raising an error, so error bodies end up in the target stream unless the status has been checked
+ * before, as {@link org.springframework.data.solr.core.SolrTemplate#queryToStream} does.
+ * 
+ * @author agent
+ */
+public class PassthroughResponseParser extends ResponseParser {
+
+	public static final String BYTES_WRITTEN = "bytesWritten";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final OutputStream outputStream;
+	private final ResponseFormat format;
+
+	/**
+	 * @param outputStream must not be null
+	 * @param format must not be null
+	 */
+	public PassthroughResponseParser(OutputStream outputStream, ResponseFormat format) {
+		Assert.notNull(outputStream, "OutputStream must not be 'null'.");
+		Assert.notNull(format, "Format must not be 'null'.");
+		this.outputStream = outputStream;
+		this.format = format;
+	}
+
+	@Override
+	public String getWriterType() {
+		return format.getWriterType();
+	}
+
+	@Override
+	public NamedList<Object> processResponse(InputStream body, String encoding) {
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long written = 0;
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+				written += read;
+			}
+			outputStream.flush();
+			return createResponse(written);
+		} catch (IOException e) {
+			throw new UncategorizedSolrException("Unable to pass response through.", e);
+		}
+	}
+
+	@Override
+	public NamedList<Object> processResponse(Reader reader) {
+		CountingOutputStream counting = new CountingOutputStream(outputStream);
+		try {
+			Writer writer = new OutputStreamWriter(counting, "UTF-8");
+			char[] buffer = new char[BUFFER_SIZE];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				writer.write(buffer, 0, read);
+			}
+			writer.flush();
+			return createResponse(counting.count);
+		} catch (IOException e) {
+			throw new UncategorizedSolrException("Unable to pass response through.", e);
+		}
+	}
+
+	private NamedList<Object> createResponse(long written) {
+		NamedList<Object> response = new NamedList<Object>();
+		response.add(BYTES_WRITTEN, written);
+		return response;
+	}
+
+	public ResponseFormat getFormat() {
+		return format;
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private final OutputStream delegate;
+		private long count;
+
+		CountingOutputStream(OutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			delegate.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			delegate.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			delegate.flush();
+		}
+
+	}
+
+}
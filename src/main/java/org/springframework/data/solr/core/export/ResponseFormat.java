@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.export;
+
+/**
+ * Response writer ({@code wt}) used for passing solr responses through as they are.
+ * 
+ * @author agent
+ */
+public enum ResponseFormat {
+
+	JSON("json"), XML("xml"), JAVABIN("javabin");
+
+	private final String writerType;
+
+	private ResponseFormat(String writerType) {
+		this.writerType = writerType;
+	}
+
+	/**
+	 * @return value of {@code wt} parameter
+	 */
+	public String getWriterType() {
+		return writerType;
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Bulk export of documents and passing responses through to files, channels and streams.
+ */
+package org.springframework.data.solr.core.export;
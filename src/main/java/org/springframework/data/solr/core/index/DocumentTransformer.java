@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Callback used by {@link SolrReindexer} to modify documents before they are written to the target core.
+ * 
+ * @author agent
+ */
+public interface DocumentTransformer {
+
+	/**
+	 * @param document document read from source core
+	 * @return document to index, null to skip it
+	 */
+	SolrInputDocument transform(SolrInputDocument document);
+
+}
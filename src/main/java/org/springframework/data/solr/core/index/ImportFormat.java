@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.util.Locale;
+
+import org.springframework.util.Assert;
+
+/**
+ * Formats of files that can be sent to solr update handlers as they are.
+ * 
+ * @author agent
+ */
+public enum ImportFormat {
+
+	/**
+	 * Comma separated values with header line. Can be split into pieces by record.
+	 */
+	CSV("text/csv", true),
+
+	/**
+	 * Solr JSON update format.
+	 */
+	JSON("application/json", false),
+
+	/**
+	 * Solr XML update format.
+	 */
+	XML("application/xml", false);
+
+	private final String contentType;
+	private final boolean splittable;
+
+	private ImportFormat(String contentType, boolean splittable) {
+		this.contentType = contentType;
+		this.splittable = splittable;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return true if content can be split into pieces by record without parsing values
+	 */
+	public boolean isSplittable() {
+		return splittable;
+	}
+
+	/**
+	 * Resolve format from file extension.
+	 * 
+	 * @param fileName must not be empty
+	 * @return
+	 * @throws IllegalArgumentException if extension is not known
+	 */
+	public static ImportFormat fromFileName(String fileName) {
+		Assert.hasText(fileName, "FileName must not be empty.");
+
+		String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toUpperCase(Locale.ENGLISH);
+		for (ImportFormat format : values()) {
+			if (format.name().equals(extension)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unable to determine format of file '" + fileName + "'.");
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Options used when sending files to solr via
+ * {@link org.springframework.data.solr.core.SolrOperations#importFile(java.io.File, ImportOptions)}.
+ * 
+ * @author agent
+ */
+public class ImportOptions {
+
+	public static final String DEFAULT_PATH = "/update";
+
+	private static final String CSV_HEADER = "header";
+	private static final String CSV_FIELDNAMES = "fieldnames";
+	private static final String CSV_SKIPLINES = "skipLines";
+	private static final String CSV_ENCAPSULATOR = "encapsulator";
+	private static final String CSV_ESCAPE = "escape";
+
+	private ImportFormat format;
+	private String path = DEFAULT_PATH;
+	private int pieceSize = -1;
+	private int commitWithinMs = -1;
+	private Charset charset = Charset.forName("UTF-8");
+	private final Map<String, String> params = new LinkedHashMap<String, String>();
+
+	public ImportOptions() {
+	}
+
+	public ImportOptions(ImportFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * @return null if to be derived from file name
+	 */
+	public ImportFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @param format if null the format of files is derived from their extension
+	 * @return
+	 */
+	public ImportOptions setFormat(ImportFormat format) {
+		this.format = format;
+		return this;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @param path of the update handler. Defaults to {@link #DEFAULT_PATH}.
+	 * @return
+	 */
+	public ImportOptions setPath(String path) {
+		Assert.hasText(path, "Path must not be empty.");
+		this.path = path;
+		return this;
+	}
+
+	public int getPieceSize() {
+		return pieceSize;
+	}
+
+	/**
+	 * Split {@link ImportFormat#isSplittable()} content into requests of at most given number of records. The first
+	 * line has to be a header naming the fields and is repeated within each piece. Records may span multiple lines
+	 * within encapsulated values. Content is sent as a whole if {@code header=false}, {@code fieldnames} or
+	 * {@code skipLines} is set via {@link #addParam(String, String)}. Other formats are always sent as a whole.
+	 * 
+	 * @param pieceSize {@code -1} (default) sends content as a whole
+	 * @return
+	 */
+	public ImportOptions setPieceSize(int pieceSize) {
+		this.pieceSize = pieceSize;
+		return this;
+	}
+
+	public int getCommitWithinMs() {
+		return commitWithinMs;
+	}
+
+	/**
+	 * @param commitWithinMs {@code -1} (default) for none
+	 * @return
+	 */
+	public ImportOptions setCommitWithinMs(int commitWithinMs) {
+		this.commitWithinMs = commitWithinMs;
+		return this;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @param charset of content. Defaults to {@code UTF-8}.
+	 * @return
+	 */
+	public ImportOptions setCharset(Charset charset) {
+		Assert.notNull(charset, "Charset must not be 'null'.");
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Add request parameter sent to the update handler, eg. {@code separator} or {@code f.tags.split} for CSV.
+	 * 
+	 * @param name must not be empty
+	 * @param value
+	 * @return
+	 */
+	public ImportOptions addParam(String name, String value) {
+		Assert.hasText(name, "Name must not be empty.");
+		this.params.put(name, value);
+		return this;
+	}
+
+	public Map<String, String> getParams() {
+		return Collections.unmodifiableMap(params);
+	}
+
+	/**
+	 * @param format of the content to import
+	 * @return true if content is to be sent in pieces of at most {@link #getPieceSize()} records
+	 */
+	public boolean isSplitInPieces(ImportFormat format) {
+		if (format == null || !format.isSplittable() || pieceSize <= 0) {
+			return false;
+		}
+		return !"false".equalsIgnoreCase(params.get(CSV_HEADER)) && !params.containsKey(CSV_FIELDNAMES)
+				&& !params.containsKey(CSV_SKIPLINES);
+	}
+
+	/**
+	 * @return character enclosing values that may contain separators or line breaks, null if values are not
+	 *         encapsulated
+	 */
+	public Character getEncapsulator() {
+		String encapsulator = params.get(CSV_ENCAPSULATOR);
+		if (encapsulator != null && encapsulator.length() > 0) {
+			return encapsulator.charAt(0);
+		}
+		// solr does not apply the default encapsulator once an escape character is set
+		return getEscape() != null ? null : Character.valueOf('"');
+	}
+
+	/**
+	 * @return character escaping the next one, null if none set
+	 */
+	public Character getEscape() {
+		String escape = params.get(CSV_ESCAPE);
+		return escape != null && escape.length() > 0 ? Character.valueOf(escape.charAt(0)) : null;
+	}
+
+}
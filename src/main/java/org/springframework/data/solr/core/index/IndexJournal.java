@@ -0,0 +1,529 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * Append only journal stored in memory mapped segment files of fixed size within a directory. Records are appended by
+ * producers and read sequentially by a single consumer, that persists its position via {@link #checkpoint(Position)}.
+ * Segments preceding the checkpoint are unmapped and deleted. <br />
+ * Record layout is {@code int length, int crc32, byte type, byte[] payload} where length covers type and payload. As
+ * the length is written last, a length of {@code 0} marks the end of the written part of a segment. When reopening the
+ * journal records are validated against their checksum to detect torn writes.
+ * 
+ * @author agent
+ */
+class IndexJournal implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexJournal.class);
+
+	static final String SEGMENT_SUFFIX = ".journal";
+	static final String CHECKPOINT_FILE_NAME = "checkpoint";
+
+	private static final int HEADER_SIZE = 8;
+	private static final String CHECKPOINT_SEGMENT = "segment";
+	private static final String CHECKPOINT_OFFSET = "offset";
+
+	private final File directory;
+	private final int segmentSize;
+	private final boolean syncOnWrite;
+
+	private MappedByteBuffer writeBuffer;
+	private long writeSegment;
+	private volatile Position writePosition;
+
+	private final Object readMonitor = new Object();
+	private MappedByteBuffer readBuffer;
+	private long readSegment = -1;
+	private boolean readClosed;
+	private volatile Position checkpoint;
+
+	/**
+	 * Open journal within given directory recovering previously written records.
+	 * 
+	 * @param directory created if not existing
+	 * @param segmentSize size of a single segment file in bytes
+	 * @param syncOnWrite force records to disk after each write
+	 * @throws IOException
+	 */
+	IndexJournal(File directory, int segmentSize, boolean syncOnWrite) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create journal directory '" + directory + "'.");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.syncOnWrite = syncOnWrite;
+
+		List<Long> segments = listSegments();
+		Position storedCheckpoint = readCheckpoint();
+
+		if (segments.isEmpty()) {
+			this.writeSegment = storedCheckpoint != null ? storedCheckpoint.getSegment() : 0;
+			this.writeBuffer = map(writeSegment);
+		} else {
+			this.writeSegment = segments.get(segments.size() - 1);
+			this.writeBuffer = map(writeSegment);
+			this.writeBuffer.position(recover(writeBuffer));
+		}
+		this.writePosition = new Position(writeSegment, writeBuffer.position());
+
+		if (storedCheckpoint != null && (segments.isEmpty() || storedCheckpoint.getSegment() >= segments.get(0))) {
+			this.checkpoint = storedCheckpoint;
+		} else {
+			this.checkpoint = new Position(segments.isEmpty() ? writeSegment : segments.get(0), 0);
+		}
+	}
+
+	/**
+	 * Append record.
+	 * 
+	 * @param type
+	 * @param payload
+	 * @return position after the appended record
+	 * @throws IOException
+	 * @throws InvalidDataAccessApiUsageException in case the journal has been closed
+	 */
+	synchronized Position append(byte type, byte[] payload) throws IOException {
+		if (writeBuffer == null) {
+			throw new InvalidDataAccessApiUsageException("Journal in '" + directory + "' has been closed.");
+		}
+
+		int length = payload.length + 1;
+		if (HEADER_SIZE + length + 4 > segmentSize) {
+			throw new IllegalArgumentException("Record of " + length + " bytes exceeds segment size of " + segmentSize
+					+ " bytes.");
+		}
+		if (writeBuffer.position() + HEADER_SIZE + length + 4 > segmentSize) {
+			roll();
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(payload);
+
+		int start = writeBuffer.position();
+		writeBuffer.position(start + 4);
+		writeBuffer.putInt((int) crc.getValue());
+		writeBuffer.put(type);
+		writeBuffer.put(payload);
+		writeBuffer.putInt(start, length);
+		if (syncOnWrite) {
+			writeBuffer.force();
+		}
+
+		this.writePosition = new Position(writeSegment, writeBuffer.position());
+		return this.writePosition;
+	}
+
+	private void roll() throws IOException {
+		MappedByteBuffer rolled = writeBuffer;
+		rolled.force();
+		writeSegment++;
+		writeBuffer = map(writeSegment);
+		unmap(rolled);
+	}
+
+	/**
+	 * Read up to {@code maxRecords} records starting at given position. Must only be called by a single consumer.
+	 * 
+	 * @param from
+	 * @param maxRecords
+	 * @return
+	 * @throws IOException in case of corrupt records
+	 * @throws InvalidDataAccessApiUsageException in case the journal has been closed
+	 */
+	Batch read(Position from, int maxRecords) throws IOException {
+		synchronized (readMonitor) {
+			if (readClosed) {
+				throw new InvalidDataAccessApiUsageException("Journal in '" + directory + "' has been closed.");
+			}
+			return doRead(from, maxRecords);
+		}
+	}
+
+	private Batch doRead(Position from, int maxRecords) throws IOException {
+		List<Record> records = new ArrayList<Record>();
+		Position position = from;
+
+		while (records.size() < maxRecords) {
+			Position limit = this.writePosition;
+			if (position.compareTo(limit) >= 0) {
+				break;
+			}
+
+			ByteBuffer buffer = getReadBuffer(position.getSegment());
+			int length = position.getOffset() + HEADER_SIZE <= segmentSize ? buffer.getInt(position.getOffset()) : 0;
+			if (length == 0) {
+				position = new Position(position.getSegment() + 1, 0);
+				continue;
+			}
+
+			ByteBuffer view = buffer.duplicate();
+			view.position(position.getOffset() + 4);
+			int checksum = view.getInt();
+			byte[] data = new byte[length];
+			view.get(data);
+
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			if ((int) crc.getValue() != checksum) {
+				throw new IOException("Corrupt journal record at " + position + ".");
+			}
+
+			position = new Position(position.getSegment(), position.getOffset() + HEADER_SIZE + length);
+			records.add(new Record(data[0], Arrays.copyOfRange(data, 1, length), position));
+		}
+		return new Batch(records, position);
+	}
+
+	private ByteBuffer getReadBuffer(long segment) throws IOException {
+		if (readSegment != segment) {
+			unmap(readBuffer);
+			readBuffer = null;
+			readSegment = -1;
+			readBuffer = map(segment);
+			readSegment = segment;
+		}
+		return readBuffer;
+	}
+
+	/**
+	 * Persist consumer position and delete segments no longer needed. Segments that cannot be deleted yet are retried
+	 * on the next checkpoint.
+	 * 
+	 * @param position
+	 * @throws IOException
+	 */
+	void checkpoint(Position position) throws IOException {
+		writeCheckpoint(position);
+		this.checkpoint = position;
+
+		synchronized (readMonitor) {
+			if (readSegment >= 0 && readSegment < position.getSegment()) {
+				unmap(readBuffer);
+				readBuffer = null;
+				readSegment = -1;
+			}
+		}
+		for (Long segment : listSegments()) {
+			if (segment < position.getSegment()) {
+				File file = getSegmentFile(segment);
+				if (!file.delete()) {
+					LOGGER.debug("Unable to delete journal segment '" + file + "'. Retrying on next checkpoint.");
+				}
+			}
+		}
+	}
+
+	Position getCheckpoint() {
+		return checkpoint;
+	}
+
+	Position getWritePosition() {
+		return writePosition;
+	}
+
+	/**
+	 * @return number of bytes written but not yet checkpointed
+	 */
+	long getPendingBytes() {
+		Position write = this.writePosition;
+		Position read = this.checkpoint;
+		return (write.getSegment() - read.getSegment()) * segmentSize + write.getOffset() - read.getOffset();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (writeBuffer != null) {
+			writeBuffer.force();
+			unmap(writeBuffer);
+		}
+		writeBuffer = null;
+
+		synchronized (readMonitor) {
+			readClosed = true;
+			unmap(readBuffer);
+			readBuffer = null;
+			readSegment = -1;
+		}
+	}
+
+	private int recover(ByteBuffer buffer) {
+		int offset = 0;
+		while (offset + HEADER_SIZE <= segmentSize) {
+			int length = buffer.getInt(offset);
+			if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+				break;
+			}
+
+			ByteBuffer view = buffer.duplicate();
+			view.position(offset + 4);
+			int checksum = view.getInt();
+			byte[] data = new byte[length];
+			view.get(data);
+
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			offset += HEADER_SIZE + length;
+		}
+
+		// discard partially written record so that it cannot be mistaken for a valid one later on
+		for (int i = offset; i < Math.min(segmentSize, offset + HEADER_SIZE); i++) {
+			buffer.put(i, (byte) 0);
+		}
+		return offset;
+	}
+
+	private MappedByteBuffer map(long segment) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(getSegmentFile(segment), "rw");
+		try {
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Release the mapping of given buffer right away. Otherwise it is only released once the buffer is garbage
+	 * collected, keeping the segment file open and, depending on the platform, preventing its deletion. Falls back to
+	 * garbage collection in case the cleaner of the jdk is not accessible. The buffer must not be accessed afterwards.
+	 * 
+	 * @param buffer may be null
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				Method cleanMethod = cleaner.getClass().getMethod("clean");
+				cleanMethod.setAccessible(true);
+				cleanMethod.invoke(cleaner);
+			}
+		} catch (Exception e) {
+			LOGGER.debug("Unable to unmap journal segment. Mapping is released on garbage collection.", e);
+		}
+	}
+
+	private File getSegmentFile(long segment) {
+		return new File(directory, String.format("%020d", segment) + SEGMENT_SUFFIX);
+	}
+
+	private List<Long> listSegments() {
+		String[] names = directory.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+
+		List<Long> segments = new ArrayList<Long>();
+		if (names != null) {
+			for (String name : names) {
+				try {
+					segments.add(Long.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// not a segment
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private Position readCheckpoint() throws IOException {
+		File file = new File(directory, CHECKPOINT_FILE_NAME);
+		if (!file.exists()) {
+			return null;
+		}
+
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		try {
+			return new Position(Long.parseLong(properties.getProperty(CHECKPOINT_SEGMENT)), Integer.parseInt(properties
+					.getProperty(CHECKPOINT_OFFSET)));
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid journal checkpoint '" + file + "'.", e);
+		}
+	}
+
+	private void writeCheckpoint(Position position) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(CHECKPOINT_SEGMENT, Long.toString(position.getSegment()));
+		properties.setProperty(CHECKPOINT_OFFSET, Integer.toString(position.getOffset()));
+
+		File file = new File(directory, CHECKPOINT_FILE_NAME);
+		File tmp = new File(directory, CHECKPOINT_FILE_NAME + ".tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			properties.store(out, null);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException("Unable to write journal checkpoint '" + file + "'.");
+			}
+		}
+	}
+
+	/**
+	 * Position within the journal.
+	 */
+	static final class Position implements Comparable<Position> {
+
+		private final long segment;
+		private final int offset;
+
+		Position(long segment, int offset) {
+			this.segment = segment;
+			this.offset = offset;
+		}
+
+		long getSegment() {
+			return segment;
+		}
+
+		int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public int compareTo(Position other) {
+			if (segment != other.segment) {
+				return segment < other.segment ? -1 : 1;
+			}
+			return offset < other.offset ? -1 : (offset == other.offset ? 0 : 1);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Position)) {
+				return false;
+			}
+			return compareTo((Position) obj) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (int) (segment ^ (segment >>> 32)) + offset;
+		}
+
+		@Override
+		public String toString() {
+			return segment + ":" + offset;
+		}
+
+	}
+
+	/**
+	 * Single record read from the journal.
+	 */
+	static final class Record {
+
+		private final byte type;
+		private final byte[] payload;
+		private final Position next;
+
+		Record(byte type, byte[] payload, Position next) {
+			this.type = type;
+			this.payload = payload;
+			this.next = next;
+		}
+
+		byte getType() {
+			return type;
+		}
+
+		byte[] getPayload() {
+			return payload;
+		}
+
+		/**
+		 * @return position directly after this record
+		 */
+		Position getNext() {
+			return next;
+		}
+
+	}
+
+	/**
+	 * Records read by {@link IndexJournal#read(Position, int)}.
+	 */
+	static final class Batch {
+
+		private final List<Record> records;
+		private final Position next;
+
+		Batch(List<Record> records, Position next) {
+			this.records = records;
+			this.next = next;
+		}
+
+		List<Record> getRecords() {
+			return records;
+		}
+
+		/**
+		 * @return position to continue reading from
+		 */
+		Position getNext() {
+			return next;
+		}
+
+	}
+
+}
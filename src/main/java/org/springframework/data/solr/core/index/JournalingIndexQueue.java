@@ -0,0 +1,457 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * {@link JournalingIndexQueue} writes documents and deletes to an append only journal of memory mapped files on local
+ * disk instead of holding them on the heap. A single background sender reads the journal in order and hands
+ * consecutive adds and deletes over to {@link SolrOperations#saveDocuments(Collection, int)} and
+ * {@link SolrOperations#deleteById(Collection)} in batches of {@link #setBatchSize(int)}. The position of
+ * the sender is checkpointed after each batch, so pending operations survive restarts and are sent at least once. <br />
+ * While solr is unavailable batches are retried every {@link #setRetryIntervalMs(long)} and producers keep writing to
+ * disk. Batches rejected by solr as bad request are logged and skipped. Disk usage can be bounded via
+ * {@link #setMaxPendingBytes(long)}. <br />
+ * Records are written to the page cache of the operating system and survive a crash of the JVM. Use
+ * {@link #setSyncOnWrite(boolean)} to also survive a crash of the operating system at the cost of write latency.
+ * 
+ * @author agent
+ */
+public class JournalingIndexQueue implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JournalingIndexQueue.class);
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte TYPE_ADD = 1;
+	private static final byte TYPE_DELETE = 2;
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final long DEFAULT_POLL_INTERVAL_MS = 50;
+	public static final long DEFAULT_RETRY_INTERVAL_MS = 1000;
+
+	private final SolrOperations solrOperations;
+	private final File directory;
+
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int commitWithinMs = -1;
+	private long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
+	private long retryIntervalMs = DEFAULT_RETRY_INTERVAL_MS;
+	private long maxPendingBytes = -1;
+	private boolean syncOnWrite = false;
+
+	private IndexJournal journal;
+	private ExecutorService executor;
+	private volatile boolean running = false;
+
+	private final AtomicLong indexedCount = new AtomicLong(0);
+	private final AtomicLong deletedCount = new AtomicLong(0);
+	private final AtomicLong failedCount = new AtomicLong(0);
+
+	/**
+	 * @param solrOperations must not be null
+	 * @param directory must not be null. Created if not existing.
+	 */
+	public JournalingIndexQueue(SolrOperations solrOperations, File directory) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		Assert.notNull(directory, "Directory must not be 'null'.");
+		this.solrOperations = solrOperations;
+		this.directory = directory;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		start();
+	}
+
+	/**
+	 * Open journal and start sending operations left over from previous runs. Configuration changes have no effect once
+	 * started.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+
+		try {
+			this.journal = new IndexJournal(directory, segmentSize, syncOnWrite);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to open journal in '" + directory + "'.", e);
+		}
+		this.running = true;
+		this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("solr-journal-sender-"));
+		this.executor.execute(new Sender());
+	}
+
+	/**
+	 * Add document to be indexed.
+	 * 
+	 * @param document must not be null
+	 * @throws TransientDataAccessResourceException if {@link #setMaxPendingBytes(long)} is exceeded
+	 */
+	public void add(SolrInputDocument document) {
+		Assert.notNull(document, "Cannot index 'null' document.");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			new JavaBinCodec().marshal(document, out);
+		} catch (IOException e) {
+			throw new UncategorizedSolrException("Unable to serialize document " + document + ".", e);
+		}
+		append(TYPE_ADD, out.toByteArray());
+	}
+
+	/**
+	 * Convert bean via {@link SolrOperations#convertBeanToSolrInputDocument(Object)} and add it to be indexed.
+	 * 
+	 * @param bean must not be null
+	 * @throws TransientDataAccessResourceException if {@link #setMaxPendingBytes(long)} is exceeded
+	 */
+	public void addBean(Object bean) {
+		Assert.notNull(bean, "Cannot index 'null' bean.");
+		add(solrOperations.convertBeanToSolrInputDocument(bean));
+	}
+
+	/**
+	 * Add delete by id.
+	 * 
+	 * @param id must not be null
+	 * @throws TransientDataAccessResourceException if {@link #setMaxPendingBytes(long)} is exceeded
+	 */
+	public void deleteById(String id) {
+		Assert.notNull(id, "Cannot delete 'null' id.");
+		append(TYPE_DELETE, id.getBytes(UTF8));
+	}
+
+	private void append(byte type, byte[] payload) {
+		if (!running) {
+			throw new InvalidDataAccessApiUsageException("JournalingIndexQueue is not running.");
+		}
+		if (maxPendingBytes > 0 && journal.getPendingBytes() >= maxPendingBytes) {
+			throw new TransientDataAccessResourceException("Rejected operation. Journal exceeds " + maxPendingBytes
+					+ " pending bytes.");
+		}
+
+		try {
+			journal.append(type, payload);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to write to journal in '" + directory + "'.", e);
+		}
+	}
+
+	/**
+	 * Wait until all operations handed over before calling this method have been sent.
+	 */
+	public void flush() {
+		if (!running) {
+			return;
+		}
+
+		IndexJournal.Position target = journal.getWritePosition();
+		while (running && journal.getCheckpoint().compareTo(target) < 0) {
+			try {
+				Thread.sleep(pollIntervalMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UncategorizedSolrException("Interrupted while waiting for flush.", e);
+			}
+		}
+	}
+
+	/**
+	 * Stop sending and close the journal. Pending operations are not flushed but sent after the next {@link #start()}.
+	 */
+	public synchronized void close() {
+		if (!running) {
+			return;
+		}
+
+		running = false;
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(retryIntervalMs * 10, TimeUnit.MILLISECONDS)) {
+				LOGGER.warn("JournalingIndexQueue sender did not terminate in time.");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+		journal.close();
+	}
+
+	@Override
+	public void destroy() {
+		close();
+	}
+
+	/**
+	 * Send next batch of records and checkpoint each consecutive run of adds or deletes.
+	 * 
+	 * @return false if there was nothing to send or sending has been stopped
+	 * @throws IOException
+	 */
+	boolean sendNextBatch() throws IOException {
+		IndexJournal.Batch batch = journal.read(journal.getCheckpoint(), batchSize);
+		List<IndexJournal.Record> records = batch.getRecords();
+
+		int start = 0;
+		while (start < records.size()) {
+			int end = start + 1;
+			while (end < records.size() && records.get(end).getType() == records.get(start).getType()) {
+				end++;
+			}
+			if (!send(records.subList(start, end))) {
+				return false;
+			}
+			journal.checkpoint(records.get(end - 1).getNext());
+			start = end;
+		}
+
+		if (!batch.getNext().equals(journal.getCheckpoint())) {
+			journal.checkpoint(batch.getNext());
+		}
+		return !records.isEmpty();
+	}
+
+	private boolean send(List<IndexJournal.Record> records) {
+		boolean delete = records.get(0).getType() == TYPE_DELETE;
+		final List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(records.size());
+		final List<String> ids = new ArrayList<String>(records.size());
+		for (IndexJournal.Record record : records) {
+			if (delete) {
+				ids.add(new String(record.getPayload(), UTF8));
+			} else {
+				try {
+					documents.add((SolrInputDocument) new JavaBinCodec().unmarshal(new ByteArrayInputStream(record
+							.getPayload())));
+				} catch (IOException e) {
+					failedCount.incrementAndGet();
+					LOGGER.error("Skipping journal record that cannot be read.", e);
+				}
+			}
+		}
+
+		while (running) {
+			try {
+				if (delete) {
+					solrOperations.deleteById(ids, commitWithinMs);
+					deletedCount.addAndGet(ids.size());
+				} else if (!documents.isEmpty()) {
+					solrOperations.saveDocuments(documents, commitWithinMs);
+					indexedCount.addAndGet(documents.size());
+				}
+				return true;
+			} catch (DataAccessException e) {
+				if (isRejected(e)) {
+					failedCount.addAndGet(records.size());
+					LOGGER.error("Skipping batch of " + records.size() + " operations rejected by solr.", e);
+					return true;
+				}
+				LOGGER.warn("Sending batch of " + records.size() + " operations failed. Retrying.", e);
+			}
+
+			try {
+				Thread.sleep(retryIntervalMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Batches are rejected if sending them is an api misuse or solr responds with {@code 400 Bad Request}, which
+	 * {@link org.apache.solr.client.solrj.impl.HttpSolrServer} raises as unwrapped {@link SolrException}.
+	 */
+	private boolean isRejected(DataAccessException e) {
+		if (e instanceof InvalidDataAccessApiUsageException) {
+			return true;
+		}
+		Throwable cause = e;
+		while (cause != null && !(cause instanceof SolrException)) {
+			cause = cause.getCause();
+		}
+		return cause != null && ((SolrException) cause).code() == ErrorCode.BAD_REQUEST.code;
+	}
+
+	private class Sender implements Runnable {
+
+		@Override
+		public void run() {
+			while (running && !Thread.currentThread().isInterrupted()) {
+				try {
+					if (!sendNextBatch()) {
+						Thread.sleep(pollIntervalMs);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (IOException e) {
+					LOGGER.error("Unable to read journal in '" + directory + "'.", e);
+					sleepQuietly(retryIntervalMs);
+				} catch (RuntimeException e) {
+					LOGGER.error("Unexpected error in JournalingIndexQueue sender.", e);
+					sleepQuietly(retryIntervalMs);
+				}
+			}
+		}
+
+		private void sleepQuietly(long ms) {
+			try {
+				Thread.sleep(ms);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+	/**
+	 * @return number of documents successfully sent to solr
+	 */
+	public long getIndexedCount() {
+		return indexedCount.get();
+	}
+
+	/**
+	 * @return number of ids successfully deleted
+	 */
+	public long getDeletedCount() {
+		return deletedCount.get();
+	}
+
+	/**
+	 * @return number of operations that could not be read or were rejected by solr
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * @return number of journal bytes not yet sent
+	 */
+	public long getPendingBytes() {
+		return journal != null ? journal.getPendingBytes() : 0;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param segmentSize size of a single journal file in bytes. Limits the size of a single document.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		Assert.isTrue(segmentSize > 0, "SegmentSize must be greater than zero.");
+		this.segmentSize = segmentSize;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "BatchSize must be greater than zero.");
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setCommitWithinMs(int commitWithinMs) {
+		this.commitWithinMs = commitWithinMs;
+	}
+
+	public int getCommitWithinMs() {
+		return commitWithinMs;
+	}
+
+	public void setPollIntervalMs(long pollIntervalMs) {
+		Assert.isTrue(pollIntervalMs > 0, "PollInterval must be greater than zero.");
+		this.pollIntervalMs = pollIntervalMs;
+	}
+
+	public long getPollIntervalMs() {
+		return pollIntervalMs;
+	}
+
+	/**
+	 * @param retryIntervalMs time to wait before resending a batch while solr is unavailable
+	 */
+	public void setRetryIntervalMs(long retryIntervalMs) {
+		Assert.isTrue(retryIntervalMs > 0, "RetryInterval must be greater than zero.");
+		this.retryIntervalMs = retryIntervalMs;
+	}
+
+	public long getRetryIntervalMs() {
+		return retryIntervalMs;
+	}
+
+	/**
+	 * @param maxPendingBytes journal size above which new operations are rejected. {@code -1} (default) for no limit.
+	 */
+	public void setMaxPendingBytes(long maxPendingBytes) {
+		this.maxPendingBytes = maxPendingBytes;
+	}
+
+	public long getMaxPendingBytes() {
+		return maxPendingBytes;
+	}
+
+	/**
+	 * @param syncOnWrite force each record to disk before returning to the producer
+	 */
+	public void setSyncOnWrite(boolean syncOnWrite) {
+		this.syncOnWrite = syncOnWrite;
+	}
+
+	public boolean isSyncOnWrite() {
+		return syncOnWrite;
+	}
+
+}
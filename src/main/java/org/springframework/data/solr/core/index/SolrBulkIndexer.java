@@ -0,0 +1,688 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * {@link SolrBulkIndexer} collects beans and deletes handed over by (potentially) many producer threads and sends them
+ * to solr in batches via {@link SolrOperations#saveDocuments(Collection, int)} and
+ * {@link SolrOperations#deleteById(Collection, int)}. Conversion of beans takes place on the indexers worker threads. <br />
+ * A batch is sent as soon as one of the following limits is reached:
+ * <ul>
+ * <li>number of documents ({@link #setMaxBatchSize(int)}, adapted at runtime)</li>
+ * <li>estimated size in bytes ({@link #setMaxBatchBytes(long)})</li>
+ * <li>age of the oldest pending document ({@link #setMaxLatencyMs(long)})</li>
+ * </ul>
+ * The number of operations waiting for conversion is bounded by {@link #setQueueCapacity(int)}. When solr falls behind
+ * producers are either blocked or rejected depending on the {@link OverflowPolicy}. <br />
+ * The batch size is adapted to observed update latency: it grows while requests finish within half of
+ * {@link #setTargetLatencyMs(long)}, shrinks when they take longer and is halved on errors. <br />
+ * Order of operations is only retained per worker thread. Use a single worker if adds and deletes for the same id have
+ * to be applied in order.
+ * 
+ * @author agent
+ */
+public class SolrBulkIndexer implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SolrBulkIndexer.class);
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+	public static final int DEFAULT_MIN_BATCH_SIZE = 10;
+	public static final long DEFAULT_MAX_BATCH_BYTES = 5 * 1024 * 1024;
+	public static final long DEFAULT_MAX_LATENCY_MS = 1000;
+	public static final long DEFAULT_TARGET_LATENCY_MS = 500;
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	/**
+	 * Behavior when the queue of pending operations is full.
+	 */
+	public enum OverflowPolicy {
+		/** block producer until space becomes available */
+		BLOCK,
+		/** wait at most {@link SolrBulkIndexer#getOfferTimeoutMs()} and reject operation afterwards */
+		REJECT
+	}
+
+	private final SolrOperations solrOperations;
+
+	private int workers = 1;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int minBatchSize = DEFAULT_MIN_BATCH_SIZE;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+	private long maxLatencyMs = DEFAULT_MAX_LATENCY_MS;
+	private long targetLatencyMs = DEFAULT_TARGET_LATENCY_MS;
+	private int commitWithinMs = -1;
+	private int maxRetries = 2;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private long offerTimeoutMs = 0;
+
+	private BlockingQueue<Operation> queue;
+	private ExecutorService executor;
+	private List<Worker> activeWorkers;
+	private volatile boolean running = false;
+
+	private final AtomicInteger currentBatchSize = new AtomicInteger(DEFAULT_MAX_BATCH_SIZE);
+	private final AtomicLong indexedCount = new AtomicLong(0);
+	private final AtomicLong deletedCount = new AtomicLong(0);
+	private final AtomicLong failedCount = new AtomicLong(0);
+	private final AtomicLong requestCount = new AtomicLong(0);
+	private final Object flushMonitor = new Object();
+
+	/**
+	 * @param solrOperations must not be null
+	 */
+	public SolrBulkIndexer(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		this.solrOperations = solrOperations;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		start();
+	}
+
+	/**
+	 * Start worker threads. Configuration changes have no effect once started.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		Assert.isTrue(minBatchSize <= maxBatchSize, "MinBatchSize must not be greater than maxBatchSize.");
+
+		this.queue = new ArrayBlockingQueue<Operation>(queueCapacity);
+		this.currentBatchSize.set(maxBatchSize);
+		this.executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("solr-bulk-indexer-"));
+		this.activeWorkers = new ArrayList<Worker>(workers);
+		this.running = true;
+
+		for (int i = 0; i < workers; i++) {
+			Worker worker = new Worker();
+			activeWorkers.add(worker);
+			executor.execute(worker);
+		}
+	}
+
+	/**
+	 * Add bean to be indexed. Depending on {@link OverflowPolicy} blocks or rejects in case of too many pending
+	 * operations.
+	 * 
+	 * @param bean must not be null
+	 * @throws TransientDataAccessResourceException if rejected
+	 */
+	public void add(Object bean) {
+		Assert.notNull(bean, "Cannot index 'null' bean.");
+		enqueue(new Operation(bean, null));
+	}
+
+	/**
+	 * Add all beans to be indexed.
+	 * 
+	 * @param beans
+	 * @see #add(Object)
+	 */
+	public void addAll(Iterable<?> beans) {
+		Assert.notNull(beans, "Cannot index 'null' collection.");
+		for (Object bean : beans) {
+			add(bean);
+		}
+	}
+
+	/**
+	 * Add delete by id.
+	 * 
+	 * @param id must not be null
+	 * @throws TransientDataAccessResourceException if rejected
+	 */
+	public void deleteById(String id) {
+		Assert.notNull(id, "Cannot delete 'null' id.");
+		enqueue(new Operation(null, id));
+	}
+
+	private void enqueue(Operation operation) {
+		if (!running) {
+			throw new InvalidDataAccessApiUsageException("SolrBulkIndexer is not running.");
+		}
+
+		try {
+			if (OverflowPolicy.BLOCK.equals(overflowPolicy)) {
+				queue.put(operation);
+			} else if (!queue.offer(operation, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new TransientDataAccessResourceException("Rejected operation. Too many pending operations ("
+						+ queue.size() + ").");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncategorizedSolrException("Interrupted while waiting to enqueue operation.", e);
+		}
+	}
+
+	/**
+	 * Send all operations handed over before calling this method. Operations handed over concurrently by other
+	 * producers are not waited for. Blocks until done. <br />
+	 * One marker per worker is enqueued behind the pending operations. A worker taking a marker has taken all
+	 * operations before it, sends them and does not take further operations until all markers have been taken.
+	 */
+	public void flush() {
+		if (!running) {
+			return;
+		}
+
+		FlushMarker marker = new FlushMarker(activeWorkers.size());
+		try {
+			// markers of concurrent flushes must not interleave, workers would wait for each other
+			synchronized (flushMonitor) {
+				for (int i = 0; i < marker.getParties(); i++) {
+					queue.put(new Operation(marker));
+				}
+			}
+			marker.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncategorizedSolrException("Interrupted while waiting for flush.", e);
+		}
+	}
+
+	/**
+	 * Flush pending operations and stop workers.
+	 */
+	public synchronized void close() {
+		if (!running) {
+			return;
+		}
+
+		flush();
+		running = false;
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(Math.max(maxLatencyMs, targetLatencyMs) * 10, TimeUnit.MILLISECONDS)) {
+				LOGGER.warn("SolrBulkIndexer workers did not terminate in time.");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		close();
+	}
+
+	/**
+	 * Estimate the size of the given document in bytes.
+	 * 
+	 * @param document
+	 * @return
+	 */
+	protected long estimateSize(SolrInputDocument document) {
+		long size = 0;
+		for (SolrInputField field : document) {
+			size += field.getName().length() * 2;
+			for (Object value : field) {
+				size += value instanceof CharSequence ? ((CharSequence) value).length() * 2 : 16;
+			}
+		}
+		return size;
+	}
+
+	void adaptBatchSize(long latencyMs, boolean failed) {
+		int current = currentBatchSize.get();
+		int next = current;
+		if (failed) {
+			next = current / 2;
+		} else if (latencyMs > targetLatencyMs) {
+			next = current - current / 4;
+		} else if (latencyMs < targetLatencyMs / 2) {
+			next = current + Math.max(1, current / 4);
+		}
+
+		next = Math.min(maxBatchSize, Math.max(minBatchSize, next));
+		if (next != current && currentBatchSize.compareAndSet(current, next)) {
+			LOGGER.debug("Adapted batch size from {} to {}.", current, next);
+		}
+	}
+
+	private class Worker implements Runnable {
+
+		private final List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>();
+		private final List<String> deletes = new ArrayList<String>();
+		private long batchBytes = 0;
+		private long batchStarted = 0;
+
+		@Override
+		public void run() {
+			while (running || !queue.isEmpty()) {
+				try {
+					Operation operation = queue.poll(pollTimeout(), TimeUnit.MILLISECONDS);
+					if (operation != null && operation.isFlushMarker()) {
+						sendPending();
+						operation.flushMarker.arrive();
+					} else if (operation != null) {
+						handle(operation);
+					}
+					if (isDue()) {
+						sendPending();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (RuntimeException e) {
+					LOGGER.error("Unexpected error in SolrBulkIndexer worker.", e);
+				}
+			}
+			sendPending();
+		}
+
+		private long pollTimeout() {
+			if (batchStarted == 0) {
+				return Math.min(maxLatencyMs, 50);
+			}
+			return Math.max(1, Math.min(50, batchStarted + maxLatencyMs - System.currentTimeMillis()));
+		}
+
+		private void handle(Operation operation) {
+			if (operation.isDelete()) {
+				if (!documents.isEmpty()) {
+					sendDocuments();
+				}
+				deletes.add(operation.id);
+				markStarted();
+				if (deletes.size() >= currentBatchSize.get()) {
+					sendDeletes();
+				}
+				return;
+			}
+
+			if (!deletes.isEmpty()) {
+				sendDeletes();
+			}
+
+			SolrInputDocument document;
+			try {
+				document = solrOperations.convertBeanToSolrInputDocument(operation.bean);
+			} catch (RuntimeException e) {
+				failedCount.incrementAndGet();
+				LOGGER.error("Unable to convert bean " + operation.bean + ".", e);
+				return;
+			}
+			documents.add(document);
+			batchBytes += estimateSize(document);
+			markStarted();
+
+			if (documents.size() >= currentBatchSize.get() || batchBytes >= maxBatchBytes) {
+				sendDocuments();
+			}
+		}
+
+		private void markStarted() {
+			if (batchStarted == 0) {
+				batchStarted = System.currentTimeMillis();
+			}
+		}
+
+		private boolean isDue() {
+			return batchStarted > 0 && System.currentTimeMillis() - batchStarted >= maxLatencyMs;
+		}
+
+		private void sendPending() {
+			sendDocuments();
+			sendDeletes();
+		}
+
+		private void sendDocuments() {
+			if (documents.isEmpty()) {
+				return;
+			}
+
+			final List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(documents);
+			documents.clear();
+			batchBytes = 0;
+			resetStarted();
+
+			if (send(new BatchCommand() {
+				@Override
+				public void execute() {
+					solrOperations.saveDocuments(batch, commitWithinMs);
+				}
+			}, batch.size())) {
+				indexedCount.addAndGet(batch.size());
+			}
+		}
+
+		private void sendDeletes() {
+			if (deletes.isEmpty()) {
+				return;
+			}
+
+			final List<String> batch = new ArrayList<String>(deletes);
+			deletes.clear();
+			resetStarted();
+
+			if (send(new BatchCommand() {
+				@Override
+				public void execute() {
+					solrOperations.deleteById(batch, commitWithinMs);
+				}
+			}, batch.size())) {
+				deletedCount.addAndGet(batch.size());
+			}
+		}
+
+		private void resetStarted() {
+			if (documents.isEmpty() && deletes.isEmpty()) {
+				batchStarted = 0;
+			}
+		}
+
+		private boolean send(BatchCommand command, int size) {
+			for (int attempt = 0; attempt <= maxRetries; attempt++) {
+				long start = System.currentTimeMillis();
+				try {
+					requestCount.incrementAndGet();
+					command.execute();
+					adaptBatchSize(System.currentTimeMillis() - start, false);
+					return true;
+				} catch (DataAccessException e) {
+					adaptBatchSize(System.currentTimeMillis() - start, true);
+					LOGGER.warn("Sending batch of " + size + " operations failed (attempt " + (attempt + 1) + ").", e);
+					if (!backoff(attempt)) {
+						break;
+					}
+				} catch (RuntimeException e) {
+					// not caused by solr, retrying would fail the same way
+					LOGGER.error("Sending batch of " + size + " operations failed.", e);
+					break;
+				}
+			}
+			failedCount.addAndGet(size);
+			LOGGER.error("Giving up on batch of {} operations.", size);
+			return false;
+		}
+
+		private boolean backoff(int attempt) {
+			try {
+				Thread.sleep(Math.min(targetLatencyMs * (attempt + 1), 10000));
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+	}
+
+	private interface BatchCommand {
+		void execute();
+	}
+
+	private static class Operation {
+
+		private final Object bean;
+		private final String id;
+		private final FlushMarker flushMarker;
+
+		Operation(Object bean, String id) {
+			this.bean = bean;
+			this.id = id;
+			this.flushMarker = null;
+		}
+
+		Operation(FlushMarker flushMarker) {
+			this.bean = null;
+			this.id = null;
+			this.flushMarker = flushMarker;
+		}
+
+		boolean isDelete() {
+			return this.bean == null;
+		}
+
+		boolean isFlushMarker() {
+			return this.flushMarker != null;
+		}
+
+	}
+
+	private static class FlushMarker {
+
+		private final int parties;
+		private final CountDownLatch arrived;
+
+		FlushMarker(int parties) {
+			this.parties = parties;
+			this.arrived = new CountDownLatch(parties);
+		}
+
+		int getParties() {
+			return parties;
+		}
+
+		/**
+		 * Called by workers after sending pending operations. Blocks until all workers arrived.
+		 * 
+		 * @throws InterruptedException
+		 */
+		void arrive() throws InterruptedException {
+			arrived.countDown();
+			arrived.await();
+		}
+
+		void await() throws InterruptedException {
+			arrived.await();
+		}
+
+	}
+
+	/**
+	 * @return number of documents successfully sent to solr
+	 */
+	public long getIndexedCount() {
+		return indexedCount.get();
+	}
+
+	/**
+	 * @return number of ids successfully deleted
+	 */
+	public long getDeletedCount() {
+		return deletedCount.get();
+	}
+
+	/**
+	 * @return number of operations that could not be converted or sent
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * @return number of update requests sent to solr including retries
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return number of operations waiting for conversion
+	 */
+	public int getPendingCount() {
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * @return the batch size currently in use
+	 */
+	public int getCurrentBatchSize() {
+		return currentBatchSize.get();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public SolrOperations getSolrOperations() {
+		return solrOperations;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * @param workers number of threads converting and sending operations. Default is 1.
+	 */
+	public void setWorkers(int workers) {
+		Assert.isTrue(workers > 0, "Workers must be greater than zero.");
+		this.workers = workers;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @param queueCapacity max number of operations waiting for conversion
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "QueueCapacity must be greater than zero.");
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getMinBatchSize() {
+		return minBatchSize;
+	}
+
+	/**
+	 * @param minBatchSize lower bound for adaptive batch size
+	 */
+	public void setMinBatchSize(int minBatchSize) {
+		Assert.isTrue(minBatchSize > 0, "MinBatchSize must be greater than zero.");
+		this.minBatchSize = minBatchSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * @param maxBatchSize upper bound for adaptive batch size, also used as initial size
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "MaxBatchSize must be greater than zero.");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public long getMaxBatchBytes() {
+		return maxBatchBytes;
+	}
+
+	/**
+	 * @param maxBatchBytes estimated max size of a single batch
+	 */
+	public void setMaxBatchBytes(long maxBatchBytes) {
+		this.maxBatchBytes = maxBatchBytes;
+	}
+
+	public long getMaxLatencyMs() {
+		return maxLatencyMs;
+	}
+
+	/**
+	 * @param maxLatencyMs max time an operation may be held back before being sent
+	 */
+	public void setMaxLatencyMs(long maxLatencyMs) {
+		Assert.isTrue(maxLatencyMs > 0, "MaxLatencyMs must be greater than zero.");
+		this.maxLatencyMs = maxLatencyMs;
+	}
+
+	public long getTargetLatencyMs() {
+		return targetLatencyMs;
+	}
+
+	/**
+	 * @param targetLatencyMs update latency the batch size is adapted to
+	 */
+	public void setTargetLatencyMs(long targetLatencyMs) {
+		this.targetLatencyMs = targetLatencyMs;
+	}
+
+	public int getCommitWithinMs() {
+		return commitWithinMs;
+	}
+
+	/**
+	 * @param commitWithinMs {@code commitWithin} used for sending documents and deletes. Default is {@code -1}.
+	 */
+	public void setCommitWithinMs(int commitWithinMs) {
+		this.commitWithinMs = commitWithinMs;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy);
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public long getOfferTimeoutMs() {
+		return offerTimeoutMs;
+	}
+
+	/**
+	 * @param offerTimeoutMs time to wait for space in queue before rejecting when using {@link OverflowPolicy#REJECT}
+	 */
+	public void setOfferTimeoutMs(long offerTimeoutMs) {
+		this.offerTimeoutMs = offerTimeoutMs;
+	}
+
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CoreAdminParams.CoreAdminAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.convert.SolrConverter;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleFilterQuery;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.data.solr.server.SolrServerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Copies all documents matching {@link #setQuery(Query)} from a source to a target core, eg. to rebuild an index after
+ * schema changes without downtime. Documents are read chunk by chunk using keyset paging on the {@code uniqueKey} and
+ * written to the target core by {@link #setSenders(int)} parallel threads. Optionally documents are passed through
+ * entity conversion ({@link #setEntityType(Class)}) and a {@link DocumentTransformer}. <br />
+ * If a {@link #setCheckpointFile(File)} is set, the {@code uniqueKey} of the last document up to which all chunks have
+ * been acknowledged is recorded there every {@link #setCheckpointInterval(int)} chunks, so a failed run resumes where
+ * it stopped. The target core is committed before the checkpoint is written, so it never points beyond documents that
+ * might still be lost. Once finished the target core is
+ * committed and, if requested, swapped with the source core via {@link CoreAdminAction#SWAP}. The core admin request
+ * is sent to {@link SolrServerFactory#getSolrServer()} which therefore has to point to the solr base url, as it does
+ * for {@link org.springframework.data.solr.server.support.MulticoreSolrServerFactory}.
+ * 
+ * @author agent
+ */
+public class SolrReindexer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SolrReindexer.class);
+
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 10;
+	public static final String VERSION_FIELD = "_version_";
+
+	static final String CHECKPOINT_LAST_KEY = "lastKey";
+	static final String CHECKPOINT_INDEXED_COUNT = "indexedCount";
+
+	private final SolrServerFactory solrServerFactory;
+	private final String sourceCore;
+	private final String targetCore;
+
+	private Query query = new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD));
+	private String uniqueKey = CursorOptions.DEFAULT_UNIQUE_KEY;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int senders = 2;
+	private int maxRetries = 3;
+	private Set<String> excludedFields = new LinkedHashSet<String>();
+	private SolrConverter solrConverter;
+	private Class<?> entityType;
+	private DocumentTransformer documentTransformer;
+	private File checkpointFile;
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	private boolean swapCores = false;
+
+	/**
+	 * @param solrServerFactory must not be null
+	 * @param sourceCore must not be empty
+	 * @param targetCore must not be empty
+	 */
+	public SolrReindexer(SolrServerFactory solrServerFactory, String sourceCore, String targetCore) {
+		Assert.notNull(solrServerFactory, "SolrServerFactory must not be 'null'.");
+		Assert.hasText(sourceCore, "SourceCore must not be empty.");
+		Assert.hasText(targetCore, "TargetCore must not be empty.");
+		Assert.isTrue(!sourceCore.equals(targetCore), "Source and target core must differ.");
+
+		this.solrServerFactory = solrServerFactory;
+		this.sourceCore = sourceCore;
+		this.targetCore = targetCore;
+		this.excludedFields.add(VERSION_FIELD);
+	}
+
+	/**
+	 * Copy documents from source to target core. Resumes from checkpoint if present.
+	 * 
+	 * @return number of documents written to target core within this run
+	 */
+	public long reindex() {
+		SolrTemplate source = createTemplate(sourceCore);
+		SolrTemplate target = createTemplate(targetCore);
+		try {
+			return reindex(source, target);
+		} finally {
+			source.destroy();
+			target.destroy();
+		}
+	}
+
+	private long reindex(SolrTemplate source, SolrTemplate target) {
+		Properties checkpoint = readCheckpoint();
+		Progress progress = new Progress(checkpoint, target);
+		Query reindexQuery = SimpleQuery.fromQuery(query);
+		if (progress.lastKey != null) {
+			LOGGER.info("Resuming reindex of '" + sourceCore + "' after '" + progress.lastKey + "'.");
+			reindexQuery.addFilterQuery(new SimpleFilterQuery(new Criteria(uniqueKey).greaterThan(progress.lastKey)));
+		}
+
+		CursorOptions options = new CursorOptions(chunkSize);
+		options.setPrefetchDepth(1);
+		options.setUniqueKey(uniqueKey);
+
+		ExecutorService executor = Executors.newFixedThreadPool(senders, new CustomizableThreadFactory("solr-reindexer-"));
+		Semaphore permits = new Semaphore(senders * 2);
+		Cursor<SolrDocument> cursor = source.queryForCursor(reindexQuery, SolrDocument.class, options);
+		try {
+			long sequence = 0;
+			int read = 0;
+			List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(chunkSize);
+			Object lastKey = null;
+			while (cursor.hasNext() && !progress.hasFailed()) {
+				SolrDocument document = cursor.next();
+				lastKey = document.getFieldValue(uniqueKey);
+				SolrInputDocument converted = convert(document, source.getConverter());
+				if (converted != null) {
+					documents.add(converted);
+				}
+				if (++read >= chunkSize) {
+					send(new Chunk(sequence++, lastKey, documents), target, executor, permits, progress);
+					documents = new ArrayList<SolrInputDocument>(chunkSize);
+					read = 0;
+				}
+			}
+			if (read > 0 && !progress.hasFailed()) {
+				send(new Chunk(sequence, lastKey, documents), target, executor, permits, progress);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			progress.failed(new UncategorizedSolrException("Interrupted while reindexing.", e));
+		} finally {
+			closeQuietly(cursor);
+			awaitTermination(executor, progress);
+		}
+
+		if (progress.hasFailed()) {
+			throw progress.failure;
+		}
+
+		target.commit();
+		LOGGER.info("Reindexed " + progress.sentCount + " documents from '" + sourceCore + "' to '" + targetCore + "'.");
+		if (swapCores) {
+			swapCores();
+		}
+		if (checkpointFile != null && checkpointFile.exists() && !checkpointFile.delete()) {
+			LOGGER.warn("Unable to delete checkpoint file '" + checkpointFile + "'.");
+		}
+		return progress.sentCount;
+	}
+
+	private void send(final Chunk chunk, final SolrTemplate target, ExecutorService executor, final Semaphore permits,
+			final Progress progress) throws InterruptedException {
+		permits.acquire();
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					if (!chunk.documents.isEmpty()) {
+						saveWithRetry(chunk.documents, target);
+					}
+					progress.completed(chunk);
+				} catch (DataAccessException e) {
+					progress.failed(e);
+				} catch (RuntimeException e) {
+					progress.failed(new UncategorizedSolrException("Unable to send documents to '" + targetCore + "'.", e));
+				} finally {
+					permits.release();
+				}
+			}
+		});
+	}
+
+	private void saveWithRetry(List<SolrInputDocument> documents, SolrTemplate target) {
+		int attempt = 0;
+		while (true) {
+			try {
+				target.saveDocuments(documents);
+				return;
+			} catch (DataAccessException e) {
+				if (++attempt > maxRetries) {
+					throw e;
+				}
+				LOGGER.warn("Sending " + documents.size() + " documents to '" + targetCore + "' failed. Retrying.", e);
+			}
+		}
+	}
+
+	private SolrInputDocument convert(SolrDocument document, SolrConverter converter) {
+		SolrInputDocument input;
+		if (entityType != null) {
+			input = new SolrInputDocument();
+			converter.write(converter.read(entityType, document), input);
+		} else {
+			input = ClientUtils.toSolrInputDocument(document);
+		}
+		for (String field : excludedFields) {
+			input.removeField(field);
+		}
+		return documentTransformer != null ? documentTransformer.transform(input) : input;
+	}
+
+	/**
+	 * Swap source and target core. Called after successful reindex in case {@link #setSwapCores(boolean)} is set.
+	 */
+	public void swapCores() {
+		CoreAdminRequest request = new CoreAdminRequest();
+		request.setAction(CoreAdminAction.SWAP);
+		request.setCoreName(sourceCore);
+		request.setOtherCoreName(targetCore);
+		try {
+			request.process(solrServerFactory.getSolrServer());
+			LOGGER.info("Swapped cores '" + sourceCore + "' and '" + targetCore + "'.");
+		} catch (SolrServerException e) {
+			throw new UncategorizedSolrException("Unable to swap cores '" + sourceCore + "' and '" + targetCore + "'.", e);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to swap cores '" + sourceCore + "' and '" + targetCore
+					+ "'.", e);
+		}
+	}
+
+	private SolrTemplate createTemplate(String core) {
+		SolrTemplate template = new SolrTemplate(solrServerFactory, solrConverter);
+		template.setSolrCore(core);
+		template.afterPropertiesSet();
+		return template;
+	}
+
+	private void awaitTermination(ExecutorService executor, Progress progress) {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				LOGGER.debug("Waiting for pending chunks to be sent.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			progress.failed(new UncategorizedSolrException("Interrupted while waiting for pending chunks.", e));
+		}
+	}
+
+	private Properties readCheckpoint() {
+		Properties properties = new Properties();
+		if (checkpointFile == null || !checkpointFile.exists()) {
+			return properties;
+		}
+
+		InputStream in = null;
+		try {
+			in = new FileInputStream(checkpointFile);
+			properties.load(in);
+			return properties;
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to read checkpoint file '" + checkpointFile + "'.", e);
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	private void writeCheckpoint(Object lastKey, long indexedCount) {
+		if (checkpointFile == null) {
+			return;
+		}
+
+		Properties properties = new Properties();
+		properties.setProperty(CHECKPOINT_LAST_KEY, lastKey.toString());
+		properties.setProperty(CHECKPOINT_INDEXED_COUNT, Long.toString(indexedCount));
+
+		File tmp = new File(checkpointFile.getPath() + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(tmp);
+			properties.store(out, "solr reindex " + sourceCore + " -> " + targetCore);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to write checkpoint file '" + checkpointFile + "'.", e);
+		} finally {
+			closeQuietly(out);
+		}
+		if (!tmp.renameTo(checkpointFile)) {
+			checkpointFile.delete();
+			if (!tmp.renameTo(checkpointFile)) {
+				throw new DataAccessResourceFailureException("Unable to write checkpoint file '" + checkpointFile + "'.");
+			}
+		}
+	}
+
+	private void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * @param query documents to copy. Must not define a sort as documents are read in order of {@code uniqueKey}.
+	 *          Defaults to all documents.
+	 */
+	public void setQuery(Query query) {
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.isNull(query.getSort(), "Query must not define a sort.");
+		this.query = query;
+	}
+
+	/**
+	 * @param uniqueKey name of the {@code uniqueKey} field. Defaults to {@code id}.
+	 */
+	public void setUniqueKey(String uniqueKey) {
+		Assert.hasText(uniqueKey, "UniqueKey must not be empty.");
+		this.uniqueKey = uniqueKey;
+	}
+
+	/**
+	 * @param chunkSize number of documents read and sent per request. Defaults to {@link #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "ChunkSize must be greater than zero.");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param senders number of threads writing to the target core. Defaults to {@code 2}.
+	 */
+	public void setSenders(int senders) {
+		Assert.isTrue(senders > 0, "Senders must be greater than zero.");
+		this.senders = senders;
+	}
+
+	/**
+	 * @param maxRetries number of times sending a chunk is retried before reindexing fails. Defaults to {@code 3}.
+	 */
+	public void setMaxRetries(int maxRetries) {
+		Assert.isTrue(maxRetries >= 0, "MaxRetries must not be negative.");
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * @param excludedFields fields not copied to the target core, eg. {@code copyField} destinations. {@code _version_}
+	 *          is always excluded.
+	 */
+	public void setExcludedFields(Set<String> excludedFields) {
+		this.excludedFields = new LinkedHashSet<String>();
+		this.excludedFields.add(VERSION_FIELD);
+		if (excludedFields != null) {
+			this.excludedFields.addAll(excludedFields);
+		}
+	}
+
+	/**
+	 * @param solrConverter used for reading and writing entities. Defaults to the {@link SolrTemplate} default.
+	 */
+	public void setSolrConverter(SolrConverter solrConverter) {
+		this.solrConverter = solrConverter;
+	}
+
+	/**
+	 * @param entityType if set documents are read into and written from given type, applying the current mapping
+	 */
+	public void setEntityType(Class<?> entityType) {
+		this.entityType = entityType;
+	}
+
+	public void setDocumentTransformer(DocumentTransformer documentTransformer) {
+		this.documentTransformer = documentTransformer;
+	}
+
+	/**
+	 * @param checkpointFile file progress is recorded in. Deleted after successful reindex.
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * @param checkpointInterval number of acknowledged chunks after which the target core is committed and the checkpoint
+	 *          is written. Defaults to {@link #DEFAULT_CHECKPOINT_INTERVAL}.
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		Assert.isTrue(checkpointInterval > 0, "CheckpointInterval must be greater than zero.");
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * @param swapCores if true source and target core are swapped after successful reindex
+	 */
+	public void setSwapCores(boolean swapCores) {
+		this.swapCores = swapCores;
+	}
+
+	private static class Chunk {
+
+		private final long sequence;
+		private final Object lastKey;
+		private final List<SolrInputDocument> documents;
+
+		Chunk(long sequence, Object lastKey, List<SolrInputDocument> documents) {
+			this.sequence = sequence;
+			this.lastKey = lastKey;
+			this.documents = documents;
+		}
+
+	}
+
+	/**
+	 * Tracks acknowledged chunks, advancing the checkpoint only while all preceding chunks have been sent and committed.
+	 */
+	private class Progress {
+
+		private final Map<Long, Chunk> completed = new HashMap<Long, Chunk>();
+		private final SolrTemplate target;
+		private long nextSequence = 0;
+		private long checkpointSequence = 0;
+		private Object lastKey;
+		private long indexedCount;
+		private volatile long sentCount;
+		private volatile DataAccessException failure;
+
+		Progress(Properties checkpoint, SolrTemplate target) {
+			this.target = target;
+			this.lastKey = checkpoint.getProperty(CHECKPOINT_LAST_KEY);
+			this.indexedCount = Long.parseLong(checkpoint.getProperty(CHECKPOINT_INDEXED_COUNT, "0"));
+		}
+
+		synchronized void completed(Chunk chunk) {
+			sentCount += chunk.documents.size();
+			completed.put(chunk.sequence, chunk);
+			Chunk next;
+			boolean advanced = false;
+			while ((next = completed.remove(nextSequence)) != null) {
+				lastKey = next.lastKey;
+				indexedCount += next.documents.size();
+				nextSequence++;
+				advanced = true;
+			}
+			if (advanced && lastKey != null && checkpointFile != null
+					&& nextSequence - checkpointSequence >= checkpointInterval) {
+				// documents are only durable once committed, so commit before recording them as done
+				target.commit();
+				writeCheckpoint(lastKey, indexedCount);
+				checkpointSequence = nextSequence;
+			}
+		}
+
+		synchronized void failed(DataAccessException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+
+		boolean hasFailed() {
+			return failure != null;
+		}
+
+	}
+
+}
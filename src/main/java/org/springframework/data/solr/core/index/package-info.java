@@ -0,0 +1,4 @@
+/**
+ * Utilities for writing large amounts of data to solr.
+ */
+package org.springframework.data.solr.core.index;
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import org.apache.solr.common.util.NamedList;
+import org.springframework.util.Assert;
+
+/**
+ * Statistics of a solr searcher cache as reported by the mbeans request handler.
+ * 
+ * @author agent
+ */
+public class CacheStatistics {
+
+	private final String name;
+	private final long lookups;
+	private final long hits;
+	private final double hitRatio;
+	private final long evictions;
+	private final long size;
+	private final long warmupTime;
+
+	public CacheStatistics(String name, long lookups, long hits, double hitRatio, long evictions, long size,
+			long warmupTime) {
+		Assert.hasText(name, "Name must not be empty.");
+
+		this.name = name;
+		this.lookups = lookups;
+		this.hits = hits;
+		this.hitRatio = hitRatio;
+		this.evictions = evictions;
+		this.size = size;
+		this.warmupTime = warmupTime;
+	}
+
+	/**
+	 * Create statistics from {@code stats} section of a cache entry within a mbeans response.
+	 * 
+	 * @param name must not be empty
+	 * @param stats must not be null
+	 * @return
+	 */
+	public static CacheStatistics fromStats(String name, NamedList<Object> stats) {
+		Assert.notNull(stats, "Stats must not be 'null'.");
+
+		return new CacheStatistics(name, (long) getNumber(stats, "lookups"), (long) getNumber(stats, "hits"), getNumber(
+				stats, "hitratio"), (long) getNumber(stats, "evictions"), (long) getNumber(stats, "size"),
+				(long) getNumber(stats, "warmupTime"));
+	}
+
+	private static double getNumber(NamedList<Object> stats, String name) {
+		Object value = stats.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value != null) {
+			try {
+				return Double.parseDouble(value.toString());
+			} catch (NumberFormatException e) {
+				// not a number, ignore
+			}
+		}
+		return 0d;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getLookups() {
+		return lookups;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return ratio of hits to lookups since the current searcher was opened
+	 */
+	public double getHitRatio() {
+		return hitRatio;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return time in ms it took to autowarm the cache when the current searcher was opened
+	 */
+	public long getWarmupTime() {
+		return warmupTime;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [name=" + name + ", lookups=" + lookups + ", hits=" + hits + ", hitRatio=" + hitRatio
+				+ ", evictions=" + evictions + ", size=" + size + ", warmupTime=" + warmupTime + "]";
+	}
+
+}
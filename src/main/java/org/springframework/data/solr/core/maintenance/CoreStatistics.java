@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.solr.common.util.NamedList;
+import org.springframework.util.Assert;
+
+/**
+ * Statistics of a solr core combining {@link IndexStatistics} read via the luke request handler with searcher
+ * {@link CacheStatistics} and the index size read via the mbeans request handler.
+ * 
+ * @author agent
+ */
+public class CoreStatistics {
+
+	public static final String FILTER_CACHE = "filterCache";
+	public static final String QUERY_RESULT_CACHE = "queryResultCache";
+	public static final String DOCUMENT_CACHE = "documentCache";
+	public static final String REPLICATION_HANDLER = "/replication";
+
+	private static final String MBEANS = "solr-mbeans";
+	private static final String STATS = "stats";
+	private static final String INDEX_SIZE = "indexSize";
+
+	private final IndexStatistics indexStatistics;
+	private final long indexSizeBytes;
+	private final Map<String, CacheStatistics> caches;
+
+	/**
+	 * @param indexStatistics must not be null
+	 * @param indexSizeBytes {@code -1} if unknown
+	 * @param caches
+	 */
+	public CoreStatistics(IndexStatistics indexStatistics, long indexSizeBytes, Map<String, CacheStatistics> caches) {
+		Assert.notNull(indexStatistics, "IndexStatistics must not be 'null'.");
+
+		this.indexStatistics = indexStatistics;
+		this.indexSizeBytes = indexSizeBytes;
+		this.caches = caches != null ? new LinkedHashMap<String, CacheStatistics>(caches) : Collections
+				.<String, CacheStatistics> emptyMap();
+	}
+
+	/**
+	 * Create statistics from responses of luke ({@code show=index}) and mbeans ({@code stats=true}) request handlers.
+	 * 
+	 * @param lukeResponse must not be null
+	 * @param mbeansResponse may be null
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static CoreStatistics fromResponses(NamedList<Object> lukeResponse, NamedList<Object> mbeansResponse) {
+		Assert.notNull(lukeResponse, "LukeResponse must not be 'null'.");
+		Object indexInfo = lukeResponse.get("index");
+		Assert.isInstanceOf(NamedList.class, indexInfo, "Luke response does not contain index information.");
+
+		IndexStatistics indexStatistics = IndexStatistics.fromIndexInfo((NamedList<Object>) indexInfo);
+		Map<String, CacheStatistics> caches = new LinkedHashMap<String, CacheStatistics>();
+		long indexSizeBytes = -1;
+
+		Object categories = mbeansResponse != null ? mbeansResponse.get(MBEANS) : null;
+		if (categories instanceof NamedList) {
+			for (Map.Entry<String, Object> category : (NamedList<Object>) categories) {
+				if (!(category.getValue() instanceof NamedList)) {
+					continue;
+				}
+				for (Map.Entry<String, Object> bean : (NamedList<Object>) category.getValue()) {
+					NamedList<Object> stats = getStats(bean.getValue());
+					if (stats == null) {
+						continue;
+					}
+					if ("CACHE".equals(category.getKey())) {
+						caches.put(bean.getKey(), CacheStatistics.fromStats(bean.getKey(), stats));
+					} else if (REPLICATION_HANDLER.equals(bean.getKey()) && stats.get(INDEX_SIZE) != null) {
+						indexSizeBytes = parseSize(stats.get(INDEX_SIZE).toString());
+					}
+				}
+			}
+		}
+		return new CoreStatistics(indexStatistics, indexSizeBytes, caches);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static NamedList<Object> getStats(Object bean) {
+		if (bean instanceof NamedList) {
+			Object stats = ((NamedList<Object>) bean).get(STATS);
+			if (stats instanceof NamedList) {
+				return (NamedList<Object>) stats;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parse human readable size as reported by solr, eg. {@code 1.5 GB}, {@code 823 bytes}.
+	 * 
+	 * @param size
+	 * @return size in bytes, {@code -1} if not parsable
+	 */
+	static long parseSize(String size) {
+		String[] parts = size.trim().replace(",", "").split("\\s+");
+		try {
+			double value = Double.parseDouble(parts[0]);
+			String unit = parts.length > 1 ? parts[1].toUpperCase(Locale.ENGLISH) : "";
+			if ("KB".equals(unit)) {
+				value *= 1024;
+			} else if ("MB".equals(unit)) {
+				value *= 1024 * 1024;
+			} else if ("GB".equals(unit)) {
+				value *= 1024 * 1024 * 1024;
+			}
+			return (long) value;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public IndexStatistics getIndexStatistics() {
+		return indexStatistics;
+	}
+
+	public long getNumDocs() {
+		return indexStatistics.getNumDocs();
+	}
+
+	public long getDeletedDocs() {
+		return indexStatistics.getDeletedDocs();
+	}
+
+	public int getSegmentCount() {
+		return indexStatistics.getSegmentCount();
+	}
+
+	/**
+	 * @return approximate size of the index in bytes, {@code -1} if not reported
+	 */
+	public long getIndexSizeBytes() {
+		return indexSizeBytes;
+	}
+
+	/**
+	 * @param name
+	 * @return null if no cache with given name reported
+	 */
+	public CacheStatistics getCache(String name) {
+		return caches.get(name);
+	}
+
+	public CacheStatistics getFilterCache() {
+		return getCache(FILTER_CACHE);
+	}
+
+	public CacheStatistics getQueryResultCache() {
+		return getCache(QUERY_RESULT_CACHE);
+	}
+
+	public CacheStatistics getDocumentCache() {
+		return getCache(DOCUMENT_CACHE);
+	}
+
+	public Map<String, CacheStatistics> getCaches() {
+		return Collections.unmodifiableMap(caches);
+	}
+
+	/**
+	 * Flatten statistics into named values suitable for export to a metrics system. Cache values are prefixed with the
+	 * cache name, eg. {@code filterCache.hitRatio}.
+	 * 
+	 * @return
+	 */
+	public Map<String, Number> toMetrics() {
+		Map<String, Number> metrics = new LinkedHashMap<String, Number>();
+		metrics.put("numDocs", indexStatistics.getNumDocs());
+		metrics.put("maxDoc", indexStatistics.getMaxDoc());
+		metrics.put("deletedDocs", indexStatistics.getDeletedDocs());
+		metrics.put("segmentCount", indexStatistics.getSegmentCount());
+		metrics.put("indexSizeBytes", indexSizeBytes);
+		for (CacheStatistics cache : caches.values()) {
+			String prefix = cache.getName() + ".";
+			metrics.put(prefix + "lookups", cache.getLookups());
+			metrics.put(prefix + "hits", cache.getHits());
+			metrics.put(prefix + "hitRatio", cache.getHitRatio());
+			metrics.put(prefix + "evictions", cache.getEvictions());
+			metrics.put(prefix + "size", cache.getSize());
+			metrics.put(prefix + "warmupTime", cache.getWarmupTime());
+		}
+		return metrics;
+	}
+
+	@Override
+	public String toString() {
+		return "CoreStatistics [index=" + indexStatistics + ", indexSizeBytes=" + indexSizeBytes + ", caches="
+				+ caches.values() + "]";
+	}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Periodically reads {@link IndexStatistics} via the luke request handler and, within the configured
+ * {@link MaintenanceWindow}s, merges the index when it has degraded:
+ * <ul>
+ * <li>{@link SolrOperations#optimize(int)} down to {@link #setOptimizeMaxSegments(int)} segments in case the number of
+ * segments exceeds {@link #setMaxSegmentCount(int)}</li>
+ * <li>{@link SolrOperations#expungeDeletes()} in case the ratio of deleted documents exceeds
+ * {@link #setMaxDeletedDocsRatio(double)}</li>
+ * </ul>
+ * Merging rewrites large parts of the index, so at least one window has to be configured. Use
+ * {@link #maintain()} to run maintenance regardless of windows.
+ * 
+ * @author agent
+ */
+public class IndexMaintenanceScheduler implements InitializingBean, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexMaintenanceScheduler.class);
+
+	public static final long DEFAULT_CHECK_INTERVAL_MS = 10 * 60 * 1000;
+	public static final double DEFAULT_MAX_DELETED_DOCS_RATIO = 0.2d;
+
+	/**
+	 * Maintenance operation executed.
+	 */
+	public enum Action {
+		NONE, OPTIMIZE, EXPUNGE_DELETES
+	}
+
+	private final SolrOperations solrOperations;
+	private List<MaintenanceWindow> windows = Collections.emptyList();
+	private TimeZone timeZone = TimeZone.getDefault();
+	private long checkIntervalMs = DEFAULT_CHECK_INTERVAL_MS;
+	private double maxDeletedDocsRatio = DEFAULT_MAX_DELETED_DOCS_RATIO;
+	private int maxSegmentCount = -1;
+	private int optimizeMaxSegments = 1;
+
+	private TaskScheduler taskScheduler;
+	private boolean defaultScheduler;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param solrOperations must not be null
+	 */
+	public IndexMaintenanceScheduler(SolrOperations solrOperations) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		this.solrOperations = solrOperations;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Assert.notEmpty(windows, "At least one maintenance window has to be configured.");
+
+		if (this.taskScheduler == null) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("solr-maintenance-");
+			scheduler.setDaemon(true);
+			scheduler.initialize();
+			this.taskScheduler = scheduler;
+			this.defaultScheduler = true;
+		}
+
+		this.future = taskScheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					check();
+				} catch (DataAccessException e) {
+					LOGGER.warn("Index maintenance failed.", e);
+				}
+			}
+		}, checkIntervalMs);
+	}
+
+	/**
+	 * Run maintenance if currently within a {@link MaintenanceWindow}.
+	 * 
+	 * @return action executed
+	 */
+	public Action check() {
+		if (!isWithinWindow(Calendar.getInstance(timeZone))) {
+			return Action.NONE;
+		}
+		return maintain();
+	}
+
+	/**
+	 * Read index statistics and run maintenance if required, regardless of configured windows.
+	 * 
+	 * @return action executed
+	 */
+	public Action maintain() {
+		IndexStatistics statistics = readIndexStatistics();
+		Action action = determineAction(statistics);
+
+		if (Action.OPTIMIZE.equals(action)) {
+			LOGGER.info("Optimizing index to " + optimizeMaxSegments + " segment(s): " + statistics);
+			solrOperations.optimize(optimizeMaxSegments);
+		} else if (Action.EXPUNGE_DELETES.equals(action)) {
+			LOGGER.info("Expunging deleted documents: " + statistics);
+			solrOperations.expungeDeletes();
+		}
+		return action;
+	}
+
+	Action determineAction(IndexStatistics statistics) {
+		if (maxSegmentCount > 0 && statistics.getSegmentCount() > maxSegmentCount) {
+			return Action.OPTIMIZE;
+		}
+		if (statistics.getDeletedDocsRatio() > maxDeletedDocsRatio) {
+			return Action.EXPUNGE_DELETES;
+		}
+		return Action.NONE;
+	}
+
+	boolean isWithinWindow(Calendar calendar) {
+		for (MaintenanceWindow window : windows) {
+			if (window.contains(calendar)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected IndexStatistics readIndexStatistics() {
+		return solrOperations.getIndexStatistics();
+	}
+
+	@Override
+	public void destroy() {
+		if (future != null) {
+			future.cancel(false);
+		}
+		if (defaultScheduler && taskScheduler instanceof ThreadPoolTaskScheduler) {
+			((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+
+	/**
+	 * @param windows in format {@code HH:mm-HH:mm}. Maintenance does not run outside of these.
+	 */
+	public void setWindows(List<String> windows) {
+		List<MaintenanceWindow> parsed = new ArrayList<MaintenanceWindow>();
+		if (windows != null) {
+			for (String window : windows) {
+				parsed.add(MaintenanceWindow.parse(window));
+			}
+		}
+		this.windows = parsed;
+	}
+
+	public List<MaintenanceWindow> getWindows() {
+		return Collections.unmodifiableList(windows);
+	}
+
+	/**
+	 * @param timeZone used for evaluating windows. Defaults to the system time zone.
+	 */
+	public void setTimeZone(TimeZone timeZone) {
+		Assert.notNull(timeZone, "TimeZone must not be 'null'.");
+		this.timeZone = timeZone;
+	}
+
+	public void setCheckIntervalMs(long checkIntervalMs) {
+		Assert.isTrue(checkIntervalMs > 0, "CheckInterval must be greater than zero.");
+		this.checkIntervalMs = checkIntervalMs;
+	}
+
+	public long getCheckIntervalMs() {
+		return checkIntervalMs;
+	}
+
+	/**
+	 * @param maxDeletedDocsRatio ratio of deleted documents (between 0 and 1) above which deletes are expunged
+	 */
+	public void setMaxDeletedDocsRatio(double maxDeletedDocsRatio) {
+		Assert.isTrue(maxDeletedDocsRatio >= 0d && maxDeletedDocsRatio <= 1d,
+				"MaxDeletedDocsRatio must be between 0 and 1.");
+		this.maxDeletedDocsRatio = maxDeletedDocsRatio;
+	}
+
+	public double getMaxDeletedDocsRatio() {
+		return maxDeletedDocsRatio;
+	}
+
+	/**
+	 * @param maxSegmentCount number of segments above which the index is optimized. {@code -1} (default) disables
+	 *          optimizing based on segment count.
+	 */
+	public void setMaxSegmentCount(int maxSegmentCount) {
+		this.maxSegmentCount = maxSegmentCount;
+	}
+
+	public int getMaxSegmentCount() {
+		return maxSegmentCount;
+	}
+
+	/**
+	 * @param optimizeMaxSegments number of segments the index is merged down to when optimizing
+	 */
+	public void setOptimizeMaxSegments(int optimizeMaxSegments) {
+		Assert.isTrue(optimizeMaxSegments > 0, "OptimizeMaxSegments must be greater than zero.");
+		this.optimizeMaxSegments = optimizeMaxSegments;
+	}
+
+	public int getOptimizeMaxSegments() {
+		return optimizeMaxSegments;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import org.apache.solr.common.util.NamedList;
+import org.springframework.util.Assert;
+
+/**
+ * Statistics of a solr index as reported by the luke request handler.
+ * 
+ * @author agent
+ */
+public class IndexStatistics {
+
+	private final long numDocs;
+	private final long maxDoc;
+	private final long deletedDocs;
+	private final int segmentCount;
+	private final Long version;
+
+	public IndexStatistics(long numDocs, long maxDoc, long deletedDocs, int segmentCount, Long version) {
+		this.numDocs = numDocs;
+		this.maxDoc = maxDoc;
+		this.deletedDocs = deletedDocs;
+		this.segmentCount = segmentCount;
+		this.version = version;
+	}
+
+	/**
+	 * Create statistics from {@code index} section of a luke response.
+	 * 
+	 * @param indexInfo must not be null
+	 * @return
+	 */
+	public static IndexStatistics fromIndexInfo(NamedList<Object> indexInfo) {
+		Assert.notNull(indexInfo, "IndexInfo must not be 'null'.");
+
+		long numDocs = getLong(indexInfo, "numDocs", 0);
+		long maxDoc = getLong(indexInfo, "maxDoc", numDocs);
+		long deletedDocs = getLong(indexInfo, "deletedDocs", maxDoc - numDocs);
+		int segmentCount = (int) getLong(indexInfo, "segmentCount", -1);
+		Object version = indexInfo.get("version");
+		return new IndexStatistics(numDocs, maxDoc, deletedDocs, segmentCount,
+				version instanceof Number ? Long.valueOf(((Number) version).longValue()) : null);
+	}
+
+	private static long getLong(NamedList<Object> indexInfo, String name, long defaultValue) {
+		Object value = indexInfo.get(name);
+		return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+	}
+
+	public long getNumDocs() {
+		return numDocs;
+	}
+
+	public long getMaxDoc() {
+		return maxDoc;
+	}
+
+	public long getDeletedDocs() {
+		return deletedDocs;
+	}
+
+	/**
+	 * @return ratio of deleted documents to all documents (including deleted) in the index
+	 */
+	public double getDeletedDocsRatio() {
+		return maxDoc > 0 ? (double) deletedDocs / maxDoc : 0d;
+	}
+
+	/**
+	 * @return number of segments, {@code -1} if not reported
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * @return index version, null if not reported
+	 */
+	public Long getVersion() {
+		return version;
+	}
+
+	@Override
+	public String toString() {
+		return "IndexStatistics [numDocs=" + numDocs + ", maxDoc=" + maxDoc + ", deletedDocs=" + deletedDocs
+				+ ", segmentCount=" + segmentCount + ", version=" + version + "]";
+	}
+
+}
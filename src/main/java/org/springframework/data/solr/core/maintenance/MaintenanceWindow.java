@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import java.util.Calendar;
+
+import org.springframework.util.Assert;
+
+/**
+ * Daily time window in {@code HH:mm} format. Windows ending before they start span midnight, eg. {@code 22:00-04:00}.
+ * 
+ * @author agent
+ */
+public class MaintenanceWindow {
+
+	private final int startMinute;
+	private final int endMinute;
+
+	/**
+	 * @param start inclusive start time in format {@code HH:mm}
+	 * @param end exclusive end time in format {@code HH:mm}
+	 */
+	public MaintenanceWindow(String start, String end) {
+		this.startMinute = parseMinuteOfDay(start);
+		this.endMinute = parseMinuteOfDay(end);
+		Assert.isTrue(startMinute != endMinute, "Start and end of window must differ.");
+	}
+
+	/**
+	 * @param window in format {@code HH:mm-HH:mm}
+	 * @return
+	 */
+	public static MaintenanceWindow parse(String window) {
+		Assert.hasText(window, "Window must not be empty.");
+
+		String[] parts = window.trim().split("\\s*-\\s*");
+		Assert.isTrue(parts.length == 2, "Window must be in format 'HH:mm-HH:mm' but was '" + window + "'.");
+		return new MaintenanceWindow(parts[0], parts[1]);
+	}
+
+	private static int parseMinuteOfDay(String time) {
+		Assert.hasText(time, "Time must not be empty.");
+
+		String[] parts = time.trim().split(":");
+		Assert.isTrue(parts.length == 2, "Time must be in format 'HH:mm' but was '" + time + "'.");
+		try {
+			int hours = Integer.parseInt(parts[0]);
+			int minutes = Integer.parseInt(parts[1]);
+			Assert.isTrue(hours >= 0 && hours < 24 && minutes >= 0 && minutes < 60, "Invalid time '" + time + "'.");
+			return hours * 60 + minutes;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Time must be in format 'HH:mm' but was '" + time + "'.", e);
+		}
+	}
+
+	/**
+	 * @param calendar must not be null
+	 * @return true if time of day of given calendar is within this window
+	 */
+	public boolean contains(Calendar calendar) {
+		Assert.notNull(calendar, "Calendar must not be 'null'.");
+
+		int minute = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+		if (startMinute < endMinute) {
+			return minute >= startMinute && minute < endMinute;
+		}
+		return minute >= startMinute || minute < endMinute;
+	}
+
+	@Override
+	public String toString() {
+		return format(startMinute) + "-" + format(endMinute);
+	}
+
+	private static String format(int minuteOfDay) {
+		return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+	}
+
+}
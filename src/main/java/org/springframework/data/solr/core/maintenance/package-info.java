@@ -0,0 +1,4 @@
+/**
+ * Core statistics and scheduled index maintenance.
+ */
+package org.springframework.data.solr.core.maintenance;
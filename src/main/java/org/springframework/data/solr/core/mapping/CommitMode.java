@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.mapping;
+
+/**
+ * Commit behavior applied after writing an entity annotated with {@link SolrDocument}.
+ * 
+ * @author agent
+ */
+public enum CommitMode {
+
+	/**
+	 * Use the commit behavior configured for the repository.
+	 */
+	DEFAULT,
+
+	/**
+	 * Do not commit explicitly. Changes become visible via {@code commitWithin} or the servers autoCommit settings.
+	 */
+	NONE,
+
+	/**
+	 * Send a soft commit after each write operation. Requires solr 4.x.
+	 */
+	SOFT,
+
+	/**
+	 * Send a hard commit after each write operation.
+	 */
+	HARD
+
+}
@@ -39,11 +39,23 @@ public class SimpleSolrPersistentEntity<T> extends BasicPersistentEntity<T, Solr
 
 	private final StandardEvaluationContext context;
 	private String solrCoreName;
+	private int commitWithin = -1;
+	private int batchSize = -1;
+	private CommitMode commitMode = CommitMode.DEFAULT;
+	private boolean openSearcher = true;
 
 	public SimpleSolrPersistentEntity(TypeInformation<T> typeInformation) {
 		super(typeInformation);
 		this.context = new StandardEvaluationContext();
 		this.solrCoreName = derivateSolrCoreNameFromClass(typeInformation.getType());
+
+		SolrDocument solrDocument = typeInformation.getType().getAnnotation(SolrDocument.class);
+		if (solrDocument != null) {
+			this.commitWithin = solrDocument.commitWithin() > 0 ? solrDocument.commitWithin() : -1;
+			this.batchSize = solrDocument.batchSize() > 0 ? solrDocument.batchSize() : -1;
+			this.commitMode = solrDocument.commitMode();
+			this.openSearcher = solrDocument.openSearcher();
+		}
 	}
 
 	@Override
@@ -69,4 +81,24 @@ public class SimpleSolrPersistentEntity<T> extends BasicPersistentEntity<T, Solr
 		return this.solrCoreName;
 	}
 
+	@Override
+	public int getCommitWithin() {
+		return this.commitWithin;
+	}
+
+	@Override
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	@Override
+	public CommitMode getCommitMode() {
+		return this.commitMode;
+	}
+
+	@Override
+	public boolean isOpenSearcher() {
+		return this.openSearcher;
+	}
+
 }
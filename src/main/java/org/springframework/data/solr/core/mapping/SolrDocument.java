@@ -35,4 +35,27 @@ public @interface SolrDocument {
 
 	String solrCoreName() default "";
 
+	/**
+	 * Time in ms within which changes to documents of this type are committed. Sent as {@code commitWithin} with save
+	 * and delete requests. {@code -1} (default) sends none.
+	 */
+	int commitWithin() default -1;
+
+	/**
+	 * Commit to send after entities of this type have been written via a repository.
+	 */
+	CommitMode commitMode() default CommitMode.DEFAULT;
+
+	/**
+	 * Whether {@link CommitMode#HARD} commits open a new searcher. {@code false} flushes changes to stable storage
+	 * without making them visible, leaving visibility to soft commits. Requires solr 4.x.
+	 */
+	boolean openSearcher() default true;
+
+	/**
+	 * Maximum number of documents sent within a single update request when saving multiple entities of this type.
+	 * {@code -1} (default) sends all documents at once.
+	 */
+	int batchSize() default -1;
+
 }
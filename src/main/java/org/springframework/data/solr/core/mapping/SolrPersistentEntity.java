@@ -25,4 +25,24 @@ public interface SolrPersistentEntity<T> extends PersistentEntity<T, SolrPersist
 
 	String getSolrCoreName();
 
+	/**
+	 * @return time in ms to be sent as {@code commitWithin} when writing entities of this type, {@code -1} for none.
+	 */
+	int getCommitWithin();
+
+	/**
+	 * @return max number of documents per update request, {@code -1} for no limit.
+	 */
+	int getBatchSize();
+
+	/**
+	 * @return {@link CommitMode} declared via {@link SolrDocument}, {@link CommitMode#DEFAULT} if none declared.
+	 */
+	CommitMode getCommitMode();
+
+	/**
+	 * @return whether {@link CommitMode#HARD} commits open a new searcher.
+	 */
+	boolean isOpenSearcher();
+
 }
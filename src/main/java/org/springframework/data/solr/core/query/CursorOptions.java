@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query;
+
+import org.springframework.util.Assert;
+
+/**
+ * Options to be used when reading results via {@link org.springframework.data.solr.core.query.result.Cursor}.
+ * 
+ * @author agent
+ */
+public class CursorOptions {
+
+	public static final int DEFAULT_CHUNK_SIZE = 100;
+	public static final String DEFAULT_UNIQUE_KEY = "id";
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int prefetchDepth = 0;
+	private boolean convertOnPrefetch = false;
+	private String uniqueKey = DEFAULT_UNIQUE_KEY;
+
+	public CursorOptions() {
+	}
+
+	public CursorOptions(int chunkSize) {
+		setChunkSize(chunkSize);
+	}
+
+	/**
+	 * @return number of documents fetched per request
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Set number of documents to be fetched per request. Corresponds to {@code rows}.
+	 * 
+	 * @param chunkSize must be greater than zero
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than zero.");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return number of chunks fetched ahead of consumption
+	 */
+	public int getPrefetchDepth() {
+		return prefetchDepth;
+	}
+
+	/**
+	 * Set number of chunks to be fetched in background ahead of consumption. {@code 0} disables prefetching, fetching
+	 * next chunk when the current one is exhausted.
+	 * 
+	 * @param prefetchDepth must not be negative
+	 */
+	public void setPrefetchDepth(int prefetchDepth) {
+		Assert.isTrue(prefetchDepth >= 0, "Prefetch depth must not be negative.");
+		this.prefetchDepth = prefetchDepth;
+	}
+
+	public boolean hasPrefetch() {
+		return this.prefetchDepth > 0;
+	}
+
+	/**
+	 * @return true if chunks are converted by the prefetching thread
+	 */
+	public boolean isConvertOnPrefetch() {
+		return convertOnPrefetch;
+	}
+
+	/**
+	 * If true prefetched chunks will be converted in background, otherwise conversion takes place lazily when the chunk
+	 * is consumed. Has no effect without prefetching.
+	 * 
+	 * @param convertOnPrefetch
+	 */
+	public void setConvertOnPrefetch(boolean convertOnPrefetch) {
+		this.convertOnPrefetch = convertOnPrefetch;
+	}
+
+	/**
+	 * @return name of the {@code uniqueKey} field
+	 */
+	public String getUniqueKey() {
+		return uniqueKey;
+	}
+
+	/**
+	 * Set name of the {@code uniqueKey} field used as tie breaker for sorting.
+	 * 
+	 * @param uniqueKey must not be empty
+	 */
+	public void setUniqueKey(String uniqueKey) {
+		Assert.hasText(uniqueKey, "UniqueKey must not be empty.");
+		this.uniqueKey = uniqueKey;
+	}
+
+}
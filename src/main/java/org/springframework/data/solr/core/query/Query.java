@@ -142,6 +142,23 @@ public interface Query extends SolrDataQuery {
 	 */
 	Integer getTimeAllowed();
 
+	/**
+	 * Set the time in milliseconds the caller is willing to wait for the search to return. The timeout is passed on as
+	 * {@code timeAllowed} (in case it is lower than {@link #getTimeAllowed()}) and the client stops waiting for the
+	 * response once it has elapsed. Values <= 0 mean no timeout.
+	 * 
+	 * @param timeout
+	 * @return
+	 */
+	<T extends Query> T setTimeout(Integer timeout);
+
+	/**
+	 * Return the time (in milliseconds) the caller is willing to wait for the search to return
+	 * 
+	 * @return
+	 */
+	Integer getTimeout();
+
 	/**
 	 * Set the default operator {@code q.op} for query expressions
 	 * 
@@ -43,6 +43,7 @@ public class SimpleQuery extends AbstractQuery implements Query, FilterQuery {
 	private Sort sort;
 	private Operator defaultOperator;
 	private Integer timeAllowed;
+	private Integer timeout;
 	private String defType;
 
 	public SimpleQuery() {
@@ -103,6 +104,10 @@ public class SimpleQuery extends AbstractQuery implements Query, FilterQuery {
 			destination.setTimeAllowed(source.getTimeAllowed());
 		}
 
+		if (source.getTimeout() != null) {
+			destination.setTimeout(source.getTimeout());
+		}
+
 		if (source.getRequestHandler() != null) {
 			destination.setRequestHandler(source.getRequestHandler());
 		}
@@ -225,6 +230,18 @@ public class SimpleQuery extends AbstractQuery implements Query, FilterQuery {
 		return this.timeAllowed;
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T extends Query> T setTimeout(Integer timeout) {
+		this.timeout = timeout;
+		return (T) this;
+	}
+
+	@Override
+	public Integer getTimeout() {
+		return this.timeout;
+	}
+
 	@Override
 	public List<FilterQuery> getFilterQueries() {
 		return Collections.unmodifiableList(this.filterQueries);
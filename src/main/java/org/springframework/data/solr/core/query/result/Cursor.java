@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * {@link Cursor} allows to iterate over large result sets by fetching documents chunk by chunk from solr. Only the
+ * current (and eventually prefetched) chunks are held in memory. Make sure to {@link #close()} the cursor once done to
+ * free resources.
+ * 
+ * @author agent
+ * 
+ * @param <T>
+ */
+public interface Cursor<T> extends Iterator<T>, Closeable {
+
+	enum State {
+		READY, OPEN, FINISHED, CLOSED
+	}
+
+	/**
+	 * Open cursor and start fetching.
+	 * 
+	 * @return
+	 */
+	Cursor<T> open();
+
+	/**
+	 * @return number of elements already returned via {@link #next()}
+	 */
+	long getPosition();
+
+	/**
+	 * @return current {@code cursorMark}. {@code null} if not available for the used paging strategy.
+	 */
+	String getCursorMark();
+
+	/**
+	 * @return
+	 */
+	State getState();
+
+	/**
+	 * @return true if {@link State#OPEN}
+	 */
+	boolean isOpen();
+
+	/**
+	 * @return true if {@link State#CLOSED}
+	 */
+	boolean isClosed();
+
+}
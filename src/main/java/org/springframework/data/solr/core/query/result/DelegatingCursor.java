@@ -0,0 +1,518 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.VersionUtil;
+import org.springframework.data.solr.core.convert.DateTimeConverters;
+import org.springframework.data.solr.core.convert.NumberConverters;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Base implementation of {@link Cursor} reading results chunk by chunk. Depending on the solr version in use
+ * paging is done via {@code cursorMark} (solr 4.7+) or keyset paging on the sort fields, using the {@code uniqueKey}
+ * as tie-breaker. Keyset paging requires to sort on plain fields, sorting by score or functions is rejected. <br />
+ * Chunks are converted lazily when they are consumed unless {@link CursorOptions#isConvertOnPrefetch()} is set.
+ * 
+ * @author agent
+ * 
+ * @param <T>
+ */
+public abstract class DelegatingCursor<T> implements Cursor<T> {
+
+	static final String CURSOR_MARK_PARAM = "cursorMark";
+	static final String NEXT_CURSOR_MARK = "nextCursorMark";
+	static final String CURSOR_MARK_START = "*";
+
+	enum PagingStrategy {
+		CURSOR_MARK, KEYSET
+	}
+
+	private static final GenericConversionService KEY_CONVERSION_SERVICE = new GenericConversionService();
+
+	static {
+		KEY_CONVERSION_SERVICE.addConverter(DateTimeConverters.JavaDateConverter.INSTANCE);
+		KEY_CONVERSION_SERVICE.addConverter(NumberConverters.NumberConverter.INSTANCE);
+		if (VersionUtil.isJodaTimeAvailable()) {
+			KEY_CONVERSION_SERVICE.addConverter(DateTimeConverters.JodaDateTimeConverter.INSTANCE);
+			KEY_CONVERSION_SERVICE.addConverter(DateTimeConverters.JodaLocalDateTimeConverter.INSTANCE);
+		}
+	}
+
+	private final SolrQuery referenceQuery;
+	private final CursorOptions options;
+	private final AsyncTaskExecutor taskExecutor;
+	private final PagingStrategy pagingStrategy;
+
+	private volatile State state = State.READY;
+	private long position = 0;
+	private Iterator<T> delegate = Collections.<T> emptyList().iterator();
+	private boolean exhausted = false;
+
+	// paging state is only ever modified by the thread loading chunks
+	private volatile String cursorMark;
+	private List<SortClause> keysetSort;
+	private Object[] lastKey;
+	private boolean finished = false;
+
+	private BlockingQueue<Chunk<T>> prefetched;
+	private Future<?> prefetchTask;
+
+	protected DelegatingCursor(SolrQuery query, CursorOptions options) {
+		this(query, options, null);
+	}
+
+	/**
+	 * @param query must not be null
+	 * @param options can be null
+	 * @param taskExecutor required when prefetching
+	 */
+	protected DelegatingCursor(SolrQuery query, CursorOptions options, AsyncTaskExecutor taskExecutor) {
+		Assert.notNull(query, "Query must not be 'null'.");
+
+		this.options = options != null ? options : new CursorOptions();
+		Assert.isTrue(!this.options.hasPrefetch() || taskExecutor != null, "Prefetching requires a TaskExecutor.");
+
+		this.taskExecutor = taskExecutor;
+		this.referenceQuery = query.getCopy();
+		this.pagingStrategy = preparePaging(this.referenceQuery);
+	}
+
+	private PagingStrategy preparePaging(SolrQuery query) {
+		String uniqueKey = options.getUniqueKey();
+		String sort = query.get(CommonParams.SORT);
+
+		query.setStart(0);
+		query.setRows(options.getChunkSize());
+
+		if (VersionUtil.isSolr470Available()) {
+			if (!StringUtils.hasText(sort)) {
+				query.set(CommonParams.SORT, uniqueKey + " asc");
+			} else if (!containsSortOnField(sort, uniqueKey)) {
+				query.set(CommonParams.SORT, sort + "," + uniqueKey + " asc");
+			}
+			this.cursorMark = CURSOR_MARK_START;
+			return PagingStrategy.CURSOR_MARK;
+		}
+
+		this.keysetSort = parseKeysetSort(sort, uniqueKey);
+		StringBuilder keysetSortParam = new StringBuilder();
+		for (SortClause clause : keysetSort) {
+			if (keysetSortParam.length() > 0) {
+				keysetSortParam.append(',');
+			}
+			keysetSortParam.append(clause.field).append(clause.ascending ? " asc" : " desc");
+
+			String fields = query.getFields();
+			if (StringUtils.hasText(fields) && !containsField(fields, clause.field)) {
+				query.addField(clause.field);
+			}
+		}
+		query.set(CommonParams.SORT, keysetSortParam.toString());
+		return PagingStrategy.KEYSET;
+	}
+
+	/**
+	 * Parse sort into clauses ending with the {@code uniqueKey}, which is appended if not present.
+	 * 
+	 * @throws InvalidDataAccessApiUsageException for sorts other than by plain fields
+	 */
+	private List<SortClause> parseKeysetSort(String sort, String uniqueKey) {
+		List<SortClause> clauses = new ArrayList<SortClause>();
+		if (StringUtils.hasText(sort)) {
+			for (String clause : StringUtils.commaDelimitedListToStringArray(sort)) {
+				String[] parts = StringUtils.tokenizeToStringArray(clause, " ");
+				if (parts.length != 2 || !isPlainField(parts[0])
+						|| !("asc".equalsIgnoreCase(parts[1]) || "desc".equalsIgnoreCase(parts[1]))) {
+					throw new InvalidDataAccessApiUsageException("Cursors before solr 4.7 require to sort by fields, '"
+							+ clause.trim() + "' is not supported.");
+				}
+				clauses.add(new SortClause(parts[0], "asc".equalsIgnoreCase(parts[1])));
+				if (parts[0].equals(uniqueKey)) {
+					// unique, subsequent clauses never apply
+					return clauses;
+				}
+			}
+		}
+		clauses.add(new SortClause(uniqueKey, true));
+		return clauses;
+	}
+
+	private boolean isPlainField(String sortField) {
+		return !"score".equals(sortField) && !sortField.startsWith("_") && sortField.indexOf('(') < 0;
+	}
+
+	private boolean containsSortOnField(String sort, String fieldname) {
+		for (String clause : StringUtils.commaDelimitedListToStringArray(sort)) {
+			if (clause.trim().startsWith(fieldname + " ")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean containsField(String fields, String fieldname) {
+		for (String field : StringUtils.commaDelimitedListToStringArray(fields)) {
+			if (field.trim().equals(fieldname) || field.trim().equals("*")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized Cursor<T> open() {
+		if (!State.READY.equals(this.state)) {
+			throw new InvalidDataAccessApiUsageException("Cursor cannot be opened in state '" + this.state + "'.");
+		}
+
+		this.state = State.OPEN;
+		if (options.hasPrefetch()) {
+			startPrefetching();
+		}
+		return this;
+	}
+
+	private void startPrefetching() {
+		this.prefetched = new ArrayBlockingQueue<Chunk<T>>(options.getPrefetchDepth());
+		this.prefetchTask = taskExecutor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				boolean last = false;
+				while (!last && isOpen() && !Thread.currentThread().isInterrupted()) {
+					Chunk<T> chunk;
+					try {
+						chunk = loadNextChunk();
+						if (options.isConvertOnPrefetch()) {
+							chunk.setContent(convert(chunk.getDocuments()));
+						}
+					} catch (RuntimeException e) {
+						chunk = Chunk.<T> failed(e);
+					}
+
+					last = chunk.isLast();
+					try {
+						prefetched.put(chunk);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (State.READY.equals(this.state)) {
+			throw new InvalidDataAccessApiUsageException("Cursor has not been opened.");
+		}
+		if (isClosed()) {
+			return false;
+		}
+
+		while (!delegate.hasNext()) {
+			if (exhausted) {
+				this.state = State.FINISHED;
+				return false;
+			}
+
+			Chunk<T> chunk = fetchNextChunk();
+			this.exhausted = chunk.isLast();
+			this.delegate = extractContent(chunk).iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more elements available for cursor " + this.cursorMark + ".");
+		}
+
+		T next = delegate.next();
+		this.position++;
+		return next;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Cursor does not support removal of elements.");
+	}
+
+	@Override
+	public synchronized void close() {
+		this.state = State.CLOSED;
+		this.delegate = Collections.<T> emptyList().iterator();
+
+		if (this.prefetchTask != null) {
+			this.prefetchTask.cancel(true);
+		}
+		if (this.prefetched != null) {
+			this.prefetched.clear();
+		}
+	}
+
+	private Chunk<T> fetchNextChunk() {
+		if (prefetched == null) {
+			return loadNextChunk();
+		}
+
+		try {
+			return prefetched.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncategorizedSolrException("Interrupted while waiting for next chunk.", e);
+		}
+	}
+
+	private List<T> extractContent(Chunk<T> chunk) {
+		if (chunk.getError() != null) {
+			close();
+			throw chunk.getError();
+		}
+		if (chunk.getContent() != null) {
+			return chunk.getContent();
+		}
+		return convert(chunk.getDocuments());
+	}
+
+	Chunk<T> loadNextChunk() {
+		SolrQuery query = referenceQuery.getCopy();
+
+		switch (pagingStrategy) {
+			case CURSOR_MARK:
+				query.set(CURSOR_MARK_PARAM, cursorMark);
+				break;
+			case KEYSET:
+				if (lastKey != null) {
+					query.addFilterQuery(createKeysetFilter());
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown paging strategy " + pagingStrategy + ".");
+		}
+
+		QueryResponse response = doLoad(query);
+		SolrDocumentList documents = response != null && response.getResults() != null ? response.getResults()
+				: new SolrDocumentList();
+		updatePagingState(response, documents);
+
+		return new Chunk<T>(documents, finished);
+	}
+
+	/**
+	 * Create filter selecting documents sorting after {@link #lastKey}, eg.
+	 * {@code (a:{1 TO *]) OR (a:[1 TO 1] AND id:{x TO *])} for sort {@code a asc, id asc}.
+	 */
+	private String createKeysetFilter() {
+		StringBuilder filter = new StringBuilder();
+		for (int i = 0; i < keysetSort.size(); i++) {
+			StringBuilder conjunction = new StringBuilder();
+			for (int j = 0; j < i; j++) {
+				String value = formatKey(lastKey[j]);
+				conjunction.append(keysetSort.get(j).field).append(":[").append(value).append(" TO ").append(value)
+						.append("] AND ");
+			}
+			SortClause clause = keysetSort.get(i);
+			String value = formatKey(lastKey[i]);
+			conjunction.append(clause.field);
+			conjunction.append(clause.ascending ? ":{" + value + " TO *]" : ":[* TO " + value + "}");
+
+			if (filter.length() > 0) {
+				filter.append(" OR ");
+			}
+			filter.append(keysetSort.size() > 1 ? "(" + conjunction + ")" : conjunction);
+		}
+		return filter.toString();
+	}
+
+	/**
+	 * Format key values the same way the query parser formats criteria values so dates and numbers of the
+	 * {@code uniqueKey} field match their indexed representation.
+	 * 
+	 * @param key must not be null
+	 * @return escaped key
+	 */
+	static String formatKey(Object key) {
+		if (!(key instanceof String) && KEY_CONVERSION_SERVICE.canConvert(key.getClass(), String.class)) {
+			return KEY_CONVERSION_SERVICE.convert(key, String.class);
+		}
+		return ClientUtils.escapeQueryChars(key.toString());
+	}
+
+	private void updatePagingState(QueryResponse response, SolrDocumentList documents) {
+		switch (pagingStrategy) {
+			case CURSOR_MARK:
+				Object nextCursorMark = response != null && response.getResponse() != null ? response.getResponse().get(
+						NEXT_CURSOR_MARK) : null;
+				this.finished = nextCursorMark == null || documents.isEmpty()
+						|| nextCursorMark.toString().equals(this.cursorMark);
+				if (nextCursorMark != null) {
+					this.cursorMark = nextCursorMark.toString();
+				}
+				break;
+			case KEYSET:
+				if (!documents.isEmpty()) {
+					this.lastKey = readKey(documents.get(documents.size() - 1));
+				}
+				this.finished = documents.size() < options.getChunkSize();
+				break;
+			default:
+				throw new IllegalStateException("Unknown paging strategy " + pagingStrategy + ".");
+		}
+	}
+
+	private Object[] readKey(SolrDocument document) {
+		Object[] key = new Object[keysetSort.size()];
+		for (int i = 0; i < key.length; i++) {
+			key[i] = document.getFieldValue(keysetSort.get(i).field);
+			if (key[i] == null) {
+				throw new InvalidDataAccessApiUsageException("Unable to read value of sort field '"
+						+ keysetSort.get(i).field + "' for keyset paging. Sort fields must not be missing.");
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Execute the given query against solr.
+	 * 
+	 * @param query
+	 * @return
+	 */
+	protected abstract QueryResponse doLoad(SolrQuery query);
+
+	/**
+	 * Convert a single chunk of documents.
+	 * 
+	 * @param documents
+	 * @return
+	 */
+	protected abstract List<T> convert(SolrDocumentList documents);
+
+	@Override
+	public long getPosition() {
+		return this.position;
+	}
+
+	@Override
+	public String getCursorMark() {
+		return this.cursorMark;
+	}
+
+	@Override
+	public State getState() {
+		return this.state;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return State.OPEN.equals(this.state);
+	}
+
+	@Override
+	public boolean isClosed() {
+		return State.CLOSED.equals(this.state);
+	}
+
+	public CursorOptions getOptions() {
+		return this.options;
+	}
+
+	PagingStrategy getPagingStrategy() {
+		return this.pagingStrategy;
+	}
+
+	/**
+	 * Single chunk of documents read from solr.
+	 * 
+	 * @param <T>
+	 */
+	static class Chunk<T> {
+
+		private final SolrDocumentList documents;
+		private final boolean last;
+		private List<T> content;
+		private RuntimeException error;
+
+		Chunk(SolrDocumentList documents, boolean last) {
+			this.documents = documents;
+			this.last = last;
+		}
+
+		static <T> Chunk<T> failed(RuntimeException error) {
+			Chunk<T> chunk = new Chunk<T>(new SolrDocumentList(), true);
+			chunk.error = error;
+			return chunk;
+		}
+
+		SolrDocumentList getDocuments() {
+			return documents;
+		}
+
+		boolean isLast() {
+			return last;
+		}
+
+		List<T> getContent() {
+			return content;
+		}
+
+		void setContent(List<T> content) {
+			this.content = content;
+		}
+
+		RuntimeException getError() {
+			return error;
+		}
+
+	}
+
+	private static class SortClause {
+
+		private final String field;
+		private final boolean ascending;
+
+		SortClause(String field, boolean ascending) {
+			this.field = field;
+			this.ascending = ascending;
+		}
+
+	}
+
+}
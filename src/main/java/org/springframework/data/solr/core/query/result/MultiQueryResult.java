@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.util.Assert;
+
+/**
+ * Results of multiple queries executed at once. Results are held in the order the queries were passed in. Queries
+ * that failed or did not finish in time have a {@code null} result and the cause available via
+ * {@link #getFailure(int)}.
+ * 
+ * @author agent
+ * @param <T>
+ */
+public class MultiQueryResult<T> implements Iterable<T> {
+
+	private final List<T> results;
+	private final Map<Integer, DataAccessException> failures = new LinkedHashMap<Integer, DataAccessException>();
+
+	public MultiQueryResult(int size) {
+		this.results = new ArrayList<T>(Collections.<T> nCopies(size, null));
+	}
+
+	public void setResult(int index, T result) {
+		this.results.set(index, result);
+	}
+
+	public void setFailure(int index, DataAccessException failure) {
+		Assert.notNull(failure, "Failure must not be 'null'.");
+
+		this.results.set(index, null);
+		this.failures.put(index, failure);
+	}
+
+	/**
+	 * @param index position of query in original list
+	 * @return result of query at index
+	 * @throws DataAccessException in case query at index failed
+	 */
+	public T get(int index) {
+		DataAccessException failure = failures.get(index);
+		if (failure != null) {
+			throw failure;
+		}
+		return results.get(index);
+	}
+
+	/**
+	 * @param index
+	 * @return null if query at index was executed successfully
+	 */
+	public DataAccessException getFailure(int index) {
+		return failures.get(index);
+	}
+
+	/**
+	 * @return unmodifiable view on results in order of queries. Failed queries result in {@code null} entries.
+	 */
+	public List<T> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * @return unmodifiable map of failures by index of query
+	 */
+	public Map<Integer, DataAccessException> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	public int size() {
+		return results.size();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return getResults().iterator();
+	}
+
+}
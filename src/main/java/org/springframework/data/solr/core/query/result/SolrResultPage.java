@@ -43,6 +43,7 @@ public class SolrResultPage<T> extends PageImpl<T> implements FacetPage<T>, High
 	private Map<PageKey, Page<FacetFieldEntry>> facetResultPages = new LinkedHashMap<PageKey, Page<FacetFieldEntry>>(1);
 	private Page<FacetQueryEntry> facetQueryResult;
 	private List<HighlightEntry<T>> highlighted;
+	private boolean partialResults;
 
 	public SolrResultPage(List<T> content) {
 		super(content);
@@ -130,4 +131,16 @@ public class SolrResultPage<T> extends PageImpl<T> implements FacetPage<T>, High
 		return Collections.emptyList();
 	}
 
+	/**
+	 * @return true if solr stopped searching because {@code timeAllowed} elapsed and the page only contains results found
+	 *         up to that point
+	 */
+	public boolean isPartialResults() {
+		return this.partialResults;
+	}
+
+	public void setPartialResults(boolean partialResults) {
+		this.partialResults = partialResults;
+	}
+
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Cursor} reading a single streamed response in background. Entities are handed over via a bounded queue, so
+ * reading the response blocks as long as the consumer does not keep up and at most {@code capacity} entities are held
+ * in memory.
+ * 
+ * @author agent
+ * 
+ * @param <T>
+ */
+public abstract class StreamingCursor<T> implements Cursor<T> {
+
+	private static final Object END_OF_STREAM = new Object();
+
+	private final BlockingQueue<Object> queue;
+	private final AsyncTaskExecutor taskExecutor;
+
+	private volatile State state = State.READY;
+	private long position = 0;
+	private Object next;
+	private Future<?> streamTask;
+
+	/**
+	 * @param capacity max number of entities buffered, must be greater than zero
+	 * @param taskExecutor must not be null
+	 */
+	protected StreamingCursor(int capacity, AsyncTaskExecutor taskExecutor) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero.");
+		Assert.notNull(taskExecutor, "TaskExecutor must not be 'null'.");
+
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public synchronized Cursor<T> open() {
+		if (!State.READY.equals(this.state)) {
+			throw new InvalidDataAccessApiUsageException("Cursor cannot be opened in state '" + this.state + "'.");
+		}
+
+		this.state = State.OPEN;
+		this.streamTask = taskExecutor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					doStream(new StreamingResultCallback<T>() {
+
+						@Override
+						public void doWithEntity(T entity) {
+							enqueue(entity);
+						}
+					});
+					enqueue(END_OF_STREAM);
+				} catch (StreamClosedException e) {
+					// consumer closed cursor - nothing left to do
+				} catch (RuntimeException e) {
+					if (!isClosed()) {
+						enqueue(new StreamFailure(e));
+					}
+				}
+			}
+		});
+		return this;
+	}
+
+	private void enqueue(Object element) {
+		try {
+			queue.put(element);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StreamClosedException();
+		}
+		if (isClosed()) {
+			throw new StreamClosedException();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (State.READY.equals(this.state)) {
+			throw new InvalidDataAccessApiUsageException("Cursor has not been opened.");
+		}
+		if (!isOpen()) {
+			return false;
+		}
+
+		if (this.next == null) {
+			try {
+				this.next = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new UncategorizedSolrException("Interrupted while waiting for next element.", e);
+			}
+		}
+
+		if (this.next == END_OF_STREAM) {
+			this.state = State.FINISHED;
+			return false;
+		}
+		if (this.next instanceof StreamFailure) {
+			close();
+			throw ((StreamFailure) this.next).error;
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more elements available.");
+		}
+
+		T element = (T) this.next;
+		this.next = null;
+		this.position++;
+		return element;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Cursor does not support removal of elements.");
+	}
+
+	@Override
+	public synchronized void close() {
+		this.state = State.CLOSED;
+		this.next = null;
+		if (this.streamTask != null) {
+			this.streamTask.cancel(true);
+		}
+		// free space so that a blocked producer notices the cursor has been closed
+		this.queue.clear();
+	}
+
+	/**
+	 * Execute the request and pass each entity to the given callback.
+	 * 
+	 * @param callback
+	 */
+	protected abstract void doStream(StreamingResultCallback<T> callback);
+
+	@Override
+	public long getPosition() {
+		return this.position;
+	}
+
+	/**
+	 * @return always {@code null} as a single response is streamed.
+	 */
+	@Override
+	public String getCursorMark() {
+		return null;
+	}
+
+	@Override
+	public State getState() {
+		return this.state;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return State.OPEN.equals(this.state);
+	}
+
+	@Override
+	public boolean isClosed() {
+		return State.CLOSED.equals(this.state);
+	}
+
+	private static class StreamFailure {
+
+		private final RuntimeException error;
+
+		StreamFailure(RuntimeException error) {
+			this.error = error;
+		}
+
+	}
+
+	@SuppressWarnings("serial")
+	private static class StreamClosedException extends RuntimeException {
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+/**
+ * Callback receiving entities one by one as they are read from the response stream.
+ * 
+ * @author agent
+ * 
+ * @param <T>
+ */
+public interface StreamingResultCallback<T> {
+
+	/**
+	 * Invoked for each converted entity in the order returned by solr. Throwing a {@link RuntimeException} aborts
+	 * reading the response.
+	 * 
+	 * @param entity
+	 */
+	void doWithEntity(T entity);
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.response.UpdateResponse;
+
+/**
+ * Result of sending multiple {@link org.springframework.data.solr.core.query.Update}s at once. Holds the responses of
+ * all requests sent as well as the ids of documents that have not been updated due to a {@code _version_} conflict.
+ * 
+ * @author agent
+ */
+public class UpdateResult {
+
+	private final List<UpdateResponse> responses = new ArrayList<UpdateResponse>(1);
+	private final Map<Object, String> conflicts = new LinkedHashMap<Object, String>();
+	private int updatedCount;
+
+	public void addResponse(UpdateResponse response, int documentCount) {
+		if (response != null) {
+			this.responses.add(response);
+		}
+		this.updatedCount += documentCount;
+	}
+
+	public void addConflict(Object id, String message) {
+		this.conflicts.put(id, message);
+	}
+
+	/**
+	 * @return responses of all requests sent
+	 */
+	public List<UpdateResponse> getResponses() {
+		return Collections.unmodifiableList(responses);
+	}
+
+	/**
+	 * @return number of documents successfully updated
+	 */
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+
+	/**
+	 * @return message of version conflict by id of document
+	 */
+	public Map<Object, String> getConflicts() {
+		return Collections.unmodifiableMap(conflicts);
+	}
+
+	public boolean hasConflicts() {
+		return !conflicts.isEmpty();
+	}
+
+}
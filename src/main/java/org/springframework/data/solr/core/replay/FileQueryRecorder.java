@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.params.SolrParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * {@link QueryRecorder} appending {@link RecordedQuery} entries to a file, one per line. Lines are buffered and
+ * written every {@link #setFlushInterval(int)} entries as well as on {@link #flush()} and {@link #destroy()}. <br />
+ * Use {@link #setSampleRate(double)} to record only a fraction of the traffic.
+ * 
+ * @author agent
+ */
+public class FileQueryRecorder implements QueryRecorder, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileQueryRecorder.class);
+
+	public static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+	private final File file;
+	private final Writer writer;
+	private double sampleRate = 1d;
+	private int flushInterval = DEFAULT_FLUSH_INTERVAL;
+	private int unflushed = 0;
+	private boolean closed = false;
+
+	private final AtomicLong recordedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * @param file must not be null. Entries are appended in case the file already exists.
+	 * @throws IOException if file cannot be opened for writing
+	 */
+	public FileQueryRecorder(File file) throws IOException {
+		Assert.notNull(file, "File must not be 'null'.");
+
+		this.file = file;
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+	}
+
+	@Override
+	public void record(SolrParams params, Class<?> targetType, long elapsedMs, int qTime) {
+		if (sampleRate < 1d && Math.random() >= sampleRate) {
+			return;
+		}
+
+		String line = new RecordedQuery(System.currentTimeMillis(), elapsedMs, qTime, targetType != null ? targetType
+				.getName() : null, params).toLogLine();
+		synchronized (writer) {
+			if (closed) {
+				return;
+			}
+			try {
+				writer.write(line);
+				writer.write('\n');
+				recordedCount.incrementAndGet();
+				if (++unflushed >= flushInterval) {
+					writer.flush();
+					unflushed = 0;
+				}
+			} catch (IOException e) {
+				if (failedCount.getAndIncrement() == 0) {
+					LOGGER.warn("Unable to write to query log '" + file + "'.", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write all buffered entries to file.
+	 */
+	public void flush() {
+		synchronized (writer) {
+			if (closed) {
+				return;
+			}
+			try {
+				writer.flush();
+				unflushed = 0;
+			} catch (IOException e) {
+				LOGGER.warn("Unable to flush query log '" + file + "'.", e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		synchronized (writer) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				writer.close();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to close query log '" + file + "'.", e);
+			}
+		}
+	}
+
+	/**
+	 * @param sampleRate fraction of queries to record, between 0 and 1
+	 */
+	public void setSampleRate(double sampleRate) {
+		Assert.isTrue(sampleRate >= 0d && sampleRate <= 1d, "SampleRate must be between 0 and 1.");
+		this.sampleRate = sampleRate;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @param flushInterval number of entries buffered before being written to file
+	 */
+	public void setFlushInterval(int flushInterval) {
+		Assert.isTrue(flushInterval > 0, "FlushInterval must be greater than zero.");
+		this.flushInterval = flushInterval;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getRecordedCount() {
+		return recordedCount.get();
+	}
+
+	/**
+	 * @return number of entries that could not be written
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import org.apache.solr.common.params.SolrParams;
+
+/**
+ * Receives every query executed via {@link org.springframework.data.solr.core.SolrTemplate}. Implementations are
+ * called on the executing thread and should return quickly.
+ * 
+ * @author agent
+ */
+public interface QueryRecorder {
+
+	/**
+	 * @param params effective request parameters
+	 * @param targetType type results are converted to, null if not known
+	 * @param elapsedMs time taken until the response has been received
+	 * @param qTime time reported by solr, {@code -1} in case the request failed
+	 */
+	void record(SolrParams params, Class<?> targetType, long elapsedMs, int qTime);
+
+}
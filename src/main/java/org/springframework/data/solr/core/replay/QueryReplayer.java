@@ -0,0 +1,265 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.solr.core.convert.SolrConverter;
+import org.springframework.data.solr.server.SolrServerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Replays queries recorded by {@link FileQueryRecorder} against the {@link SolrServer} provided by a
+ * {@link SolrServerFactory} and reports latency percentiles and throughput. <br />
+ * Requests are sent by {@link #setConcurrency(int)} threads. In case a {@link #setRate(double)} is set requests are
+ * dispatched at that rate and latency is measured from the time a request was scheduled to be sent, so that a server
+ * falling behind is not hidden by the replayer waiting for it. If a {@link SolrConverter} is set results are converted
+ * to the recorded target type as well.
+ * 
+ * @author agent
+ */
+public class QueryReplayer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(QueryReplayer.class);
+
+	private final SolrServerFactory solrServerFactory;
+	private String core;
+	private int concurrency = 1;
+	private double rate = 0d;
+	private SolrConverter solrConverter;
+
+	/**
+	 * @param solrServerFactory must not be null
+	 */
+	public QueryReplayer(SolrServerFactory solrServerFactory) {
+		Assert.notNull(solrServerFactory, "SolrServerFactory must not be 'null'.");
+		this.solrServerFactory = solrServerFactory;
+	}
+
+	/**
+	 * Replay all entries of given query log.
+	 * 
+	 * @param queryLog
+	 * @return
+	 * @throws IOException if query log cannot be read
+	 */
+	public ReplayReport replay(File queryLog) throws IOException {
+		Assert.notNull(queryLog, "QueryLog must not be 'null'.");
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(queryLog), "UTF-8"));
+		try {
+			LogIterator iterator = new LogIterator(reader);
+			ReplayReport report = replay(iterator);
+			if (iterator.failure != null) {
+				throw iterator.failure;
+			}
+			return report;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Replay given queries in order.
+	 * 
+	 * @param queries
+	 * @return
+	 */
+	public ReplayReport replay(Iterable<RecordedQuery> queries) {
+		Assert.notNull(queries, "Queries must not be 'null'.");
+		return replay(queries.iterator());
+	}
+
+	private ReplayReport replay(Iterator<RecordedQuery> queries) {
+		final SolrServer solrServer = StringUtils.hasText(core) ? solrServerFactory.getSolrServer(core)
+				: solrServerFactory.getSolrServer();
+		final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+		final AtomicLong errors = new AtomicLong();
+		final Semaphore permits = new Semaphore(concurrency);
+		final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory(
+				"solr-replay-"));
+		long startMs = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
+		try {
+			long sequence = 0;
+			while (queries.hasNext()) {
+				final RecordedQuery query = queries.next();
+				final long scheduledNanos = startNanos + sequence++ * intervalNanos;
+				if (intervalNanos > 0) {
+					long waitNanos = scheduledNanos - System.nanoTime();
+					if (waitNanos > 0) {
+						TimeUnit.NANOSECONDS.sleep(waitNanos);
+					}
+				}
+				permits.acquire();
+
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						long begin = intervalNanos > 0 ? scheduledNanos : System.nanoTime();
+						try {
+							send(solrServer, query);
+							latencies.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+						} catch (Exception e) {
+							errors.incrementAndGet();
+							LOGGER.debug("Replaying query '" + query.getParams() + "' failed.", e);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			LOGGER.warn("Replay interrupted, reporting queries finished so far.");
+		}
+
+		ReplayReport report;
+		synchronized (latencies) {
+			report = new ReplayReport(latencies, errors.get(), System.currentTimeMillis() - startMs);
+		}
+		LOGGER.info("Replay finished: " + report);
+		return report;
+	}
+
+	private void send(SolrServer solrServer, RecordedQuery query) throws Exception {
+		QueryResponse response = new QueryRequest(query.getParams()).process(solrServer);
+		if (solrConverter != null && query.getTargetType() != null && response.getResults() != null) {
+			Class<?> targetType = ClassUtils.resolveClassName(query.getTargetType(), ClassUtils.getDefaultClassLoader());
+			solrConverter.read(response.getResults(), targetType);
+		}
+	}
+
+	/**
+	 * @param core name of core to send queries to. Defaults to the server returned by
+	 *          {@link SolrServerFactory#getSolrServer()}.
+	 */
+	public void setCore(String core) {
+		this.core = core;
+	}
+
+	/**
+	 * @param concurrency number of requests sent concurrently
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than zero.");
+		this.concurrency = concurrency;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * @param rate requests per second. {@code 0} sends requests as fast as {@link #getConcurrency()} allows.
+	 */
+	public void setRate(double rate) {
+		Assert.isTrue(rate >= 0, "Rate must not be negative.");
+		this.rate = rate;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	/**
+	 * @param solrConverter used for converting results to the recorded target type. null to skip conversion.
+	 */
+	public void setSolrConverter(SolrConverter solrConverter) {
+		this.solrConverter = solrConverter;
+	}
+
+	private static class LogIterator implements Iterator<RecordedQuery> {
+
+		private final BufferedReader reader;
+		private RecordedQuery next;
+		private IOException failure;
+
+		LogIterator(BufferedReader reader) {
+			this.reader = reader;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			try {
+				String line;
+				while (next == null && (line = reader.readLine()) != null) {
+					if (!StringUtils.hasText(line)) {
+						continue;
+					}
+					try {
+						next = RecordedQuery.parse(line);
+					} catch (IllegalArgumentException e) {
+						LOGGER.debug("Skipping invalid query log entry.", e);
+					}
+				}
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public RecordedQuery next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			RecordedQuery current = next;
+			advance();
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
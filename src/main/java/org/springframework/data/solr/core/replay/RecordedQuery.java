@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Single entry of a query log. Entries are written as one line of tab separated values:
+ * 
+ * <pre>
+ * timestamp  elapsedMs  qTime  targetType  urlEncodedParams
+ * </pre>
+ * 
+ * @author agent
+ */
+public class RecordedQuery {
+
+	private static final char SEPARATOR = '\t';
+	private static final String NO_TYPE = "-";
+	private static final String ENCODING = "UTF-8";
+
+	private final long timestamp;
+	private final long elapsedMs;
+	private final int qTime;
+	private final String targetType;
+	private final SolrParams params;
+
+	public RecordedQuery(long timestamp, long elapsedMs, int qTime, String targetType, SolrParams params) {
+		Assert.notNull(params, "Params must not be 'null'.");
+
+		this.timestamp = timestamp;
+		this.elapsedMs = elapsedMs;
+		this.qTime = qTime;
+		this.targetType = targetType;
+		this.params = params;
+	}
+
+	/**
+	 * @return single line representation without line separator
+	 */
+	public String toLogLine() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(timestamp).append(SEPARATOR);
+		sb.append(elapsedMs).append(SEPARATOR);
+		sb.append(qTime).append(SEPARATOR);
+		sb.append(StringUtils.hasText(targetType) ? targetType : NO_TYPE).append(SEPARATOR);
+		String queryString = ClientUtils.toQueryString(params, false);
+		sb.append(queryString.startsWith("?") ? queryString.substring(1) : queryString);
+		return sb.toString();
+	}
+
+	/**
+	 * Parse line written by {@link #toLogLine()}.
+	 * 
+	 * @param line
+	 * @return
+	 * @throws IllegalArgumentException if line is not a valid log entry
+	 */
+	public static RecordedQuery parse(String line) {
+		Assert.hasText(line, "Line must not be empty.");
+
+		String[] columns = line.split(String.valueOf(SEPARATOR), 5);
+		if (columns.length < 4) {
+			throw new IllegalArgumentException("Invalid query log entry '" + line + "'.");
+		}
+
+		try {
+			long timestamp = Long.parseLong(columns[0]);
+			long elapsedMs = Long.parseLong(columns[1]);
+			int qTime = Integer.parseInt(columns[2]);
+			String targetType = NO_TYPE.equals(columns[3]) ? null : columns[3];
+			return new RecordedQuery(timestamp, elapsedMs, qTime, targetType, parseParams(columns.length > 4 ? columns[4]
+					: ""));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid query log entry '" + line + "'.", e);
+		}
+	}
+
+	private static SolrParams parseParams(String queryString) {
+		ModifiableSolrParams params = new ModifiableSolrParams();
+		if (!StringUtils.hasText(queryString)) {
+			return params;
+		}
+
+		for (String pair : queryString.split("&")) {
+			if (pair.length() == 0) {
+				continue;
+			}
+			int separatorIndex = pair.indexOf('=');
+			String name = separatorIndex >= 0 ? pair.substring(0, separatorIndex) : pair;
+			String value = separatorIndex >= 0 ? pair.substring(separatorIndex + 1) : "";
+			params.add(decode(name), decode(value));
+		}
+		return params;
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	/**
+	 * @return time reported by solr, {@code -1} if the request failed
+	 */
+	public int getQTime() {
+		return qTime;
+	}
+
+	/**
+	 * @return fully qualified name of type results were converted to, null if not known
+	 */
+	public String getTargetType() {
+		return targetType;
+	}
+
+	public SolrParams getParams() {
+		return params;
+	}
+
+}
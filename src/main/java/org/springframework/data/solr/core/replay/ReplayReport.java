@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.springframework.util.Assert;
+
+/**
+ * Latency and throughput of a replay run executed by {@link QueryReplayer}.
+ * 
+ * @author agent
+ */
+public class ReplayReport {
+
+	private final long[] latenciesMicros;
+	private final long errorCount;
+	private final long durationMs;
+
+	/**
+	 * @param latenciesMicros latencies of successful requests in microseconds
+	 * @param errorCount number of failed requests
+	 * @param durationMs wall clock time of the whole run
+	 */
+	public ReplayReport(Collection<Long> latenciesMicros, long errorCount, long durationMs) {
+		Assert.notNull(latenciesMicros, "Latencies must not be 'null'.");
+
+		this.latenciesMicros = new long[latenciesMicros.size()];
+		int i = 0;
+		for (Long latency : latenciesMicros) {
+			this.latenciesMicros[i++] = latency;
+		}
+		Arrays.sort(this.latenciesMicros);
+		this.errorCount = errorCount;
+		this.durationMs = durationMs;
+	}
+
+	/**
+	 * @return number of successful requests
+	 */
+	public long getSuccessCount() {
+		return latenciesMicros.length;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	/**
+	 * @return requests (successful and failed) per second
+	 */
+	public double getThroughput() {
+		if (durationMs <= 0) {
+			return 0d;
+		}
+		return (latenciesMicros.length + errorCount) * 1000d / durationMs;
+	}
+
+	/**
+	 * Latency of successful requests at given percentile using the nearest rank method.
+	 * 
+	 * @param percentile between 0 and 100
+	 * @return latency in milliseconds, {@code 0} if no request succeeded
+	 */
+	public double getPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0d && percentile <= 100d, "Percentile must be between 0 and 100.");
+
+		if (latenciesMicros.length == 0) {
+			return 0d;
+		}
+		int rank = (int) Math.ceil(percentile / 100d * latenciesMicros.length);
+		return latenciesMicros[Math.max(0, rank - 1)] / 1000d;
+	}
+
+	public double getMedian() {
+		return getPercentile(50d);
+	}
+
+	public double getMax() {
+		return getPercentile(100d);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("requests=%d errors=%d duration=%dms throughput=%.1f/s p50=%.2fms p90=%.2fms "
+				+ "p99=%.2fms p99.9=%.2fms max=%.2fms", getSuccessCount(), errorCount, durationMs, getThroughput(),
+				getPercentile(50d), getPercentile(90d), getPercentile(99d), getPercentile(99.9d), getMax());
+	}
+
+}
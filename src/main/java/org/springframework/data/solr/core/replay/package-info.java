@@ -0,0 +1,4 @@
+/**
+ * Recording of query traffic and replaying it for performance comparison.
+ */
+package org.springframework.data.solr.core.replay;
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.workload;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.util.Assert;
+
+/**
+ * Limits the number of concurrently executed requests per core and {@link WorkloadClass}. Requests exceeding the
+ * limits wait for a free slot, where waiting requests of higher priority are admitted first once
+ * {@link #setMaxTotalConcurrent(int)} is reached. <br />
+ * In case the smoothed latency of a class breaches its {@link #setLatencyObjectiveMs(WorkloadClass, long)} all classes
+ * of lower priority are throttled to {@link #setThrottledConcurrency(int)} requests. Depending on the
+ * {@link OverloadPolicy} throttled requests either wait for a slot or are rejected right away. <br />
+ * A single scheduler can be shared by multiple templates using the same connection pool.
+ * 
+ * @author agent
+ */
+public class RequestScheduler {
+
+	public static final long DEFAULT_MAX_QUEUE_WAIT_MS = 30000;
+	public static final long DEFAULT_LATENCY_WINDOW_MS = 10000;
+	public static final int DEFAULT_THROTTLED_CONCURRENCY = 1;
+
+	private static final String DEFAULT_CORE = "";
+	private static final double LATENCY_SMOOTHING_FACTOR = 0.2d;
+	private static final long MAX_AWAIT_MS = 100;
+
+	/**
+	 * Handling of requests throttled due to breached latency objectives.
+	 */
+	public enum OverloadPolicy {
+		/**
+		 * Wait for a slot within the throttled limit.
+		 */
+		QUEUE,
+
+		/**
+		 * Reject requests exceeding the throttled limit.
+		 */
+		SHED
+	}
+
+	private final Map<WorkloadClass, Integer> priorities = new EnumMap<WorkloadClass, Integer>(WorkloadClass.class);
+	private final Map<WorkloadClass, Integer> maxConcurrent = new EnumMap<WorkloadClass, Integer>(WorkloadClass.class);
+	private final Map<WorkloadClass, Long> latencyObjectives = new EnumMap<WorkloadClass, Long>(WorkloadClass.class);
+	private final ConcurrentMap<String, Map<WorkloadClass, Integer>> coreMaxConcurrent = new ConcurrentHashMap<String, Map<WorkloadClass, Integer>>();
+	private final ConcurrentMap<String, CoreState> cores = new ConcurrentHashMap<String, CoreState>();
+
+	private volatile int maxTotalConcurrent = -1;
+	private volatile int throttledConcurrency = DEFAULT_THROTTLED_CONCURRENCY;
+	private volatile long maxQueueWaitMs = DEFAULT_MAX_QUEUE_WAIT_MS;
+	private volatile long latencyWindowMs = DEFAULT_LATENCY_WINDOW_MS;
+	private volatile OverloadPolicy overloadPolicy = OverloadPolicy.QUEUE;
+
+	public RequestScheduler() {
+		for (WorkloadClass workloadClass : WorkloadClass.values()) {
+			priorities.put(workloadClass, workloadClass.getDefaultPriority());
+		}
+	}
+
+	/**
+	 * Wait until a request of given class may be executed against given core. The returned {@link Permit} has to be
+	 * {@link Permit#release()}d once the request finished.
+	 * 
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @return
+	 * @throws TransientDataAccessResourceException in case the request has been shed or could not be admitted within
+	 *           {@link #setMaxQueueWaitMs(long)}
+	 */
+	public Permit acquire(String core, WorkloadClass workloadClass) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+
+		String coreName = core != null ? core : DEFAULT_CORE;
+		CoreState state = getCoreState(coreName);
+		long deadline = System.currentTimeMillis() + maxQueueWaitMs;
+
+		state.lock.lock();
+		try {
+			state.waiting[workloadClass.ordinal()]++;
+			try {
+				while (!canRun(coreName, state, workloadClass)) {
+					long now = System.currentTimeMillis();
+					if (OverloadPolicy.SHED.equals(overloadPolicy) && isThrottled(state, workloadClass, now)) {
+						throw new TransientDataAccessResourceException("Shedding " + workloadClass + " request for core '"
+								+ coreName + "' as latency objective of higher priority work is breached.");
+					}
+					long remaining = deadline - now;
+					if (remaining <= 0) {
+						throw new TransientDataAccessResourceException("Could not execute " + workloadClass
+								+ " request for core '" + coreName + "' within " + maxQueueWaitMs + "ms.");
+					}
+					state.released.await(Math.min(remaining, MAX_AWAIT_MS), TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TransientDataAccessResourceException("Interrupted while waiting to execute " + workloadClass
+						+ " request.", e);
+			} finally {
+				state.waiting[workloadClass.ordinal()]--;
+			}
+
+			state.running[workloadClass.ordinal()]++;
+			state.totalRunning++;
+			return new Permit(state, workloadClass);
+		} finally {
+			state.lock.unlock();
+		}
+	}
+
+	private CoreState getCoreState(String core) {
+		CoreState state = cores.get(core);
+		if (state == null) {
+			CoreState created = new CoreState();
+			state = cores.putIfAbsent(core, created);
+			if (state == null) {
+				state = created;
+			}
+		}
+		return state;
+	}
+
+	private boolean canRun(String core, CoreState state, WorkloadClass workloadClass) {
+		long now = System.currentTimeMillis();
+		if (!hasCapacity(core, state, workloadClass, now)) {
+			return false;
+		}
+		if (maxTotalConcurrent < 0) {
+			return true;
+		}
+
+		// keep slots for waiting requests of higher priority
+		int reserved = 0;
+		for (WorkloadClass other : WorkloadClass.values()) {
+			if (getPriority(other) > getPriority(workloadClass) && hasCapacity(core, state, other, now)) {
+				reserved += state.waiting[other.ordinal()];
+			}
+		}
+		return state.totalRunning + reserved < maxTotalConcurrent;
+	}
+
+	private boolean hasCapacity(String core, CoreState state, WorkloadClass workloadClass, long now) {
+		int limit = getMaxConcurrent(core, workloadClass);
+		if (isThrottled(state, workloadClass, now)) {
+			limit = limit < 0 ? throttledConcurrency : Math.min(limit, throttledConcurrency);
+		}
+		return limit < 0 || state.running[workloadClass.ordinal()] < limit;
+	}
+
+	private boolean isThrottled(CoreState state, WorkloadClass workloadClass, long now) {
+		for (WorkloadClass other : WorkloadClass.values()) {
+			if (getPriority(other) > getPriority(workloadClass) && isLatencyObjectiveBreached(state, other, now)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isLatencyObjectiveBreached(CoreState state, WorkloadClass workloadClass, long now) {
+		Long objective = latencyObjectives.get(workloadClass);
+		if (objective == null) {
+			return false;
+		}
+		LatencyStatistics latency = state.latencies.get(workloadClass);
+		return latency.lastSample > 0 && now - latency.lastSample <= latencyWindowMs && latency.average > objective;
+	}
+
+	/**
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @return true if requests of given class are currently throttled due to breached latency objectives of higher
+	 *         priority work
+	 */
+	public boolean isThrottled(String core, WorkloadClass workloadClass) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+
+		CoreState state = cores.get(core != null ? core : DEFAULT_CORE);
+		if (state == null) {
+			return false;
+		}
+		state.lock.lock();
+		try {
+			return isThrottled(state, workloadClass, System.currentTimeMillis());
+		} finally {
+			state.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @return number of currently executed requests
+	 */
+	public int getRunningCount(String core, WorkloadClass workloadClass) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+
+		CoreState state = cores.get(core != null ? core : DEFAULT_CORE);
+		if (state == null) {
+			return 0;
+		}
+		state.lock.lock();
+		try {
+			return state.running[workloadClass.ordinal()];
+		} finally {
+			state.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @return smoothed latency in milliseconds, {@code -1} if no request has been executed
+	 */
+	public double getLatencyMs(String core, WorkloadClass workloadClass) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+
+		CoreState state = cores.get(core != null ? core : DEFAULT_CORE);
+		if (state == null) {
+			return -1;
+		}
+		state.lock.lock();
+		try {
+			LatencyStatistics latency = state.latencies.get(workloadClass);
+			return latency.lastSample > 0 ? latency.average : -1;
+		} finally {
+			state.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param workloadClass must not be null
+	 * @param priority higher values are admitted first
+	 */
+	public void setPriority(WorkloadClass workloadClass, int priority) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+		synchronized (priorities) {
+			priorities.put(workloadClass, priority);
+		}
+	}
+
+	public int getPriority(WorkloadClass workloadClass) {
+		synchronized (priorities) {
+			return priorities.get(workloadClass);
+		}
+	}
+
+	/**
+	 * Set the number of concurrently executed requests of given class per core.
+	 * 
+	 * @param workloadClass must not be null
+	 * @param maxConcurrent {@code -1} for no limit
+	 */
+	public void setMaxConcurrent(WorkloadClass workloadClass, int maxConcurrent) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+		synchronized (this.maxConcurrent) {
+			this.maxConcurrent.put(workloadClass, maxConcurrent);
+		}
+	}
+
+	/**
+	 * Set the number of concurrently executed requests of given class for a single core overriding
+	 * {@link #setMaxConcurrent(WorkloadClass, int)}.
+	 * 
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @param maxConcurrent {@code -1} for no limit
+	 */
+	public void setMaxConcurrent(String core, WorkloadClass workloadClass, int maxConcurrent) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+
+		String coreName = core != null ? core : DEFAULT_CORE;
+		Map<WorkloadClass, Integer> limits = coreMaxConcurrent.get(coreName);
+		if (limits == null) {
+			limits = new EnumMap<WorkloadClass, Integer>(WorkloadClass.class);
+			Map<WorkloadClass, Integer> existing = coreMaxConcurrent.putIfAbsent(coreName, limits);
+			limits = existing != null ? existing : limits;
+		}
+		synchronized (limits) {
+			limits.put(workloadClass, maxConcurrent);
+		}
+	}
+
+	/**
+	 * @param core may be null
+	 * @param workloadClass must not be null
+	 * @return {@code -1} if not limited
+	 */
+	public int getMaxConcurrent(String core, WorkloadClass workloadClass) {
+		Map<WorkloadClass, Integer> limits = coreMaxConcurrent.get(core != null ? core : DEFAULT_CORE);
+		if (limits != null) {
+			synchronized (limits) {
+				if (limits.containsKey(workloadClass)) {
+					return limits.get(workloadClass);
+				}
+			}
+		}
+		synchronized (this.maxConcurrent) {
+			Integer limit = this.maxConcurrent.get(workloadClass);
+			return limit != null ? limit : -1;
+		}
+	}
+
+	/**
+	 * Set the number of concurrently executed requests per core regardless of their class. Should not exceed the number
+	 * of connections available per host.
+	 * 
+	 * @param maxTotalConcurrent {@code -1} for no limit
+	 */
+	public void setMaxTotalConcurrent(int maxTotalConcurrent) {
+		this.maxTotalConcurrent = maxTotalConcurrent;
+	}
+
+	public int getMaxTotalConcurrent() {
+		return maxTotalConcurrent;
+	}
+
+	/**
+	 * Set the latency objective for given class. Lower priority work is throttled while the smoothed latency of
+	 * requests within {@link #setLatencyWindowMs(long)} exceeds the objective.
+	 * 
+	 * @param workloadClass must not be null
+	 * @param latencyObjectiveMs {@code -1} to remove the objective
+	 */
+	public void setLatencyObjectiveMs(WorkloadClass workloadClass, long latencyObjectiveMs) {
+		Assert.notNull(workloadClass, "WorkloadClass must not be 'null'.");
+		synchronized (latencyObjectives) {
+			if (latencyObjectiveMs < 0) {
+				latencyObjectives.remove(workloadClass);
+			} else {
+				latencyObjectives.put(workloadClass, latencyObjectiveMs);
+			}
+		}
+	}
+
+	/**
+	 * @param throttledConcurrency number of concurrently executed requests per class while throttled
+	 */
+	public void setThrottledConcurrency(int throttledConcurrency) {
+		Assert.isTrue(throttledConcurrency >= 0, "ThrottledConcurrency must not be negative.");
+		this.throttledConcurrency = throttledConcurrency;
+	}
+
+	public int getThrottledConcurrency() {
+		return throttledConcurrency;
+	}
+
+	/**
+	 * @param maxQueueWaitMs time a request may wait for a free slot
+	 */
+	public void setMaxQueueWaitMs(long maxQueueWaitMs) {
+		Assert.isTrue(maxQueueWaitMs >= 0, "MaxQueueWait must not be negative.");
+		this.maxQueueWaitMs = maxQueueWaitMs;
+	}
+
+	public long getMaxQueueWaitMs() {
+		return maxQueueWaitMs;
+	}
+
+	/**
+	 * @param latencyWindowMs time after the last request of a class its latency is no longer considered
+	 */
+	public void setLatencyWindowMs(long latencyWindowMs) {
+		Assert.isTrue(latencyWindowMs > 0, "LatencyWindow must be greater than zero.");
+		this.latencyWindowMs = latencyWindowMs;
+	}
+
+	public long getLatencyWindowMs() {
+		return latencyWindowMs;
+	}
+
+	public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+		Assert.notNull(overloadPolicy, "OverloadPolicy must not be 'null'.");
+		this.overloadPolicy = overloadPolicy;
+	}
+
+	public OverloadPolicy getOverloadPolicy() {
+		return overloadPolicy;
+	}
+
+	/**
+	 * Slot for executing a single request.
+	 */
+	public static final class Permit {
+
+		private final CoreState state;
+		private final WorkloadClass workloadClass;
+		private final long start;
+		private boolean released;
+
+		private Permit(CoreState state, WorkloadClass workloadClass) {
+			this.state = state;
+			this.workloadClass = workloadClass;
+			this.start = System.currentTimeMillis();
+		}
+
+		/**
+		 * Free the slot and record the latency of the request.
+		 */
+		public void release() {
+			state.lock.lock();
+			try {
+				if (released) {
+					return;
+				}
+				released = true;
+				state.running[workloadClass.ordinal()]--;
+				state.totalRunning--;
+				state.latencies.get(workloadClass).add(System.currentTimeMillis() - start);
+				state.released.signalAll();
+			} finally {
+				state.lock.unlock();
+			}
+		}
+
+		public WorkloadClass getWorkloadClass() {
+			return workloadClass;
+		}
+
+	}
+
+	private static class CoreState {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition released = lock.newCondition();
+		private final int[] running = new int[WorkloadClass.values().length];
+		private final int[] waiting = new int[WorkloadClass.values().length];
+		private final Map<WorkloadClass, LatencyStatistics> latencies = new EnumMap<WorkloadClass, LatencyStatistics>(
+				WorkloadClass.class);
+		private int totalRunning;
+
+		CoreState() {
+			for (WorkloadClass workloadClass : WorkloadClass.values()) {
+				latencies.put(workloadClass, new LatencyStatistics());
+			}
+		}
+
+	}
+
+	private static class LatencyStatistics {
+
+		private double average;
+		private long lastSample;
+
+		void add(long latencyMs) {
+			average = lastSample == 0 ? latencyMs : average + LATENCY_SMOOTHING_FACTOR * (latencyMs - average);
+			lastSample = System.currentTimeMillis();
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.workload;
+
+/**
+ * Kind of work a request to solr belongs to. Classes with higher {@link #getDefaultPriority()} are admitted first
+ * when a core is saturated and are protected from lower priority work in case their latency objective is breached.
+ * 
+ * @author agent
+ */
+public enum WorkloadClass {
+
+	/**
+	 * User facing queries like pages, facets, counts.
+	 */
+	INTERACTIVE(40),
+
+	/**
+	 * Administrative requests like ping, statistics, optimize.
+	 */
+	ADMIN(30),
+
+	/**
+	 * Queries reading large parts of the index like cursors and streams.
+	 */
+	BATCH(20),
+
+	/**
+	 * Adding, updating and deleting documents as well as commits.
+	 */
+	INDEXING(10);
+
+	private final int defaultPriority;
+
+	private WorkloadClass(int defaultPriority) {
+		this.defaultPriority = defaultPriority;
+	}
+
+	public int getDefaultPriority() {
+		return defaultPriority;
+	}
+
+}
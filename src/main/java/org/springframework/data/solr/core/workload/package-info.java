@@ -0,0 +1,4 @@
+/**
+ * Admission control of solr requests by workload class.
+ */
+package org.springframework.data.solr.core.workload;
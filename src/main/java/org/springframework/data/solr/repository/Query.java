@@ -86,4 +86,12 @@ public @interface Query {
 	 */
 	int timeAllowed() default -1;
 
+	/**
+	 * The time in milliseconds the caller waits for the search to return. Also limits {@link #timeAllowed()}. Values <= 0
+	 * mean no timeout.
+	 * 
+	 * @return
+	 */
+	int timeout() default -1;
+
 }
@@ -115,4 +115,21 @@ public @interface EnableSolrRepositories {
 	 * @return
 	 */
 	String solrTemplateRef() default "solrTemplate";
+
+	/**
+	 * Configures the name of the {@link org.springframework.data.solr.core.commit.CommitStrategy} bean to be used by
+	 * repositories discovered through this annotation. Defaults to none, which sends a commit after each write.
+	 * 
+	 * @return
+	 */
+	String commitStrategyRef() default "";
+
+	/**
+	 * Configures the name of the {@link org.springframework.data.solr.repository.support.SolrRepositoryWarmer} bean
+	 * query methods of repositories discovered through this annotation are registered with. Defaults to none, which
+	 * disables warm-up.
+	 * 
+	 * @return
+	 */
+	String repositoryWarmerRef() default "";
 }
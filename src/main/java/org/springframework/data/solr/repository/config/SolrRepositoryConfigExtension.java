@@ -22,6 +22,7 @@ import org.springframework.data.repository.config.RepositoryConfigurationExtensi
 import org.springframework.data.repository.config.RepositoryConfigurationExtensionSupport;
 import org.springframework.data.repository.config.XmlRepositoryConfigurationSource;
 import org.springframework.data.solr.repository.support.SolrRepositoryFactoryBean;
+import org.springframework.util.StringUtils;
 import org.w3c.dom.Element;
 
 /**
@@ -59,6 +60,12 @@ public class SolrRepositoryConfigExtension extends RepositoryConfigurationExtens
 
 		AnnotationAttributes attributes = config.getAttributes();
 		builder.addPropertyReference("solrOperations", attributes.getString("solrTemplateRef"));
+		if (StringUtils.hasText(attributes.getString("commitStrategyRef"))) {
+			builder.addPropertyReference("commitStrategy", attributes.getString("commitStrategyRef"));
+		}
+		if (StringUtils.hasText(attributes.getString("repositoryWarmerRef"))) {
+			builder.addPropertyReference("repositoryWarmer", attributes.getString("repositoryWarmerRef"));
+		}
 	}
 
 	/* 
@@ -70,5 +77,11 @@ public class SolrRepositoryConfigExtension extends RepositoryConfigurationExtens
 
 		Element element = config.getElement();
 		builder.addPropertyReference("solrOperations", element.getAttribute("solr-template-ref"));
+		if (StringUtils.hasText(element.getAttribute("commit-strategy-ref"))) {
+			builder.addPropertyReference("commitStrategy", element.getAttribute("commit-strategy-ref"));
+		}
+		if (StringUtils.hasText(element.getAttribute("repository-warmer-ref"))) {
+			builder.addPropertyReference("repositoryWarmer", element.getAttribute("repository-warmer-ref"));
+		}
 	}
 }
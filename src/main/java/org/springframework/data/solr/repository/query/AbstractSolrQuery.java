@@ -15,11 +15,15 @@
  */
 package org.springframework.data.solr.repository.query;
 
+import java.lang.reflect.Array;
 import java.util.Collection;
+import java.util.Date;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.solr.common.params.HighlightParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
@@ -47,6 +51,8 @@ import org.springframework.data.solr.core.query.SimpleStringCriteria;
 import org.springframework.data.solr.core.query.result.FacetPage;
 import org.springframework.data.solr.core.query.result.HighlightPage;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -58,7 +64,10 @@ import org.springframework.util.StringUtils;
  */
 public abstract class AbstractSolrQuery implements RepositoryQuery {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSolrQuery.class);
+
 	private static final Pattern PARAMETER_PLACEHOLDER = Pattern.compile("\\?(\\d+)");
+	private static final String WARM_UP_PARAMETER_VALUE = "*";
 
 	private final SolrOperations solrOperations;
 	private final SolrQueryMethod solrQueryMethod;
@@ -103,12 +112,7 @@ public abstract class AbstractSolrQuery implements RepositoryQuery {
 	public Object execute(Object[] parameters) {
 		SolrParameterAccessor accessor = new SolrParametersParameterAccessor(solrQueryMethod, parameters);
 
-		Query query = createQuery(accessor);
-		decorateWithFilterQuery(query, accessor);
-		setDefaultQueryOperatorIfDefined(query);
-		setAllowedQueryExeutionTime(query);
-		setDefTypeIfDefined(query);
-		setRequestHandlerIfDefined(query);
+		Query query = createDecoratedQuery(accessor);
 
 		if (solrQueryMethod.isPageQuery()) {
 			if (solrQueryMethod.isFacetQuery() && solrQueryMethod.isHighlightQuery()) {
@@ -132,6 +136,103 @@ public abstract class AbstractSolrQuery implements RepositoryQuery {
 		return new SingleEntityExecution().execute(query);
 	}
 
+	/**
+	 * Execute the query with all placeholders bound to a sample value of the parameter type ({@code *} for strings,
+	 * {@code 0} for numbers, ...) and without converting the result into the return type of the query method. Used for
+	 * priming solr caches and client side code paths before taking actual requests. Queries having parameters no sample
+	 * value can be created for are skipped.
+	 * 
+	 * @param pageable page to request
+	 * @return null if skipped
+	 */
+	public Page<?> warmUp(Pageable pageable) {
+		SolrParameters parameters = solrQueryMethod.getParameters();
+		Object[] values = new Object[parameters.getNumberOfParameters()];
+		for (int i = 0; i < values.length; i++) {
+			SolrParameter parameter = parameters.getParameter(i);
+			if (parameter.isSpecialParameter()) {
+				continue;
+			}
+			values[i] = createWarmUpValue(parameter.getType());
+			if (values[i] == null) {
+				LOGGER.warn("Skipping warm-up of '" + solrQueryMethod + "'. No sample value for parameter " + i
+						+ " of type " + parameter.getType().getName() + ".");
+				return null;
+			}
+		}
+		SolrParameterAccessor accessor = new SolrParametersParameterAccessor(solrQueryMethod, values);
+
+		Query query = createDecoratedQuery(accessor);
+		query.setPageRequest(pageable);
+
+		Class<?> entityType = solrQueryMethod.getEntityInformation().getJavaType();
+		if (solrQueryMethod.isFacetQuery()) {
+			FacetQuery facetQuery = SimpleFacetQuery.fromQuery(query, new SimpleFacetQuery());
+			facetQuery.setFacetOptions(extractFacetOptions(solrQueryMethod, accessor));
+			return solrOperations.queryForFacetPage(facetQuery, entityType);
+		}
+		if (solrQueryMethod.isHighlightQuery()) {
+			HighlightQuery highlightQuery = SimpleHighlightQuery.fromQuery(query, new SimpleHighlightQuery());
+			highlightQuery.setHighlightOptions(extractHighlightOptions(solrQueryMethod, accessor));
+			return solrOperations.queryForHighlightPage(highlightQuery, entityType);
+		}
+		return solrOperations.queryForPage(query, entityType);
+	}
+
+	/**
+	 * @param type
+	 * @return sample value of given type, null if not supported
+	 */
+	static Object createWarmUpValue(Class<?> type) {
+		Class<?> targetType = ClassUtils.resolvePrimitiveIfNecessary(type);
+		if (targetType.isAssignableFrom(String.class)) {
+			return WARM_UP_PARAMETER_VALUE;
+		}
+		if (Number.class.isAssignableFrom(targetType)) {
+			try {
+				return NumberUtils.convertNumberToTargetClass(Integer.valueOf(0), targetType.asSubclass(Number.class));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+		if (Boolean.class.equals(targetType)) {
+			return Boolean.TRUE;
+		}
+		if (Date.class.equals(targetType)) {
+			return new Date(0);
+		}
+		if (GeoLocation.class.equals(targetType)) {
+			return new GeoLocation(0, 0);
+		}
+		if (Distance.class.equals(targetType)) {
+			return new Distance(1);
+		}
+		if (targetType.isEnum()) {
+			Object[] constants = targetType.getEnumConstants();
+			return constants.length > 0 ? constants[0] : null;
+		}
+		if (targetType.isArray()) {
+			Object element = createWarmUpValue(targetType.getComponentType());
+			if (element == null) {
+				return null;
+			}
+			Object array = Array.newInstance(targetType.getComponentType(), 1);
+			Array.set(array, 0, element);
+			return array;
+		}
+		return null;
+	}
+
+	private Query createDecoratedQuery(SolrParameterAccessor accessor) {
+		Query query = createQuery(accessor);
+		decorateWithFilterQuery(query, accessor);
+		setDefaultQueryOperatorIfDefined(query);
+		setAllowedQueryExeutionTime(query);
+		setDefTypeIfDefined(query);
+		setRequestHandlerIfDefined(query);
+		return query;
+	}
+
 	@Override
 	public SolrQueryMethod getQueryMethod() {
 		return this.solrQueryMethod;
@@ -149,6 +250,10 @@ public abstract class AbstractSolrQuery implements RepositoryQuery {
 		if (timeAllowed != null) {
 			query.setTimeAllowed(timeAllowed);
 		}
+		Integer timeout = solrQueryMethod.getTimeout();
+		if (timeout != null) {
+			query.setTimeout(timeout);
+		}
 	}
 
 	private void setDefTypeIfDefined(Query query) {
@@ -113,6 +113,16 @@ public class SolrQueryMethod extends QueryMethod {
 		return null;
 	}
 
+	/**
+	 * @return null if {@link Query#timeout()} is null or negative
+	 */
+	public Integer getTimeout() {
+		if (hasQueryAnnotation()) {
+			return getAnnotationValueAsIntOrNullIfNegative(getQueryAnnotation(), "timeout");
+		}
+		return null;
+	}
+
 	/**
 	 * @return true if {@link #hasFacetFields()} or {@link #hasFacetQueries()}
 	 */
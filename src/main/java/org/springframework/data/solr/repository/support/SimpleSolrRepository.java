@@ -31,6 +31,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.IdLookupBatcher;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
+import org.springframework.data.solr.core.commit.CommitStrategy;
+import org.springframework.data.solr.core.commit.ImmediateCommitStrategy;
+import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
 import org.springframework.data.solr.core.query.Criteria;
 import org.springframework.data.solr.core.query.SimpleFilterQuery;
 import org.springframework.data.solr.core.query.SimpleQuery;
@@ -56,6 +62,10 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 	private String idFieldName = DEFAULT_ID_FIELD;
 	private Class<T> entityClass;
 	private SolrEntityInformation<T, ?> entityInformation;
+	private CommitStrategy commitStrategy;
+	private IdLookupBatcher idLookupBatcher;
+	private ReplicatedCoreCache<T> replicatedCoreCache;
+	private IdBloomFilter idBloomFilter;
 
 	public SimpleSolrRepository() {
 
@@ -95,6 +105,13 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 
 	@Override
 	public T findOne(ID id) {
+		Page<T> replicated = queryReplicatedCore(new SimpleQuery(new Criteria(this.idFieldName).is(id)));
+		if (replicated != null) {
+			return replicated.hasContent() ? replicated.getContent().get(0) : null;
+		}
+		if (this.idLookupBatcher != null && id != null) {
+			return this.idLookupBatcher.findById(id, getEntityClass());
+		}
 		return getSolrOperations().queryForObject(new SimpleQuery(new Criteria(this.idFieldName).is(id)), getEntityClass());
 	}
 
@@ -109,9 +126,8 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 
 	@Override
 	public Page<T> findAll(Pageable pageable) {
-		return getSolrOperations().queryForPage(
-				new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD)).setPageRequest(pageable),
-				getEntityClass());
+		return queryForPage(new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD))
+				.setPageRequest(pageable));
 	}
 
 	@Override
@@ -120,9 +136,8 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		if (itemCount == 0) {
 			return new PageImpl<T>(Collections.<T> emptyList());
 		}
-		return getSolrOperations().queryForPage(
-				new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD)).setPageRequest(
-						new PageRequest(0, Math.max(1, itemCount))).addSort(sort), getEntityClass());
+		return queryForPage(new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD)).setPageRequest(
+				new PageRequest(0, Math.max(1, itemCount))).addSort(sort));
 	}
 
 	@Override
@@ -130,7 +145,7 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		org.springframework.data.solr.core.query.Query query = new SimpleQuery(new Criteria(this.idFieldName).in(ids));
 		query.setPageRequest(new PageRequest(0, Math.max(1, (int) count(query))));
 
-		return getSolrOperations().queryForPage(query, getEntityClass());
+		return queryForPage(query);
 	}
 
 	@Override
@@ -140,14 +155,27 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 
 	protected long count(org.springframework.data.solr.core.query.Query query) {
 		org.springframework.data.solr.core.query.Query countQuery = SimpleQuery.fromQuery(query);
+		Page<T> replicated = queryReplicatedCore(countQuery);
+		if (replicated != null) {
+			return replicated.getTotalElements();
+		}
 		return getSolrOperations().count(countQuery);
 	}
 
+	private Page<T> queryForPage(org.springframework.data.solr.core.query.Query query) {
+		Page<T> replicated = queryReplicatedCore(query);
+		return replicated != null ? replicated : getSolrOperations().queryForPage(query, getEntityClass());
+	}
+
+	private Page<T> queryReplicatedCore(org.springframework.data.solr.core.query.Query query) {
+		return this.replicatedCoreCache != null ? this.replicatedCoreCache.query(query) : null;
+	}
+
 	@Override
 	public <S extends T> S save(S entity) {
 		Assert.notNull(entity, "Cannot save 'null' entity.");
 		registerTransactionSynchronisationIfSynchronisationActive();
-		this.solrOperations.saveBean(entity);
+		this.solrOperations.saveBean(entity, getCommitWithinMs());
 		commitIfTransactionSynchronisationIsInactive();
 		return entity;
 	}
@@ -161,13 +189,16 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		}
 
 		registerTransactionSynchronisationIfSynchronisationActive();
-		this.solrOperations.saveBeans((Collection<? extends T>) entities);
+		this.solrOperations.saveBeans((Collection<? extends T>) entities, getCommitWithinMs());
 		commitIfTransactionSynchronisationIsInactive();
 		return entities;
 	}
 
 	@Override
 	public boolean exists(ID id) {
+		if (this.idBloomFilter != null && id != null && !this.idBloomFilter.mightContain(id)) {
+			return false;
+		}
 		return findOne(id) != null;
 	}
 
@@ -176,7 +207,7 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		Assert.notNull(id, "Cannot delete entity with id 'null'.");
 
 		registerTransactionSynchronisationIfSynchronisationActive();
-		this.solrOperations.deleteById(id.toString());
+		this.solrOperations.deleteById(id.toString(), getCommitWithinMs());
 		commitIfTransactionSynchronisationIsInactive();
 	}
 
@@ -197,14 +228,15 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		}
 
 		registerTransactionSynchronisationIfSynchronisationActive();
-		this.solrOperations.deleteById(idsToDelete);
+		this.solrOperations.deleteById(idsToDelete, getCommitWithinMs());
 		commitIfTransactionSynchronisationIsInactive();
 	}
 
 	@Override
 	public void deleteAll() {
 		registerTransactionSynchronisationIfSynchronisationActive();
-		this.solrOperations.delete(new SimpleFilterQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD)));
+		this.solrOperations.delete(new SimpleFilterQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD)),
+				getCommitWithinMs());
 		commitIfTransactionSynchronisationIsInactive();
 	}
 
@@ -267,6 +299,80 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 		return solrOperations;
 	}
 
+	/**
+	 * Set the {@link CommitStrategy} to be used for write operations outside of a transaction. Within a transaction
+	 * changes are committed on transaction completion. Defaults to the strategy declared via
+	 * {@link org.springframework.data.solr.core.mapping.SolrDocument} or {@link ImmediateCommitStrategy} if none
+	 * declared.
+	 * 
+	 * @param commitStrategy must not be null
+	 */
+	public final void setCommitStrategy(CommitStrategy commitStrategy) {
+		Assert.notNull(commitStrategy, "CommitStrategy must not be null.");
+
+		this.commitStrategy = commitStrategy;
+	}
+
+	public final CommitStrategy getCommitStrategy() {
+		if (this.commitStrategy == null) {
+			CommitStrategy declared = getDeclaredCommitStrategy();
+			this.commitStrategy = declared != null ? declared : ImmediateCommitStrategy.INSTANCE;
+		}
+		return commitStrategy;
+	}
+
+	/**
+	 * Set the {@link IdLookupBatcher} used by {@link #findOne(Serializable)} to merge concurrent lookups into a single
+	 * request.
+	 * 
+	 * @param idLookupBatcher null to query each id on its own
+	 */
+	public final void setIdLookupBatcher(IdLookupBatcher idLookupBatcher) {
+		this.idLookupBatcher = idLookupBatcher;
+	}
+
+	public final IdLookupBatcher getIdLookupBatcher() {
+		return this.idLookupBatcher;
+	}
+
+	/**
+	 * Set the {@link ReplicatedCoreCache} answering {@code findOne}, {@code findAll} and {@code count} locally as long as
+	 * a snapshot of the core is available.
+	 * 
+	 * @param replicatedCoreCache null to always query solr
+	 */
+	public final void setReplicatedCoreCache(ReplicatedCoreCache<T> replicatedCoreCache) {
+		this.replicatedCoreCache = replicatedCoreCache;
+	}
+
+	public final ReplicatedCoreCache<T> getReplicatedCoreCache() {
+		return this.replicatedCoreCache;
+	}
+
+	/**
+	 * Set the {@link IdBloomFilter} used by {@link #exists(Serializable)} to answer for ids definitely not present
+	 * without asking solr.
+	 * 
+	 * @param idBloomFilter null to always look up the id
+	 */
+	public final void setIdBloomFilter(IdBloomFilter idBloomFilter) {
+		this.idBloomFilter = idBloomFilter;
+	}
+
+	public final IdBloomFilter getIdBloomFilter() {
+		return this.idBloomFilter;
+	}
+
+	private CommitStrategy getDeclaredCommitStrategy() {
+		if (this.solrOperations == null || this.solrOperations.getConverter() == null
+				|| this.solrOperations.getConverter().getMappingContext() == null) {
+			return null;
+		}
+		SolrPersistentEntity<?> entity = this.solrOperations.getConverter().getMappingContext()
+				.getPersistentEntity(getEntityClass());
+		return SolrRepositoryFactory.createCommitStrategy(entity);
+	}
+
 	private Object extractIdFromBean(T entity) {
 		if (entityInformation != null) {
 			return entityInformation.getId(entity);
@@ -295,9 +401,16 @@ public class SimpleSolrRepository<T, ID extends Serializable> implements SolrCru
 				this.solrOperations));
 	}
 
+	private int getCommitWithinMs() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			return -1;
+		}
+		return getCommitStrategy().getCommitWithinMs();
+	}
+
 	private void commitIfTransactionSynchronisationIsInactive() {
 		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
-			this.solrOperations.commit();
+			getCommitStrategy().afterWrite(this.solrOperations);
 		}
 	}
 
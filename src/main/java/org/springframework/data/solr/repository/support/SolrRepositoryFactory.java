@@ -19,6 +19,10 @@ import static org.springframework.data.querydsl.QueryDslUtils.QUERY_DSL_PRESENT;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.core.NamedQueries;
@@ -28,7 +32,18 @@ import org.springframework.data.repository.query.QueryLookupStrategy;
 import org.springframework.data.repository.query.QueryLookupStrategy.Key;
 import org.springframework.data.repository.query.RepositoryQuery;
 import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.IdLookupBatcher;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
+import org.springframework.data.solr.core.commit.CommitStrategy;
+import org.springframework.data.solr.core.commit.CommitWithinStrategy;
+import org.springframework.data.solr.core.commit.ImmediateCommitStrategy;
+import org.springframework.data.solr.core.commit.NoCommitStrategy;
+import org.springframework.data.solr.core.commit.SoftCommitStrategy;
+import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
 import org.springframework.data.solr.repository.SolrRepository;
+import org.springframework.data.solr.repository.query.AbstractSolrQuery;
 import org.springframework.data.solr.repository.query.PartTreeSolrQuery;
 import org.springframework.data.solr.repository.query.SolrEntityInformation;
 import org.springframework.data.solr.repository.query.SolrEntityInformationCreator;
@@ -45,6 +60,12 @@ public class SolrRepositoryFactory extends RepositoryFactorySupport {
 
 	private final SolrOperations solrOperations;
 	private final SolrEntityInformationCreator entityInformationCreator;
+	private CommitStrategy commitStrategy;
+	private Map<Class<?>, CommitStrategy> commitStrategies = Collections.emptyMap();
+	private SolrRepositoryWarmer repositoryWarmer;
+	private IdLookupBatcher idLookupBatcher;
+	private IdBloomFilter idBloomFilter;
+	private Map<Class<?>, ReplicatedCoreCache<?>> replicatedCoreCaches = Collections.emptyMap();
 
 	public SolrRepositoryFactory(SolrOperations solrOperations) {
 		Assert.notNull(solrOperations);
@@ -64,9 +85,137 @@ public class SolrRepositoryFactory extends RepositoryFactorySupport {
 		SimpleSolrRepository repository = new SimpleSolrRepository(getEntityInformation(metadata.getDomainType()),
 				solrOperations);
 		repository.setEntityClass(metadata.getDomainType());
+
+		CommitStrategy strategy = getCommitStrategy(metadata.getDomainType());
+		if (strategy != null) {
+			repository.setCommitStrategy(strategy);
+		}
+		repository.setIdLookupBatcher(idLookupBatcher);
+		repository.setIdBloomFilter(idBloomFilter);
+		repository.setReplicatedCoreCache(replicatedCoreCaches.get(metadata.getDomainType()));
 		return repository;
 	}
 
+	CommitStrategy getCommitStrategy(Class<?> domainType) {
+		CommitStrategy strategy = commitStrategies.get(domainType);
+		if (strategy != null) {
+			return strategy;
+		}
+
+		if (solrOperations.getConverter() != null && solrOperations.getConverter().getMappingContext() != null) {
+			CommitStrategy declared = createCommitStrategy(solrOperations.getConverter().getMappingContext()
+					.getPersistentEntity(domainType));
+			if (declared != null) {
+				return declared;
+			}
+		}
+		return commitStrategy;
+	}
+
+	/**
+	 * Map commit behavior declared via {@link org.springframework.data.solr.core.mapping.SolrDocument} to a
+	 * {@link CommitStrategy}.
+	 * 
+	 * @param entity can be null
+	 * @return null if entity does not declare any commit behavior
+	 */
+	static CommitStrategy createCommitStrategy(SolrPersistentEntity<?> entity) {
+		if (entity == null) {
+			return null;
+		}
+
+		int commitWithin = entity.getCommitWithin();
+		if (entity.getCommitMode() != null) {
+			switch (entity.getCommitMode()) {
+				case HARD:
+					return entity.isOpenSearcher() ? ImmediateCommitStrategy.INSTANCE : new ImmediateCommitStrategy(false);
+				case SOFT:
+					return SoftCommitStrategy.INSTANCE;
+				case NONE:
+					return commitWithin > 0 ? new CommitWithinStrategy(commitWithin) : NoCommitStrategy.INSTANCE;
+				default:
+					break;
+			}
+		}
+		return commitWithin > 0 ? new CommitWithinStrategy(commitWithin) : null;
+	}
+
+	/**
+	 * Set the {@link CommitStrategy} used by repositories created by this factory. Strategies declared via
+	 * {@link org.springframework.data.solr.core.mapping.SolrDocument} take precedence.
+	 * 
+	 * @param commitStrategy if null the repository default will be used
+	 */
+	public void setCommitStrategy(CommitStrategy commitStrategy) {
+		this.commitStrategy = commitStrategy;
+	}
+
+	/**
+	 * Set {@link CommitStrategy} per entity type overruling the one set via {@link #setCommitStrategy(CommitStrategy)}.
+	 * 
+	 * @param commitStrategies
+	 */
+	public void setCommitStrategies(Map<Class<?>, CommitStrategy> commitStrategies) {
+		this.commitStrategies = commitStrategies != null ? new HashMap<Class<?>, CommitStrategy>(commitStrategies)
+				: Collections.<Class<?>, CommitStrategy> emptyMap();
+	}
+
+	/**
+	 * Set the {@link SolrRepositoryWarmer} query methods of repositories created by this factory are registered with.
+	 * 
+	 * @param repositoryWarmer null to disable warm-up
+	 */
+	public void setRepositoryWarmer(SolrRepositoryWarmer repositoryWarmer) {
+		this.repositoryWarmer = repositoryWarmer;
+	}
+
+	/**
+	 * Set the {@link IdLookupBatcher} merging {@code findOne} lookups of repositories created by this factory.
+	 * 
+	 * @param idLookupBatcher null to disable batching
+	 */
+	public void setIdLookupBatcher(IdLookupBatcher idLookupBatcher) {
+		this.idLookupBatcher = idLookupBatcher;
+	}
+
+	/**
+	 * Set the {@link IdBloomFilter} used by {@code exists} of repositories created by this factory. The filter has to
+	 * receive ids of documents written via the {@link SolrTemplate} in use and is therefore registered with it unless the
+	 * template already uses the very same filter.
+	 * 
+	 * @param idBloomFilter null to always look up ids
+	 * @throws IllegalArgumentException in case the filter cannot be kept up to date with written documents
+	 */
+	public void setIdBloomFilter(IdBloomFilter idBloomFilter) {
+		if (idBloomFilter != null) {
+			Assert.isTrue(solrOperations instanceof SolrTemplate,
+					"IdBloomFilter requires SolrTemplate to keep track of written documents.");
+
+			SolrTemplate template = (SolrTemplate) solrOperations;
+			if (template.getIdBloomFilter() == null) {
+				template.setIdBloomFilter(idBloomFilter);
+			}
+			Assert.isTrue(template.getIdBloomFilter() == idBloomFilter,
+					"IdBloomFilter differs from the one registered with SolrTemplate.");
+		}
+		this.idBloomFilter = idBloomFilter;
+	}
+
+	/**
+	 * Set {@link ReplicatedCoreCache}s used by repositories created by this factory for their entity type.
+	 * 
+	 * @param replicatedCoreCaches
+	 */
+	public void setReplicatedCoreCaches(Collection<? extends ReplicatedCoreCache<?>> replicatedCoreCaches) {
+		Map<Class<?>, ReplicatedCoreCache<?>> caches = new HashMap<Class<?>, ReplicatedCoreCache<?>>();
+		if (replicatedCoreCaches != null) {
+			for (ReplicatedCoreCache<?> cache : replicatedCoreCaches) {
+				caches.put(cache.getEntityClass(), cache);
+			}
+		}
+		this.replicatedCoreCaches = caches;
+	}
+
 	@Override
 	protected Class<?> getRepositoryBaseClass(RepositoryMetadata metadata) {
 		if (isQueryDslRepository(metadata.getRepositoryInterface())) {
@@ -94,12 +243,23 @@ public class SolrRepositoryFactory extends RepositoryFactorySupport {
 
 			if (namedQueries.hasQuery(namedQueryName)) {
 				String namedQuery = namedQueries.getQuery(namedQueryName);
-				return new StringBasedSolrQuery(namedQuery, queryMethod, solrOperations);
+				return registerForWarmUp(new StringBasedSolrQuery(namedQuery, queryMethod, solrOperations));
 			} else if (queryMethod.hasAnnotatedQuery()) {
-				return new StringBasedSolrQuery(queryMethod, solrOperations);
+				return registerForWarmUp(new StringBasedSolrQuery(queryMethod, solrOperations));
 			} else {
-				return new PartTreeSolrQuery(queryMethod, solrOperations);
+				PartTreeSolrQuery query = new PartTreeSolrQuery(queryMethod, solrOperations);
+				if (queryMethod.isFacetQuery() || queryMethod.isHighlightQuery()) {
+					registerForWarmUp(query);
+				}
+				return query;
+			}
+		}
+
+		private AbstractSolrQuery registerForWarmUp(AbstractSolrQuery query) {
+			if (repositoryWarmer != null) {
+				repositoryWarmer.register(query);
 			}
+			return query;
 		}
 
 	}
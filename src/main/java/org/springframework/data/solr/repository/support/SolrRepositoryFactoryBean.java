@@ -16,12 +16,18 @@
 package org.springframework.data.solr.repository.support;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
 import org.springframework.data.repository.core.support.TransactionalRepositoryFactoryBeanSupport;
 import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.IdLookupBatcher;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
+import org.springframework.data.solr.core.commit.CommitStrategy;
 import org.springframework.util.Assert;
 
 /**
@@ -34,6 +40,12 @@ public class SolrRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extend
 		TransactionalRepositoryFactoryBeanSupport<T, S, ID> {
 
 	private SolrOperations operations;
+	private CommitStrategy commitStrategy;
+	private Map<Class<?>, CommitStrategy> commitStrategies;
+	private SolrRepositoryWarmer repositoryWarmer;
+	private IdLookupBatcher idLookupBatcher;
+	private IdBloomFilter idBloomFilter;
+	private Collection<? extends ReplicatedCoreCache<?>> replicatedCoreCaches;
 
 	/**
 	 * Configures the {@link SolrOperations} to be used to create Solr repositories.
@@ -52,6 +64,65 @@ public class SolrRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extend
 		return this.operations;
 	}
 
+	/**
+	 * Configures the {@link CommitStrategy} to be used by the repository for write operations outside of a transaction.
+	 * 
+	 * @param commitStrategy
+	 */
+	public void setCommitStrategy(CommitStrategy commitStrategy) {
+		this.commitStrategy = commitStrategy;
+	}
+
+	/**
+	 * Configures {@link CommitStrategy} per entity type overruling the one set via
+	 * {@link #setCommitStrategy(CommitStrategy)}.
+	 * 
+	 * @param commitStrategies
+	 */
+	public void setCommitStrategies(Map<Class<?>, CommitStrategy> commitStrategies) {
+		this.commitStrategies = commitStrategies;
+	}
+
+	/**
+	 * Configures the {@link SolrRepositoryWarmer} annotated query methods of the repository are registered with.
+	 * 
+	 * @param repositoryWarmer
+	 */
+	public void setRepositoryWarmer(SolrRepositoryWarmer repositoryWarmer) {
+		this.repositoryWarmer = repositoryWarmer;
+	}
+
+	/**
+	 * Configures the {@link IdLookupBatcher} merging concurrent {@code findOne} lookups into a single request.
+	 * 
+	 * @param idLookupBatcher
+	 */
+	public void setIdLookupBatcher(IdLookupBatcher idLookupBatcher) {
+		this.idLookupBatcher = idLookupBatcher;
+	}
+
+	/**
+	 * Configures the {@link IdBloomFilter} ruling out ids in {@code exists} of the repository. The filter is registered
+	 * with the {@link org.springframework.data.solr.core.SolrTemplate} in use to keep it up to date with written
+	 * documents.
+	 * 
+	 * @param idBloomFilter
+	 */
+	public void setIdBloomFilter(IdBloomFilter idBloomFilter) {
+		this.idBloomFilter = idBloomFilter;
+	}
+
+	/**
+	 * Configures {@link ReplicatedCoreCache}s answering {@code findOne}, {@code findAll} and {@code count} of the
+	 * repository locally. Register them with {@link org.springframework.data.solr.core.SolrTemplate} as well to have
+	 * query methods answered locally.
+	 * 
+	 * @param replicatedCoreCaches
+	 */
+	public void setReplicatedCoreCaches(Collection<? extends ReplicatedCoreCache<?>> replicatedCoreCaches) {
+		this.replicatedCoreCaches = replicatedCoreCaches;
+	}
+
 	/* 
 	 * (non-Javadoc)
 	 * @see org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport#afterPropertiesSet()
@@ -64,6 +135,13 @@ public class SolrRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extend
 
 	@Override
 	protected RepositoryFactorySupport doCreateRepositoryFactory() {
-		return new SolrRepositoryFactory(operations);
+		SolrRepositoryFactory factory = new SolrRepositoryFactory(operations);
+		factory.setCommitStrategy(commitStrategy);
+		factory.setCommitStrategies(commitStrategies);
+		factory.setRepositoryWarmer(repositoryWarmer);
+		factory.setIdLookupBatcher(idLookupBatcher);
+		factory.setIdBloomFilter(idBloomFilter);
+		factory.setReplicatedCoreCaches(replicatedCoreCaches);
+		return factory;
 	}
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.repository.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.repository.query.AbstractSolrQuery;
+import org.springframework.util.Assert;
+
+/**
+ * Replays representative queries once the application context has been started, priming solr caches and client side
+ * parsing and conversion before actual requests are taken. By default all repository query methods annotated with
+ * {@link org.springframework.data.solr.repository.Query} are executed with placeholders bound to sample values of the
+ * parameter types, each against the {@link SolrOperations} of its repository. Further queries can be added via
+ * {@link #addQuery(SolrOperations, Query, Class)}. <br />
+ * Warm-up runs synchronously within the {@link ContextRefreshedEvent}. Failing queries are logged and skipped.
+ * 
+ * @author agent
+ */
+public class SolrRepositoryWarmer implements ApplicationListener<ContextRefreshedEvent> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SolrRepositoryWarmer.class);
+
+	public static final int DEFAULT_ROWS = 10;
+
+	private final List<WarmUpQuery> queries = new CopyOnWriteArrayList<WarmUpQuery>();
+	private final AtomicBoolean warmedUp = new AtomicBoolean(false);
+
+	private boolean registerRepositoryQueries = true;
+	private int iterations = 1;
+	private int rows = DEFAULT_ROWS;
+
+	/**
+	 * Register query method of repository. Ignored if {@link #setRegisterRepositoryQueries(boolean)} is {@code false}.
+	 * 
+	 * @param repositoryQuery
+	 */
+	public void register(final AbstractSolrQuery repositoryQuery) {
+		Assert.notNull(repositoryQuery, "RepositoryQuery must not be 'null'.");
+
+		if (!registerRepositoryQueries) {
+			return;
+		}
+		queries.add(new WarmUpQuery(String.valueOf(repositoryQuery.getQueryMethod())) {
+
+			@Override
+			void execute(Pageable pageable) {
+				repositoryQuery.warmUp(pageable);
+			}
+		});
+	}
+
+	/**
+	 * Add query to be executed via {@link SolrOperations#queryForPage(Query, Class)}.
+	 * 
+	 * @param solrOperations must not be null
+	 * @param query must not be null
+	 * @param resultType must not be null
+	 */
+	public void addQuery(final SolrOperations solrOperations, final Query query, final Class<?> resultType) {
+		Assert.notNull(solrOperations, "SolrOperations must not be 'null'.");
+		Assert.notNull(query, "Query must not be 'null'.");
+		Assert.notNull(resultType, "ResultType must not be 'null'.");
+
+		queries.add(new WarmUpQuery(query.toString()) {
+
+			@Override
+			void execute(Pageable pageable) {
+				Query pageQuery = query;
+				if (query.getPageRequest() == null) {
+					pageQuery = SimpleQuery.fromQuery(query);
+					pageQuery.setPageRequest(pageable);
+				}
+				solrOperations.queryForPage(pageQuery, resultType);
+			}
+		});
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (warmedUp.compareAndSet(false, true)) {
+			warmUp();
+		}
+	}
+
+	/**
+	 * Execute all registered queries {@link #getIterations()} times.
+	 * 
+	 * @return number of successfully executed queries
+	 */
+	public int warmUp() {
+		long start = System.currentTimeMillis();
+		Pageable pageable = new PageRequest(0, rows);
+
+		int executed = 0;
+		int failed = 0;
+		for (int i = 0; i < iterations; i++) {
+			for (WarmUpQuery query : queries) {
+				try {
+					query.execute(pageable);
+					executed++;
+				} catch (RuntimeException e) {
+					failed++;
+					LOGGER.debug("Warm-up query '" + query.description + "' failed.", e);
+				}
+			}
+		}
+
+		LOGGER.info("Warm-up executed " + executed + " queries (" + failed + " failed) in "
+				+ (System.currentTimeMillis() - start) + "ms.");
+		return executed;
+	}
+
+	/**
+	 * @param registerRepositoryQueries false to only execute queries added via
+	 *          {@link #addQuery(SolrOperations, Query, Class)}
+	 */
+	public void setRegisterRepositoryQueries(boolean registerRepositoryQueries) {
+		this.registerRepositoryQueries = registerRepositoryQueries;
+	}
+
+	/**
+	 * @param iterations number of times all queries are executed. Increase to give the JIT a chance to compile client
+	 *          side code paths.
+	 */
+	public void setIterations(int iterations) {
+		Assert.isTrue(iterations > 0, "Iterations must be greater than zero.");
+		this.iterations = iterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @param rows number of documents fetched per query
+	 */
+	public void setRows(int rows) {
+		Assert.isTrue(rows > 0, "Rows must be greater than zero.");
+		this.rows = rows;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return number of registered queries
+	 */
+	public int getQueryCount() {
+		return queries.size();
+	}
+
+	private abstract static class WarmUpQuery {
+
+		private final String description;
+
+		WarmUpQuery(String description) {
+			this.description = description;
+		}
+
+		abstract void execute(Pageable pageable);
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.server.support;
+
+import java.io.IOException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.util.Assert;
+
+/**
+ * {@link HttpClient} delegating all requests to another {@link HttpClient} after setting the socket timeout on the
+ * request itself. Request parameters take precedence over the ones of the client, so the timeout applies to requests
+ * executed via this instance only, while connection pool, credentials and interceptors of the delegate are shared.
+ * 
+ * @author agent
+ */
+class SocketTimeoutHttpClient implements HttpClient {
+
+	private final HttpClient delegate;
+	private final int socketTimeout;
+
+	SocketTimeoutHttpClient(HttpClient delegate, int socketTimeout) {
+		Assert.notNull(delegate, "HttpClient must not be 'null'.");
+		Assert.isTrue(socketTimeout > 0, "SocketTimeout must be greater than zero.");
+
+		this.delegate = delegate;
+		this.socketTimeout = socketTimeout;
+	}
+
+	@Override
+	public HttpParams getParams() {
+		return delegate.getParams();
+	}
+
+	@Override
+	public ClientConnectionManager getConnectionManager() {
+		return delegate.getConnectionManager();
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request) throws IOException, ClientProtocolException {
+		return delegate.execute(applySocketTimeout(request));
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException,
+			ClientProtocolException {
+		return delegate.execute(applySocketTimeout(request), context);
+	}
+
+	@Override
+	public HttpResponse execute(HttpHost target, HttpRequest request) throws IOException, ClientProtocolException {
+		return delegate.execute(target, applySocketTimeout(request));
+	}
+
+	@Override
+	public HttpResponse execute(HttpHost target, HttpRequest request, HttpContext context) throws IOException,
+			ClientProtocolException {
+		return delegate.execute(target, applySocketTimeout(request), context);
+	}
+
+	@Override
+	public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> responseHandler) throws IOException,
+			ClientProtocolException {
+		return delegate.execute(applySocketTimeout(request), responseHandler);
+	}
+
+	@Override
+	public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> responseHandler, HttpContext context)
+			throws IOException, ClientProtocolException {
+		return delegate.execute(applySocketTimeout(request), responseHandler, context);
+	}
+
+	@Override
+	public <T> T execute(HttpHost target, HttpRequest request, ResponseHandler<? extends T> responseHandler)
+			throws IOException, ClientProtocolException {
+		return delegate.execute(target, applySocketTimeout(request), responseHandler);
+	}
+
+	@Override
+	public <T> T execute(HttpHost target, HttpRequest request, ResponseHandler<? extends T> responseHandler,
+			HttpContext context) throws IOException, ClientProtocolException {
+		return delegate.execute(target, applySocketTimeout(request), responseHandler, context);
+	}
+
+	private <R extends HttpRequest> R applySocketTimeout(R request) {
+		HttpConnectionParams.setSoTimeout(request.getParams(), socketTimeout);
+		return request;
+	}
+
+	HttpClient getDelegate() {
+		return delegate;
+	}
+
+	int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+}
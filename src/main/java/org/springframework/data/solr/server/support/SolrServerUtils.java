@@ -27,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.impl.CloudSolrServer;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.apache.solr.client.solrj.impl.LBHttpSolrServer;
 import org.apache.solr.core.CoreContainer;
 import org.slf4j.Logger;
@@ -110,6 +111,23 @@ public class SolrServerUtils {
 		return url;
 	}
 
+	/**
+	 * Create an {@link HttpSolrServer} pointing to the same url as the given one, whose requests fail with a
+	 * {@link java.net.SocketTimeoutException} in case no data has been received within {@code socketTimeout}. The
+	 * returned instance shares {@link org.apache.http.client.HttpClient} and connection pool with the given one and is
+	 * cheap to create, so it can be used for a single request. Settings kept by the {@link HttpSolrServer} itself other
+	 * than url and {@link org.apache.solr.client.solrj.ResponseParser} are not copied.
+	 * 
+	 * @param solrServer must not be null
+	 * @param socketTimeout in milliseconds, must be greater than zero
+	 * @return
+	 */
+	public static HttpSolrServer withSocketTimeout(HttpSolrServer solrServer, int socketTimeout) {
+		Assert.notNull(solrServer, "SolrServer must not be 'null'.");
+		return new HttpSolrServer(solrServer.getBaseURL(), new SocketTimeoutHttpClient(solrServer.getHttpClient(),
+				socketTimeout), solrServer.getParser());
+	}
+
 	private static String getSolrServerTypeName(SolrServer solrServer) {
 		Class<?> solrServerType = ClassUtils.isCglibProxy(solrServer) ? ClassUtils.getUserClass(solrServer) : solrServer
 				.getClass();
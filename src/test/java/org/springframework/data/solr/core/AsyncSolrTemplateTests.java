@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleQuery;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncSolrTemplateTests {
+
+	private AsyncSolrTemplate asyncTemplate;
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	@Before
+	public void setUp() {
+		asyncTemplate = new AsyncSolrTemplate(solrOperationsMock);
+	}
+
+	@After
+	public void tearDown() {
+		asyncTemplate.destroy();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullSolrOperations() {
+		new AsyncSolrTemplate(null);
+	}
+
+	@Test
+	public void testQueryForPage() throws InterruptedException, ExecutionException {
+		Query query = new SimpleQuery(new Criteria("field_1").is("value1"));
+		Page<SimpleJavaObject> page = new PageImpl<SimpleJavaObject>(Collections.<SimpleJavaObject> emptyList());
+		Mockito.when(solrOperationsMock.queryForPage(query, SimpleJavaObject.class)).thenReturn(page);
+
+		Future<Page<SimpleJavaObject>> future = asyncTemplate.queryForPage(query, SimpleJavaObject.class);
+
+		Assert.assertSame(page, future.get());
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).queryForPage(query, SimpleJavaObject.class);
+	}
+
+	@Test
+	public void testSaveBean() throws InterruptedException, ExecutionException {
+		SimpleJavaObject bean = new SimpleJavaObject("id-1", 1l);
+		UpdateResponse response = new UpdateResponse();
+		Mockito.when(solrOperationsMock.saveBean(bean)).thenReturn(response);
+
+		Assert.assertSame(response, asyncTemplate.saveBean(bean).get());
+	}
+
+	@Test
+	public void testCommit() throws InterruptedException, ExecutionException {
+		asyncTemplate.commit().get();
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).commit();
+	}
+
+	@Test
+	public void testTranslatedExceptionIsAvailableAsCause() throws InterruptedException {
+		Query query = new SimpleQuery(new Criteria("field_1").is("value1"));
+		UncategorizedSolrException exception = new UncategorizedSolrException("error", null);
+		Mockito.when(solrOperationsMock.count(query)).thenThrow(exception);
+
+		try {
+			asyncTemplate.count(query).get();
+			Assert.fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			Assert.assertSame(exception, e.getCause());
+		}
+	}
+
+}
@@ -717,6 +717,23 @@ public class DefaultQueryParserTests {
 		Assert.assertEquals(new Integer(100), solrQuery.getTimeAllowed());
 	}
 
+	@Test
+	public void testTimeoutLimitsTimeAllowed() {
+		SimpleQuery query = new SimpleQuery(new SimpleStringCriteria("field_1:value_1"));
+		query.setTimeAllowed(500);
+		query.setTimeout(200);
+		SolrQuery solrQuery = queryParser.constructSolrQuery(query);
+		Assert.assertEquals(new Integer(200), solrQuery.getTimeAllowed());
+	}
+
+	@Test
+	public void testTimeoutSetsTimeAllowed() {
+		SimpleQuery query = new SimpleQuery(new SimpleStringCriteria("field_1:value_1"));
+		query.setTimeout(200);
+		SolrQuery solrQuery = queryParser.constructSolrQuery(query);
+		Assert.assertEquals(new Integer(200), solrQuery.getTimeAllowed());
+	}
+
 	@Test
 	public void testWithoutTimeAllowed() {
 		SimpleQuery query = new SimpleQuery(new SimpleStringCriteria("field_1:value_1"));
@@ -15,24 +15,44 @@
  */
 package org.springframework.data.solr.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.ParseException;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,19 +61,46 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.QueryResultCache;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
+import org.springframework.data.solr.core.export.ResponseFormat;
+import org.springframework.data.solr.core.index.ImportFormat;
+import org.springframework.data.solr.core.index.ImportOptions;
+import org.springframework.data.solr.core.maintenance.CoreStatistics;
+import org.springframework.data.solr.core.maintenance.IndexStatistics;
 import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.CursorOptions;
 import org.springframework.data.solr.core.query.PartialUpdate;
 import org.springframework.data.solr.core.query.Query;
 import org.springframework.data.solr.core.query.SimpleQuery;
 import org.springframework.data.solr.core.query.SimpleStringCriteria;
+import org.springframework.data.solr.core.query.SimpleTermsQuery;
 import org.springframework.data.solr.core.query.SolrDataQuery;
+import org.springframework.data.solr.core.query.TermsQuery;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.data.solr.core.query.result.MultiQueryResult;
+import org.springframework.data.solr.core.query.result.SolrResultPage;
+import org.springframework.data.solr.core.query.result.StreamingResultCallback;
+import org.springframework.data.solr.core.query.result.TermsPage;
+import org.springframework.data.solr.core.query.result.UpdateResult;
+import org.springframework.data.solr.core.replay.QueryRecorder;
+import org.springframework.data.solr.core.workload.RequestScheduler;
+import org.springframework.data.solr.core.workload.WorkloadClass;
 import org.springframework.data.solr.server.SolrServerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * @author Christoph Strobl
@@ -95,6 +142,37 @@ public class SolrTemplateTests {
 		solrTemplate.ping();
 	}
 
+	@Test
+	public void testRequestSchedulerLimitsIndexingIndependentOfAdminRequests() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.ping()).thenReturn(new SolrPingResponse());
+		RequestScheduler scheduler = new RequestScheduler();
+		scheduler.setMaxConcurrent(WorkloadClass.INDEXING, 0);
+		scheduler.setMaxQueueWaitMs(0);
+		solrTemplate.setRequestScheduler(scheduler);
+
+		Assert.assertNotNull(solrTemplate.ping());
+		try {
+			solrTemplate.saveBean(SIMPLE_OBJECT);
+			Assert.fail("TransientDataAccessResourceException expected");
+		} catch (TransientDataAccessResourceException e) {
+			// expected
+		}
+		Mockito.verify(solrServerMock, Mockito.never()).add(Mockito.any(SolrInputDocument.class), Mockito.anyInt());
+		Assert.assertEquals(0, scheduler.getRunningCount("core1", WorkloadClass.ADMIN));
+	}
+
+	@Test
+	public void testOptimizeIsAdmittedAsAdminRequest() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.optimize(true, true, 1)).thenReturn(new UpdateResponse());
+		RequestScheduler scheduler = new RequestScheduler();
+		scheduler.setMaxConcurrent(WorkloadClass.INDEXING, 0);
+		scheduler.setMaxQueueWaitMs(0);
+		solrTemplate.setRequestScheduler(scheduler);
+
+		solrTemplate.optimize();
+		Mockito.verify(solrServerMock, Mockito.times(1)).optimize(true, true, 1);
+	}
+
 	@Test(expected = InvalidDataAccessApiUsageException.class)
 	public void testQueryThrowsParseException() throws SolrServerException {
 		Mockito.when(solrServerMock.query(Matchers.any(SolrParams.class))).thenThrow(
@@ -187,6 +265,53 @@ public class SolrTemplateTests {
 		Assert.assertEquals(3, captor.getValue().size());
 	}
 
+	@Test
+	public void testSaveBeanUsesCommitWithinDeclaredViaSolrDocument() throws IOException, SolrServerException {
+		solrTemplate.saveBean(new SimpleJavaObjectWithWritePolicy("1", 1l));
+
+		Mockito.verify(solrServerMock, Mockito.times(1)).add(Mockito.any(SolrInputDocument.class), Mockito.eq(5000));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveBeansSendsBatchesDeclaredViaSolrDocument() throws IOException, SolrServerException {
+		Mockito.when(solrServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(5000))).thenReturn(
+				new UpdateResponse());
+		List<SimpleJavaObject> collection = Arrays.<SimpleJavaObject> asList(new SimpleJavaObjectWithWritePolicy("1", 1l),
+				new SimpleJavaObjectWithWritePolicy("2", 2l), new SimpleJavaObjectWithWritePolicy("3", 3l));
+		UpdateResponse updateResponse = solrTemplate.saveBeans(collection);
+		Assert.assertNotNull(updateResponse);
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).add(captor.capture(), Mockito.eq(5000));
+
+		Assert.assertEquals(2, captor.getAllValues().get(0).size());
+		Assert.assertEquals(1, captor.getAllValues().get(1).size());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveBeansAppliesWritePolicyPerEntityType() throws IOException, SolrServerException {
+		Mockito.when(solrServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt())).thenReturn(
+				new UpdateResponse());
+		List<SimpleJavaObject> collection = Arrays.asList(new SimpleJavaObject("1", 1l), new SimpleJavaObject("2", 2l),
+				new SimpleJavaObjectWithWritePolicy("3", 3l), new SimpleJavaObjectWithWritePolicy("4", 4l),
+				new SimpleJavaObjectWithWritePolicy("5", 5l));
+		solrTemplate.saveBeans(collection);
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<List> plainCaptor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).add(plainCaptor.capture(), Mockito.eq(-1));
+		Assert.assertEquals(2, plainCaptor.getValue().size());
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<List> policyCaptor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).add(policyCaptor.capture(), Mockito.eq(5000));
+		Assert.assertEquals(2, policyCaptor.getAllValues().get(0).size());
+		Assert.assertEquals(1, policyCaptor.getAllValues().get(1).size());
+	}
+
 	@Test
 	public void testSaveDocument() throws IOException, SolrServerException {
 		Mockito.when(solrServerMock.add(Mockito.any(SolrInputDocument.class), Mockito.eq(-1))).thenReturn(
@@ -312,6 +437,237 @@ public class SolrTemplateTests {
 		Mockito.verify(solrServerMock, Mockito.times(1)).rollback();
 	}
 
+	@Test
+	public void testOptimize() throws SolrServerException, IOException {
+		solrTemplate.optimize(5);
+		Mockito.verify(solrServerMock, Mockito.times(1)).optimize(Matchers.eq(true), Matchers.eq(true), Matchers.eq(5));
+	}
+
+	@Test
+	public void testExpungeDeletes() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(UpdateRequest.class))).thenReturn(new NamedList<Object>());
+
+		solrTemplate.expungeDeletes();
+
+		ArgumentCaptor<UpdateRequest> captor = ArgumentCaptor.forClass(UpdateRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).request(captor.capture());
+		Assert.assertEquals("true", captor.getValue().getParams().get(UpdateParams.EXPUNGE_DELETES));
+		Assert.assertEquals("true", captor.getValue().getParams().get(UpdateParams.COMMIT));
+	}
+
+	@Test
+	public void testImportFileSendsCsvInPieces() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(ContentStreamUpdateRequest.class))).thenReturn(
+				new NamedList<Object>());
+		File file = File.createTempFile("import", ".csv");
+		file.deleteOnExit();
+		FileCopyUtils.copy("id,name\n1,foo\n2,bar\n3,baz\n".getBytes("UTF-8"), file);
+
+		UpdateResult result = solrTemplate.importFile(file, new ImportOptions().setPieceSize(2).setCommitWithinMs(1000));
+		Assert.assertEquals(3, result.getUpdatedCount());
+		Assert.assertEquals(2, result.getResponses().size());
+
+		ArgumentCaptor<ContentStreamUpdateRequest> captor = ArgumentCaptor.forClass(ContentStreamUpdateRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).request(captor.capture());
+		Assert.assertEquals("id,name\n1,foo\n2,bar\n", readContent(captor.getAllValues().get(0)));
+		Assert.assertEquals("id,name\n3,baz\n", readContent(captor.getAllValues().get(1)));
+		Assert.assertEquals("/update", captor.getAllValues().get(0).getPath());
+		Assert.assertEquals("text/csv; charset=UTF-8", captor.getAllValues().get(0).getContentStreams().iterator().next()
+				.getContentType());
+		Assert.assertEquals("1000", captor.getAllValues().get(0).getParams().get(UpdateParams.COMMIT_WITHIN));
+	}
+
+	@Test
+	public void testImportStreamKeepsEncapsulatedLineBreaksWithinPiece() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(ContentStreamUpdateRequest.class))).thenReturn(
+				new NamedList<Object>());
+		String content = "id,name\n1,\"foo\nbar\"\n2,\"say \"\"hi\"\"\n\"\n3,baz\n";
+
+		UpdateResult result = solrTemplate.importStream(new ByteArrayInputStream(content.getBytes("UTF-8")),
+				new ImportOptions(ImportFormat.CSV).setPieceSize(2));
+		Assert.assertEquals(3, result.getUpdatedCount());
+
+		ArgumentCaptor<ContentStreamUpdateRequest> captor = ArgumentCaptor.forClass(ContentStreamUpdateRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).request(captor.capture());
+		Assert.assertEquals("id,name\n1,\"foo\nbar\"\n2,\"say \"\"hi\"\"\n\"\n",
+				readContent(captor.getAllValues().get(0)));
+		Assert.assertEquals("id,name\n3,baz\n", readContent(captor.getAllValues().get(1)));
+	}
+
+	@Test
+	public void testImportStreamSendsCsvWithoutHeaderAsWhole() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(ContentStreamUpdateRequest.class))).thenReturn(
+				new NamedList<Object>());
+		String content = "1,foo\n2,bar\n3,baz\n";
+
+		solrTemplate.importStream(new ByteArrayInputStream(content.getBytes("UTF-8")),
+				new ImportOptions(ImportFormat.CSV).setPieceSize(1).addParam("header", "false")
+						.addParam("fieldnames", "id,name"));
+
+		ArgumentCaptor<ContentStreamUpdateRequest> captor = ArgumentCaptor.forClass(ContentStreamUpdateRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).request(captor.capture());
+		Assert.assertEquals(content, readContent(captor.getValue()));
+	}
+
+	@Test
+	public void testImportStreamSendsJsonAsWhole() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(ContentStreamUpdateRequest.class))).thenReturn(
+				new NamedList<Object>());
+		String content = "[{\"id\":\"1\"},{\"id\":\"2\"}]";
+
+		solrTemplate.importStream(new ByteArrayInputStream(content.getBytes("UTF-8")),
+				new ImportOptions(ImportFormat.JSON).setPieceSize(1).addParam("overwrite", "false"));
+
+		ArgumentCaptor<ContentStreamUpdateRequest> captor = ArgumentCaptor.forClass(ContentStreamUpdateRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).request(captor.capture());
+		Assert.assertEquals(content, readContent(captor.getValue()));
+		Assert.assertEquals("false", captor.getValue().getParams().get("overwrite"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testImportStreamWithoutFormat() {
+		solrTemplate.importStream(new ByteArrayInputStream(new byte[0]), new ImportOptions());
+	}
+
+	@Test
+	public void testImportFormatFromFileName() {
+		Assert.assertEquals(ImportFormat.CSV, ImportFormat.fromFileName("data.csv"));
+		Assert.assertEquals(ImportFormat.XML, ImportFormat.fromFileName("/tmp/data.XML"));
+	}
+
+	private String readContent(ContentStreamUpdateRequest request) throws IOException {
+		return FileCopyUtils.copyToString(request.getContentStreams().iterator().next().getReader());
+	}
+
+	@Test
+	public void testGetCoreStatistics() throws SolrServerException, IOException {
+		NamedList<Object> indexInfo = new NamedList<Object>();
+		indexInfo.add("numDocs", 10);
+		NamedList<Object> lukeResponse = new NamedList<Object>();
+		lukeResponse.add("index", indexInfo);
+		Mockito.when(solrServerMock.request(Mockito.any(QueryRequest.class))).thenReturn(lukeResponse,
+				new NamedList<Object>());
+
+		CoreStatistics statistics = solrTemplate.getCoreStatistics();
+		Assert.assertEquals(10, statistics.getNumDocs());
+
+		ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).request(captor.capture());
+		Assert.assertEquals("/admin/luke", captor.getAllValues().get(0).getPath());
+		Assert.assertEquals("index", captor.getAllValues().get(0).getParams().get("show"));
+		Assert.assertEquals("/admin/mbeans", captor.getAllValues().get(1).getPath());
+		Assert.assertEquals("true", captor.getAllValues().get(1).getParams().get("stats"));
+	}
+
+	@Test
+	public void testGetIndexStatisticsReadsIndexInfoViaLuke() throws SolrServerException, IOException {
+		NamedList<Object> indexInfo = new NamedList<Object>();
+		indexInfo.add("numDocs", 10);
+		indexInfo.add("version", 42L);
+		NamedList<Object> lukeResponse = new NamedList<Object>();
+		lukeResponse.add("index", indexInfo);
+		Mockito.when(solrServerMock.request(Mockito.any(QueryRequest.class))).thenReturn(lukeResponse);
+
+		IndexStatistics statistics = solrTemplate.getIndexStatistics();
+		Assert.assertEquals(10, statistics.getNumDocs());
+		Assert.assertEquals(Long.valueOf(42), statistics.getVersion());
+
+		ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).request(captor.capture());
+		Assert.assertEquals("/admin/luke", captor.getValue().getPath());
+		Assert.assertEquals("index", captor.getValue().getParams().get("show"));
+		Assert.assertEquals("0", captor.getValue().getParams().get("numTerms"));
+	}
+
+	@Test(expected = UncategorizedSolrException.class)
+	public void testGetIndexStatisticsThrowsExceptionWhenIndexInfoMissing() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(QueryRequest.class))).thenReturn(new NamedList<Object>());
+
+		solrTemplate.getIndexStatistics();
+	}
+
+	@Test
+	public void testQueryToStreamPassesResponseThrough() throws SolrServerException, IOException {
+		final String body = "{\"response\":{\"numFound\":1,\"docs\":[{\"id\":\"1\"}]}}";
+		Mockito.when(solrServerMock.request(Mockito.any(QueryRequest.class))).thenAnswer(
+				new Answer<NamedList<Object>>() {
+
+					@Override
+					public NamedList<Object> answer(InvocationOnMock invocation) throws Throwable {
+						QueryRequest request = (QueryRequest) invocation.getArguments()[0];
+						return request.getResponseParser().processResponse(new ByteArrayInputStream(body.getBytes("UTF-8")),
+								"UTF-8");
+					}
+				});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long written = solrTemplate.queryToStream(new SimpleQuery(new SimpleStringCriteria("*:*")), out,
+				ResponseFormat.JSON);
+
+		Assert.assertEquals(body.length(), written);
+		Assert.assertEquals(body, out.toString("UTF-8"));
+		ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).request(captor.capture());
+		Assert.assertEquals("json", captor.getValue().getResponseParser().getWriterType());
+		Assert.assertEquals("*:*", captor.getValue().getParams().get(CommonParams.Q));
+		Mockito.verify(solrServerMock, Mockito.never()).query(Mockito.any(SolrParams.class));
+	}
+
+	@Test
+	public void testQueryToStreamPassesHttpResponseThrough() throws IOException {
+		String body = "{\"response\":{\"numFound\":1,\"docs\":[{\"id\":\"1\"}]}}";
+		HttpClient httpClientMock = Mockito.mock(HttpClient.class);
+		SolrTemplate httpSolrTemplate = createHttpSolrTemplate(httpClientMock, HttpStatus.SC_OK, body);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long written = httpSolrTemplate.queryToStream(new SimpleQuery(new SimpleStringCriteria("*:*")), out,
+				ResponseFormat.JSON);
+
+		Assert.assertEquals(body.length(), written);
+		Assert.assertEquals(body, out.toString("UTF-8"));
+		ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		Mockito.verify(httpClientMock, Mockito.times(1)).execute(captor.capture());
+		Assert.assertTrue(captor.getValue().getURI().toString().startsWith("http://localhost:8983/solr/select?"));
+		Assert.assertTrue(captor.getValue().getURI().toString().contains("wt=json"));
+	}
+
+	@Test
+	public void testQueryToStreamDoesNotPassErrorResponseThrough() throws IOException {
+		HttpClient httpClientMock = Mockito.mock(HttpClient.class);
+		SolrTemplate httpSolrTemplate = createHttpSolrTemplate(httpClientMock, HttpStatus.SC_BAD_REQUEST,
+				"{\"error\":{\"msg\":\"undefined field foo\",\"code\":400}}");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try {
+			httpSolrTemplate.queryToStream(new SimpleQuery(new SimpleStringCriteria("foo:bar")), out,
+					ResponseFormat.JSON);
+			Assert.fail("DataAccessException expected");
+		} catch (DataAccessException e) {
+			// expected
+		}
+		Assert.assertEquals(0, out.size());
+	}
+
+	private SolrTemplate createHttpSolrTemplate(HttpClient httpClientMock, int status, String body) throws IOException {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "status " + status);
+		response.setEntity(new StringEntity(body, "UTF-8"));
+		Mockito.when(httpClientMock.execute(Mockito.any(HttpUriRequest.class))).thenReturn(response);
+
+		HttpSolrServer httpSolrServerMock = Mockito.mock(HttpSolrServer.class);
+		Mockito.when(httpSolrServerMock.getBaseURL()).thenReturn("http://localhost:8983/solr");
+		Mockito.when(httpSolrServerMock.getHttpClient()).thenReturn(httpClientMock);
+		return new SolrTemplate(httpSolrServerMock);
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testQueryToStreamThrowsExceptionWhenResponseIsNotPassedThrough() throws SolrServerException,
+			IOException {
+		Mockito.when(solrServerMock.request(Mockito.any(QueryRequest.class))).thenReturn(new NamedList<Object>());
+
+		solrTemplate.queryToStream(new SimpleQuery(new SimpleStringCriteria("*:*")), new ByteArrayOutputStream(),
+				ResponseFormat.JAVABIN);
+	}
+
 	@Test
 	public void testDifferentQueryParser() throws SolrServerException {
 		QueryParser parser = new QueryParser() {
@@ -340,4 +696,459 @@ public class SolrTemplateTests {
 		Mockito.verify(solrServerMock, Mockito.times(1)).query(captor.capture());
 		Assert.assertEquals("*:*", captor.getValue().getParams(CommonParams.Q)[0]);
 	}
+
+	@Test
+	public void testQueryForCursor() throws SolrServerException {
+		SolrDocument document = new SolrDocument();
+		document.setField("id", "id-1");
+		SolrDocumentList resultList = new SolrDocumentList();
+		resultList.add(document);
+		resultList.setNumFound(1);
+
+		QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		Mockito.when(responseMock.getResults()).thenReturn(resultList);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(responseMock);
+
+		Cursor<SolrDocument> cursor = solrTemplate.queryForCursor(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SolrDocument.class, new CursorOptions(10));
+		Assert.assertTrue(cursor.isOpen());
+		Assert.assertTrue(cursor.hasNext());
+		Assert.assertSame(document, cursor.next());
+		Assert.assertFalse(cursor.hasNext());
+
+		ArgumentCaptor<SolrParams> captor = ArgumentCaptor.forClass(SolrParams.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).query(captor.capture());
+		Assert.assertEquals("10", captor.getValue().get(CommonParams.ROWS));
+		Assert.assertEquals("0", captor.getValue().get(CommonParams.START));
+	}
+
+	@Test
+	public void testQueryForPagesReturnsResultsInOrderAndReportsFailures() throws SolrServerException {
+		final QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		SolrDocumentList resultList = new SolrDocumentList();
+		resultList.setNumFound(10);
+		Mockito.when(responseMock.getResults()).thenReturn(resultList);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				SolrParams params = (SolrParams) invocation.getArguments()[0];
+				if (params.get(CommonParams.Q).contains("fail")) {
+					throw new SolrServerException("error", new SolrException(ErrorCode.BAD_REQUEST, "bad request"));
+				}
+				return responseMock;
+			}
+		});
+
+		List<Query> queries = Arrays.<Query> asList(new SimpleQuery(new SimpleStringCriteria("field_1:value1")),
+				new SimpleQuery(new SimpleStringCriteria("field_1:fail")), new SimpleQuery(new SimpleStringCriteria(
+						"field_1:value3")));
+
+		MultiQueryResult<Page<SimpleJavaObject>> result = solrTemplate.queryForPages(queries, SimpleJavaObject.class,
+				10000);
+
+		Assert.assertEquals(3, result.size());
+		Assert.assertTrue(result.hasFailures());
+		Assert.assertEquals(1, result.getFailures().size());
+		Assert.assertEquals(10, result.get(0).getTotalElements());
+		Assert.assertNull(result.getResults().get(1));
+		Assert.assertTrue(result.getFailure(1) instanceof DataAccessException);
+		Assert.assertEquals(10, result.get(2).getTotalElements());
+	}
+
+	@Test
+	public void testQueryForTermsPagesReturnsResultsInOrder() throws SolrServerException {
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(Mockito.mock(QueryResponse.class));
+
+		MultiQueryResult<TermsPage> result = solrTemplate.queryForTermsPages(Arrays.<TermsQuery> asList(SimpleTermsQuery
+				.queryBuilder("field_1").build(), SimpleTermsQuery.queryBuilder("field_2").build()));
+
+		Assert.assertEquals(2, result.size());
+		Assert.assertFalse(result.hasFailures());
+		Mockito.verify(solrServerMock, Mockito.times(2)).query(Mockito.any(SolrParams.class));
+	}
+
+	@Test
+	public void testDefaultTaskExecutorIsBounded() {
+		Assert.assertTrue(solrTemplate.getTaskExecutor() instanceof ThreadPoolTaskExecutor);
+		ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) solrTemplate.getTaskExecutor();
+		Assert.assertEquals(SolrTemplate.DEFAULT_TASK_POOL_SIZE, executor.getMaxPoolSize());
+		Assert.assertSame(executor, solrTemplate.getTaskExecutor());
+	}
+
+	@Test
+	public void testCursorsUseSeparateBlockingTaskExecutor() {
+		Assert.assertTrue(solrTemplate.getBlockingTaskExecutor() instanceof ThreadPoolTaskExecutor);
+		Assert.assertNotSame(solrTemplate.getTaskExecutor(), solrTemplate.getBlockingTaskExecutor());
+		Assert.assertEquals(SolrTemplate.DEFAULT_BLOCKING_TASK_POOL_SIZE,
+				((ThreadPoolTaskExecutor) solrTemplate.getBlockingTaskExecutor()).getMaxPoolSize());
+	}
+
+	@Test
+	public void testDestroyShutsDownDefaultTaskExecutorsOnly() {
+		ThreadPoolTaskExecutor defaultExecutor = (ThreadPoolTaskExecutor) solrTemplate.getTaskExecutor();
+		ThreadPoolTaskExecutor customExecutor = new ThreadPoolTaskExecutor();
+		customExecutor.initialize();
+		solrTemplate.setBlockingTaskExecutor(customExecutor);
+
+		solrTemplate.destroy();
+
+		Assert.assertTrue(defaultExecutor.getThreadPoolExecutor().isShutdown());
+		Assert.assertFalse(customExecutor.getThreadPoolExecutor().isShutdown());
+		Assert.assertNotSame(defaultExecutor, solrTemplate.getTaskExecutor());
+		customExecutor.shutdown();
+	}
+
+	@Test
+	public void testQueryForPagesReportsTimeout() throws SolrServerException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				latch.await();
+				return null;
+			}
+		});
+
+		try {
+			MultiQueryResult<Page<SimpleJavaObject>> result = solrTemplate.queryForPages(
+					Arrays.<Query> asList(new SimpleQuery(new SimpleStringCriteria("*:*"))), SimpleJavaObject.class, 10);
+			Assert.assertTrue(result.getFailure(0) instanceof QueryTimeoutException);
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testQueryForPageWithTimeoutThrowsQueryTimeoutException() throws SolrServerException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				latch.await();
+				return null;
+			}
+		});
+		solrTemplate.setTimeoutGraceMs(0);
+
+		try {
+			solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")).setTimeout(50),
+					SimpleJavaObject.class);
+			Assert.fail("QueryTimeoutException expected");
+		} catch (QueryTimeoutException e) {
+			// expected
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testCountWithTimeoutThrowsQueryTimeoutException() throws SolrServerException {
+		final CountDownLatch latch = blockQueries();
+		solrTemplate.setTimeoutGraceMs(0);
+
+		try {
+			solrTemplate.count(new SimpleQuery(new SimpleStringCriteria("*:*")).setTimeout(50));
+			Assert.fail("QueryTimeoutException expected");
+		} catch (QueryTimeoutException e) {
+			// expected
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testQueryForObjectWithTimeoutThrowsQueryTimeoutException() throws SolrServerException {
+		final CountDownLatch latch = blockQueries();
+		solrTemplate.setTimeoutGraceMs(0);
+
+		try {
+			solrTemplate.queryForObject(new SimpleQuery(new SimpleStringCriteria("*:*")).setTimeout(50),
+					SimpleJavaObject.class);
+			Assert.fail("QueryTimeoutException expected");
+		} catch (QueryTimeoutException e) {
+			// expected
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	private CountDownLatch blockQueries() throws SolrServerException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				latch.await();
+				return null;
+			}
+		});
+		return latch;
+	}
+
+	@Test
+	public void testQueryForPageWithTimeoutReleasesPermitWhenGivingUp() throws SolrServerException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				latch.await();
+				return null;
+			}
+		});
+		RequestScheduler scheduler = new RequestScheduler();
+		scheduler.setMaxConcurrent(WorkloadClass.INTERACTIVE, 1);
+		scheduler.setMaxQueueWaitMs(0);
+		solrTemplate.setRequestScheduler(scheduler);
+		solrTemplate.setTimeoutGraceMs(0);
+
+		try {
+			solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")).setTimeout(50),
+					SimpleJavaObject.class);
+			Assert.fail("QueryTimeoutException expected");
+		} catch (QueryTimeoutException e) {
+			Assert.assertEquals(0, scheduler.getRunningCount("core1", WorkloadClass.INTERACTIVE));
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testQueryForPageWithTimeoutReturnsResponse() throws SolrServerException {
+		QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		SolrDocumentList resultList = new SolrDocumentList();
+		resultList.setNumFound(10);
+		Mockito.when(responseMock.getResults()).thenReturn(resultList);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(responseMock);
+
+		Page<SimpleJavaObject> page = solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*"))
+				.setTimeout(1000), SimpleJavaObject.class);
+
+		Assert.assertEquals(10, page.getTotalElements());
+		ArgumentCaptor<SolrParams> captor = ArgumentCaptor.forClass(SolrParams.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).query(captor.capture());
+		Assert.assertEquals("1000", captor.getValue().get(CommonParams.TIME_ALLOWED));
+	}
+
+	@Test
+	public void testQueryForPageReportsPartialResults() throws SolrServerException {
+		QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		SolrDocumentList resultList = new SolrDocumentList();
+		resultList.setNumFound(3);
+		NamedList<Object> header = new NamedList<Object>();
+		header.add("partialResults", Boolean.TRUE);
+		Mockito.when(responseMock.getResults()).thenReturn(resultList);
+		Mockito.when(responseMock.getResponseHeader()).thenReturn(header);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(responseMock);
+		solrTemplate.setQueryResultCache(new QueryResultCache());
+
+		Page<SimpleJavaObject> page1 = solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SimpleJavaObject.class);
+		Page<SimpleJavaObject> page2 = solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SimpleJavaObject.class);
+
+		Assert.assertTrue(((SolrResultPage<SimpleJavaObject>) page1).isPartialResults());
+		Assert.assertNotSame(page1, page2);
+		Mockito.verify(solrServerMock, Mockito.times(2)).query(Mockito.any(SolrParams.class));
+	}
+
+	@Test
+	public void testQueryForPageUsesQueryResultCache() throws SolrServerException, IOException {
+		QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		SolrDocumentList resultList = new SolrDocumentList();
+		resultList.setNumFound(10);
+		Mockito.when(responseMock.getResults()).thenReturn(resultList);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(responseMock);
+		Mockito.when(solrServerMock.deleteById(Mockito.anyString())).thenReturn(new UpdateResponse());
+
+		solrTemplate.setQueryResultCache(new QueryResultCache());
+
+		Page<SimpleJavaObject> page1 = solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SimpleJavaObject.class);
+		Page<SimpleJavaObject> page2 = solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SimpleJavaObject.class);
+		Assert.assertSame(page1, page2);
+		Mockito.verify(solrServerMock, Mockito.times(1)).query(Mockito.any(SolrParams.class));
+
+		solrTemplate.deleteById("1");
+		solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")), SimpleJavaObject.class);
+		Mockito.verify(solrServerMock, Mockito.times(2)).query(Mockito.any(SolrParams.class));
+	}
+
+	@Test
+	public void testSaveDocumentAddsIdToIdBloomFilter() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.add(Mockito.any(SolrInputDocument.class), Mockito.anyInt())).thenReturn(
+				new UpdateResponse());
+		IdBloomFilter filterMock = Mockito.mock(IdBloomFilter.class);
+		solrTemplate.setIdBloomFilter(filterMock);
+
+		SolrInputDocument document = new SolrInputDocument();
+		document.addField("id", "id-1");
+		solrTemplate.saveDocument(document);
+
+		Mockito.verify(filterMock, Mockito.times(1)).putDocuments(Arrays.asList(document));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testQueryForPageAnsweredByReplicatedCoreCache() throws SolrServerException {
+		ReplicatedCoreCache<SimpleJavaObject> cacheMock = Mockito.mock(ReplicatedCoreCache.class);
+		Mockito.when(cacheMock.getEntityClass()).thenReturn(SimpleJavaObject.class);
+		Page<SimpleJavaObject> replicated = new SolrResultPage<SimpleJavaObject>(Arrays.asList(SIMPLE_OBJECT));
+		Mockito.when(cacheMock.query(Mockito.any(Query.class))).thenReturn(replicated);
+		solrTemplate.setReplicatedCoreCaches(Arrays.asList(cacheMock));
+
+		Query query = new SimpleQuery(new Criteria("id").is("simple-string-id"));
+		Assert.assertSame(replicated, solrTemplate.queryForPage(query, SimpleJavaObject.class));
+		Assert.assertSame(SIMPLE_OBJECT, solrTemplate.queryForObject(query, SimpleJavaObject.class));
+		Mockito.verify(solrServerMock, Mockito.never()).query(Mockito.any(SolrParams.class));
+	}
+
+	@Test
+	public void testQueryForPagePassesQueryToQueryRecorder() throws SolrServerException {
+		QueryResponse responseMock = Mockito.mock(QueryResponse.class);
+		Mockito.when(responseMock.getResults()).thenReturn(new SolrDocumentList());
+		Mockito.when(responseMock.getQTime()).thenReturn(7);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(responseMock);
+
+		QueryRecorder recorderMock = Mockito.mock(QueryRecorder.class);
+		solrTemplate.setQueryRecorder(recorderMock);
+		solrTemplate.queryForPage(new SimpleQuery(new SimpleStringCriteria("*:*")), SimpleJavaObject.class);
+
+		ArgumentCaptor<SolrParams> captor = ArgumentCaptor.forClass(SolrParams.class);
+		Mockito.verify(recorderMock, Mockito.times(1)).record(captor.capture(), Mockito.eq(SimpleJavaObject.class),
+				Mockito.anyLong(), Mockito.eq(7));
+		Assert.assertEquals("*:*", captor.getValue().get("q"));
+	}
+
+	@Test
+	public void testQueryForStreamPassesEachDocumentToCallback() throws SolrServerException, IOException {
+		mockStreamingResponse(3);
+
+		final List<SolrDocument> streamed = new ArrayList<SolrDocument>();
+		long numFound = solrTemplate.queryForStream(new SimpleQuery(new SimpleStringCriteria("*:*")), SolrDocument.class,
+				new StreamingResultCallback<SolrDocument>() {
+
+					@Override
+					public void doWithEntity(SolrDocument entity) {
+						streamed.add(entity);
+					}
+				});
+
+		Assert.assertEquals(3, numFound);
+		Assert.assertEquals(3, streamed.size());
+		Assert.assertEquals("id-0", streamed.get(0).getFieldValue("id"));
+		Assert.assertEquals("id-2", streamed.get(2).getFieldValue("id"));
+	}
+
+	@Test
+	public void testQueryForStreamWithBoundedQueue() throws SolrServerException, IOException {
+		mockStreamingResponse(10);
+
+		Cursor<SolrDocument> cursor = solrTemplate.queryForStream(new SimpleQuery(new SimpleStringCriteria("*:*")),
+				SolrDocument.class, 2);
+		int count = 0;
+		while (cursor.hasNext()) {
+			Assert.assertEquals("id-" + count, cursor.next().getFieldValue("id"));
+			count++;
+		}
+		Assert.assertEquals(10, count);
+		Assert.assertEquals(Cursor.State.FINISHED, cursor.getState());
+	}
+
+	private void mockStreamingResponse(final int numFound) throws SolrServerException, IOException {
+		Mockito.when(
+				solrServerMock.queryAndStreamResponse(Mockito.any(SolrParams.class),
+						Mockito.any(StreamingResponseCallback.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				StreamingResponseCallback callback = (StreamingResponseCallback) invocation.getArguments()[1];
+				callback.streamDocListInfo(numFound, 0, null);
+				for (int i = 0; i < numFound; i++) {
+					SolrDocument document = new SolrDocument();
+					document.setField("id", "id-" + i);
+					callback.streamSolrDocument(document);
+				}
+				return new QueryResponse();
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveUpdatesSendsSingleRequest() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1))).thenReturn(
+				new UpdateResponse());
+
+		PartialUpdate update1 = new PartialUpdate("id", "id-1");
+		update1.setValueOfField("price", 10);
+		PartialUpdate update2 = new PartialUpdate("id", "id-2");
+		update2.increaseValueOfField("stock", 1);
+
+		UpdateResult result = solrTemplate.saveUpdates(Arrays.asList(update1, update2));
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).add(captor.capture(), Mockito.eq(-1));
+		Assert.assertEquals(2, captor.getValue().size());
+		Assert.assertEquals(2, result.getUpdatedCount());
+		Assert.assertFalse(result.hasConflicts());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveUpdatesReportsVersionConflictAndResendsRemaining() throws SolrServerException, IOException {
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+		Mockito.when(solrServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1))).thenAnswer(
+				new Answer<UpdateResponse>() {
+
+					@Override
+					public UpdateResponse answer(InvocationOnMock invocation) throws Throwable {
+						List<SolrInputDocument> documents = (List<SolrInputDocument>) invocation.getArguments()[0];
+						batchSizes.add(documents.size());
+						if (batchSizes.size() == 1) {
+							throw new SolrException(ErrorCode.CONFLICT, "version conflict for id-2 expected=1 actual=2");
+						}
+						return new UpdateResponse();
+					}
+				});
+
+		List<PartialUpdate> updates = new ArrayList<PartialUpdate>();
+		for (int i = 1; i <= 4; i++) {
+			PartialUpdate update = new PartialUpdate("id", "id-" + i);
+			update.setValueOfField("price", i);
+			update.setVersion(1L);
+			updates.add(update);
+		}
+
+		UpdateResult result = solrTemplate.saveUpdates(updates);
+
+		Assert.assertEquals(Arrays.asList(4, 2), batchSizes);
+		Assert.assertEquals(3, result.getUpdatedCount());
+		Assert.assertEquals(1, result.getConflicts().size());
+		Assert.assertTrue(result.getConflicts().containsKey("id-2"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(expected = DataAccessException.class)
+	public void testSaveUpdatesRethrowsNonConflictErrors() throws SolrServerException, IOException {
+		Mockito.when(solrServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1))).thenThrow(
+				new SolrException(ErrorCode.BAD_REQUEST, "unknown field"));
+
+		solrTemplate.saveUpdates(Arrays.asList(new PartialUpdate("id", "id-1")));
+	}
+
+	@org.springframework.data.solr.core.mapping.SolrDocument(commitWithin = 5000, batchSize = 2)
+	static class SimpleJavaObjectWithWritePolicy extends SimpleJavaObject {
+
+		public SimpleJavaObjectWithWritePolicy(String id, Long value) {
+			super(id, value);
+		}
+
+	}
+
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SolrDataQuery;
+import org.springframework.data.solr.core.query.result.Cursor;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IdBloomFilterTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	private Object indexVersion = Long.valueOf(1L);
+	private List<String> ids;
+	private IdBloomFilter filter;
+
+	@Before
+	public void setUp() {
+		ids = new ArrayList<String>(Arrays.asList("id-1", "id-2", "id-3"));
+
+		Mockito.when(solrOperationsMock.count(Mockito.any(SolrDataQuery.class))).thenAnswer(new Answer<Long>() {
+
+			@Override
+			public Long answer(InvocationOnMock invocation) {
+				return Long.valueOf(ids.size());
+			}
+		});
+		Mockito.when(
+				solrOperationsMock.queryForCursor(Mockito.any(Query.class), Mockito.eq(SolrDocument.class),
+						Mockito.any(CursorOptions.class))).thenAnswer(new Answer<Cursor<SolrDocument>>() {
+
+			@Override
+			public Cursor<SolrDocument> answer(InvocationOnMock invocation) {
+				Query query = (Query) invocation.getArguments()[0];
+				Assert.assertEquals("id", query.getProjectionOnFields().get(0).getName());
+				Assert.assertEquals("id", ((CursorOptions) invocation.getArguments()[2]).getUniqueKey());
+
+				List<SolrDocument> documents = new ArrayList<SolrDocument>();
+				for (String id : ids) {
+					SolrDocument document = new SolrDocument();
+					document.addField("id", id);
+					documents.add(document);
+				}
+				return cursorOver(documents);
+			}
+		});
+
+		filter = new IdBloomFilter(solrOperationsMock) {
+
+			@Override
+			protected Object readIndexVersion() {
+				return indexVersion;
+			}
+		};
+	}
+
+	@Test
+	public void testEveryIdMightBeContainedBeforeBuilt() {
+		Assert.assertFalse(filter.isReady());
+		Assert.assertTrue(filter.mightContain("unknown"));
+	}
+
+	@Test
+	public void testRefreshBuildsFilterFromStreamedIds() {
+		Assert.assertTrue(filter.refresh());
+
+		Assert.assertTrue(filter.isReady());
+		Assert.assertTrue(filter.mightContain("id-1"));
+		Assert.assertTrue(filter.mightContain("id-3"));
+		Assert.assertFalse(filter.mightContain("unknown"));
+		Assert.assertEquals(1L, filter.getIndexVersion());
+	}
+
+	@Test
+	public void testPutDocumentAddsId() {
+		filter.refresh();
+
+		SolrInputDocument document = new SolrInputDocument();
+		document.addField("id", "id-4");
+		filter.putDocument(document);
+
+		Assert.assertTrue(filter.mightContain("id-4"));
+	}
+
+	@Test
+	public void testRefreshRebuildsOnlyWhenIndexVersionChanged() {
+		filter.refresh();
+		Assert.assertFalse(filter.refresh());
+
+		ids.remove("id-1");
+		indexVersion = Long.valueOf(2L);
+		Assert.assertTrue(filter.refresh());
+		Assert.assertFalse(filter.mightContain("id-1"));
+	}
+
+	@Test
+	public void testRebuildKeepsRecentlyWrittenIds() {
+		filter.refresh();
+		filter.put("id-uncommitted");
+
+		indexVersion = Long.valueOf(2L);
+		filter.refresh();
+		Assert.assertTrue(filter.mightContain("id-uncommitted"));
+	}
+
+	@Test
+	public void testInvalidateDiscardsFilterUntilRebuilt() {
+		filter.refresh();
+		filter.invalidate();
+
+		Assert.assertFalse(filter.isReady());
+		Assert.assertTrue(filter.mightContain("unknown"));
+
+		Assert.assertTrue(filter.refresh());
+		Assert.assertFalse(filter.mightContain("unknown"));
+	}
+
+	@Test
+	public void testPutPrunesExpiredWrites() throws InterruptedException {
+		filter.setWriteRetentionMs(1);
+		filter.refresh();
+		filter.put("id-expired");
+		Thread.sleep(10);
+		filter.put("id-recent");
+
+		ids.clear();
+		indexVersion = Long.valueOf(2L);
+		filter.setWriteRetentionMs(60000);
+		filter.refresh();
+		Assert.assertTrue(filter.mightContain("id-recent"));
+		Assert.assertFalse(filter.mightContain("id-expired"));
+	}
+
+	@Test
+	public void testBitsFalsePositiveProbability() {
+		IdBloomFilter.Bits bits = new IdBloomFilter.Bits(10000, 0.01d);
+		for (int i = 0; i < 10000; i++) {
+			bits.put("member-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			Assert.assertTrue(bits.mightContain("member-" + i));
+			if (bits.mightContain("other-" + i)) {
+				falsePositives++;
+			}
+		}
+		Assert.assertTrue("False positives: " + falsePositives, falsePositives < 200);
+		Assert.assertEquals(7, bits.getHashCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Cursor<SolrDocument> cursorOver(List<SolrDocument> documents) {
+		final Iterator<SolrDocument> iterator = documents.iterator();
+		Cursor<SolrDocument> cursor = Mockito.mock(Cursor.class);
+		Mockito.when(cursor.hasNext()).thenAnswer(new Answer<Boolean>() {
+
+			@Override
+			public Boolean answer(InvocationOnMock invocation) {
+				return iterator.hasNext();
+			}
+		});
+		Mockito.when(cursor.next()).thenAnswer(new Answer<SolrDocument>() {
+
+			@Override
+			public SolrDocument answer(InvocationOnMock invocation) {
+				return iterator.next();
+			}
+		});
+		return cursor;
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.solr.core.SimpleJavaObject;
+import org.springframework.data.solr.core.SolrCallback;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.convert.MappingSolrConverter;
+import org.springframework.data.solr.core.mapping.SimpleSolrMappingContext;
+import org.springframework.data.solr.core.workload.WorkloadClass;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IdLookupBatcherTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	@Mock
+	private SolrServer solrServerMock;
+
+	private IdLookupBatcher batcher;
+	private ExecutorService executor;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setUp() {
+		MappingSolrConverter converter = new MappingSolrConverter(new SimpleSolrMappingContext());
+		converter.afterPropertiesSet();
+		Mockito.when(solrOperationsMock.getConverter()).thenReturn(converter);
+		Mockito.when(solrOperationsMock.execute(Mockito.any(SolrCallback.class), Mockito.eq(WorkloadClass.INTERACTIVE)))
+				.thenAnswer(new Answer<Object>() {
+
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						return ((SolrCallback<?>) invocation.getArguments()[0]).doInSolr(solrServerMock);
+					}
+				});
+		batcher = new IdLookupBatcher(solrOperationsMock);
+		executor = Executors.newFixedThreadPool(5);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentLookupsAreMergedIntoSingleQuery() throws Exception {
+		mockResponse("id-0", "id-2");
+		batcher.setWindowMs(200);
+
+		List<Future<SimpleJavaObject>> futures = submitLookups(3);
+
+		Assert.assertEquals("id-0", futures.get(0).get(5, TimeUnit.SECONDS).getId());
+		Assert.assertNull(futures.get(1).get(5, TimeUnit.SECONDS));
+		Assert.assertEquals("id-2", futures.get(2).get(5, TimeUnit.SECONDS).getId());
+
+		ArgumentCaptor<SolrParams> captor = ArgumentCaptor.forClass(SolrParams.class);
+		Mockito.verify(solrServerMock, Mockito.times(1)).query(captor.capture());
+		Assert.assertEquals("3", captor.getValue().get("rows"));
+		Assert.assertEquals(3, batcher.getLookupCount());
+		Assert.assertEquals(1, batcher.getRequestCount());
+	}
+
+	@Test
+	public void testBatchIsExecutedWhenMaxBatchSizeReached() throws Exception {
+		mockResponse();
+		batcher.setWindowMs(60000);
+		batcher.setMaxBatchSize(2);
+
+		List<Future<SimpleJavaObject>> futures = submitLookups(2);
+
+		for (Future<SimpleJavaObject> future : futures) {
+			Assert.assertNull(future.get(5, TimeUnit.SECONDS));
+		}
+		Assert.assertEquals(1, batcher.getRequestCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFailureIsPropagatedToAllCallersOfBatch() throws Exception {
+		Mockito.doThrow(new DataAccessResourceFailureException("down")).when(solrOperationsMock)
+				.execute(Mockito.any(SolrCallback.class), Mockito.eq(WorkloadClass.INTERACTIVE));
+		batcher.setWindowMs(200);
+
+		List<Future<SimpleJavaObject>> futures = submitLookups(3);
+
+		for (Future<SimpleJavaObject> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				Assert.fail("Expected DataAccessResourceFailureException");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof DataAccessResourceFailureException);
+			}
+		}
+		Assert.assertEquals(1, batcher.getRequestCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testErrorIsPropagatedToAllCallersOfBatch() throws Exception {
+		Mockito.doThrow(new OutOfMemoryError("test")).when(solrOperationsMock)
+				.execute(Mockito.any(SolrCallback.class), Mockito.eq(WorkloadClass.INTERACTIVE));
+		batcher.setWindowMs(200);
+
+		List<Future<SimpleJavaObject>> futures = submitLookups(3);
+
+		for (Future<SimpleJavaObject> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				Assert.fail("Expected OutOfMemoryError");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+			}
+		}
+	}
+
+	@Test
+	public void testCallersOfSameIdGetOwnInstances() throws Exception {
+		mockResponse("id-1");
+		batcher.setWindowMs(200);
+
+		List<Future<SimpleJavaObject>> futures = new ArrayList<Future<SimpleJavaObject>>();
+		for (int i = 0; i < 2; i++) {
+			futures.add(executor.submit(new Callable<SimpleJavaObject>() {
+
+				@Override
+				public SimpleJavaObject call() {
+					return batcher.findById("id-1", SimpleJavaObject.class);
+				}
+			}));
+		}
+
+		SimpleJavaObject first = futures.get(0).get(5, TimeUnit.SECONDS);
+		SimpleJavaObject second = futures.get(1).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("id-1", first.getId());
+		Assert.assertEquals("id-1", second.getId());
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(1, batcher.getRequestCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindByNullIdIsRejected() {
+		batcher.findById(null, SimpleJavaObject.class);
+	}
+
+	private void mockResponse(String... ids) throws Exception {
+		SolrDocumentList documents = new SolrDocumentList();
+		for (String id : ids) {
+			SolrDocument document = new SolrDocument();
+			document.setField("id", id);
+			documents.add(document);
+		}
+		QueryResponse response = Mockito.mock(QueryResponse.class);
+		Mockito.when(response.getResults()).thenReturn(documents);
+		Mockito.when(solrServerMock.query(Mockito.any(SolrParams.class))).thenReturn(response);
+	}
+
+	private List<Future<SimpleJavaObject>> submitLookups(int count) {
+		List<Future<SimpleJavaObject>> futures = new ArrayList<Future<SimpleJavaObject>>(count);
+		for (int i = 0; i < count; i++) {
+			final String id = "id-" + i;
+			futures.add(executor.submit(new Callable<SimpleJavaObject>() {
+
+				@Override
+				public SimpleJavaObject call() {
+					return batcher.findById(id, SimpleJavaObject.class);
+				}
+			}));
+		}
+		return futures;
+	}
+
+}
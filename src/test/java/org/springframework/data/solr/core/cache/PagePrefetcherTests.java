@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * @author agent
+ */
+public class PagePrefetcherTests {
+
+	private PagePrefetcher prefetcher;
+	private RecordingQueryExecution execution;
+
+	@Before
+	public void setUp() {
+		prefetcher = new PagePrefetcher();
+		prefetcher.setTaskExecutor(new TaskExecutorAdapter(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}));
+		execution = new RecordingQueryExecution(100);
+	}
+
+	@Test
+	public void testFirstPageIsNotPrefetched() {
+		prefetcher.execute(createQuery(0, 10), execution);
+
+		Assert.assertEquals(1, execution.starts.size());
+		Assert.assertEquals(0, prefetcher.getPrefetchCount());
+	}
+
+	@Test
+	public void testNextPageIsPrefetchedWhenPagesAreRequestedInOrder() {
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(10, 10), execution);
+
+		Assert.assertEquals(3, execution.starts.size());
+		Assert.assertEquals(Integer.valueOf(20), execution.starts.get(2));
+		Assert.assertEquals(1, prefetcher.getPrefetchCount());
+
+		prefetcher.execute(createQuery(20, 10), execution);
+
+		Assert.assertEquals(1, prefetcher.getHitCount());
+		Assert.assertEquals(4, execution.starts.size());
+		Assert.assertEquals(Integer.valueOf(30), execution.starts.get(3));
+	}
+
+	@Test
+	public void testNoPrefetchingForRandomAccess() {
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(50, 10), execution);
+
+		Assert.assertEquals(2, execution.starts.size());
+		Assert.assertEquals(0, prefetcher.getPrefetchCount());
+	}
+
+	@Test
+	public void testNoPrefetchingForDifferentQuery() {
+		prefetcher.execute(createQuery(0, 10), execution);
+		SolrQuery other = createQuery(10, 10);
+		other.addSort("name", SolrQuery.ORDER.asc);
+		prefetcher.execute(other, execution);
+
+		Assert.assertEquals(2, execution.starts.size());
+		Assert.assertEquals(0, prefetcher.getPrefetchCount());
+	}
+
+	@Test
+	public void testNoPrefetchingBeyondLastPage() {
+		execution = new RecordingQueryExecution(20);
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(10, 10), execution);
+
+		Assert.assertEquals(2, execution.starts.size());
+	}
+
+	@Test
+	public void testClearDiscardsPrefetchedPages() {
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(10, 10), execution);
+		prefetcher.clear();
+		prefetcher.execute(createQuery(20, 10), execution);
+
+		Assert.assertEquals(0, prefetcher.getHitCount());
+		Assert.assertEquals(Integer.valueOf(20), execution.starts.get(3));
+	}
+
+	@Test
+	public void testExpiredPagesAreNotServed() throws InterruptedException {
+		prefetcher = new PagePrefetcher(4, 1);
+		prefetcher.setTaskExecutor(new TaskExecutorAdapter(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}));
+
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(10, 10), execution);
+		Thread.sleep(10);
+		prefetcher.execute(createQuery(20, 10), execution);
+
+		Assert.assertEquals(0, prefetcher.getHitCount());
+	}
+
+	@Test
+	public void testNoPrefetchingWithoutTaskExecutor() {
+		prefetcher = new PagePrefetcher();
+		prefetcher.execute(createQuery(0, 10), execution);
+		prefetcher.execute(createQuery(10, 10), execution);
+
+		Assert.assertEquals(2, execution.starts.size());
+	}
+
+	@Test
+	public void testPrefetchUsesPrefetchExecution() {
+		RecordingQueryExecution prefetchExecution = new RecordingQueryExecution(100);
+		prefetcher.execute(createQuery(0, 10), execution, prefetchExecution, 0);
+		prefetcher.execute(createQuery(10, 10), execution, prefetchExecution, 0);
+
+		Assert.assertEquals(2, execution.starts.size());
+		Assert.assertEquals(1, prefetchExecution.starts.size());
+		Assert.assertEquals(Integer.valueOf(20), prefetchExecution.starts.get(0));
+	}
+
+	@Test
+	public void testPageNotPrefetchedWithinWaitTimeIsRequestedAgain() {
+		prefetcher.setTaskExecutor(new TaskExecutorAdapter(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				// never completes
+			}
+		}));
+
+		prefetcher.execute(createQuery(0, 10), execution, execution, 50);
+		prefetcher.execute(createQuery(10, 10), execution, execution, 50);
+		prefetcher.execute(createQuery(20, 10), execution, execution, 50);
+
+		Assert.assertEquals(0, prefetcher.getHitCount());
+		Assert.assertEquals(3, execution.starts.size());
+		Assert.assertEquals(Integer.valueOf(20), execution.starts.get(2));
+	}
+
+	private SolrQuery createQuery(int start, int rows) {
+		SolrQuery query = new SolrQuery("*:*");
+		query.setStart(start);
+		query.setRows(rows);
+		return query;
+	}
+
+	private static class RecordingQueryExecution implements PagePrefetcher.QueryExecution {
+
+		private final List<Integer> starts = new ArrayList<Integer>();
+		private final long numFound;
+
+		RecordingQueryExecution(long numFound) {
+			this.numFound = numFound;
+		}
+
+		@Override
+		public QueryResponse execute(SolrQuery query) {
+			starts.add(query.getStart());
+
+			SolrDocumentList documents = new SolrDocumentList();
+			documents.setNumFound(numFound);
+			QueryResponse response = Mockito.mock(QueryResponse.class);
+			Mockito.when(response.getResults()).thenReturn(documents);
+			return response;
+		}
+
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * @author agent
+ */
+public class QueryCoalescerTests {
+
+	private QueryCoalescer coalescer;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		coalescer = new QueryCoalescer();
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testIdenticalRequestsInFlightAreSentOnce() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger loads = new AtomicInteger();
+
+		final QueryResultCache.Loader<Object> loader = new QueryResultCache.Loader<Object>() {
+
+			@Override
+			public Object load() {
+				loads.incrementAndGet();
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new Object();
+			}
+		};
+
+		Future<Object> first = executor.submit(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return coalescer.execute(new SolrQuery("*:*"), loader);
+			}
+		});
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		Future<Object> second = executor.submit(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return coalescer.execute(new SolrQuery("*:*"), loader);
+			}
+		});
+		for (int i = 0; i < 500 && coalescer.getCoalescedCount() == 0; i++) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		Assert.assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, loads.get());
+		Assert.assertEquals(1, coalescer.getExecutedCount());
+		Assert.assertEquals(1, coalescer.getCoalescedCount());
+		Assert.assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void testSequentialRequestsAreNotCoalesced() {
+		CountingLoader loader = new CountingLoader();
+		coalescer.execute(new SolrQuery("*:*"), loader);
+		coalescer.execute(new SolrQuery("*:*"), loader);
+
+		Assert.assertEquals(2, loader.count.get());
+		Assert.assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test(expected = DataAccessResourceFailureException.class)
+	public void testFailureIsPropagated() {
+		coalescer.execute(new SolrQuery("*:*"), new QueryResultCache.Loader<Object>() {
+
+			@Override
+			public Object load() {
+				throw new DataAccessResourceFailureException("solr down");
+			}
+		});
+	}
+
+	@Test
+	public void testErrorIsPropagatedToWaitingRequests() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final QueryResultCache.Loader<Object> loader = new QueryResultCache.Loader<Object>() {
+
+			@Override
+			public Object load() {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				throw new OutOfMemoryError("test");
+			}
+		};
+
+		Future<Object> first = executor.submit(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return coalescer.execute(new SolrQuery("*:*"), loader);
+			}
+		});
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		Future<Object> second = executor.submit(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return coalescer.execute(new SolrQuery("*:*"), loader);
+			}
+		});
+		for (int i = 0; i < 500 && coalescer.getCoalescedCount() == 0; i++) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		assertFailsWithError(first);
+		assertFailsWithError(second);
+		Assert.assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void testWaitingRequestGivesUpAfterItsOwnTimeout() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Future<Object> first = executor.submit(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return coalescer.execute(new SolrQuery("*:*"), new QueryResultCache.Loader<Object>() {
+
+					@Override
+					public Object load() {
+						started.countDown();
+						try {
+							release.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return new Object();
+					}
+				});
+			}
+		});
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		try {
+			coalescer.execute(new SolrQuery("*:*"), new CountingLoader(), 50);
+			Assert.fail("QueryTimeoutException expected");
+		} catch (QueryTimeoutException e) {
+			// expected
+		} finally {
+			release.countDown();
+		}
+
+		Assert.assertNotNull(first.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, coalescer.getExecutedCount());
+	}
+
+	private void assertFailsWithError(Future<Object> future) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail("ExecutionException expected");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+		}
+	}
+
+	private static class CountingLoader implements QueryResultCache.Loader<Object> {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Object load() {
+			return count.incrementAndGet();
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * @author agent
+ */
+public class QueryResultCacheTests {
+
+	private QueryResultCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new QueryResultCache(2, 60000);
+	}
+
+	@Test
+	public void testKeyIgnoresParameterOrder() {
+		SolrQuery query1 = new SolrQuery("*:*");
+		query1.addFilterQuery("field_1:value1");
+		query1.setRows(10);
+
+		SolrQuery query2 = new SolrQuery();
+		query2.setRows(10);
+		query2.addFilterQuery("field_1:value1");
+		query2.setQuery("*:*");
+
+		Assert.assertEquals(new QueryResultCache.Key(query1, String.class, Object.class), new QueryResultCache.Key(query2,
+				String.class, Object.class));
+		Assert.assertFalse(new QueryResultCache.Key(query1, String.class, Object.class).equals(new QueryResultCache.Key(
+				query2, String.class, Integer.class)));
+	}
+
+	@Test
+	public void testKeyDistinguishesSeparatorsWithinValues() {
+		ModifiableSolrParams params1 = new ModifiableSolrParams();
+		params1.add("q", "a&fq=b");
+
+		ModifiableSolrParams params2 = new ModifiableSolrParams();
+		params2.add("q", "a");
+		params2.add("fq", "b");
+
+		Assert.assertFalse(new QueryResultCache.Key(params1, String.class, null).equals(new QueryResultCache.Key(params2,
+				String.class, null)));
+	}
+
+	@Test
+	public void testGetLoadsOnlyOnce() {
+		CountingLoader loader = new CountingLoader();
+		QueryResultCache.Key key = key("*:*");
+
+		Assert.assertEquals("result-1", cache.get(key, loader));
+		Assert.assertEquals("result-1", cache.get(key, loader));
+		Assert.assertEquals(1, loader.count.get());
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testEldestEntryIsEvicted() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(key("q1"), loader);
+		cache.get(key("q2"), loader);
+		cache.get(key("q3"), loader);
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testClearRemovesEntries() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(key("*:*"), loader);
+		cache.clear();
+
+		Assert.assertEquals("result-2", cache.get(key("*:*"), loader));
+	}
+
+	@Test
+	public void testIndexVersionChangeInvalidatesEntries() {
+		CountingLoader loader = new CountingLoader();
+		cache.setIndexVersion(1L);
+		cache.get(key("*:*"), loader);
+
+		cache.setIndexVersion(1L);
+		Assert.assertEquals("result-1", cache.get(key("*:*"), loader));
+
+		cache.setIndexVersion(2L);
+		Assert.assertEquals("result-2", cache.get(key("*:*"), loader));
+	}
+
+	@Test
+	public void testServeStaleIfError() {
+		cache.setStaleIfErrorMs(60000);
+		cache.get(key("*:*"), new CountingLoader());
+		cache.invalidate();
+
+		Assert.assertEquals("result-1", cache.get(key("*:*"), new QueryResultCache.Loader<String>() {
+
+			@Override
+			public String load() {
+				throw new DataAccessResourceFailureException("solr down");
+			}
+		}));
+		Assert.assertEquals(1, cache.getStaleHitCount());
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testDoNotServeStaleForInvalidQuery() {
+		cache.setStaleIfErrorMs(60000);
+		cache.get(key("*:*"), new CountingLoader());
+		cache.invalidate();
+
+		cache.get(key("*:*"), new QueryResultCache.Loader<String>() {
+
+			@Override
+			public String load() {
+				throw new InvalidDataAccessApiUsageException("bad query");
+			}
+		});
+	}
+
+	@Test
+	public void testServeStaleWhileRevalidating() throws InterruptedException {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setDaemon(true);
+		cache.setTaskExecutor(executor);
+		cache.setStaleWhileRevalidateMs(60000);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		final CountingLoader loader = new CountingLoader();
+		cache.get(key("*:*"), loader);
+		cache.invalidate();
+
+		Assert.assertEquals("result-1", cache.get(key("*:*"), new QueryResultCache.Loader<String>() {
+
+			@Override
+			public String load() {
+				try {
+					return loader.load();
+				} finally {
+					latch.countDown();
+				}
+			}
+		}));
+
+		Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 50; i++) {
+			if ("result-2".equals(cache.get(key("*:*"), loader))) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		Assert.assertEquals("result-2", cache.get(key("*:*"), loader));
+	}
+
+	private QueryResultCache.Key key(String query) {
+		return new QueryResultCache.Key(new SolrQuery(query), String.class, null);
+	}
+
+	private static class CountingLoader implements QueryResultCache.Loader<String> {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public String load() {
+			return "result-" + count.incrementAndGet();
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.solr.ExampleSolrBean;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.convert.MappingSolrConverter;
+import org.springframework.data.solr.core.mapping.SimpleSolrMappingContext;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleFacetQuery;
+import org.springframework.data.solr.core.query.SimpleFilterQuery;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.SolrDataQuery;
+import org.springframework.data.solr.core.query.result.StreamingResultCallback;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicatedCoreCacheTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	private Object indexVersion = Long.valueOf(1L);
+	private Set<String> exactMatchFields = new HashSet<String>(Arrays.asList("id", "name", "cat", "unknown_field"));
+	private List<ExampleSolrBean> documents;
+	private ReplicatedCoreCache<ExampleSolrBean> cache;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setUp() {
+		documents = Arrays.asList(new ExampleSolrBean("1", "bravo", "books"), new ExampleSolrBean("2", "alpha", "music"),
+				new ExampleSolrBean("3", "charlie", "books"));
+		documents.get(2).getCategory().add("music");
+
+		Mockito.when(solrOperationsMock.getConverter()).thenReturn(
+				new MappingSolrConverter(new SimpleSolrMappingContext()));
+		Mockito.when(solrOperationsMock.count(Mockito.any(SolrDataQuery.class))).thenAnswer(new Answer<Long>() {
+
+			@Override
+			public Long answer(InvocationOnMock invocation) {
+				return Long.valueOf(documents.size());
+			}
+		});
+		Mockito.when(
+				solrOperationsMock.queryForStream(Mockito.any(Query.class), Mockito.eq(ExampleSolrBean.class),
+						Mockito.any(StreamingResultCallback.class))).thenAnswer(new Answer<Long>() {
+
+			@Override
+			public Long answer(InvocationOnMock invocation) {
+				StreamingResultCallback<ExampleSolrBean> callback = (StreamingResultCallback<ExampleSolrBean>) invocation
+						.getArguments()[2];
+				for (ExampleSolrBean document : documents) {
+					callback.doWithEntity(document);
+				}
+				return Long.valueOf(documents.size());
+			}
+		});
+
+		cache = new ReplicatedCoreCache<ExampleSolrBean>(solrOperationsMock, ExampleSolrBean.class) {
+
+			@Override
+			protected Object readIndexVersion() {
+				return indexVersion;
+			}
+
+			@Override
+			protected Set<String> readExactMatchFields() {
+				return exactMatchFields;
+			}
+		};
+	}
+
+	@Test
+	public void testQueryReturnsNullWithoutSnapshot() {
+		Assert.assertFalse(cache.isReady());
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("id").is("1"))));
+	}
+
+	@Test
+	public void testFindByIdAndFindAll() {
+		Assert.assertTrue(cache.refresh());
+
+		Assert.assertEquals("charlie", cache.findById("3").getName());
+		Assert.assertNull(cache.findById("4"));
+		Assert.assertEquals(3, cache.findAll().size());
+		Assert.assertEquals(1L, cache.getIndexVersion());
+	}
+
+	@Test
+	public void testQueryWithEqualityAndInCriteria() {
+		cache.refresh();
+
+		Page<ExampleSolrBean> page = cache.query(new SimpleQuery(new Criteria("cat").in("books", "music")
+				.and("name").is("charlie")));
+		Assert.assertEquals(1, page.getTotalElements());
+		Assert.assertEquals("3", page.getContent().get(0).getId());
+
+		page = cache.query(new SimpleQuery(new Criteria("name").is("alpha").or("name").is("bravo")));
+		Assert.assertEquals(2, page.getTotalElements());
+	}
+
+	@Test
+	public void testQueryAppliesFilterQuerySortAndPagination() {
+		cache.refresh();
+
+		Query query = new SimpleQuery(new Criteria(Criteria.WILDCARD).expression(Criteria.WILDCARD))
+				.addFilterQuery(new SimpleFilterQuery(new Criteria("cat").is("music")))
+				.addSort(new Sort(Sort.Direction.DESC, "name")).setPageRequest(new PageRequest(0, 1));
+
+		Page<ExampleSolrBean> page = cache.query(query);
+		Assert.assertEquals(2, page.getTotalElements());
+		Assert.assertEquals(1, page.getContent().size());
+		Assert.assertEquals("charlie", page.getContent().get(0).getName());
+	}
+
+	@Test
+	public void testUnsupportedQueriesAreLeftToSolr() {
+		cache.refresh();
+
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("name").startsWith("al"))));
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("name").is("alpha").not())));
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("unknown_field").is("alpha"))));
+		Assert.assertNull(cache.query(new SimpleFacetQuery(new Criteria("name").is("alpha"))));
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("name").is("alpha")).addProjectionOnField("id")));
+	}
+
+	@Test
+	public void testQueryOnFieldNotExactMatchInSchemaIsLeftToSolr() {
+		exactMatchFields.remove("name");
+		cache.refresh();
+
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("name").is("alpha"))));
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("cat").is("music")).addSort(
+				new Sort(Sort.Direction.DESC, "name"))));
+		Assert.assertEquals(2, cache.query(new SimpleQuery(new Criteria("cat").is("music"))).getTotalElements());
+	}
+
+	@Test
+	public void testLocalFieldsOverrideSchema() {
+		cache.setLocalFields(Collections.singletonList("cat"));
+		cache.refresh();
+
+		Assert.assertNull(cache.query(new SimpleQuery(new Criteria("name").is("alpha"))));
+		Assert.assertEquals(2, cache.query(new SimpleQuery(new Criteria("cat").is("music"))).getTotalElements());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetLocalFieldsRejectsUnmappedField() {
+		cache.setLocalFields(Collections.singletonList("unknown_field"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRefreshReloadsOnlyWhenIndexVersionChanged() {
+		Assert.assertTrue(cache.refresh());
+		Assert.assertFalse(cache.refresh());
+
+		indexVersion = Long.valueOf(2L);
+		Assert.assertTrue(cache.refresh());
+		Mockito.verify(solrOperationsMock, Mockito.times(2)).queryForStream(Mockito.any(Query.class),
+				Mockito.eq(ExampleSolrBean.class), Mockito.any(StreamingResultCallback.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCoreExceedingMaxDocumentsIsNotReplicated() {
+		cache.setMaxDocuments(2);
+
+		Assert.assertFalse(cache.refresh());
+		Assert.assertFalse(cache.isReady());
+		Mockito.verify(solrOperationsMock, Mockito.never()).queryForStream(Mockito.any(Query.class),
+				Mockito.eq(ExampleSolrBean.class), Mockito.any(StreamingResultCallback.class));
+	}
+
+}
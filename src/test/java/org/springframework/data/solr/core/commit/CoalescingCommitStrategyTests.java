@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.commit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CoalescingCommitStrategyTests {
+
+	private CoalescingCommitStrategy strategy;
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	@Mock
+	private SolrOperations otherSolrOperationsMock;
+
+	@Before
+	public void setUp() {
+		strategy = new CoalescingCommitStrategy(60000);
+	}
+
+	@After
+	public void tearDown() {
+		strategy.destroy();
+	}
+
+	@Test
+	public void testCommitsWithinWindowAreMerged() {
+		for (int i = 0; i < 100; i++) {
+			strategy.afterWrite(solrOperationsMock);
+		}
+		Mockito.verify(solrOperationsMock, Mockito.never()).commit();
+
+		strategy.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).commit();
+		Assert.assertEquals(100, strategy.getRequestedCommits());
+		Assert.assertEquals(1, strategy.getExecutedCommits());
+	}
+
+	@Test
+	public void testCommitsArePerSolrOperations() {
+		strategy.afterWrite(solrOperationsMock);
+		strategy.afterWrite(otherSolrOperationsMock);
+		strategy.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).commit();
+		Mockito.verify(otherSolrOperationsMock, Mockito.times(1)).commit();
+	}
+
+	@Test
+	public void testSoftCommit() {
+		strategy.destroy();
+		strategy = new CoalescingCommitStrategy(60000, true);
+		strategy.afterWrite(solrOperationsMock);
+		strategy.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).softCommit();
+		Mockito.verify(solrOperationsMock, Mockito.never()).commit();
+	}
+
+	@Test
+	public void testCommitIsSentWhenWindowCloses() {
+		strategy.destroy();
+		strategy = new CoalescingCommitStrategy(10);
+		strategy.afterWrite(solrOperationsMock);
+
+		Mockito.verify(solrOperationsMock, Mockito.timeout(5000).times(1)).commit();
+	}
+
+	@Test
+	public void testPendingCommitIsSentOnDestroy() {
+		strategy.afterWrite(solrOperationsMock);
+		strategy.destroy();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).commit();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWindow() {
+		new CoalescingCommitStrategy(0);
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.solr.common.SolrDocument;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.export.DocumentExporter.Format;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.result.Cursor;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentExporterTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	private DocumentExporter exporter;
+
+	@Before
+	public void setUp() {
+		exporter = new DocumentExporter(solrOperationsMock);
+	}
+
+	@Test
+	public void testExportNdjson() {
+		mockCursor(createDocument("1", "foo", Arrays.asList("a", "b")), createDocument("2", "say \"hi\"\n", null));
+
+		Assert.assertEquals("{\"id\":\"1\",\"name\":\"foo\",\"tags\":[\"a\",\"b\"]}\n"
+				+ "{\"id\":\"2\",\"name\":\"say \\\"hi\\\"\\n\"}\n", export());
+	}
+
+	@Test
+	public void testExportCsvWithFields() {
+		mockCursor(createDocument("1", "foo,bar", Arrays.asList("a", "b")), createDocument("2", "baz", null));
+		exporter.setFormat(Format.CSV);
+		exporter.setFields(Arrays.asList("id", "tags", "name"));
+
+		Assert.assertEquals("id,tags,name\n1,a|b,\"foo,bar\"\n2,,baz\n", export());
+	}
+
+	@Test
+	public void testExportCsvWritesHeaderForEmptyResult() {
+		mockCursor();
+		exporter.setFormat(Format.CSV);
+		exporter.setFields(Arrays.asList("id", "name"));
+
+		Assert.assertEquals("id,name\n", export());
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testExportCsvRequiresFields() {
+		mockCursor(createDocument("1", "foo", null), createDocument("2", "bar", Arrays.asList("a")));
+		exporter.setFormat(Format.CSV);
+
+		export();
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testExportCsvRejectsWildcardProjection() {
+		exporter.setFormat(Format.CSV);
+
+		exporter.export(new SimpleQuery(new Criteria("name").is("foo")).addProjectionOnField("*_s"),
+				Channels.newChannel(new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testExportAddsProjectionAndUsesCursorOptions() {
+		mockCursor();
+		exporter.setFields(Arrays.asList("id", "name"));
+		exporter.setChunkSize(500);
+		exporter.setPrefetchDepth(3);
+		Query query = new SimpleQuery(new Criteria("name").is("foo")).addProjectionOnField("id");
+
+		exporter.export(query, Channels.newChannel(new ByteArrayOutputStream()));
+		exporter.export(query, Channels.newChannel(new ByteArrayOutputStream()));
+
+		Assert.assertEquals(1, query.getProjectionOnFields().size());
+		ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<CursorOptions> captor = ArgumentCaptor.forClass(CursorOptions.class);
+		Mockito.verify(solrOperationsMock, Mockito.times(2)).queryForCursor(queryCaptor.capture(),
+				Mockito.eq(SolrDocument.class), captor.capture());
+		Assert.assertNotSame(query, queryCaptor.getValue());
+		Assert.assertEquals(query.getCriteria(), queryCaptor.getValue().getCriteria());
+		Assert.assertEquals(2, queryCaptor.getValue().getProjectionOnFields().size());
+		Assert.assertEquals(500, captor.getValue().getChunkSize());
+		Assert.assertEquals(3, captor.getValue().getPrefetchDepth());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testExportRejectsSortedQuery() {
+		exporter.export(new SimpleQuery(new Criteria("name").is("foo")).addSort(new Sort("name")),
+				Channels.newChannel(new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testExportWithSmallBufferWritesAllDocuments() {
+		mockCursor(createDocument("1", "foo", null), createDocument("2", "bar", null),
+				createDocument("3", "baz", null));
+		exporter.setBufferSize(8);
+
+		Assert.assertEquals(3, export().split("\n").length);
+	}
+
+	@Test
+	public void testExportToFile() throws IOException {
+		mockCursor(createDocument("1", "foo", null));
+		File file = File.createTempFile("export", ".json");
+		file.deleteOnExit();
+
+		Assert.assertEquals(1, exporter.export(new SimpleQuery(new Criteria("name").is("foo")), file));
+		Assert.assertEquals("{\"id\":\"1\",\"name\":\"foo\"}\n",
+				new String(FileCopyUtils.copyToByteArray(new FileInputStream(file)), "UTF-8"));
+	}
+
+	private String export() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.export(new SimpleQuery(new Criteria("name").is("foo")), Channels.newChannel(out));
+		try {
+			return out.toString("UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void mockCursor(SolrDocument... documents) {
+		Mockito.when(
+				solrOperationsMock.queryForCursor(Mockito.any(Query.class), Mockito.eq(SolrDocument.class),
+						Mockito.any(CursorOptions.class))).thenReturn(new ListCursor(Arrays.asList(documents)));
+	}
+
+	private SolrDocument createDocument(String id, String name, List<String> tags) {
+		SolrDocument document = new SolrDocument();
+		document.setField("id", id);
+		document.setField("name", name);
+		if (tags != null) {
+			document.setField("tags", tags);
+		}
+		return document;
+	}
+
+	private static class ListCursor implements Cursor<SolrDocument> {
+
+		private final Iterator<SolrDocument> iterator;
+		private long position = 0;
+		private State state = State.OPEN;
+
+		ListCursor(List<SolrDocument> documents) {
+			this.iterator = documents.iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public SolrDocument next() {
+			position++;
+			return iterator.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			state = State.CLOSED;
+		}
+
+		@Override
+		public Cursor<SolrDocument> open() {
+			return this;
+		}
+
+		@Override
+		public long getPosition() {
+			return position;
+		}
+
+		@Override
+		public String getCursorMark() {
+			return null;
+		}
+
+		@Override
+		public State getState() {
+			return state;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return State.OPEN.equals(state);
+		}
+
+		@Override
+		public boolean isClosed() {
+			return State.CLOSED.equals(state);
+		}
+
+	}
+
+}
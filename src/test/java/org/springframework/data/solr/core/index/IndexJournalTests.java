@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * @author agent
+ */
+public class IndexJournalTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private IndexJournal journal;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("journal");
+		journal = new IndexJournal(directory, 64, false);
+	}
+
+	@After
+	public void tearDown() {
+		journal.close();
+	}
+
+	@Test
+	public void testReadReturnsAppendedRecordsInOrder() throws IOException {
+		journal.append((byte) 1, "one".getBytes());
+		journal.append((byte) 2, "two".getBytes());
+
+		IndexJournal.Batch batch = journal.read(journal.getCheckpoint(), 10);
+
+		Assert.assertEquals(2, batch.getRecords().size());
+		Assert.assertEquals(1, batch.getRecords().get(0).getType());
+		Assert.assertEquals("one", new String(batch.getRecords().get(0).getPayload()));
+		Assert.assertEquals("two", new String(batch.getRecords().get(1).getPayload()));
+		Assert.assertEquals(journal.getWritePosition(), batch.getNext());
+	}
+
+	@Test
+	public void testReadRespectsMaxRecords() throws IOException {
+		journal.append((byte) 1, "one".getBytes());
+		journal.append((byte) 1, "two".getBytes());
+
+		IndexJournal.Batch batch = journal.read(journal.getCheckpoint(), 1);
+
+		Assert.assertEquals(1, batch.getRecords().size());
+		Assert.assertEquals(batch.getRecords().get(0).getNext(), batch.getNext());
+	}
+
+	@Test
+	public void testAppendRollsSegmentsAndCheckpointDeletesConsumedSegments() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			journal.append((byte) 1, ("record-" + i).getBytes());
+		}
+		Assert.assertTrue(journal.getWritePosition().getSegment() > 0);
+
+		IndexJournal.Batch batch = journal.read(journal.getCheckpoint(), 100);
+		Assert.assertEquals(10, batch.getRecords().size());
+		Assert.assertEquals("record-9", new String(batch.getRecords().get(9).getPayload()));
+
+		journal.checkpoint(batch.getNext());
+		Assert.assertEquals(0, journal.getPendingBytes());
+		Assert.assertEquals(1, directory.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(IndexJournal.SEGMENT_SUFFIX);
+			}
+		}).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAppendRejectsRecordsLargerThanSegment() throws IOException {
+		journal.append((byte) 1, new byte[64]);
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testAppendToClosedJournalIsRejected() throws IOException {
+		journal.close();
+		journal.append((byte) 1, "one".getBytes());
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testReadFromClosedJournalIsRejected() throws IOException {
+		journal.append((byte) 1, "one".getBytes());
+		journal.read(journal.getCheckpoint(), 10);
+		journal.close();
+		journal.read(journal.getCheckpoint(), 10);
+	}
+
+	@Test
+	public void testReadContinuesAfterCheckpointDeletedSegmentBeingRead() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			journal.append((byte) 1, ("record-" + i).getBytes());
+		}
+
+		IndexJournal.Batch first = journal.read(journal.getCheckpoint(), 3);
+		journal.checkpoint(first.getNext());
+		IndexJournal.Batch second = journal.read(journal.getCheckpoint(), 100);
+		journal.checkpoint(second.getNext());
+
+		Assert.assertEquals(7, second.getRecords().size());
+		Assert.assertEquals("record-3", new String(second.getRecords().get(0).getPayload()));
+		Assert.assertEquals("record-9", new String(second.getRecords().get(6).getPayload()));
+
+		journal.append((byte) 1, "record-10".getBytes());
+		IndexJournal.Batch third = journal.read(journal.getCheckpoint(), 100);
+		Assert.assertEquals(1, third.getRecords().size());
+		Assert.assertEquals("record-10", new String(third.getRecords().get(0).getPayload()));
+	}
+
+	@Test
+	public void testReopenRecoversRecordsAndCheckpoint() throws IOException {
+		for (int i = 0; i < 6; i++) {
+			journal.append((byte) 1, ("record-" + i).getBytes());
+		}
+		IndexJournal.Batch consumed = journal.read(journal.getCheckpoint(), 2);
+		journal.checkpoint(consumed.getNext());
+		IndexJournal.Position writePosition = journal.getWritePosition();
+		journal.close();
+
+		journal = new IndexJournal(directory, 64, false);
+
+		Assert.assertEquals(writePosition, journal.getWritePosition());
+		IndexJournal.Batch batch = journal.read(journal.getCheckpoint(), 100);
+		Assert.assertEquals(4, batch.getRecords().size());
+		Assert.assertEquals("record-2", new String(batch.getRecords().get(0).getPayload()));
+
+		journal.append((byte) 1, "record-6".getBytes());
+		Assert.assertEquals(5, journal.read(journal.getCheckpoint(), 100).getRecords().size());
+	}
+
+}
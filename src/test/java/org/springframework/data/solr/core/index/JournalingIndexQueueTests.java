@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.solr.client.solrj.impl.HttpSolrServer.RemoteSolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class JournalingIndexQueueTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	private File directory;
+	private JournalingIndexQueue queue;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("journal");
+		queue = createQueue(solrOperationsMock);
+	}
+
+	@After
+	public void tearDown() {
+		queue.close();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testSendsOperationsInOrder() {
+		queue.setPollIntervalMs(200);
+		queue.start();
+		queue.add(createDocument("1"));
+		queue.add(createDocument("2"));
+		queue.deleteById("3");
+		queue.add(createDocument("4"));
+		queue.flush();
+
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		InOrder inOrder = Mockito.inOrder(solrOperationsMock);
+		inOrder.verify(solrOperationsMock).saveDocuments(captor.capture(), Mockito.eq(-1));
+		inOrder.verify(solrOperationsMock).deleteById(Arrays.asList("3"), -1);
+		inOrder.verify(solrOperationsMock).saveDocuments(captor.capture(), Mockito.eq(-1));
+
+		List<SolrInputDocument> first = new ArrayList<SolrInputDocument>(captor.getAllValues().get(0));
+		Assert.assertEquals(2, first.size());
+		Assert.assertEquals("1", first.get(0).getFieldValue("id"));
+		Assert.assertEquals("2", first.get(1).getFieldValue("id"));
+		Assert.assertEquals(3, queue.getIndexedCount());
+		Assert.assertEquals(1, queue.getDeletedCount());
+		Assert.assertEquals(0, queue.getPendingBytes());
+	}
+
+	@Test
+	public void testRetriesWhileSolrIsUnavailable() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt()))
+				.thenThrow(new DataAccessResourceFailureException("unavailable")).thenReturn(null);
+		queue.start();
+		queue.add(createDocument("1"));
+		queue.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(2)).saveDocuments(
+				Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt());
+		Assert.assertEquals(1, queue.getIndexedCount());
+		Assert.assertEquals(0, queue.getFailedCount());
+	}
+
+	@Test
+	public void testSkipsBatchRejectedAsBadRequest() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt()))
+				.thenThrow(new InvalidDataAccessApiUsageException("bad request"));
+		queue.start();
+		queue.add(createDocument("1"));
+		queue.flush();
+
+		Assert.assertEquals(1, queue.getFailedCount());
+		Assert.assertEquals(0, queue.getIndexedCount());
+	}
+
+	@Test
+	public void testSkipsBatchRejectedByRemoteSolrAsBadRequest() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt()))
+				.thenThrow(
+						new UncategorizedSolrException("unknown field", new RemoteSolrException(400, "unknown field", null)));
+		queue.start();
+		queue.add(createDocument("1"));
+		queue.add(createDocument("2"));
+		queue.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).saveDocuments(
+				Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt());
+		Assert.assertEquals(2, queue.getFailedCount());
+		Assert.assertEquals(0, queue.getIndexedCount());
+	}
+
+	@Test
+	public void testPendingOperationsSurviveRestart() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt()))
+				.thenThrow(new UncategorizedSolrException("connection refused", null));
+		queue.start();
+		queue.add(createDocument("1"));
+		queue.add(createDocument("2"));
+		queue.close();
+
+		SolrOperations restartedSolrOperationsMock = Mockito.mock(SolrOperations.class);
+		queue = createQueue(restartedSolrOperationsMock);
+		queue.start();
+		queue.flush();
+
+		Mockito.verify(restartedSolrOperationsMock, Mockito.times(1)).saveDocuments(
+				Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt());
+		Assert.assertEquals(2, queue.getIndexedCount());
+	}
+
+	@Test(expected = TransientDataAccessResourceException.class)
+	public void testRejectsOperationsWhenMaxPendingBytesExceeded() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.anyInt()))
+				.thenThrow(new DataAccessResourceFailureException("unavailable"));
+		queue.setMaxPendingBytes(1);
+		queue.start();
+
+		queue.add(createDocument("1"));
+		queue.add(createDocument("2"));
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testAddThrowsExceptionWhenNotRunning() {
+		queue.add(createDocument("1"));
+	}
+
+	private JournalingIndexQueue createQueue(SolrOperations solrOperations) {
+		JournalingIndexQueue queue = new JournalingIndexQueue(solrOperations, directory);
+		queue.setSegmentSize(4096);
+		queue.setPollIntervalMs(5);
+		queue.setRetryIntervalMs(10);
+		return queue;
+	}
+
+	private SolrInputDocument createDocument(String id) {
+		SolrInputDocument document = new SolrInputDocument();
+		document.addField("id", id);
+		document.addField("name", "name-" + id);
+		return document;
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.solr.UncategorizedSolrException;
+import org.springframework.data.solr.core.SolrOperations;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SolrBulkIndexerTests {
+
+	private SolrBulkIndexer indexer;
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	@Before
+	public void setUp() {
+		Mockito.when(solrOperationsMock.convertBeanToSolrInputDocument(Mockito.any())).thenAnswer(
+				new Answer<SolrInputDocument>() {
+
+					@Override
+					public SolrInputDocument answer(InvocationOnMock invocation) {
+						SolrInputDocument document = new SolrInputDocument();
+						document.addField("id", invocation.getArguments()[0]);
+						return document;
+					}
+				});
+
+		indexer = new SolrBulkIndexer(solrOperationsMock);
+		indexer.setMaxBatchSize(10);
+		indexer.setMinBatchSize(1);
+		indexer.setTargetLatencyMs(10000);
+		indexer.setMaxLatencyMs(10000);
+	}
+
+	@After
+	public void tearDown() {
+		indexer.close();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testAddSendsBatches() {
+		indexer.afterPropertiesSet();
+		for (int i = 0; i < 25; i++) {
+			indexer.add("id-" + i);
+		}
+		indexer.flush();
+
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		Mockito.verify(solrOperationsMock, Mockito.atLeast(3)).saveDocuments(captor.capture(), Mockito.eq(-1));
+
+		int total = 0;
+		for (Collection batch : captor.getAllValues()) {
+			Assert.assertTrue(batch.size() <= 10);
+			total += batch.size();
+		}
+		Assert.assertEquals(25, total);
+		Assert.assertEquals(25, indexer.getIndexedCount());
+	}
+
+	@Test
+	public void testFlushReturnsWhileOtherProducersKeepAdding() throws InterruptedException {
+		indexer.setWorkers(2);
+		indexer.afterPropertiesSet();
+		final AtomicBoolean producing = new AtomicBoolean(true);
+		Thread producer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				int i = 0;
+				while (producing.get()) {
+					indexer.add("other-" + i++);
+				}
+			}
+		});
+		producer.start();
+
+		try {
+			for (int i = 0; i < 5; i++) {
+				indexer.add("id-" + i);
+			}
+			indexer.flush();
+			Assert.assertTrue(indexer.getIndexedCount() >= 5);
+		} finally {
+			producing.set(false);
+			producer.join(5000);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDeleteSendsPendingDocumentsFirst() {
+		indexer.afterPropertiesSet();
+		indexer.add("id-1");
+		indexer.deleteById("id-2");
+		indexer.flush();
+
+		InOrder inOrder = Mockito.inOrder(solrOperationsMock);
+		inOrder.verify(solrOperationsMock).saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class),
+				Mockito.eq(-1));
+		inOrder.verify(solrOperationsMock).deleteById(Mockito.anyCollectionOf(String.class), Mockito.eq(-1));
+		Assert.assertEquals(1, indexer.getDeletedCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFailedBatchIsRetriedAndCounted() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1)))
+				.thenThrow(new UncategorizedSolrException("error", null));
+
+		indexer.setTargetLatencyMs(1);
+		indexer.setMaxRetries(1);
+		indexer.afterPropertiesSet();
+		indexer.add("id-1");
+		indexer.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(2)).saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class),
+				Mockito.eq(-1));
+		Assert.assertEquals(1, indexer.getFailedCount());
+		Assert.assertEquals(0, indexer.getIndexedCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBatchFailingWithUnexpectedExceptionIsCountedAndNotRetried() {
+		Mockito.when(solrOperationsMock.saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1)))
+				.thenThrow(new IllegalStateException("unexpected"));
+
+		indexer.setMaxRetries(3);
+		indexer.afterPropertiesSet();
+		indexer.add("id-1");
+		indexer.flush();
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).saveDocuments(Mockito.anyCollectionOf(SolrInputDocument.class),
+				Mockito.eq(-1));
+		Assert.assertEquals(1, indexer.getFailedCount());
+		Assert.assertEquals(0, indexer.getIndexedCount());
+	}
+
+	@Test
+	public void testAdaptBatchSize() {
+		indexer.afterPropertiesSet();
+		Assert.assertEquals(10, indexer.getCurrentBatchSize());
+
+		indexer.adaptBatchSize(0, true);
+		Assert.assertEquals(5, indexer.getCurrentBatchSize());
+
+		indexer.adaptBatchSize(20000, false);
+		Assert.assertEquals(4, indexer.getCurrentBatchSize());
+
+		indexer.adaptBatchSize(1, false);
+		Assert.assertEquals(5, indexer.getCurrentBatchSize());
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testAddThrowsExceptionWhenNotStarted() {
+		indexer.add("id-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNullBean() {
+		indexer.afterPropertiesSet();
+		indexer.add(null);
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.solr.server.SolrServerFactory;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SolrReindexerTests {
+
+	private static final int DOCUMENT_COUNT = 5;
+
+	@Mock
+	private SolrServerFactory solrServerFactoryMock;
+
+	@Mock
+	private SolrServer adminServerMock;
+
+	@Mock
+	private SolrServer sourceServerMock;
+
+	@Mock
+	private SolrServer targetServerMock;
+
+	private final List<SolrParams> executedQueries = new ArrayList<SolrParams>();
+	private SolrReindexer reindexer;
+	private File checkpointFile;
+
+	@Before
+	public void setUp() throws SolrServerException, IOException {
+		Mockito.when(solrServerFactoryMock.getSolrServer()).thenReturn(adminServerMock);
+		Mockito.when(solrServerFactoryMock.getSolrServer("source")).thenReturn(sourceServerMock);
+		Mockito.when(solrServerFactoryMock.getSolrServer("target")).thenReturn(targetServerMock);
+		Mockito.when(sourceServerMock.query(Mockito.any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				return loadPage((SolrParams) invocation.getArguments()[0]);
+			}
+		});
+
+		checkpointFile = File.createTempFile("reindex", ".checkpoint");
+		checkpointFile.delete();
+
+		reindexer = new SolrReindexer(solrServerFactoryMock, "source", "target");
+		reindexer.setChunkSize(2);
+		reindexer.setCheckpointFile(checkpointFile);
+	}
+
+	@After
+	public void tearDown() {
+		checkpointFile.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSourceAndTargetMustDiffer() {
+		new SolrReindexer(solrServerFactoryMock, "core1", "core1");
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testReindexCopiesAllDocuments() throws SolrServerException, IOException {
+		Assert.assertEquals(DOCUMENT_COUNT, reindexer.reindex());
+
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		Mockito.verify(targetServerMock, Mockito.times(3)).add(captor.capture(), Mockito.eq(-1));
+		int count = 0;
+		for (Collection<SolrInputDocument> documents : captor.getAllValues()) {
+			for (SolrInputDocument document : documents) {
+				Assert.assertNull(document.getField(SolrReindexer.VERSION_FIELD));
+				count++;
+			}
+		}
+		Assert.assertEquals(DOCUMENT_COUNT, count);
+		Mockito.verify(targetServerMock, Mockito.times(1)).commit();
+		Mockito.verify(adminServerMock, Mockito.never()).request(Mockito.any(SolrRequest.class));
+		Assert.assertFalse(checkpointFile.exists());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testReindexAppliesTransformerAndSwapsCores() throws SolrServerException, IOException {
+		Mockito.when(adminServerMock.request(Mockito.any(CoreAdminRequest.class))).thenReturn(new NamedList<Object>());
+		reindexer.setSenders(1);
+		reindexer.setSwapCores(true);
+		reindexer.setDocumentTransformer(new DocumentTransformer() {
+
+			@Override
+			public SolrInputDocument transform(SolrInputDocument document) {
+				if ("doc1".equals(document.getFieldValue("id"))) {
+					return null;
+				}
+				document.setField("reindexed", true);
+				return document;
+			}
+		});
+
+		Assert.assertEquals(DOCUMENT_COUNT - 1, reindexer.reindex());
+
+		ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+		Mockito.verify(targetServerMock, Mockito.times(3)).add(captor.capture(), Mockito.eq(-1));
+		Assert.assertEquals(1, captor.getAllValues().get(0).size());
+		Assert.assertEquals(Boolean.TRUE,
+				((SolrInputDocument) captor.getAllValues().get(0).iterator().next()).getFieldValue("reindexed"));
+
+		ArgumentCaptor<CoreAdminRequest> adminCaptor = ArgumentCaptor.forClass(CoreAdminRequest.class);
+		Mockito.verify(adminServerMock, Mockito.times(1)).request(adminCaptor.capture());
+		Assert.assertEquals("SWAP", adminCaptor.getValue().getParams().get("action"));
+		Assert.assertEquals("target", adminCaptor.getValue().getParams().get("other"));
+	}
+
+	@Test
+	public void testReindexResumesFromCheckpoint() throws IOException {
+		Properties checkpoint = new Properties();
+		checkpoint.setProperty(SolrReindexer.CHECKPOINT_LAST_KEY, "doc2");
+		FileOutputStream out = new FileOutputStream(checkpointFile);
+		checkpoint.store(out, null);
+		out.close();
+
+		Assert.assertEquals(2, reindexer.reindex());
+		Assert.assertTrue(executedQueries.get(0).getParams(CommonParams.FQ)[0].contains("{doc2 TO *]"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFailedReindexKeepsCheckpoint() throws SolrServerException, IOException {
+		Mockito.when(targetServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1)))
+				.thenReturn(null).thenThrow(SolrServerException.class);
+		Mockito.when(targetServerMock.commit()).thenAnswer(new Answer<UpdateResponse>() {
+
+			@Override
+			public UpdateResponse answer(InvocationOnMock invocation) {
+				// commit has to happen before checkpoint is written
+				Assert.assertFalse(checkpointFile.exists());
+				return new UpdateResponse();
+			}
+		});
+		reindexer.setSenders(1);
+		reindexer.setMaxRetries(0);
+		reindexer.setCheckpointInterval(1);
+
+		try {
+			reindexer.reindex();
+			Assert.fail("Expected reindex to fail.");
+		} catch (DataAccessException e) {
+			// expected
+		}
+
+		Properties checkpoint = new Properties();
+		FileInputStream in = new FileInputStream(checkpointFile);
+		checkpoint.load(in);
+		in.close();
+		Assert.assertEquals("doc1", checkpoint.getProperty(SolrReindexer.CHECKPOINT_LAST_KEY));
+		Assert.assertEquals("2", checkpoint.getProperty(SolrReindexer.CHECKPOINT_INDEXED_COUNT));
+		Mockito.verify(targetServerMock, Mockito.times(1)).commit();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCheckpointIsNotWrittenBeforeCheckpointInterval() throws SolrServerException, IOException {
+		Mockito.when(targetServerMock.add(Mockito.anyCollectionOf(SolrInputDocument.class), Mockito.eq(-1)))
+				.thenReturn(null).thenThrow(SolrServerException.class);
+		reindexer.setSenders(1);
+		reindexer.setMaxRetries(0);
+
+		try {
+			reindexer.reindex();
+			Assert.fail("Expected reindex to fail.");
+		} catch (DataAccessException e) {
+			// expected
+		}
+
+		Assert.assertFalse(checkpointFile.exists());
+		Mockito.verify(targetServerMock, Mockito.never()).commit();
+	}
+
+	private synchronized QueryResponse loadPage(SolrParams params) {
+		executedQueries.add(params);
+
+		int start = 0;
+		String[] filterQueries = params.getParams(CommonParams.FQ);
+		if (filterQueries != null) {
+			for (String filterQuery : filterQueries) {
+				int index = filterQuery.indexOf("{doc");
+				if (index >= 0) {
+					start = Math.max(start, Integer.parseInt(filterQuery.substring(index + 4, index + 5)) + 1);
+				}
+			}
+		}
+
+		int rows = params.getInt(CommonParams.ROWS, 10);
+		SolrDocumentList page = new SolrDocumentList();
+		page.setNumFound(DOCUMENT_COUNT);
+		for (int i = start; i < Math.min(start + rows, DOCUMENT_COUNT); i++) {
+			SolrDocument document = new SolrDocument();
+			document.setField("id", "doc" + i);
+			document.setField("name", "name" + i);
+			document.setField(SolrReindexer.VERSION_FIELD, 1000L + i);
+			page.add(document);
+		}
+
+		QueryResponse response = Mockito.mock(QueryResponse.class);
+		Mockito.when(response.getResults()).thenReturn(page);
+		return response;
+	}
+
+}
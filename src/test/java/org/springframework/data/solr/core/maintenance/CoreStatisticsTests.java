@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import java.util.Map;
+
+import org.apache.solr.common.util.NamedList;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class CoreStatisticsTests {
+
+	@Test
+	public void testFromResponses() {
+		CoreStatistics statistics = CoreStatistics.fromResponses(createLukeResponse(), createMbeansResponse());
+
+		Assert.assertEquals(90, statistics.getNumDocs());
+		Assert.assertEquals(10, statistics.getDeletedDocs());
+		Assert.assertEquals(7, statistics.getSegmentCount());
+		Assert.assertEquals(1536L * 1024 * 1024, statistics.getIndexSizeBytes());
+
+		CacheStatistics filterCache = statistics.getFilterCache();
+		Assert.assertEquals(200, filterCache.getLookups());
+		Assert.assertEquals(150, filterCache.getHits());
+		Assert.assertEquals(0.75d, filterCache.getHitRatio(), 0.0001d);
+		Assert.assertEquals(12, filterCache.getEvictions());
+		Assert.assertEquals(35, filterCache.getWarmupTime());
+
+		Assert.assertEquals(0.5d, statistics.getQueryResultCache().getHitRatio(), 0.0001d);
+		Assert.assertNull(statistics.getDocumentCache());
+	}
+
+	@Test
+	public void testFromResponsesWithoutMbeans() {
+		CoreStatistics statistics = CoreStatistics.fromResponses(createLukeResponse(), null);
+
+		Assert.assertEquals(90, statistics.getNumDocs());
+		Assert.assertEquals(-1, statistics.getIndexSizeBytes());
+		Assert.assertTrue(statistics.getCaches().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromResponsesWithoutIndexInfo() {
+		CoreStatistics.fromResponses(new NamedList<Object>(), null);
+	}
+
+	@Test
+	public void testToMetrics() {
+		Map<String, Number> metrics = CoreStatistics.fromResponses(createLukeResponse(), createMbeansResponse())
+				.toMetrics();
+
+		Assert.assertEquals(90L, metrics.get("numDocs"));
+		Assert.assertEquals(0.75d, metrics.get("filterCache.hitRatio").doubleValue(), 0.0001d);
+		Assert.assertEquals(4L, metrics.get("queryResultCache.evictions"));
+	}
+
+	@Test
+	public void testParseSize() {
+		Assert.assertEquals(823, CoreStatistics.parseSize("823 bytes"));
+		Assert.assertEquals(2048, CoreStatistics.parseSize("2 KB"));
+		Assert.assertEquals(1288490188, CoreStatistics.parseSize("1.2 GB"));
+		Assert.assertEquals(-1, CoreStatistics.parseSize("unknown"));
+	}
+
+	private NamedList<Object> createLukeResponse() {
+		NamedList<Object> index = new NamedList<Object>();
+		index.add("numDocs", 90);
+		index.add("maxDoc", 100);
+		index.add("segmentCount", 7);
+
+		NamedList<Object> response = new NamedList<Object>();
+		response.add("index", index);
+		return response;
+	}
+
+	private NamedList<Object> createMbeansResponse() {
+		NamedList<Object> caches = new NamedList<Object>();
+		caches.add(CoreStatistics.FILTER_CACHE, createBean(createCacheStats(200, 150, 0.75f, 12, 35)));
+		caches.add(CoreStatistics.QUERY_RESULT_CACHE, createBean(createCacheStats(100, 50, "0.50", 4, 10)));
+
+		NamedList<Object> replicationStats = new NamedList<Object>();
+		replicationStats.add("indexSize", "1,536 MB");
+		NamedList<Object> handlers = new NamedList<Object>();
+		handlers.add(CoreStatistics.REPLICATION_HANDLER, createBean(replicationStats));
+
+		NamedList<Object> categories = new NamedList<Object>();
+		categories.add("CACHE", caches);
+		categories.add("QUERYHANDLER", handlers);
+
+		NamedList<Object> response = new NamedList<Object>();
+		response.add("solr-mbeans", categories);
+		return response;
+	}
+
+	private NamedList<Object> createBean(NamedList<Object> stats) {
+		NamedList<Object> bean = new NamedList<Object>();
+		bean.add("class", "org.apache.solr.search.FastLRUCache");
+		bean.add("stats", stats);
+		return bean;
+	}
+
+	private NamedList<Object> createCacheStats(long lookups, long hits, Object hitRatio, long evictions, long warmupTime) {
+		NamedList<Object> stats = new NamedList<Object>();
+		stats.add("lookups", lookups);
+		stats.add("hits", hits);
+		stats.add("hitratio", hitRatio);
+		stats.add("evictions", evictions);
+		stats.add("size", 10);
+		stats.add("warmupTime", warmupTime);
+		return stats;
+	}
+
+}
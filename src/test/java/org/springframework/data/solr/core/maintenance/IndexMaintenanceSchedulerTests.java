@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.maintenance;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+import org.apache.solr.common.util.NamedList;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.maintenance.IndexMaintenanceScheduler.Action;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IndexMaintenanceSchedulerTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	private IndexStatistics statistics;
+	private IndexMaintenanceScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		scheduler = new IndexMaintenanceScheduler(solrOperationsMock) {
+
+			@Override
+			protected IndexStatistics readIndexStatistics() {
+				return statistics;
+			}
+		};
+	}
+
+	@Test
+	public void testExpungeDeletesWhenDeletedDocsRatioExceeded() {
+		statistics = new IndexStatistics(70, 100, 30, 5, null);
+		scheduler.setMaxDeletedDocsRatio(0.2);
+
+		Assert.assertEquals(Action.EXPUNGE_DELETES, scheduler.maintain());
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).expungeDeletes();
+		Mockito.verify(solrOperationsMock, Mockito.never()).optimize(Mockito.anyInt());
+	}
+
+	@Test
+	public void testOptimizeWhenSegmentCountExceeded() {
+		statistics = new IndexStatistics(100, 100, 0, 40, null);
+		scheduler.setMaxSegmentCount(20);
+		scheduler.setOptimizeMaxSegments(4);
+
+		Assert.assertEquals(Action.OPTIMIZE, scheduler.maintain());
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).optimize(4);
+	}
+
+	@Test
+	public void testNoMaintenanceForHealthyIndex() {
+		statistics = new IndexStatistics(95, 100, 5, 5, null);
+		scheduler.setMaxSegmentCount(20);
+
+		Assert.assertEquals(Action.NONE, scheduler.maintain());
+		Mockito.verify(solrOperationsMock, Mockito.never()).expungeDeletes();
+		Mockito.verify(solrOperationsMock, Mockito.never()).optimize(Mockito.anyInt());
+	}
+
+	@Test
+	public void testIsWithinWindow() {
+		scheduler.setWindows(Arrays.asList("02:00-04:00", "22:30-00:30"));
+
+		Assert.assertTrue(scheduler.isWithinWindow(time(3, 0)));
+		Assert.assertTrue(scheduler.isWithinWindow(time(23, 0)));
+		Assert.assertTrue(scheduler.isWithinWindow(time(0, 15)));
+		Assert.assertFalse(scheduler.isWithinWindow(time(4, 0)));
+		Assert.assertFalse(scheduler.isWithinWindow(time(12, 0)));
+	}
+
+	@Test
+	public void testIsWithinWindowWithoutWindows() {
+		Assert.assertFalse(scheduler.isWithinWindow(time(12, 0)));
+	}
+
+	@Test
+	public void testCheckDoesNotRunMaintenanceWithoutWindows() {
+		statistics = new IndexStatistics(70, 100, 30, 5, null);
+
+		Assert.assertEquals(Action.NONE, scheduler.check());
+		Mockito.verify(solrOperationsMock, Mockito.never()).expungeDeletes();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAfterPropertiesSetRequiresWindow() {
+		scheduler.afterPropertiesSet();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWindowIsRejected() {
+		scheduler.setWindows(Arrays.asList("25:00-04:00"));
+	}
+
+	@Test
+	public void testIndexStatisticsFromIndexInfo() {
+		NamedList<Object> indexInfo = new NamedList<Object>();
+		indexInfo.add("numDocs", 75);
+		indexInfo.add("maxDoc", 100);
+		indexInfo.add("segmentCount", 12);
+		indexInfo.add("version", 42L);
+
+		IndexStatistics statistics = IndexStatistics.fromIndexInfo(indexInfo);
+
+		Assert.assertEquals(25, statistics.getDeletedDocs());
+		Assert.assertEquals(0.25d, statistics.getDeletedDocsRatio(), 0d);
+		Assert.assertEquals(12, statistics.getSegmentCount());
+		Assert.assertEquals(Long.valueOf(42L), statistics.getVersion());
+	}
+
+	private Calendar time(int hour, int minute) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, hour);
+		calendar.set(Calendar.MINUTE, minute);
+		return calendar;
+	}
+
+}
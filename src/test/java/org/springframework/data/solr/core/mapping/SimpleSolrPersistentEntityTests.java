@@ -66,6 +66,64 @@ public class SimpleSolrPersistentEntityTests {
 		Assert.assertEquals("searchablebeanwithemptysolrdocumentannotation", pe.getSolrCoreName());
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPersistentEntityWithoutWritePolicy() {
+		Mockito.when(typeInfo.getType()).thenReturn(SearchableBeanWithSolrDocumentAnnotation.class);
+
+		SimpleSolrPersistentEntity<SearchableBeanWithSolrDocumentAnnotation> pe = new SimpleSolrPersistentEntity<SearchableBeanWithSolrDocumentAnnotation>(
+				typeInfo);
+		Assert.assertEquals(-1, pe.getCommitWithin());
+		Assert.assertEquals(-1, pe.getBatchSize());
+		Assert.assertEquals(CommitMode.DEFAULT, pe.getCommitMode());
+		Assert.assertTrue(pe.isOpenSearcher());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPersistentEntityWithCommitWithin() {
+		Mockito.when(typeInfo.getType()).thenReturn(SearchableBeanWithCommitWithin.class);
+
+		SimpleSolrPersistentEntity<SearchableBeanWithCommitWithin> pe = new SimpleSolrPersistentEntity<SearchableBeanWithCommitWithin>(
+				typeInfo);
+		Assert.assertEquals(1000, pe.getCommitWithin());
+		Assert.assertEquals(500, pe.getBatchSize());
+		Assert.assertEquals(CommitMode.DEFAULT, pe.getCommitMode());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPersistentEntityWithHardCommitNotOpeningSearcher() {
+		Mockito.when(typeInfo.getType()).thenReturn(SearchableBeanWithHardCommit.class);
+
+		SimpleSolrPersistentEntity<SearchableBeanWithHardCommit> pe = new SimpleSolrPersistentEntity<SearchableBeanWithHardCommit>(
+				typeInfo);
+		Assert.assertEquals(CommitMode.HARD, pe.getCommitMode());
+		Assert.assertFalse(pe.isOpenSearcher());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPersistentEntityWithoutCommit() {
+		Mockito.when(typeInfo.getType()).thenReturn(SearchableBeanWithoutCommit.class);
+
+		SimpleSolrPersistentEntity<SearchableBeanWithoutCommit> pe = new SimpleSolrPersistentEntity<SearchableBeanWithoutCommit>(
+				typeInfo);
+		Assert.assertEquals(CommitMode.NONE, pe.getCommitMode());
+	}
+
+	@SolrDocument(commitWithin = 1000, batchSize = 500)
+	static class SearchableBeanWithCommitWithin {
+	}
+
+	@SolrDocument(commitMode = CommitMode.HARD, openSearcher = false)
+	static class SearchableBeanWithHardCommit {
+	}
+
+	@SolrDocument(commitMode = CommitMode.NONE)
+	static class SearchableBeanWithoutCommit {
+	}
+
 	@SolrDocument(solrCoreName = CORE_NAME)
 	static class SearchableBeanWithSolrDocumentAnnotation {
 	}
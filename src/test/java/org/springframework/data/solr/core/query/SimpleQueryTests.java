@@ -244,6 +244,15 @@ public class SimpleQueryTests {
 		Assert.assertEquals(source.getTimeAllowed(), destination.getTimeAllowed());
 	}
 
+	@Test
+	public void testCloneWithTimeout() {
+		Query source = new SimpleQuery(new Criteria("field_1").is("value_1"));
+		source.setTimeout(Integer.valueOf(200));
+
+		Query destination = SimpleQuery.fromQuery(source);
+		Assert.assertEquals(source.getTimeout(), destination.getTimeout());
+	}
+
 	@Test
 	public void testCloneWithRequestHandler() {
 		Query source = new SimpleQuery(new Criteria("field_1").is("value_1"));
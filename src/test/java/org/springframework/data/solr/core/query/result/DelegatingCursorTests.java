@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.query.result;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.solr.VersionUtil;
+import org.springframework.data.solr.core.query.CursorOptions;
+import org.springframework.data.solr.core.query.result.DelegatingCursor.PagingStrategy;
+
+/**
+ * @author agent
+ */
+public class DelegatingCursorTests {
+
+	private List<SolrDocument> documents;
+
+	@Before
+	public void setUp() {
+		Assume.assumeFalse(VersionUtil.isSolr470Available());
+
+		documents = new ArrayList<SolrDocument>();
+		for (int i = 0; i < 5; i++) {
+			SolrDocument document = new SolrDocument();
+			document.setField("id", "id-" + i);
+			documents.add(document);
+		}
+	}
+
+	@Test
+	public void testCursorUsesKeysetPagingWhenNoSortDefined() {
+		InMemoryCursor cursor = new InMemoryCursor(new SolrQuery("*:*"), new CursorOptions(2));
+		cursor.open();
+
+		List<String> ids = new ArrayList<String>();
+		while (cursor.hasNext()) {
+			ids.add(cursor.next());
+		}
+
+		Assert.assertEquals(PagingStrategy.KEYSET, cursor.getPagingStrategy());
+		Assert.assertEquals(5, ids.size());
+		Assert.assertEquals(5, cursor.getPosition());
+		Assert.assertEquals(Cursor.State.FINISHED, cursor.getState());
+		Assert.assertEquals(3, cursor.executedQueries.size());
+
+		Assert.assertEquals("id asc", cursor.executedQueries.get(0).get(CommonParams.SORT));
+		Assert.assertNull(cursor.executedQueries.get(0).getFilterQueries());
+		Assert.assertEquals("id:{id\\-1 TO *]", cursor.executedQueries.get(1).getFilterQueries()[0]);
+		Assert.assertEquals("id:{id\\-3 TO *]", cursor.executedQueries.get(2).getFilterQueries()[0]);
+	}
+
+	@Test
+	public void testFormatKeyConvertsDatesAndNumbers() {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(2012, Calendar.AUGUST, 21, 6, 35, 0);
+
+		Assert.assertEquals("2012\\-08\\-21T06\\:35\\:00.000Z", DelegatingCursor.formatKey(calendar.getTime()));
+		Assert.assertEquals("\\-10", DelegatingCursor.formatKey(Long.valueOf(-10)));
+		Assert.assertEquals("id\\-1", DelegatingCursor.formatKey("id-1"));
+	}
+
+	@Test
+	public void testCursorUsesKeysetPagingOnSortFieldsWithUniqueKeyAsTieBreaker() {
+		SolrQuery query = new SolrQuery("*:*");
+		query.set(CommonParams.SORT, "name desc");
+		query.setFields("name");
+
+		final List<SolrQuery> executedQueries = new ArrayList<SolrQuery>();
+		DelegatingCursor<String> cursor = new DelegatingCursor<String>(query, new CursorOptions(2)) {
+
+			@Override
+			protected QueryResponse doLoad(SolrQuery nextQuery) {
+				executedQueries.add(nextQuery);
+
+				SolrDocumentList page = new SolrDocumentList();
+				SolrDocument document = new SolrDocument();
+				document.setField("id", "id-1");
+				document.setField("name", "foo bar");
+				page.add(document);
+				page.add(document);
+
+				QueryResponse response = Mockito.mock(QueryResponse.class);
+				Mockito.when(response.getResults()).thenReturn(page);
+				return response;
+			}
+
+			@Override
+			protected List<String> convert(SolrDocumentList documents) {
+				return new ArrayList<String>();
+			}
+		};
+		cursor.loadNextChunk();
+		cursor.loadNextChunk();
+
+		Assert.assertEquals(PagingStrategy.KEYSET, cursor.getPagingStrategy());
+		Assert.assertEquals("name desc,id asc", executedQueries.get(0).get(CommonParams.SORT));
+		Assert.assertEquals("name,id", executedQueries.get(0).getFields());
+		Assert.assertEquals(Integer.valueOf(0), executedQueries.get(1).getStart());
+		Assert.assertEquals("(name:[* TO foo\\ bar}) OR (name:[foo\\ bar TO foo\\ bar] AND id:{id\\-1 TO *])",
+				executedQueries.get(1).getFilterQueries()[0]);
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testCursorRejectsSortByScore() {
+		SolrQuery query = new SolrQuery("*:*");
+		query.set(CommonParams.SORT, "score desc");
+
+		new InMemoryCursor(query, new CursorOptions(2));
+	}
+
+	@Test
+	public void testCursorWithPrefetch() {
+		CursorOptions options = new CursorOptions(2);
+		options.setPrefetchDepth(2);
+
+		InMemoryCursor cursor = new InMemoryCursor(new SolrQuery("*:*"), options, new SimpleAsyncTaskExecutor());
+		cursor.open();
+
+		List<String> ids = new ArrayList<String>();
+		while (cursor.hasNext()) {
+			ids.add(cursor.next());
+		}
+
+		Assert.assertEquals(5, ids.size());
+		Assert.assertEquals("id-0", ids.get(0));
+		Assert.assertEquals("id-4", ids.get(4));
+	}
+
+	@Test
+	public void testCursorReturnsFalseOnHasNextWhenClosed() {
+		InMemoryCursor cursor = new InMemoryCursor(new SolrQuery("*:*"), new CursorOptions(2));
+		cursor.open();
+
+		Assert.assertTrue(cursor.hasNext());
+		cursor.next();
+		cursor.close();
+
+		Assert.assertFalse(cursor.hasNext());
+		Assert.assertTrue(cursor.isClosed());
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testHasNextThrowsExceptionWhenNotOpened() {
+		new InMemoryCursor(new SolrQuery("*:*"), new CursorOptions(2)).hasNext();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPrefetchWithoutExecutorThrowsException() {
+		CursorOptions options = new CursorOptions(2);
+		options.setPrefetchDepth(1);
+		new InMemoryCursor(new SolrQuery("*:*"), options);
+	}
+
+	class InMemoryCursor extends DelegatingCursor<String> {
+
+		final List<SolrQuery> executedQueries = new ArrayList<SolrQuery>();
+
+		InMemoryCursor(SolrQuery query, CursorOptions options) {
+			super(query, options);
+		}
+
+		InMemoryCursor(SolrQuery query, CursorOptions options, SimpleAsyncTaskExecutor executor) {
+			super(query, options, executor);
+		}
+
+		@Override
+		protected QueryResponse doLoad(SolrQuery query) {
+			executedQueries.add(query);
+
+			int start = query.getStart();
+			if (query.getFilterQueries() != null) {
+				String lastId = query.getFilterQueries()[0].replace("\\", "").replace("id:{", "").replace(" TO *]", "");
+				start = Integer.parseInt(lastId.substring(3)) + 1;
+			}
+
+			SolrDocumentList page = new SolrDocumentList();
+			page.setNumFound(documents.size());
+			for (int i = start; i < Math.min(start + query.getRows(), documents.size()); i++) {
+				page.add(documents.get(i));
+			}
+
+			QueryResponse response = Mockito.mock(QueryResponse.class);
+			Mockito.when(response.getResults()).thenReturn(page);
+			return response;
+		}
+
+		@Override
+		protected List<String> convert(SolrDocumentList documents) {
+			List<String> result = new ArrayList<String>();
+			for (SolrDocument document : documents) {
+				result.add(document.getFieldValue("id").toString());
+			}
+			return result;
+		}
+
+	}
+
+}
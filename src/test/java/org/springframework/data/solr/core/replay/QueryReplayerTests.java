@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.solr.server.SolrServerFactory;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class QueryReplayerTests {
+
+	@Mock
+	private SolrServerFactory solrServerFactoryMock;
+
+	@Mock
+	private SolrServer solrServerMock;
+
+	private QueryReplayer replayer;
+
+	@Before
+	public void setUp() {
+		Mockito.when(solrServerFactoryMock.getSolrServer()).thenReturn(solrServerMock);
+		replayer = new QueryReplayer(solrServerFactoryMock);
+	}
+
+	@Test
+	public void testReplaySendsAllQueries() throws Exception {
+		Mockito.when(solrServerMock.request(Mockito.any(SolrRequest.class))).thenReturn(new NamedList<Object>());
+		replayer.setConcurrency(4);
+
+		ReplayReport report = replayer.replay(createQueries(20));
+
+		Assert.assertEquals(20, report.getSuccessCount());
+		Assert.assertEquals(0, report.getErrorCount());
+		Mockito.verify(solrServerMock, Mockito.times(20)).request(Mockito.any(SolrRequest.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testReplayCountsFailedQueries() throws Exception {
+		Mockito.when(solrServerMock.request(Mockito.any(SolrRequest.class))).thenReturn(new NamedList<Object>())
+				.thenThrow(SolrServerException.class);
+
+		ReplayReport report = replayer.replay(createQueries(3));
+
+		Assert.assertEquals(1, report.getSuccessCount());
+		Assert.assertEquals(2, report.getErrorCount());
+	}
+
+	@Test
+	public void testReplayUsesConfiguredCore() throws Exception {
+		Mockito.when(solrServerFactoryMock.getSolrServer("core1")).thenReturn(solrServerMock);
+		Mockito.when(solrServerMock.request(Mockito.any(SolrRequest.class))).thenReturn(new NamedList<Object>());
+		replayer.setCore("core1");
+
+		replayer.replay(createQueries(1));
+
+		Mockito.verify(solrServerFactoryMock, Mockito.never()).getSolrServer();
+	}
+
+	@Test
+	public void testReplayHonorsRate() throws Exception {
+		Mockito.when(solrServerMock.request(Mockito.any(SolrRequest.class))).thenReturn(new NamedList<Object>());
+		replayer.setRate(100);
+
+		ReplayReport report = replayer.replay(createQueries(11));
+
+		Assert.assertTrue(report.getDurationMs() >= 100);
+	}
+
+	@Test
+	public void testReportPercentiles() {
+		ReplayReport report = new ReplayReport(Arrays.asList(4000L, 1000L, 3000L, 2000L), 1, 1000);
+
+		Assert.assertEquals(2d, report.getMedian(), 0d);
+		Assert.assertEquals(4d, report.getPercentile(90d), 0d);
+		Assert.assertEquals(1d, report.getPercentile(0d), 0d);
+		Assert.assertEquals(4d, report.getMax(), 0d);
+		Assert.assertEquals(5d, report.getThroughput(), 0d);
+	}
+
+	private List<RecordedQuery> createQueries(int count) {
+		List<RecordedQuery> queries = new ArrayList<RecordedQuery>(count);
+		for (int i = 0; i < count; i++) {
+			queries.add(new RecordedQuery(i, 1, 1, null, new SolrQuery("id:" + i)));
+		}
+		return queries;
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.replay;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @author agent
+ */
+public class RecordedQueryTests {
+
+	@Test
+	public void testLogLineRoundTrip() {
+		SolrQuery query = new SolrQuery("name:\"spring data\" AND text:\u00e4&\u00f6");
+		query.addFilterQuery("cat:a", "cat:b");
+		query.setRows(10);
+
+		RecordedQuery parsed = RecordedQuery.parse(new RecordedQuery(1000L, 12L, 5, "java.lang.String", query)
+				.toLogLine());
+
+		Assert.assertEquals(1000L, parsed.getTimestamp());
+		Assert.assertEquals(12L, parsed.getElapsedMs());
+		Assert.assertEquals(5, parsed.getQTime());
+		Assert.assertEquals("java.lang.String", parsed.getTargetType());
+		Assert.assertEquals("name:\"spring data\" AND text:\u00e4&\u00f6", parsed.getParams().get("q"));
+		Assert.assertEquals(Arrays.asList("cat:a", "cat:b"), Arrays.asList(parsed.getParams().getParams("fq")));
+		Assert.assertEquals("10", parsed.getParams().get("rows"));
+	}
+
+	@Test
+	public void testLogLineRoundTripWithoutTargetType() {
+		RecordedQuery parsed = RecordedQuery.parse(new RecordedQuery(1L, 2L, -1, null, new SolrQuery("*:*"))
+				.toLogLine());
+
+		Assert.assertNull(parsed.getTargetType());
+		Assert.assertEquals(-1, parsed.getQTime());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseRejectsInvalidLine() {
+		RecordedQuery.parse("not a query log entry");
+	}
+
+	@Test
+	public void testFileQueryRecorderAppendsOneLinePerQuery() throws IOException {
+		File file = File.createTempFile("query-log", ".log");
+		file.deleteOnExit();
+
+		FileQueryRecorder recorder = new FileQueryRecorder(file);
+		recorder.record(new SolrQuery("name:foo"), String.class, 3L, 1);
+		recorder.record(new SolrQuery("name:bar"), null, 4L, -1);
+		recorder.destroy();
+
+		List<SolrParams> recorded = new ArrayList<SolrParams>();
+		for (String line : FileCopyUtils.copyToString(new FileReader(file)).split("\n")) {
+			recorded.add(RecordedQuery.parse(line).getParams());
+		}
+
+		Assert.assertEquals(2, recorder.getRecordedCount());
+		Assert.assertEquals(2, recorded.size());
+		Assert.assertEquals("name:foo", recorded.get(0).get("q"));
+		Assert.assertEquals("name:bar", recorded.get(1).get("q"));
+	}
+
+	@Test
+	public void testFileQueryRecorderSkipsAllWithZeroSampleRate() throws IOException {
+		File file = File.createTempFile("query-log", ".log");
+		file.deleteOnExit();
+
+		FileQueryRecorder recorder = new FileQueryRecorder(file);
+		recorder.setSampleRate(0d);
+		recorder.record(new ModifiableSolrParams(), null, 3L, 1);
+		recorder.destroy();
+
+		Assert.assertEquals(0, recorder.getRecordedCount());
+		Assert.assertEquals(0, file.length());
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.core.workload;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.solr.core.workload.RequestScheduler.OverloadPolicy;
+import org.springframework.data.solr.core.workload.RequestScheduler.Permit;
+
+/**
+ * @author agent
+ */
+public class RequestSchedulerTests {
+
+	private RequestScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		scheduler = new RequestScheduler();
+		scheduler.setMaxQueueWaitMs(0);
+	}
+
+	@Test
+	public void testLimitsConcurrentRequestsPerClass() {
+		scheduler.setMaxConcurrent(WorkloadClass.INDEXING, 1);
+
+		Permit permit = scheduler.acquire("core1", WorkloadClass.INDEXING);
+		try {
+			scheduler.acquire("core1", WorkloadClass.INDEXING);
+			Assert.fail("TransientDataAccessResourceException expected");
+		} catch (TransientDataAccessResourceException e) {
+			// expected
+		}
+
+		scheduler.acquire("core1", WorkloadClass.INTERACTIVE).release();
+		scheduler.acquire("core2", WorkloadClass.INDEXING).release();
+
+		permit.release();
+		scheduler.acquire("core1", WorkloadClass.INDEXING).release();
+	}
+
+	@Test
+	public void testCoreLimitOverridesDefaultLimit() {
+		scheduler.setMaxConcurrent(WorkloadClass.BATCH, 1);
+		scheduler.setMaxConcurrent("core1", WorkloadClass.BATCH, 2);
+
+		Assert.assertEquals(2, scheduler.getMaxConcurrent("core1", WorkloadClass.BATCH));
+		Assert.assertEquals(1, scheduler.getMaxConcurrent("core2", WorkloadClass.BATCH));
+		Assert.assertEquals(-1, scheduler.getMaxConcurrent("core2", WorkloadClass.INTERACTIVE));
+
+		scheduler.acquire("core1", WorkloadClass.BATCH);
+		scheduler.acquire("core1", WorkloadClass.BATCH);
+		Assert.assertEquals(2, scheduler.getRunningCount("core1", WorkloadClass.BATCH));
+	}
+
+	@Test
+	public void testReleaseIsIdempotent() {
+		Permit permit = scheduler.acquire(null, WorkloadClass.ADMIN);
+		permit.release();
+		permit.release();
+
+		Assert.assertEquals(0, scheduler.getRunningCount(null, WorkloadClass.ADMIN));
+	}
+
+	@Test
+	public void testWaitingRequestOfHigherPriorityIsAdmittedFirst() throws InterruptedException {
+		scheduler.setMaxTotalConcurrent(1);
+		scheduler.setMaxQueueWaitMs(5000);
+
+		Permit permit = scheduler.acquire(null, WorkloadClass.ADMIN);
+		final CountDownLatch indexingAdmitted = new CountDownLatch(1);
+		final CountDownLatch interactiveAdmitted = new CountDownLatch(1);
+		Thread indexing = acquireAsync(WorkloadClass.INDEXING, indexingAdmitted);
+		Thread interactive = acquireAsync(WorkloadClass.INTERACTIVE, interactiveAdmitted);
+		Thread.sleep(200);
+
+		permit.release();
+
+		Assert.assertTrue(interactiveAdmitted.await(2, TimeUnit.SECONDS));
+		Assert.assertFalse(indexingAdmitted.await(200, TimeUnit.MILLISECONDS));
+		Assert.assertTrue(indexingAdmitted.await(2, TimeUnit.SECONDS));
+		indexing.join();
+		interactive.join();
+	}
+
+	@Test
+	public void testShedsLowerPriorityWorkWhenLatencyObjectiveIsBreached() throws InterruptedException {
+		scheduler.setLatencyObjectiveMs(WorkloadClass.INTERACTIVE, 5);
+		scheduler.setOverloadPolicy(OverloadPolicy.SHED);
+		scheduler.setThrottledConcurrency(0);
+
+		Permit permit = scheduler.acquire(null, WorkloadClass.INTERACTIVE);
+		Thread.sleep(50);
+		permit.release();
+
+		Assert.assertTrue(scheduler.getLatencyMs(null, WorkloadClass.INTERACTIVE) >= 40);
+		Assert.assertTrue(scheduler.isThrottled(null, WorkloadClass.BATCH));
+		Assert.assertFalse(scheduler.isThrottled(null, WorkloadClass.INTERACTIVE));
+		try {
+			scheduler.acquire(null, WorkloadClass.BATCH);
+			Assert.fail("TransientDataAccessResourceException expected");
+		} catch (TransientDataAccessResourceException e) {
+			// expected
+		}
+		scheduler.acquire(null, WorkloadClass.INTERACTIVE).release();
+	}
+
+	@Test
+	public void testQueuesLowerPriorityWorkWhenLatencyObjectiveIsBreached() throws InterruptedException {
+		scheduler.setLatencyObjectiveMs(WorkloadClass.INTERACTIVE, 5);
+		scheduler.setMaxQueueWaitMs(50);
+
+		Permit permit = scheduler.acquire(null, WorkloadClass.INTERACTIVE);
+		Thread.sleep(50);
+		permit.release();
+
+		scheduler.acquire(null, WorkloadClass.INDEXING);
+		try {
+			scheduler.acquire(null, WorkloadClass.INDEXING);
+			Assert.fail("TransientDataAccessResourceException expected");
+		} catch (TransientDataAccessResourceException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLatencyObjectiveIsIgnoredAfterWindow() throws InterruptedException {
+		scheduler.setLatencyObjectiveMs(WorkloadClass.INTERACTIVE, 5);
+		scheduler.setLatencyWindowMs(50);
+
+		Permit permit = scheduler.acquire(null, WorkloadClass.INTERACTIVE);
+		Thread.sleep(20);
+		permit.release();
+		Thread.sleep(100);
+
+		Assert.assertFalse(scheduler.isThrottled(null, WorkloadClass.BATCH));
+	}
+
+	private Thread acquireAsync(final WorkloadClass workloadClass, final CountDownLatch admitted) {
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				Permit permit = scheduler.acquire(null, workloadClass);
+				admitted.countDown();
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					permit.release();
+				}
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+}
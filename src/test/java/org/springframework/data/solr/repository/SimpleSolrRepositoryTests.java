@@ -28,9 +28,20 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.solr.ExampleSolrBean;
 import org.springframework.data.solr.core.SolrOperations;
 import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.cache.IdLookupBatcher;
+import org.springframework.data.solr.core.cache.ReplicatedCoreCache;
+import org.springframework.data.solr.core.commit.CommitWithinStrategy;
+import org.springframework.data.solr.core.commit.SoftCommitStrategy;
+import org.springframework.data.solr.core.convert.MappingSolrConverter;
+import org.springframework.data.solr.core.mapping.CommitMode;
+import org.springframework.data.solr.core.mapping.SimpleSolrMappingContext;
+import org.springframework.data.solr.core.mapping.SolrDocument;
 import org.springframework.data.solr.core.query.Query;
 import org.springframework.data.solr.core.query.SolrDataQuery;
 import org.springframework.data.solr.repository.support.SimpleSolrRepository;
@@ -101,6 +112,119 @@ public class SimpleSolrRepositoryTests {
 		Assert.assertEquals(12345, captor.getAllValues().get(1).getPageRequest().getPageSize());
 	}
 
+	@Test
+	public void testFindOneUsesIdLookupBatcherWhenSet() {
+		IdLookupBatcher batcherMock = Mockito.mock(IdLookupBatcher.class);
+		ExampleSolrBean bean = new ExampleSolrBean();
+		Mockito.when(batcherMock.findById("id-1", ExampleSolrBean.class)).thenReturn(bean);
+		repository.setIdLookupBatcher(batcherMock);
+
+		Assert.assertSame(bean, repository.findOne("id-1"));
+		Mockito.verify(solrOperationsMock, Mockito.never()).queryForObject(Mockito.any(Query.class),
+				Mockito.eq(ExampleSolrBean.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFindAllAndCountUseReplicatedCoreCacheWhenSet() {
+		ReplicatedCoreCache<ExampleSolrBean> cacheMock = Mockito.mock(ReplicatedCoreCache.class);
+		Page<ExampleSolrBean> replicated = new PageImpl<ExampleSolrBean>(Arrays.asList(new ExampleSolrBean()));
+		Mockito.when(cacheMock.query(Mockito.any(Query.class))).thenReturn(replicated);
+		repository.setReplicatedCoreCache(cacheMock);
+
+		Assert.assertEquals(1, repository.count());
+		Assert.assertSame(replicated, repository.findAll());
+		Mockito.verify(solrOperationsMock, Mockito.never()).count(Mockito.any(SolrDataQuery.class));
+		Mockito.verify(solrOperationsMock, Mockito.never()).queryForPage(Mockito.any(Query.class),
+				Mockito.eq(ExampleSolrBean.class));
+	}
+
+	@Test
+	public void testExistsReturnsFalseForIdRuledOutByIdBloomFilter() {
+		IdBloomFilter filterMock = Mockito.mock(IdBloomFilter.class);
+		Mockito.when(filterMock.mightContain("id-1")).thenReturn(false);
+		repository.setIdBloomFilter(filterMock);
+
+		Assert.assertFalse(repository.exists("id-1"));
+		Mockito.verify(solrOperationsMock, Mockito.never()).queryForObject(Mockito.any(Query.class),
+				Mockito.eq(ExampleSolrBean.class));
+	}
+
+	@Test
+	public void testSaveCommitsImmediatelyByDefault() {
+		ExampleSolrBean bean = new ExampleSolrBean("id-1", "name", "category");
+		repository.save(bean);
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).saveBean(bean, -1);
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).commit();
+	}
+
+	@Test
+	public void testSaveUsesCommitWithinStrategy() {
+		repository.setCommitStrategy(new CommitWithinStrategy(1000));
+		ExampleSolrBean bean = new ExampleSolrBean("id-1", "name", "category");
+		repository.save(bean);
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).saveBean(bean, 1000);
+		Mockito.verify(solrOperationsMock, Mockito.never()).commit();
+	}
+
+	@Test
+	public void testDeleteUsesSoftCommitStrategy() {
+		repository.setCommitStrategy(SoftCommitStrategy.INSTANCE);
+		repository.delete("id-1");
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).deleteById("id-1", -1);
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).softCommit();
+		Mockito.verify(solrOperationsMock, Mockito.never()).commit();
+	}
+
+	@Test
+	public void testSaveUsesCommitBehaviorDeclaredViaSolrDocument() {
+		Mockito.when(solrOperationsMock.getConverter()).thenReturn(
+				new MappingSolrConverter(new SimpleSolrMappingContext()));
+		SimpleSolrRepository<BeanWithCommitBehavior, String> repository = new SimpleSolrRepository<BeanWithCommitBehavior, String>(
+				solrOperationsMock, BeanWithCommitBehavior.class);
+
+		BeanWithCommitBehavior bean = new BeanWithCommitBehavior();
+		bean.setId("id-1");
+		repository.save(bean);
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).saveBean(bean, -1);
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).softCommit();
+		Mockito.verify(solrOperationsMock, Mockito.never()).commit();
+	}
+
+	@Test
+	public void testExplicitCommitStrategyOverrulesSolrDocument() {
+		Mockito.when(solrOperationsMock.getConverter()).thenReturn(
+				new MappingSolrConverter(new SimpleSolrMappingContext()));
+		SimpleSolrRepository<BeanWithCommitBehavior, String> repository = new SimpleSolrRepository<BeanWithCommitBehavior, String>(
+				solrOperationsMock, BeanWithCommitBehavior.class);
+		repository.setCommitStrategy(new CommitWithinStrategy(1000));
+
+		repository.delete("id-1");
+
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).deleteById("id-1", 1000);
+		Mockito.verify(solrOperationsMock, Mockito.never()).softCommit();
+	}
+
+	@SolrDocument(commitMode = CommitMode.SOFT)
+	static class BeanWithCommitBehavior {
+
+		@Id
+		private String id;
+
+		public String getId() {
+			return id;
+		}
+
+		public void setId(String id) {
+			this.id = id;
+		}
+
+	}
+
 	static class BeanWithLongIdType {
 
 		@Id
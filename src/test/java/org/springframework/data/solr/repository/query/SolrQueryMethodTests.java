@@ -260,6 +260,13 @@ public class SolrQueryMethodTests {
 		Assert.assertNull(method.getTimeAllowed());
 	}
 
+	@Test
+	public void testQueryWithTimeout() throws Exception {
+		SolrQueryMethod method = getQueryMethodByName("findAllWithTimeout", String.class);
+		Assert.assertEquals(Integer.valueOf(300), method.getTimeout());
+		Assert.assertNull(getQueryMethodByName("findAllWithPositiveTimeRestriction", String.class).getTimeout());
+	}
+
 	@Test
 	public void testQueryWithDefType() throws Exception {
 		SolrQueryMethod method = getQueryMethodByName("findByNameEndingWith", String.class);
@@ -405,6 +412,9 @@ public class SolrQueryMethodTests {
 		@Query(value = "*:*", timeAllowed = -10)
 		List<ProductBean> findAllWithNegativeTimeRestriction(String name);
 
+		@Query(value = "*:*", timeout = 300)
+		List<ProductBean> findAllWithTimeout(String name);
+
 		@Query(defType = "lucene")
 		List<ProductBean> findByNameEndingWith(String name);
 
@@ -21,7 +21,9 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -56,6 +58,9 @@ public class StringBasedSolrQueryTests {
 	@Mock
 	SolrServerFactory solrServerFactoryMock;
 
+	@Mock
+	private SolrEntityInformation<ProductBean, String> entityInformationMock;
+
 	private QueryParser queryParser;
 
 	@Before
@@ -202,6 +207,52 @@ public class StringBasedSolrQueryTests {
 		Assert.assertEquals(sort, query.getSort());
 	}
 
+	@Test
+	public void testWarmUpBindsPlaceholdersToWildcard() throws NoSuchMethodException, SecurityException {
+		Method method = SampleRepository.class.getMethod("findByNameWithSortInPageable", String.class, Pageable.class);
+		Mockito.doReturn(entityInformationMock).when(entityInformationCreatorMock)
+				.getEntityInformation(Mockito.any(Class.class));
+		Mockito.doReturn(ProductBean.class).when(entityInformationMock).getJavaType();
+		SolrQueryMethod queryMethod = new SolrQueryMethod(method, metadataMock, entityInformationCreatorMock);
+
+		StringBasedSolrQuery solrQuery = new StringBasedSolrQuery(queryMethod, solrOperationsMock);
+		solrQuery.warmUp(new PageRequest(0, 5));
+
+		ArgumentCaptor<org.springframework.data.solr.core.query.Query> captor = ArgumentCaptor
+				.forClass(org.springframework.data.solr.core.query.Query.class);
+		Mockito.verify(solrOperationsMock).queryForPage(captor.capture(), Mockito.eq(ProductBean.class));
+
+		Assert.assertEquals("name:*", queryParser.getQueryString(captor.getValue()));
+		Assert.assertEquals(5, captor.getValue().getPageRequest().getPageSize());
+	}
+
+	@Test
+	public void testWarmUpBindsTypedPlaceholdersToSampleValues() throws NoSuchMethodException, SecurityException {
+		Method method = SampleRepository.class.getMethod("findByPopularityAndPrice", Integer.class, Float.class);
+		Mockito.doReturn(entityInformationMock).when(entityInformationCreatorMock)
+				.getEntityInformation(Mockito.any(Class.class));
+		Mockito.doReturn(ProductBean.class).when(entityInformationMock).getJavaType();
+		SolrQueryMethod queryMethod = new SolrQueryMethod(method, metadataMock, entityInformationCreatorMock);
+
+		StringBasedSolrQuery solrQuery = new StringBasedSolrQuery(queryMethod, solrOperationsMock);
+		solrQuery.warmUp(new PageRequest(0, 5));
+
+		ArgumentCaptor<org.springframework.data.solr.core.query.Query> captor = ArgumentCaptor
+				.forClass(org.springframework.data.solr.core.query.Query.class);
+		Mockito.verify(solrOperationsMock).queryForPage(captor.capture(), Mockito.eq(ProductBean.class));
+
+		Assert.assertEquals("popularity:0 AND price:0.0", queryParser.getQueryString(captor.getValue()));
+	}
+
+	@Test
+	public void testCreateWarmUpValue() {
+		Assert.assertEquals("*", AbstractSolrQuery.createWarmUpValue(String.class));
+		Assert.assertEquals(Long.valueOf(0), AbstractSolrQuery.createWarmUpValue(long.class));
+		Assert.assertEquals(Boolean.TRUE, AbstractSolrQuery.createWarmUpValue(Boolean.class));
+		Assert.assertArrayEquals(new Integer[] { 0 }, (Integer[]) AbstractSolrQuery.createWarmUpValue(Integer[].class));
+		Assert.assertNull(AbstractSolrQuery.createWarmUpValue(java.util.List.class));
+	}
+
 	private interface SampleRepository {
 
 		@Query("textGeneral:?0")
@@ -25,7 +25,15 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.cache.IdBloomFilter;
+import org.springframework.data.solr.core.commit.CommitStrategy;
+import org.springframework.data.solr.core.commit.CommitWithinStrategy;
+import org.springframework.data.solr.core.commit.ImmediateCommitStrategy;
+import org.springframework.data.solr.core.commit.NoCommitStrategy;
+import org.springframework.data.solr.core.commit.SoftCommitStrategy;
 import org.springframework.data.solr.core.convert.SolrConverter;
+import org.springframework.data.solr.core.mapping.CommitMode;
 import org.springframework.data.solr.core.mapping.SolrPersistentEntity;
 import org.springframework.data.solr.core.mapping.SolrPersistentProperty;
 import org.springframework.data.solr.repository.ProductBean;
@@ -80,6 +88,80 @@ public class SolrRepositoryFactoryTests {
 		Assert.assertNotNull(repository);
 	}
 
+	@Test
+	public void testSetIdBloomFilterRegistersFilterWithTemplate() {
+		IdBloomFilter filter = new IdBloomFilter(solrOperationsMock);
+		SolrTemplate templateMock = Mockito.mock(SolrTemplate.class);
+		Mockito.when(templateMock.getConverter()).thenReturn(solrConverterMock);
+		Mockito.when(templateMock.getIdBloomFilter()).thenReturn(null, filter);
+
+		new SolrRepositoryFactory(templateMock).setIdBloomFilter(filter);
+
+		Mockito.verify(templateMock, Mockito.times(1)).setIdBloomFilter(filter);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetIdBloomFilterRejectsFilterDifferentFromTemplate() {
+		SolrTemplate templateMock = Mockito.mock(SolrTemplate.class);
+		Mockito.when(templateMock.getConverter()).thenReturn(solrConverterMock);
+		Mockito.when(templateMock.getIdBloomFilter()).thenReturn(new IdBloomFilter(solrOperationsMock));
+
+		new SolrRepositoryFactory(templateMock).setIdBloomFilter(new IdBloomFilter(solrOperationsMock));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetIdBloomFilterRejectsOperationsNotTrackingWrites() {
+		new SolrRepositoryFactory(solrOperationsMock).setIdBloomFilter(new IdBloomFilter(solrOperationsMock));
+	}
+
+	@Test
+	public void testGetRepositoryWithoutMappingContextUsesFactoryCommitStrategy() {
+		Mockito.when(solrConverterMock.getMappingContext()).thenReturn(null);
+		SolrRepositoryFactory repoFactory = new SolrRepositoryFactory(solrOperationsMock);
+
+		Assert.assertNull(repoFactory.getCommitStrategy(ProductBean.class));
+
+		repoFactory.setCommitStrategy(SoftCommitStrategy.INSTANCE);
+		Assert.assertSame(SoftCommitStrategy.INSTANCE, repoFactory.getCommitStrategy(ProductBean.class));
+	}
+
+	@Test
+	public void testCreateCommitStrategyWithoutDeclaredCommitBehavior() {
+		Mockito.when(solrEntityMock.getCommitMode()).thenReturn(CommitMode.DEFAULT);
+		Mockito.when(solrEntityMock.getCommitWithin()).thenReturn(-1);
+
+		Assert.assertNull(SolrRepositoryFactory.createCommitStrategy(solrEntityMock));
+		Assert.assertNull(SolrRepositoryFactory.createCommitStrategy(null));
+	}
+
+	@Test
+	public void testCreateCommitStrategyWithCommitWithin() {
+		Mockito.when(solrEntityMock.getCommitMode()).thenReturn(CommitMode.DEFAULT);
+		Mockito.when(solrEntityMock.getCommitWithin()).thenReturn(1000);
+
+		CommitStrategy strategy = SolrRepositoryFactory.createCommitStrategy(solrEntityMock);
+		Assert.assertTrue(strategy instanceof CommitWithinStrategy);
+		Assert.assertEquals(1000, strategy.getCommitWithinMs());
+	}
+
+	@Test
+	public void testCreateCommitStrategyWithHardCommitNotOpeningSearcher() {
+		Mockito.when(solrEntityMock.getCommitMode()).thenReturn(CommitMode.HARD);
+		Mockito.when(solrEntityMock.isOpenSearcher()).thenReturn(false);
+
+		CommitStrategy strategy = SolrRepositoryFactory.createCommitStrategy(solrEntityMock);
+		Assert.assertTrue(strategy instanceof ImmediateCommitStrategy);
+		Assert.assertFalse(((ImmediateCommitStrategy) strategy).isOpenSearcher());
+	}
+
+	@Test
+	public void testCreateCommitStrategyWithoutCommit() {
+		Mockito.when(solrEntityMock.getCommitMode()).thenReturn(CommitMode.NONE);
+		Mockito.when(solrEntityMock.getCommitWithin()).thenReturn(-1);
+
+		Assert.assertSame(NoCommitStrategy.INSTANCE, SolrRepositoryFactory.createCommitStrategy(solrEntityMock));
+	}
+
 	@SuppressWarnings("unchecked")
 	private void initMappingContext() {
 		Mockito.when(mappingContextMock.getPersistentEntity(ProductBean.class)).thenReturn(solrEntityMock);
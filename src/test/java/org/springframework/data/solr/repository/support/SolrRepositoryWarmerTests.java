@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.solr.repository.support;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.solr.core.SolrOperations;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.repository.ProductBean;
+import org.springframework.data.solr.repository.query.AbstractSolrQuery;
+
+/**
+ * @author agent
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SolrRepositoryWarmerTests {
+
+	@Mock
+	private SolrOperations solrOperationsMock;
+
+	@Mock
+	private AbstractSolrQuery repositoryQueryMock;
+
+	@Mock
+	private ApplicationContext applicationContextMock;
+
+	private SolrRepositoryWarmer warmer;
+
+	@Before
+	public void setUp() {
+		warmer = new SolrRepositoryWarmer();
+	}
+
+	@Test
+	public void testAddedQueryIsExecutedWithDefaultRows() {
+		Query query = new SimpleQuery(new Criteria("name").is("foo"));
+		warmer.addQuery(solrOperationsMock, query, ProductBean.class);
+
+		Assert.assertEquals(1, warmer.warmUp());
+		ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).queryForPage(captor.capture(),
+				Mockito.eq(ProductBean.class));
+		Assert.assertEquals(SolrRepositoryWarmer.DEFAULT_ROWS, captor.getValue().getPageRequest().getPageSize());
+		Assert.assertSame(query.getCriteria(), captor.getValue().getCriteria());
+		Assert.assertNull(query.getPageRequest());
+	}
+
+	@Test
+	public void testRegisteredRepositoryQueriesAreExecutedForEachIteration() {
+		warmer.register(repositoryQueryMock);
+		warmer.setIterations(3);
+
+		Assert.assertEquals(3, warmer.warmUp());
+		Mockito.verify(repositoryQueryMock, Mockito.times(3)).warmUp(Mockito.any(Pageable.class));
+	}
+
+	@Test
+	public void testRepositoryQueriesAreNotRegisteredWhenDisabled() {
+		warmer.setRegisterRepositoryQueries(false);
+		warmer.register(repositoryQueryMock);
+
+		Assert.assertEquals(0, warmer.getQueryCount());
+	}
+
+	@Test
+	public void testFailingQueryDoesNotStopWarmUp() {
+		Mockito.when(repositoryQueryMock.warmUp(Mockito.any(Pageable.class))).thenThrow(
+				new DataAccessResourceFailureException("down"));
+		warmer.register(repositoryQueryMock);
+		Query query = new SimpleQuery(new Criteria("name").is("foo"));
+		warmer.addQuery(solrOperationsMock, query, ProductBean.class);
+
+		Assert.assertEquals(1, warmer.warmUp());
+		Mockito.verify(solrOperationsMock, Mockito.times(1)).queryForPage(Mockito.any(Query.class),
+				Mockito.eq(ProductBean.class));
+	}
+
+	@Test
+	public void testWarmUpRunsOnlyOnFirstContextRefresh() {
+		warmer.register(repositoryQueryMock);
+
+		warmer.onApplicationEvent(new ContextRefreshedEvent(applicationContextMock));
+		warmer.onApplicationEvent(new ContextRefreshedEvent(applicationContextMock));
+
+		Mockito.verify(repositoryQueryMock, Mockito.times(1)).warmUp(Mockito.any(Pageable.class));
+	}
+
+}
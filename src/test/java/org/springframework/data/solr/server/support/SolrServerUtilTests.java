@@ -15,15 +15,20 @@
  */
 package org.springframework.data.solr.server.support;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.Map;
 
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.solr.client.solrj.impl.CloudSolrServer;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.apache.solr.client.solrj.impl.LBHttpSolrServer;
 import org.hamcrest.core.IsCollectionContaining;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.springframework.test.util.ReflectionTestUtils;
 
 /**
@@ -157,6 +162,32 @@ public class SolrServerUtilTests {
 		Assert.assertEquals(BASE_URL, SolrServerUtils.appendCoreToBaseUrl(null, null));
 	}
 
+	@Test
+	public void testWithSocketTimeoutKeepsUrlAndSharesHttpClient() {
+		HttpSolrServer httpSolrServer = new HttpSolrServer(BASE_URL);
+
+		HttpSolrServer timed = SolrServerUtils.withSocketTimeout(httpSolrServer, 500);
+
+		Assert.assertEquals(httpSolrServer.getBaseURL(), timed.getBaseURL());
+		Assert.assertSame(httpSolrServer.getParser(), timed.getParser());
+		Assert.assertSame(httpSolrServer.getHttpClient(), ((SocketTimeoutHttpClient) timed.getHttpClient()).getDelegate());
+		Assert.assertSame(httpSolrServer.getHttpClient().getConnectionManager(), timed.getHttpClient()
+				.getConnectionManager());
+		Assert.assertEquals(500, ((SocketTimeoutHttpClient) timed.getHttpClient()).getSocketTimeout());
+	}
+
+	@Test
+	public void testSocketTimeoutHttpClientSetsTimeoutOnRequestOnly() throws IOException {
+		HttpClient delegate = Mockito.mock(HttpClient.class);
+		HttpGet request = new HttpGet(BASE_URL);
+
+		new SocketTimeoutHttpClient(delegate, 500).execute(request);
+
+		Mockito.verify(delegate, Mockito.times(1)).execute(request);
+		Assert.assertEquals(500, HttpConnectionParams.getSoTimeout(request.getParams()));
+		Mockito.verify(delegate, Mockito.never()).getParams();
+	}
+
 	private void assertHttpSolrServerProperties(HttpSolrServer httpSolrServer, HttpSolrServer clone) {
 		Assert.assertEquals(ReflectionTestUtils.getField(httpSolrServer, "followRedirects"),
 				ReflectionTestUtils.getField(clone, "followRedirects"));